@@ -1,9 +1,16 @@
 package com.hitpixel.payment.config;
 
+import com.hitpixel.payment.dto.ApiKeyAuthenticationToken;
+import com.hitpixel.payment.enums.ApiKeyScope;
+import com.hitpixel.payment.security.ApiKeyAuthenticationProvider;
 import com.hitpixel.payment.security.CustomJWTAuthFilter;
 import com.hitpixel.payment.security.CustomJWTAuthenticationProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -11,9 +18,18 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @EnableWebSecurity
 @Configuration
 public class AuthConfig {
@@ -23,7 +39,10 @@ public class AuthConfig {
         return httpSecurity
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/api/payments/**").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/api/payments/*/refund").access(scope(ApiKeyScope.REFUNDS_WRITE))
+                        .requestMatchers(HttpMethod.POST, "/api/payments/**").access(scope(ApiKeyScope.PAYMENTS_WRITE))
+                        .requestMatchers(HttpMethod.GET, "/api/payments/**").access(scope(ApiKeyScope.PAYMENTS_READ))
+                        .requestMatchers("/api/payments/**", "/api/users/logout", "/api/api-keys/**").authenticated()
                         .requestMatchers("/**").permitAll())
                 .sessionManagement(sessionManagement -> sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .addFilterBefore(customJWTAuthFilter, UsernamePasswordAuthenticationFilter.class)
@@ -36,9 +55,46 @@ public class AuthConfig {
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity security, CustomJWTAuthenticationProvider customJWTAuthenticationProvider) throws Exception {
+    public AuthenticationManager authenticationManager(HttpSecurity security, CustomJWTAuthenticationProvider customJWTAuthenticationProvider,
+                                                       ApiKeyAuthenticationProvider apiKeyAuthenticationProvider) throws Exception {
         AuthenticationManagerBuilder authenticationManagerBuilder = security.getSharedObject(AuthenticationManagerBuilder.class);
         authenticationManagerBuilder.authenticationProvider(customJWTAuthenticationProvider);
+        authenticationManagerBuilder.authenticationProvider(apiKeyAuthenticationProvider);
+        // the default parent is the global manager, which resolves to this bean and would retry every rejected authentication forever
+        authenticationManagerBuilder.parentAuthenticationManager(null);
         return authenticationManagerBuilder.build();
     }
+
+    /*
+        Users authenticated by JWT may call every payment API, api keys only the ones their scopes grant
+     */
+    private static AuthorizationManager<RequestAuthorizationContext> scope(ApiKeyScope scope) {
+        return (authenticationSupplier, context) -> {
+            Authentication authentication = authenticationSupplier.get();
+            if(authentication == null || !authentication.isAuthenticated()) {
+                return new AuthorizationDecision(false);
+            }
+            if(!(authentication instanceof ApiKeyAuthenticationToken)) {
+                return new AuthorizationDecision(true);
+            }
+            return new AuthorizationDecision(authentication
+                    .getAuthorities()
+                    .stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .anyMatch(scope.authority()::equals));
+        };
+    }
+
+    /*
+        Passwords are stored as {bcrypt} hashes. Passwords stored before hashing was introduced have no
+        {id} prefix and are matched as plain text, they report upgradeEncoding so they are rehashed on login
+     */
+    @Bean
+    @SuppressWarnings("deprecation")
+    public PasswordEncoder passwordEncoder(@Value("${payment.password-hashing.bcrypt-strength:10}") int strength) {
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+        return passwordEncoder;
+    }
 }
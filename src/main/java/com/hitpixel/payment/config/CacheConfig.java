@@ -0,0 +1,15 @@
+package com.hitpixel.payment.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Caches are backed by Caffeine, see spring.cache in application.yaml for size and expiry.
+    Cache statistics are published under /actuator/caches and /actuator/metrics/cache.gets
+ */
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+    public static final String USERS_CACHE = "users";
+}
@@ -0,0 +1,55 @@
+package com.hitpixel.payment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.gateway.GatewayClient;
+import com.hitpixel.payment.gateway.GatewayClients;
+import com.hitpixel.payment.gateway.StubGatewayServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(GatewayProperties.class)
+public class GatewayConfig {
+
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(name = "payment.gateway.stub.enabled", havingValue = "true")
+    public StubGatewayServer stubGatewayServer(GatewayProperties gatewayProperties, ObjectMapper objectMapper) throws IOException {
+        Map<PaymentMethod, GatewayProperties.StubBehaviour> behaviours = new EnumMap<>(PaymentMethod.class);
+        for(PaymentMethod paymentMethod : PaymentMethod.values()) {
+            GatewayProperties.Gateway gateway = gatewayProperties.getGateways().get(paymentMethod);
+            behaviours.put(paymentMethod, gateway == null ? new GatewayProperties.StubBehaviour() : gateway.getStub());
+        }
+        return new StubGatewayServer(gatewayProperties.getStub().getPort(), behaviours, objectMapper);
+    }
+
+    /*
+        A payment method without a url calls the stub gateway when it is enabled, otherwise it is simulated
+     */
+    @Bean(destroyMethod = "close")
+    public GatewayClients gatewayClients(GatewayProperties gatewayProperties,
+                                         ObjectProvider<StubGatewayServer> stubGatewayServer,
+                                         ObjectMapper objectMapper,
+                                         MeterRegistry meterRegistry) {
+        StubGatewayServer stub = stubGatewayServer.getIfAvailable();
+        Map<PaymentMethod, GatewayClient> clients = new EnumMap<>(PaymentMethod.class);
+        for(PaymentMethod paymentMethod : PaymentMethod.values()) {
+            GatewayProperties.Gateway gateway = gatewayProperties.getGateways().getOrDefault(paymentMethod, new GatewayProperties.Gateway());
+            String url = gateway.getUrl() != null && !gateway.getUrl().isBlank()
+                    ? gateway.getUrl()
+                    : stub != null ? stub.url(paymentMethod) : null;
+            if(url != null) {
+                clients.put(paymentMethod, new GatewayClient(paymentMethod, url, gateway, objectMapper, meterRegistry));
+            }
+        }
+        return new GatewayClients(clients);
+    }
+}
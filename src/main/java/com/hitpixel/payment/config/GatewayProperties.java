@@ -0,0 +1,60 @@
+package com.hitpixel.payment.config;
+
+import com.hitpixel.payment.enums.PaymentMethod;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+    Settings of the payment gateways under payment.gateway, one entry per payment method. The settings
+    are bound as a whole because every gateway has the same nested structure.
+ */
+@Data
+@ConfigurationProperties("payment.gateway")
+public class GatewayProperties {
+
+    private Stub stub = new Stub();
+
+    private Map<PaymentMethod, Gateway> gateways = new EnumMap<>(PaymentMethod.class);
+
+    @Data
+    public static class Gateway {
+        /*
+            Base url of the gateway, without one the payment is simulated in process unless the stub
+            gateway is enabled
+         */
+        private String url;
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration requestTimeout = Duration.ofSeconds(2);
+        private int maxConcurrentCalls = 50;
+        private int circuitBreakerFailureThreshold = 5;
+        private Duration circuitBreakerOpenDuration = Duration.ofSeconds(10);
+        private StubBehaviour stub = new StubBehaviour();
+    }
+
+    @Data
+    public static class Stub {
+        private boolean enabled;
+        /*
+            0 picks a free port
+         */
+        private int port;
+    }
+
+    @Data
+    public static class StubBehaviour {
+        /*
+            Every response is delayed by the latency plus a uniformly distributed jitter in [-jitter, +jitter]
+         */
+        private Duration latency = Duration.ofMillis(20);
+        private Duration latencyJitter = Duration.ZERO;
+        /*
+            Share of requests answered with a 503 and share of payments declined
+         */
+        private double errorRate;
+        private double declineRate;
+    }
+}
@@ -0,0 +1,22 @@
+package com.hitpixel.payment.config;
+
+import com.hitpixel.payment.security.EphemeralSigningKeyProvider;
+import com.hitpixel.payment.security.KeyStoreSigningKeyProvider;
+import com.hitpixel.payment.security.SigningKeyProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JWTKeyConfig {
+
+    @Bean
+    public SigningKeyProvider signingKeyProvider(@Value("${payment.jwt.keystore.path:}") String path,
+                                                 @Value("${payment.jwt.keystore.password:}") String password,
+                                                 @Value("${payment.jwt.keystore.signing-key-id:}") String signingKeyId) {
+        if(path.isBlank()) {
+            return new EphemeralSigningKeyProvider();
+        }
+        return new KeyStoreSigningKeyProvider(path, password.toCharArray(), signingKeyId);
+    }
+}
@@ -0,0 +1,33 @@
+package com.hitpixel.payment.config;
+
+import com.hitpixel.payment.domain.AssignedIdEntity;
+import org.hibernate.Interceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+    Hibernate can not tell whether an entity with an assigned id exists, so an association to a detached one,
+    such as the user of a new transaction, is checked with a select before the insert. Entities known to exist
+    are reported as such, everything else is left to Hibernate.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer persistedEntityInterceptor() {
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR, new PersistedEntityInterceptor());
+    }
+
+    private static final class PersistedEntityInterceptor implements Interceptor {
+
+        @Override
+        public Boolean isTransient(Object entity) {
+            if(entity instanceof AssignedIdEntity<?> assignedIdEntity && !assignedIdEntity.isNew()) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.hitpixel.payment.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/*
+    Runs housekeeping tasks such as expiring refresh tokens
+ */
+@EnableScheduling
+@Configuration
+public class SchedulingConfig {
+}
@@ -11,4 +11,10 @@ import io.swagger.v3.oas.annotations.security.SecurityScheme;
         scheme = "bearer",
         in = SecuritySchemeIn.HEADER
 )
-public class SwaggerConfiguration {}
\ No newline at end of file
+@SecurityScheme(
+        name = "ApiKey",
+        type = SecuritySchemeType.APIKEY,
+        paramName = "X-API-Key",
+        in = SecuritySchemeIn.HEADER
+)
+public class SwaggerConfiguration {}
@@ -0,0 +1,63 @@
+package com.hitpixel.payment.controller;
+
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.ApiKeyRequest;
+import com.hitpixel.payment.dto.ApiKeyResponse;
+import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.dto.ErrorDetails;
+import com.hitpixel.payment.service.ApiKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/api-keys")
+@SecurityRequirement(name = "Authorization")
+public class ApiKeyController {
+
+    private final ApiKeyService apiKeyService;
+
+    public ApiKeyController(ApiKeyService apiKeyService) {
+        this.apiKeyService = apiKeyService;
+    }
+
+    @Operation(summary = "Create an api key for server to server calls to the payment API's, the key is only shown once")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Api key created successfully"),
+            @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @PostMapping
+    public ResponseEntity<ApiKeyResponse> createApiKey(@Valid @RequestBody ApiKeyRequest apiKeyRequest) {
+        User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        log.info("Received api key request for user={}", user.getEmail());
+        ApiKeyResponse apiKeyResponse = apiKeyService.createApiKey(apiKeyRequest, user);
+        return new ResponseEntity<>(apiKeyResponse, HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Revoke an api key")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Api key revoked successfully"),
+            @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "404", description = "Api key does not exists in the system", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @DeleteMapping("{apiKeyId}")
+    public ResponseEntity<Void> revokeApiKey(@PathVariable String apiKeyId) {
+        User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        log.info("Revoking api key id={} of user={}", apiKeyId, user.getEmail());
+        apiKeyService.revokeApiKey(apiKeyId, user);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,67 +3,217 @@ package com.hitpixel.payment.controller;
 import com.hitpixel.payment.domain.Transaction;
 import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.dto.BatchPaymentRequest;
+import com.hitpixel.payment.dto.BatchPaymentResponse;
 import com.hitpixel.payment.dto.ErrorDetails;
 import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.dto.RefundedTransactionView;
+import com.hitpixel.payment.dto.RefundRequest;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.dto.TransactionPage;
+import com.hitpixel.payment.dto.TransactionView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.ExportFormat;
+import com.hitpixel.payment.enums.PaymentMethod;
 import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.service.BatchPaymentService;
 import com.hitpixel.payment.service.PaymentService;
+import com.hitpixel.payment.service.PaymentSummaryService;
+import com.hitpixel.payment.service.TransactionExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/payments")
 @SecurityRequirement(name = "Authorization")
+@SecurityRequirement(name = "ApiKey")
 public class PaymentController {
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String PREFER_HEADER = "Prefer";
+    public static final String RESPOND_ASYNC = "respond-async";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String DEFAULT_HISTORY_LIMIT = "100";
+
     PaymentService paymentService;
-    public PaymentController(PaymentService paymentService){
+    BatchPaymentService batchPaymentService;
+    TransactionExportService transactionExportService;
+    PaymentSummaryService paymentSummaryService;
+    public PaymentController(PaymentService paymentService, BatchPaymentService batchPaymentService,
+                             TransactionExportService transactionExportService, PaymentSummaryService paymentSummaryService){
         this.paymentService = paymentService;
+        this.batchPaymentService = batchPaymentService;
+        this.transactionExportService = transactionExportService;
+        this.paymentSummaryService = paymentSummaryService;
     }
 
     @Operation(summary = "Make payments to another entity")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Payment completed successfully"),
+            @ApiResponse(responseCode = "202", description = "Payment accepted with Prefer: respond-async, it completes in the background"),
             @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "404", description = "User does not exists in the system", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used with a different payment", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "503", description = "Too many payments in progress", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
     })
     @PostMapping
-    public ResponseEntity<Transaction> makePayments(@Valid @RequestBody Payment payment) {
+    public ResponseEntity<Transaction> makePayments(@Valid @RequestBody Payment payment,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                    @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
         User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        boolean idempotent = idempotencyKey != null && !idempotencyKey.isBlank();
+        if(prefer != null && prefer.contains(RESPOND_ASYNC)) {
+            log.info("Received asynchronous payment request for user={}", user.getEmail());
+            Transaction transaction = idempotent
+                    ? paymentService.acceptPayment(payment, user, idempotencyKey)
+                    : paymentService.acceptPayment(payment, user);
+            return ResponseEntity
+                    .accepted()
+                    .location(URI.create("/api/payments/" + transaction.getId() + "/status"))
+                    .body(transaction);
+        }
         log.info("Received payment request for user={}", user.getEmail());
-        Transaction transaction = paymentService.makePayment(payment, user);
+        Transaction transaction = idempotent
+                ? paymentService.makePayment(payment, user, idempotencyKey)
+                : paymentService.makePayment(payment, user);
         log.info("Payment processed for user={}", user.getEmail());
         return ResponseEntity.ok(transaction);
     }
 
-    @Operation(summary = "View transaction history")
+    @Operation(summary = "Make a batch of payments to other entities")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, the result of every payment is in the response"),
+            @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @PostMapping("batch")
+    public ResponseEntity<BatchPaymentResponse> makeBatchPayments(@Valid @RequestBody BatchPaymentRequest batchPaymentRequest) {
+        User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        log.info("Received batch of {} payment(s) for user={}", batchPaymentRequest.payments().size(), user.getEmail());
+        BatchPaymentResponse batchPaymentResponse = batchPaymentService.makePayments(batchPaymentRequest.payments(), user);
+        log.info("Batch processed for user={}", user.getEmail());
+        return ResponseEntity.ok(batchPaymentResponse);
+    }
+
+    @Operation(summary = "View transaction history",
+            description = "Transactions are returned newest first, one page at a time. When there are more, the " + NEXT_CURSOR_HEADER
+                    + " header holds the cursor of the next page and the Link header its url.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Fetched transactions successfully"),
             @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "404", description = "User does not exists in the system", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
-            @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "400", description = "Filter, limit or cursor is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
     })
     @GetMapping("history")
-    public ResponseEntity<List<Transaction>> fetchTransactions() {
+    public ResponseEntity<List<TransactionView>> fetchTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) Currency currency,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = DEFAULT_HISTORY_LIMIT) int limit) {
         User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
-        log.info("Fetching all transactions for user={}", user.getEmail());
-        List<Transaction> transactions = paymentService.fetchTransactions(user);
+        log.info("Fetching transactions for user={}", user.getEmail());
+        TransactionPage page = paymentService.fetchTransactions(user,
+                new TransactionHistoryFilter(from, to, status, currency, paymentMethod), cursor, limit);
         log.info("Fetched transactions for user={}", user.getEmail());
-        return ResponseEntity.ok(transactions);
+        if(page.nextCursor() == null) {
+            return ResponseEntity.ok(page.transactions());
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", page.nextCursor())
+                .build()
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, page.nextCursor())
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(page.transactions());
+    }
+
+    @Operation(summary = "Export full transaction history",
+            description = "All transactions matching the filters are streamed newest first, as one JSON object per line "
+                    + "(NDJSON) or as CSV with a header line.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transactions are streamed in the response"),
+            @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "400", description = "Filter or format is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @GetMapping("history/export")
+    public void exportTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) Currency currency,
+            @RequestParam(required = false) PaymentMethod paymentMethod,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            HttpServletResponse response) throws IOException {
+        User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        log.info("Exporting transactions for user={}", user.getEmail());
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(from, to, status, currency, paymentMethod);
+        response.setContentType(format.getMediaType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + format.getExtension() + "\"");
+        long exported = transactionExportService.export(user, filter, format, response.getOutputStream());
+        log.info("Exported {} transaction(s) for user={}", exported, user.getEmail());
+    }
+
+    @Operation(summary = "View payment summary",
+            description = "Number of transactions, total amount and total refunded amount by currency, status and payment method. "
+                    + "Combinations without transactions are left out, amounts of different currencies are never added up.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fetched payment summary successfully"),
+            @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @GetMapping("summary")
+    public ResponseEntity<List<PaymentSummaryView>> fetchSummary() {
+        User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        log.info("Fetching payment summary for user={}", user.getEmail());
+        List<PaymentSummaryView> summary = paymentSummaryService.fetchSummary(user);
+        log.info("Fetched payment summary for user={}", user.getEmail());
+        return ResponseEntity.ok(summary);
+    }
+
+    @Operation(summary = "Rebuild payment summary",
+            description = "Recomputes the payment summary from all transactions and returns it.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Rebuilt payment summary successfully"),
+            @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @PostMapping("summary/rebuild")
+    public ResponseEntity<List<PaymentSummaryView>> rebuildSummary() {
+        User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
+        log.info("Rebuilding payment summary for user={}", user.getEmail());
+        List<PaymentSummaryView> summary = paymentSummaryService.rebuildSummary(user);
+        log.info("Rebuilt payment summary for user={}", user.getEmail());
+        return ResponseEntity.ok(summary);
     }
 
     @Operation(summary = "View transaction status")
@@ -87,16 +237,19 @@ public class PaymentController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Payment refunded successfully"),
             @ApiResponse(responseCode = "401", description = "User cannot be authenticated", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
-            @ApiResponse(responseCode = "404", description = "User or transaction does not exists in the system", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "404", description = "User or transaction does not exists in the system, or it is already refunded", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "422", description = "Refund amount exceeds the refundable amount, or the transaction is pending or failed", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
     })
     @PostMapping("{transactionId}/refund")
-    public ResponseEntity<Transaction> refundPayment(@PathVariable String transactionId) {
+    public ResponseEntity<RefundedTransactionView> refundPayment(@PathVariable String transactionId,
+                                                                 @Valid @RequestBody(required = false) RefundRequest refundRequest) {
         User user = ((AuthenticationToken) SecurityContextHolder.getContext().getAuthentication()).getUser();
         log.info("Refund requested for transaction id={} for user={}", transactionId, user.getEmail());
-        Transaction transaction = paymentService.refundTransaction(transactionId, user);
+        Transaction transaction = paymentService.refundTransaction(transactionId,
+                refundRequest == null ? null : refundRequest.amount(), user);
         log.info("Refund completed for transaction id={} and user={}", transactionId, user.getEmail());
-        return ResponseEntity.ok(transaction);
+        return ResponseEntity.ok(RefundedTransactionView.of(transaction));
     }
 }
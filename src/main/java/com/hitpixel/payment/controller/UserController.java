@@ -1,8 +1,11 @@
 package com.hitpixel.payment.controller;
 
+import com.hitpixel.payment.dto.AuthenticationToken;
 import com.hitpixel.payment.dto.ErrorDetails;
 import com.hitpixel.payment.dto.JWTAuthToken;
 import com.hitpixel.payment.dto.LoginRequest;
+import com.hitpixel.payment.dto.LogoutRequest;
+import com.hitpixel.payment.dto.RefreshTokenRequest;
 import com.hitpixel.payment.dto.User;
 import com.hitpixel.payment.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,15 +13,19 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 
 @Slf4j
 @RestController
@@ -35,6 +42,8 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully registered user into the system"),
             @ApiResponse(responseCode = "400", description = "Request body is incorrect",content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "409", description = "User with the email is already registered", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent registrations, retry later", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
     })
     @PostMapping("register")
@@ -52,13 +61,47 @@ public class UserController {
             @ApiResponse(responseCode = "401", description = "Username or password is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "404", description = "User does not exists in the system", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent logins, retry later", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
             @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
     })
     @PostMapping("login")
-    public ResponseEntity<JWTAuthToken> login(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<JWTAuthToken>> login(@Valid @RequestBody LoginRequest loginRequest) {
         log.info("Logging in user with email={}", loginRequest.email());
-        JWTAuthToken jwtAuthToken = userService.loginUser(loginRequest);
-        log.info("User={} successfully logged into the system", loginRequest.email());
+        return userService
+                .loginUser(loginRequest)
+                .thenApply(jwtAuthToken -> {
+                    log.info("User={} successfully logged into the system", loginRequest.email());
+                    return ResponseEntity.ok(jwtAuthToken);
+                });
+    }
+
+    @Operation(summary = "Exchange a refresh token for a new JWT token and refresh token")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully refreshed the session"),
+            @ApiResponse(responseCode = "401", description = "Refresh token is unknown, expired, revoked or already used", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "400", description = "Request body is incorrect", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @PostMapping("token/refresh")
+    public ResponseEntity<JWTAuthToken> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        log.info("Refreshing JWT token");
+        JWTAuthToken jwtAuthToken = userService.refreshToken(refreshTokenRequest);
+        log.info("Successfully refreshed JWT token");
         return ResponseEntity.ok(jwtAuthToken);
     }
+
+    @Operation(summary = "Logout user, the JWT token and the session of the refresh token can not be used anymore")
+    @SecurityRequirement(name = "Authorization")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Successfully logged out"),
+            @ApiResponse(responseCode = "401", description = "JWT token is not valid", content = @Content(schema = @Schema(implementation = ErrorDetails.class))),
+            @ApiResponse(responseCode = "500", description = "Error occurred while processing the request", content = @Content(schema = @Schema(implementation = ErrorDetails.class)))
+    })
+    @PostMapping("logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) LogoutRequest logoutRequest) {
+        AuthenticationToken authentication = (AuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
+        log.info("Logging out user={}", authentication.getUser().getEmail());
+        userService.logoutUser((String) authentication.getCredentials(), logoutRequest);
+        return ResponseEntity.noContent().build();
+    }
 }
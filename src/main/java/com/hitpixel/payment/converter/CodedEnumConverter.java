@@ -0,0 +1,49 @@
+package com.hitpixel.payment.converter;
+
+import com.hitpixel.payment.enums.CodedEnum;
+import jakarta.persistence.AttributeConverter;
+
+import java.lang.reflect.Array;
+
+/**
+ * Stores a CodedEnum as its SMALLINT code. Codes are looked up in an array indexed by code, so reading a
+ * row costs an array access instead of a string comparison per constant.
+ */
+public abstract class CodedEnumConverter<E extends Enum<E> & CodedEnum> implements AttributeConverter<E, Short> {
+
+    private final Class<E> type;
+    private final E[] byCode;
+
+    @SuppressWarnings("unchecked")
+    protected CodedEnumConverter(Class<E> type) {
+        this.type = type;
+        E[] constants = type.getEnumConstants();
+        int maxCode = 0;
+        for(E constant : constants) {
+            maxCode = Math.max(maxCode, constant.getCode());
+        }
+        this.byCode = (E[]) Array.newInstance(type, maxCode + 1);
+        for(E constant : constants) {
+            if(constant.getCode() <= 0 || byCode[constant.getCode()] != null) {
+                throw new IllegalStateException(type.getSimpleName() + " has an invalid or duplicate code " + constant.getCode());
+            }
+            byCode[constant.getCode()] = constant;
+        }
+    }
+
+    @Override
+    public Short convertToDatabaseColumn(E attribute) {
+        return attribute == null ? null : attribute.getCode();
+    }
+
+    @Override
+    public E convertToEntityAttribute(Short code) {
+        if(code == null) {
+            return null;
+        }
+        if(code <= 0 || code >= byCode.length || byCode[code] == null) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " code " + code);
+        }
+        return byCode[code];
+    }
+}
@@ -0,0 +1,12 @@
+package com.hitpixel.payment.converter;
+
+import com.hitpixel.payment.enums.Currency;
+import jakarta.persistence.Converter;
+
+@Converter
+public class CurrencyConverter extends CodedEnumConverter<Currency> {
+
+    public CurrencyConverter() {
+        super(Currency.class);
+    }
+}
@@ -0,0 +1,12 @@
+package com.hitpixel.payment.converter;
+
+import com.hitpixel.payment.enums.PaymentMethod;
+import jakarta.persistence.Converter;
+
+@Converter
+public class PaymentMethodConverter extends CodedEnumConverter<PaymentMethod> {
+
+    public PaymentMethodConverter() {
+        super(PaymentMethod.class);
+    }
+}
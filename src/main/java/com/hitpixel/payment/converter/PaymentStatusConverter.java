@@ -0,0 +1,12 @@
+package com.hitpixel.payment.converter;
+
+import com.hitpixel.payment.enums.PaymentStatus;
+import jakarta.persistence.Converter;
+
+@Converter
+public class PaymentStatusConverter extends CodedEnumConverter<PaymentStatus> {
+
+    public PaymentStatusConverter() {
+        super(PaymentStatus.class);
+    }
+}
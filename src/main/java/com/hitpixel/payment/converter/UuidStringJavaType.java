@@ -0,0 +1,56 @@
+package com.hitpixel.payment.converter;
+
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.StringJavaType;
+
+import java.util.UUID;
+
+/**
+ * Maps String ids to UUID columns, so ids take 16 bytes in the database while entities, repositories and
+ * the API keep using the canonical string. Only canonical UUID strings can be stored, see isUuid.
+ */
+public class UuidStringJavaType extends StringJavaType {
+
+    private static final int CANONICAL_LENGTH = 36;
+
+    /**
+     * Method to check if a string is a canonical UUID and can be used as an id
+     * @param value string to check
+     * @return boolean value if the string is a canonical UUID
+     */
+    public static boolean isUuid(String value) {
+        if(value == null || value.length() != CANONICAL_LENGTH) {
+            return false;
+        }
+        for(int index = 0; index < CANONICAL_LENGTH; index++) {
+            char character = value.charAt(index);
+            boolean valid = index == 8 || index == 13 || index == 18 || index == 23
+                    ? character == '-'
+                    : Character.digit(character, 16) >= 0;
+            if(!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <X> X unwrap(String value, Class<X> type, WrapperOptions options) {
+        if(value != null && UUID.class.isAssignableFrom(type)) {
+            if(!isUuid(value)) {
+                throw new IllegalArgumentException("Id is not a UUID: " + value);
+            }
+            return (X) UUID.fromString(value);
+        }
+        return super.unwrap(value, type, options);
+    }
+
+    @Override
+    public <X> String wrap(X value, WrapperOptions options) {
+        if(value instanceof UUID uuid) {
+            return uuid.toString();
+        }
+        return super.wrap(value, options);
+    }
+}
@@ -0,0 +1,49 @@
+package com.hitpixel.payment.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "Api_Keys")
+public class ApiKey extends AssignedIdEntity<String> {
+
+    @Id
+    String id;
+
+    @Column
+    String name;
+
+    /*
+        SHA-256 digest of the key, the key itself is only shown once when it is created
+     */
+    @Column
+    String keyHash;
+
+    /*
+        Comma separated ApiKeyScope names
+     */
+    @Column
+    String scopes;
+
+    @Column
+    boolean active;
+
+    @ManyToOne
+    User user;
+
+    @Column
+    LocalDateTime createdTimestamp;
+}
@@ -0,0 +1,36 @@
+package com.hitpixel.payment.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+/*
+    Base class of entities whose id is assigned by the application. Spring Data treats an entity with an id
+    as existing and saves it with a merge, which selects the row before inserting it. Entities created in
+    code are new until they are persisted, entities read from the database are not, so saving a new entity
+    is a single insert. Entities rebuilt from data of an existing row, such as the user of a JWT, are marked
+    as persisted so Hibernate does not select them again when they are referenced.
+ */
+@MappedSuperclass
+public abstract class AssignedIdEntity<ID> implements Persistable<ID>, Serializable {
+
+    @Transient
+    private transient boolean persisted;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    public void markPersisted() {
+        this.persisted = true;
+    }
+}
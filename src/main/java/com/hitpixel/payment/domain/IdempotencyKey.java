@@ -0,0 +1,40 @@
+package com.hitpixel.payment.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "Idempotency_Keys")
+public class IdempotencyKey extends AssignedIdEntity<String> {
+
+    /*
+        SHA-256 digest of the user id and the Idempotency-Key header, keys are only unique per user
+     */
+    @Id
+    String id;
+
+    /*
+        SHA-256 digest of the payment request the key was first used with
+     */
+    @Column
+    String requestHash;
+
+    @ManyToOne
+    Transaction transaction;
+
+    @Column
+    LocalDateTime createdTimestamp;
+}
@@ -0,0 +1,37 @@
+package com.hitpixel.payment.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/*
+    Totals of the transactions of a user with one currency, status and payment method. The totals are changed
+    together with the transactions they count, a user has a row for every combination once it has any.
+ */
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "Payment_Summaries")
+public class PaymentSummary extends AssignedIdEntity<PaymentSummaryKey> {
+
+    @EmbeddedId
+    PaymentSummaryKey id;
+
+    @Column
+    long transactionCount;
+
+    @Column(precision = 19, scale = 4)
+    BigDecimal amount;
+
+    @Column(precision = 19, scale = 4)
+    BigDecimal refundedAmount;
+}
@@ -0,0 +1,47 @@
+package com.hitpixel.payment.domain;
+
+import com.hitpixel.payment.converter.CurrencyConverter;
+import com.hitpixel.payment.converter.PaymentMethodConverter;
+import com.hitpixel.payment.converter.PaymentStatusConverter;
+import com.hitpixel.payment.converter.UuidStringJavaType;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+
+/*
+    The combination of user, currency, status and payment method the totals of a payment summary are kept for
+ */
+@Embeddable
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentSummaryKey implements Serializable {
+
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
+    @Column(name = "user_id")
+    String userId;
+
+    @Convert(converter = CurrencyConverter.class)
+    @Column
+    Currency currency;
+
+    @Convert(converter = PaymentStatusConverter.class)
+    @Column
+    PaymentStatus status;
+
+    @Convert(converter = PaymentMethodConverter.class)
+    @Column
+    PaymentMethod paymentMethod;
+}
@@ -0,0 +1,46 @@
+package com.hitpixel.payment.domain;
+
+import com.hitpixel.payment.converter.UuidStringJavaType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+    A refund of a part or all of a transaction. Refunds are only ever inserted, the refunded total of the
+    transaction is kept on the transaction itself.
+ */
+@Entity
+@Data
+@EqualsAndHashCode(callSuper = false)
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "Refunds")
+public class Refund extends AssignedIdEntity<String> {
+
+    @Id
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
+    String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    Transaction transaction;
+
+    @Column(precision = 19, scale = 4)
+    BigDecimal amount;
+
+    @Column
+    LocalDateTime refundTimestamp;
+}
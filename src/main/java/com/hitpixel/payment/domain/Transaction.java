@@ -1,46 +1,73 @@
 package com.hitpixel.payment.domain;
 
+import com.hitpixel.payment.converter.CurrencyConverter;
+import com.hitpixel.payment.converter.PaymentMethodConverter;
+import com.hitpixel.payment.converter.PaymentStatusConverter;
+import com.hitpixel.payment.converter.UuidStringJavaType;
 import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentStatus;
 import com.hitpixel.payment.enums.PaymentMethod;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
-import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Data
-@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
 @NoArgsConstructor
 @Table(name = "Transactions")
-public class Transaction implements Serializable {
+public class Transaction extends AssignedIdEntity<String> {
 
+    /*
+        Stored as a 16 byte UUID, the API keeps exposing its canonical string
+     */
     @Id
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     String id;
 
-    @Column
+    @Column(precision = 19, scale = 4)
     BigDecimal amount;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = PaymentMethodConverter.class)
     @Column
     PaymentMethod paymentMethod;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = CurrencyConverter.class)
     @Column
     Currency currency;
 
     @ManyToOne
     User user;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = PaymentStatusConverter.class)
     @Column
     PaymentStatus status;
 
     @Column
     LocalDateTime transactionTimestamp;
 
+    /*
+        Running total of the refunds of the transaction, the refundable amount is the amount minus this total
+     */
+    @Column(precision = 19, scale = 4)
+    BigDecimal refundedAmount = BigDecimal.ZERO;
+
+    public Transaction(String id, BigDecimal amount, PaymentMethod paymentMethod, Currency currency, User user,
+                       PaymentStatus status, LocalDateTime transactionTimestamp) {
+        this.id = id;
+        this.amount = amount;
+        this.paymentMethod = paymentMethod;
+        this.currency = currency;
+        this.user = user;
+        this.status = status;
+        this.transactionTimestamp = transactionTimestamp;
+    }
 }
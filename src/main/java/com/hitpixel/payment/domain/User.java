@@ -1,23 +1,28 @@
 package com.hitpixel.payment.domain;
 
-
+import com.hitpixel.payment.converter.UuidStringJavaType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-
-import java.io.Serializable;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 @Entity
 @Table(name = "Users")
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-public class User implements Serializable {
+@EqualsAndHashCode(callSuper = false)
+public class User extends AssignedIdEntity<String> {
     @Id
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     String id;
     @Column
     String name;
@@ -0,0 +1,25 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.domain.User;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+/*
+    Authentication of a service principal by the X-API-Key header. Once authenticated it carries the
+    user owning the key, so controllers read it like a JWT authentication, and the scopes of the key
+    as authorities. The key itself is not kept after authentication.
+ */
+public class ApiKeyAuthenticationToken extends AuthenticationToken {
+
+    public ApiKeyAuthenticationToken(String apiKey) {
+        super(apiKey, List.of());
+    }
+
+    public ApiKeyAuthenticationToken(User user, Collection<? extends GrantedAuthority> authorities) {
+        super(null, authorities);
+        setUser(user);
+        setAuthenticated(true);
+    }
+}
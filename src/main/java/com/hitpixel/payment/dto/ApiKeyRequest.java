@@ -0,0 +1,14 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.enums.ApiKeyScope;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.Set;
+
+public record ApiKeyRequest(
+        @NotBlank(message = "Name cannot be null or empty")
+        String name,
+        @NotEmpty(message = "At least one scope is required")
+        Set<ApiKeyScope> scopes) {
+}
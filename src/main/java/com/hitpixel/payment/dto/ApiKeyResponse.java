@@ -0,0 +1,19 @@
+package com.hitpixel.payment.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hitpixel.payment.enums.ApiKeyScope;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/*
+    The api key is only returned when it is created, it can not be retrieved later
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ApiKeyResponse(
+        String id,
+        String name,
+        Set<ApiKeyScope> scopes,
+        LocalDateTime createdTimestamp,
+        String apiKey) {
+}
@@ -4,7 +4,9 @@ import com.hitpixel.payment.domain.User;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 
+import java.util.Collection;
 import java.util.List;
 
 public class AuthenticationToken extends AbstractAuthenticationToken {
@@ -18,7 +20,11 @@ public class AuthenticationToken extends AbstractAuthenticationToken {
     private User user;
 
     public AuthenticationToken(String credentials){
-        super(List.of());
+        this(credentials, List.of());
+    }
+
+    protected AuthenticationToken(String credentials, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
         this.credentials = credentials;
     }
 
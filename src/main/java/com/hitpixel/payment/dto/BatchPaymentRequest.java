@@ -0,0 +1,17 @@
+package com.hitpixel.payment.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/*
+    Payments are validated one by one so an invalid payment only fails its own item
+ */
+public record BatchPaymentRequest(
+        @NotEmpty(message = "Payments cannot be empty")
+        @Size(max = BatchPaymentRequest.MAX_PAYMENTS, message = "A batch can contain at most " + BatchPaymentRequest.MAX_PAYMENTS + " payments")
+        List<Payment> payments
+) {
+    public static final int MAX_PAYMENTS = 10000;
+}
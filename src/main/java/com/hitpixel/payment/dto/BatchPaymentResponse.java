@@ -0,0 +1,9 @@
+package com.hitpixel.payment.dto;
+
+import java.util.List;
+
+public record BatchPaymentResponse(
+        int accepted,
+        int rejected,
+        List<BatchPaymentResult> results) {
+}
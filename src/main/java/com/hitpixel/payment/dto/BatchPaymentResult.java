@@ -0,0 +1,16 @@
+package com.hitpixel.payment.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hitpixel.payment.enums.PaymentStatus;
+
+/*
+    Result of one payment of a batch, index is its position in the request. Rejected payments have an
+    error instead of a transaction.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchPaymentResult(
+        int index,
+        String transactionId,
+        PaymentStatus status,
+        String error) {
+}
@@ -1,4 +1,13 @@
 package com.hitpixel.payment.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record JWTAuthToken(
-        String token) {}
+        String token,
+        String refreshToken) {
+
+    public JWTAuthToken(String token) {
+        this(token, null);
+    }
+}
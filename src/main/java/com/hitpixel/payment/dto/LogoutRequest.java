@@ -0,0 +1,5 @@
+package com.hitpixel.payment.dto;
+
+public record LogoutRequest(
+        String refreshToken) {
+}
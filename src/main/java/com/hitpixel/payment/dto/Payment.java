@@ -3,12 +3,14 @@ package com.hitpixel.payment.dto;
 import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentMethod;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 
 import java.math.BigDecimal;
 
 public record Payment(
         @DecimalMin(value = "0.0", inclusive = false, message = "Payment amount should be greater than 0.0")
+        @Digits(integer = 15, fraction = 4, message = "Payment amount can have at most 4 decimals")
         BigDecimal paymentAmount,
         @NotNull(message = "Payment method cannot be blank")
         PaymentMethod paymentMethod,
@@ -0,0 +1,21 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+
+/*
+    Number of transactions, their total amount and their total refunded amount for one currency, status and
+    payment method
+ */
+public record PaymentSummaryView(
+        Currency currency,
+        PaymentStatus status,
+        PaymentMethod paymentMethod,
+        long count,
+        BigDecimal amount,
+        BigDecimal refundedAmount
+) {
+}
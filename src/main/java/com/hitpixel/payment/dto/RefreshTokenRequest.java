@@ -0,0 +1,8 @@
+package com.hitpixel.payment.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenRequest(
+        @NotBlank(message = "Refresh token cannot be blank")
+        String refreshToken) {
+}
@@ -0,0 +1,16 @@
+package com.hitpixel.payment.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+
+import java.math.BigDecimal;
+
+/*
+    Without an amount the remaining refundable amount of the transaction is refunded
+ */
+public record RefundRequest(
+        @DecimalMin(value = "0.0", inclusive = false, message = "Refund amount should be greater than 0.0")
+        @Digits(integer = 15, fraction = 4, message = "Refund amount can have at most 4 decimals")
+        BigDecimal amount
+) {
+}
@@ -0,0 +1,29 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+    Columns of a refunded transaction returned by the refund, without its user
+ */
+public record RefundedTransactionView(
+        String id,
+        BigDecimal amount,
+        PaymentMethod paymentMethod,
+        Currency currency,
+        PaymentStatus status,
+        LocalDateTime transactionTimestamp,
+        BigDecimal refundedAmount
+) {
+
+    public static RefundedTransactionView of(Transaction transaction) {
+        return new RefundedTransactionView(transaction.getId(), transaction.getAmount(), transaction.getPaymentMethod(),
+                transaction.getCurrency(), transaction.getStatus(), transaction.getTransactionTimestamp(),
+                transaction.getRefundedAmount());
+    }
+}
@@ -0,0 +1,59 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.converter.UuidStringJavaType;
+import com.hitpixel.payment.exception.InvalidRequestParameterException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the transaction history: the timestamp and id of the last transaction of a page. The next
+ * page continues with the transactions ordered after it, so a page costs the same however deep it is.
+ * Clients get it as an opaque string.
+ */
+public record TransactionCursor(
+        LocalDateTime transactionTimestamp,
+        String transactionId
+) {
+
+    private static final char SEPARATOR = '|';
+    private static final String INVALID_CURSOR = "Cursor is not valid";
+
+    /**
+     * Method to build the cursor pointing after a transaction
+     * @param transaction last transaction of a page
+     * @return cursor after the transaction
+     */
+    public static TransactionCursor after(TransactionView transaction) {
+        return new TransactionCursor(transaction.transactionTimestamp(), transaction.id());
+    }
+
+    /**
+     * Method to encode the cursor for clients
+     * @return opaque cursor string
+     */
+    public String encode() {
+        String value = transactionTimestamp.toString() + SEPARATOR + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method to decode a cursor sent by a client
+     * @param cursor opaque cursor string
+     * @return decoded cursor
+     */
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if(separator < 0 || !UuidStringJavaType.isUuid(value.substring(separator + 1))) {
+                throw new InvalidRequestParameterException(INVALID_CURSOR);
+            }
+            return new TransactionCursor(LocalDateTime.parse(value.substring(0, separator)), value.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException exception) {
+            throw new InvalidRequestParameterException(INVALID_CURSOR);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.InvalidRequestParameterException;
+
+import java.time.LocalDateTime;
+
+/*
+    Filters of the transaction history, null fields do not filter. from is inclusive and to is exclusive.
+ */
+public record TransactionHistoryFilter(
+        LocalDateTime from,
+        LocalDateTime to,
+        PaymentStatus status,
+        Currency currency,
+        PaymentMethod paymentMethod
+) {
+
+    public static final TransactionHistoryFilter NONE = new TransactionHistoryFilter(null, null, null, null, null);
+
+    public TransactionHistoryFilter {
+        if(from != null && to != null && !from.isBefore(to)) {
+            throw new InvalidRequestParameterException("from must be before to");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.hitpixel.payment.dto;
+
+import java.util.List;
+
+/*
+    One page of the transaction history, nextCursor is null on the last page
+ */
+public record TransactionPage(
+        List<TransactionView> transactions,
+        String nextCursor
+) {
+}
@@ -0,0 +1,12 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.enums.PaymentStatus;
+
+/*
+    Status of a transaction together with the id of the user owning it, read without loading the user
+ */
+public record TransactionStatusView(
+        String userId,
+        PaymentStatus status
+) {
+}
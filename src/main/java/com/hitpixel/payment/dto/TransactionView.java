@@ -0,0 +1,21 @@
+package com.hitpixel.payment.dto;
+
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/*
+    Read only columns of a transaction, selected without its user and never managed by the persistence context
+ */
+public record TransactionView(
+        String id,
+        BigDecimal amount,
+        PaymentMethod paymentMethod,
+        Currency currency,
+        PaymentStatus status,
+        LocalDateTime transactionTimestamp
+) {
+}
@@ -0,0 +1,33 @@
+package com.hitpixel.payment.enums;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public enum ApiKeyScope {
+    PAYMENTS_READ,
+    PAYMENTS_WRITE,
+    REFUNDS_WRITE;
+
+    private static final String AUTHORITY_PREFIX = "SCOPE_";
+    private static final String SEPARATOR = ",";
+
+    public String authority() {
+        return AUTHORITY_PREFIX + name();
+    }
+
+    public static String join(Set<ApiKeyScope> scopes) {
+        return scopes.stream().map(Enum::name).sorted().collect(Collectors.joining(SEPARATOR));
+    }
+
+    public static Set<ApiKeyScope> parse(String scopes) {
+        Set<ApiKeyScope> parsed = EnumSet.noneOf(ApiKeyScope.class);
+        Arrays.stream(scopes.split(SEPARATOR))
+                .map(String::trim)
+                .filter(scope -> !scope.isEmpty())
+                .map(ApiKeyScope::valueOf)
+                .forEach(parsed::add);
+        return parsed;
+    }
+}
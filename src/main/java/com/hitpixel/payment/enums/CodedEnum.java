@@ -0,0 +1,10 @@
+package com.hitpixel.payment.enums;
+
+/**
+ * Enum stored as a small integer code instead of its name. Codes are part of the schema, they must never
+ * change or be reused, new constants get the next free code.
+ */
+public interface CodedEnum {
+
+    short getCode();
+}
@@ -1,7 +1,18 @@
 package com.hitpixel.payment.enums;
 
-public enum Currency {
-    USD,
-    EUR,
-    INR
+public enum Currency implements CodedEnum {
+    USD(1),
+    EUR(2),
+    INR(3);
+
+    private final short code;
+
+    Currency(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
 }
@@ -1,6 +1,17 @@
 package com.hitpixel.payment.enums;
 
-public enum PaymentMethod {
-    CREDIT_CARD,
-    PAY_PAL,
+public enum PaymentMethod implements CodedEnum {
+    CREDIT_CARD(1),
+    PAY_PAL(2);
+
+    private final short code;
+
+    PaymentMethod(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
 }
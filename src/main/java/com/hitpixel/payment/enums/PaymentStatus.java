@@ -1,7 +1,19 @@
 package com.hitpixel.payment.enums;
 
-public enum PaymentStatus {
-    SUCCESS,
-    REFUNDED,
-    FAIL
+public enum PaymentStatus implements CodedEnum {
+    PENDING(1),
+    SUCCESS(2),
+    REFUNDED(3),
+    FAIL(4);
+
+    private final short code;
+
+    PaymentStatus(int code) {
+        this.code = (short) code;
+    }
+
+    @Override
+    public short getCode() {
+        return code;
+    }
 }
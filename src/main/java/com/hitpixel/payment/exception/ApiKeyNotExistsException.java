@@ -0,0 +1,7 @@
+package com.hitpixel.payment.exception;
+
+public class ApiKeyNotExistsException extends RuntimeException {
+    public ApiKeyNotExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.hitpixel.payment.exception;
+
+/*
+    A payment gateway that is failing, too slow or at its concurrency limit is reported like any other
+    overloaded dependency, with a 503 the client can retry
+ */
+public class GatewayUnavailableException extends ServiceBusyException {
+    public GatewayUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,7 @@ package com.hitpixel.payment.exception;
 import com.hitpixel.payment.dto.ErrorDetails;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
@@ -35,6 +37,23 @@ public class GlobalExceptionHandler {
         ), HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Method to handle UserAlreadyExistsException
+     * @param exception UserAlreadyExistsException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<ErrorDetails> userAlreadyExistsExceptionHandler(UserAlreadyExistsException exception, WebRequest webRequest) {
+        log.error("Error encountered while registering user", exception);
+        return new ResponseEntity<>(new ErrorDetails(
+                exception.getMessage(),
+                HttpStatus.CONFLICT.value(),
+                LocalDateTime.now(),
+                HttpStatus.CONFLICT.name()
+        ), HttpStatus.CONFLICT);
+    }
+
     /**
      * Method to handle JWTFailureException
      * @param exception JWTFailureException
@@ -86,6 +105,92 @@ public class GlobalExceptionHandler {
         ), HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Method to handle ApiKeyNotExistsException
+     * @param exception ApiKeyNotExistsException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(ApiKeyNotExistsException.class)
+    public ResponseEntity<ErrorDetails> apiKeyNotExistsExceptionHandler(ApiKeyNotExistsException exception, WebRequest webRequest) {
+        log.error("Error encountered while retrieving api key from the system", exception);
+        return new ResponseEntity<>(new ErrorDetails(
+                exception.getMessage(),
+                HttpStatus.NOT_FOUND.value(),
+                LocalDateTime.now(),
+                HttpStatus.NOT_FOUND.name()
+        ), HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Method to handle IdempotencyKeyMismatchException
+     * @param exception IdempotencyKeyMismatchException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    public ResponseEntity<ErrorDetails> idempotencyKeyMismatchExceptionHandler(IdempotencyKeyMismatchException exception, WebRequest webRequest) {
+        log.error("Idempotency key reused with a different request", exception);
+        return new ResponseEntity<>(new ErrorDetails(
+                exception.getMessage(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                LocalDateTime.now(),
+                HttpStatus.UNPROCESSABLE_ENTITY.name()
+        ), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Method to handle RefundAmountExceededException
+     * @param exception RefundAmountExceededException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(RefundAmountExceededException.class)
+    public ResponseEntity<ErrorDetails> refundAmountExceededExceptionHandler(RefundAmountExceededException exception, WebRequest webRequest) {
+        log.error("Refund rejected: {}", exception.getMessage());
+        return new ResponseEntity<>(new ErrorDetails(
+                exception.getMessage(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                LocalDateTime.now(),
+                HttpStatus.UNPROCESSABLE_ENTITY.name()
+        ), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Method to handle TransactionNotRefundableException
+     * @param exception TransactionNotRefundableException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(TransactionNotRefundableException.class)
+    public ResponseEntity<ErrorDetails> transactionNotRefundableExceptionHandler(TransactionNotRefundableException exception, WebRequest webRequest) {
+        log.error("Refund rejected: {}", exception.getMessage());
+        return new ResponseEntity<>(new ErrorDetails(
+                exception.getMessage(),
+                HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                LocalDateTime.now(),
+                HttpStatus.UNPROCESSABLE_ENTITY.name()
+        ), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Method to handle ServiceBusyException
+     * @param exception ServiceBusyException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorDetails> serviceBusyExceptionHandler(ServiceBusyException exception, WebRequest webRequest) {
+        log.error("Rejected request as the service is busy: {}", exception.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorDetails(
+                        exception.getMessage(),
+                        HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        LocalDateTime.now(),
+                        HttpStatus.SERVICE_UNAVAILABLE.name()));
+    }
 
     /**
      * Method to handle MethodArgumentNotValidException
@@ -110,6 +215,40 @@ public class GlobalExceptionHandler {
         ), HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Method to handle InvalidRequestParameterException
+     * @param exception InvalidRequestParameterException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(InvalidRequestParameterException.class)
+    public ResponseEntity<ErrorDetails> invalidRequestParameterExceptionHandler(InvalidRequestParameterException exception, WebRequest webRequest) {
+        log.error("Request parameter is not valid: {}", exception.getMessage());
+        return new ResponseEntity<>(new ErrorDetails(
+                exception.getMessage(),
+                HttpStatus.BAD_REQUEST.value(),
+                LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.name()
+        ), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Method to handle MethodArgumentTypeMismatchException, raised for query parameters of the wrong type
+     * @param exception MethodArgumentTypeMismatchException
+     * @param webRequest webRequest
+     * @return Error details object for response
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorDetails> methodArgumentTypeMismatchExceptionHandler(MethodArgumentTypeMismatchException exception, WebRequest webRequest) {
+        log.error("Request parameter {} is not valid", exception.getName());
+        return new ResponseEntity<>(new ErrorDetails(
+                "Invalid value for parameter " + exception.getName(),
+                HttpStatus.BAD_REQUEST.value(),
+                LocalDateTime.now(),
+                HttpStatus.BAD_REQUEST.name()
+        ), HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Method to handle any Exception
      * @param exception Exception
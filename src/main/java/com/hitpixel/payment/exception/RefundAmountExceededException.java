@@ -0,0 +1,7 @@
+package com.hitpixel.payment.exception;
+
+public class RefundAmountExceededException extends RuntimeException {
+    public RefundAmountExceededException(String message) {
+        super(message);
+    }
+}
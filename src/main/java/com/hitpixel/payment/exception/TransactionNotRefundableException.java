@@ -0,0 +1,7 @@
+package com.hitpixel.payment.exception;
+
+public class TransactionNotRefundableException extends RuntimeException {
+    public TransactionNotRefundableException(String message) {
+        super(message);
+    }
+}
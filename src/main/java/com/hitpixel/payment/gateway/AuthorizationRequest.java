@@ -0,0 +1,14 @@
+package com.hitpixel.payment.gateway;
+
+import com.hitpixel.payment.enums.Currency;
+
+import java.math.BigDecimal;
+
+/*
+    Body sent to a payment gateway, reference is the transaction id
+ */
+public record AuthorizationRequest(
+        String reference,
+        BigDecimal amount,
+        Currency currency) {
+}
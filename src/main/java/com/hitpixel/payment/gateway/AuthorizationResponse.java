@@ -0,0 +1,10 @@
+package com.hitpixel.payment.gateway;
+
+/*
+    Answer of a payment gateway, a declined payment is an answer and not a gateway failure
+ */
+public record AuthorizationResponse(
+        String reference,
+        boolean approved,
+        String message) {
+}
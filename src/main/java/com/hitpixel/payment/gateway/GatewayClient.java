@@ -0,0 +1,172 @@
+package com.hitpixel.payment.gateway;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitpixel.payment.config.GatewayProperties;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.exception.GatewayUnavailableException;
+import com.hitpixel.payment.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Client of the payment gateway of one payment method. Calls are made with a non-blocking HTTP client
+ * which keeps its connections pooled, and every gateway gets its own client, executor, bulkhead and
+ * circuit breaker so a slow or failing gateway can not take capacity away from the others.
+ * <p>
+ * The bulkhead limits concurrent calls, calls beyond the limit are refused right away instead of
+ * queueing behind a slow gateway. Errors, timeouts and 5xx answers count towards the circuit breaker,
+ * declined payments do not.
+ */
+@Slf4j
+public class GatewayClient {
+
+    private static final String METRIC_PREFIX = "payment.gateway";
+
+    private final PaymentMethod paymentMethod;
+    private final URI authorizationUri;
+    private final Duration requestTimeout;
+    private final int maxConcurrentCalls;
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer approvedTimer;
+    private final Timer declinedTimer;
+    private final Timer failedTimer;
+    private final Counter bulkheadRejectedCounter;
+    private final Counter circuitOpenRejectedCounter;
+
+    public GatewayClient(PaymentMethod paymentMethod, String url, GatewayProperties.Gateway gateway,
+                         ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.paymentMethod = paymentMethod;
+        this.authorizationUri = URI.create(url.endsWith("/") ? url + "authorizations" : url + "/authorizations");
+        this.requestTimeout = gateway.getRequestTimeout();
+        this.maxConcurrentCalls = gateway.getMaxConcurrentCalls();
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                new CustomizableThreadFactory("gateway-" + paymentMethod.name().toLowerCase() + "-"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(gateway.getConnectTimeout())
+                .executor(executor)
+                .build();
+        this.objectMapper = objectMapper;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.circuitBreaker = new CircuitBreaker(gateway.getCircuitBreakerFailureThreshold(),
+                gateway.getCircuitBreakerOpenDuration().toMillis(), System::currentTimeMillis);
+        String gatewayTag = paymentMethod.name();
+        this.approvedTimer = Timer.builder(METRIC_PREFIX + ".calls").tag("gateway", gatewayTag).tag("outcome", "approved").register(meterRegistry);
+        this.declinedTimer = Timer.builder(METRIC_PREFIX + ".calls").tag("gateway", gatewayTag).tag("outcome", "declined").register(meterRegistry);
+        this.failedTimer = Timer.builder(METRIC_PREFIX + ".calls").tag("gateway", gatewayTag).tag("outcome", "failed").register(meterRegistry);
+        this.bulkheadRejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected").tag("gateway", gatewayTag).tag("reason", "bulkhead").register(meterRegistry);
+        this.circuitOpenRejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected").tag("gateway", gatewayTag).tag("reason", "circuit_open").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".inflight", bulkhead, semaphore -> maxConcurrentCalls - semaphore.availablePermits())
+                .tag("gateway", gatewayTag).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".circuit.open", circuitBreaker, breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("gateway", gatewayTag).register(meterRegistry);
+        log.info("Gateway client for {} calls {}", paymentMethod, authorizationUri);
+    }
+
+    /**
+     * Method to authorize a payment without blocking the calling thread
+     * @param authorizationRequest payment to authorize
+     * @return future of the gateway answer, failed with a GatewayUnavailableException when the gateway
+     * could not be called or did not answer
+     */
+    public CompletableFuture<AuthorizationResponse> authorizeAsync(AuthorizationRequest authorizationRequest) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(authorizationUri)
+                    .timeout(requestTimeout)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(authorizationRequest)))
+                    .build();
+        } catch (JsonProcessingException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+        if(!bulkhead.tryAcquire()) {
+            bulkheadRejectedCounter.increment();
+            return CompletableFuture.failedFuture(new GatewayUnavailableException(paymentMethod + " gateway is busy, please retry later"));
+        }
+        // asked last so a trial call granted by a half open circuit is always made
+        if(!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            circuitOpenRejectedCounter.increment();
+            return CompletableFuture.failedFuture(new GatewayUnavailableException(paymentMethod + " gateway is unavailable, please retry later"));
+        }
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, exception) -> {
+                    bulkhead.release();
+                    long elapsed = System.nanoTime() - start;
+                    if(exception != null || response.statusCode() >= 500) {
+                        circuitBreaker.onFailure();
+                        failedTimer.record(Duration.ofNanos(elapsed));
+                        log.error("{} gateway failed for reference={}: {}", paymentMethod, authorizationRequest.reference(),
+                                exception != null ? exception.toString() : "status " + response.statusCode());
+                        throw new GatewayUnavailableException(paymentMethod + " gateway is unavailable, please retry later");
+                    }
+                    circuitBreaker.onSuccess();
+                    AuthorizationResponse authorizationResponse = read(response, authorizationRequest);
+                    (authorizationResponse.approved() ? approvedTimer : declinedTimer).record(Duration.ofNanos(elapsed));
+                    return authorizationResponse;
+                });
+    }
+
+    /**
+     * Method to authorize a payment and wait for the answer, the wait is bounded by the timeouts of the gateway
+     * @param authorizationRequest payment to authorize
+     * @return gateway answer
+     */
+    public AuthorizationResponse authorize(AuthorizationRequest authorizationRequest) {
+        try {
+            return authorizeAsync(authorizationRequest).join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /*
+        The gateway answered, so any 4xx is a rejection of this payment rather than an outage
+     */
+    private AuthorizationResponse read(HttpResponse<byte[]> response, AuthorizationRequest authorizationRequest) {
+        if(response.statusCode() >= 400) {
+            return new AuthorizationResponse(authorizationRequest.reference(), false, "Rejected by gateway with status " + response.statusCode());
+        }
+        try {
+            return objectMapper.readValue(response.body(), AuthorizationResponse.class);
+        } catch (IOException exception) {
+            throw new GatewayUnavailableException(paymentMethod + " gateway sent an unreadable answer");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.hitpixel.payment.gateway;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Gateway clients of the payment methods which have a gateway configured, payment methods without one
+ * are simulated in process and always succeed.
+ */
+public class GatewayClients {
+
+    private final Map<PaymentMethod, GatewayClient> clients;
+
+    public GatewayClients(Map<PaymentMethod, GatewayClient> clients) {
+        this.clients = clients.isEmpty() ? Map.of() : new EnumMap<>(clients);
+    }
+
+    /**
+     * Method to fetch the gateway client of a payment method
+     * @param paymentMethod payment method
+     * @return gateway client if the payment method has a gateway
+     */
+    public Optional<GatewayClient> find(PaymentMethod paymentMethod) {
+        return Optional.ofNullable(clients.get(paymentMethod));
+    }
+
+    /**
+     * Method to authorize a transaction with the gateway of its payment method
+     * @param paymentMethod payment method of the transaction
+     * @param transaction transaction to authorize
+     * @return SUCCESS when approved or simulated, FAIL when declined
+     */
+    public PaymentStatus authorize(PaymentMethod paymentMethod, Transaction transaction) {
+        GatewayClient gatewayClient = clients.get(paymentMethod);
+        if(gatewayClient == null) {
+            return PaymentStatus.SUCCESS;
+        }
+        AuthorizationResponse authorizationResponse = gatewayClient.authorize(
+                new AuthorizationRequest(transaction.getId(), transaction.getAmount(), transaction.getCurrency()));
+        return authorizationResponse.approved() ? PaymentStatus.SUCCESS : PaymentStatus.FAIL;
+    }
+
+    public void close() {
+        clients.values().forEach(GatewayClient::close);
+    }
+}
@@ -0,0 +1,126 @@
+package com.hitpixel.payment.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitpixel.payment.config.GatewayProperties;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the payment gateways so payments can be exercised offline. Every payment method is
+ * served under its own path with its own latency and error distribution, see GatewayProperties.StubBehaviour.
+ * Only meant for development and tests, it listens on the loopback interface.
+ */
+@Slf4j
+public class StubGatewayServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * @param port port to listen on, 0 picks a free port
+     * @param behaviours behaviour of every payment method served, others answer 404
+     * @param objectMapper mapper for the request and response bodies
+     */
+    public StubGatewayServer(int port, Map<PaymentMethod, GatewayProperties.StubBehaviour> behaviours, ObjectMapper objectMapper) throws IOException {
+        this.objectMapper = objectMapper;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("stub-gateway-"));
+        server.setExecutor(executor);
+        behaviours.forEach((paymentMethod, behaviour) ->
+                server.createContext(path(paymentMethod), exchange -> handle(exchange, behaviour)));
+        server.start();
+        log.info("Stub gateway listening on {}", baseUri());
+    }
+
+    /**
+     * Method to fetch the url a gateway client of a payment method should call
+     * @param paymentMethod payment method
+     * @return base url of the payment method
+     */
+    public String url(PaymentMethod paymentMethod) {
+        return baseUri() + path(paymentMethod);
+    }
+
+    /**
+     * Method to fetch the number of requests received
+     * @return number of requests
+     */
+    public long requests() {
+        return requests.get();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private URI baseUri() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+    }
+
+    private static String path(PaymentMethod paymentMethod) {
+        return "/" + paymentMethod.name().toLowerCase().replace('_', '-');
+    }
+
+    private void handle(HttpExchange exchange, GatewayProperties.StubBehaviour behaviour) throws IOException {
+        requests.incrementAndGet();
+        try(exchange) {
+            AuthorizationRequest request;
+            try(InputStream body = exchange.getRequestBody()) {
+                request = objectMapper.readValue(body, AuthorizationRequest.class);
+            }
+            sleep(behaviour);
+            double outcome = ThreadLocalRandom.current().nextDouble();
+            if(outcome < behaviour.getErrorRate()) {
+                exchange.sendResponseHeaders(HttpStatus.SERVICE_UNAVAILABLE.value(), -1);
+                return;
+            }
+            boolean approved = outcome >= behaviour.getErrorRate() + behaviour.getDeclineRate();
+            byte[] response = objectMapper.writeValueAsBytes(
+                    new AuthorizationResponse(request.reference(), approved, approved ? "Approved" : "Declined by stub gateway"));
+            exchange.getResponseHeaders().set("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+            exchange.sendResponseHeaders(HttpStatus.OK.value(), response.length);
+            try(OutputStream output = exchange.getResponseBody()) {
+                output.write(response);
+            }
+        } catch (IOException exception) {
+            log.debug("Stub gateway could not answer", exception);
+        }
+    }
+
+    private static void sleep(GatewayProperties.StubBehaviour behaviour) {
+        long latency = behaviour.getLatency().toMillis();
+        long jitter = behaviour.getLatencyJitter().toMillis();
+        if(jitter > 0) {
+            latency += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+        }
+        if(latency <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
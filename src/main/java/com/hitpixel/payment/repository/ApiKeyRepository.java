@@ -0,0 +1,28 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.domain.ApiKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ApiKeyRepository extends JpaRepository<ApiKey, String> {
+
+    /**
+     * Find all active api keys together with their users in one query
+     * @return List of all active api keys
+     */
+    @Query("select k from ApiKey k join fetch k.user where k.active = true")
+    List<ApiKey> findAllActiveWithUser();
+
+    /**
+     * Find an api key of a user
+     * @param id api key id
+     * @param userId user id
+     * @return api key if the user owns it
+     */
+    Optional<ApiKey> findByIdAndUserId(String id, String userId);
+}
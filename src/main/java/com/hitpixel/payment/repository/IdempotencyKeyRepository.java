@@ -0,0 +1,24 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.domain.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Delete idempotency keys created before the given time
+     * @param createdTimestamp oldest creation time to keep
+     * @return number of deleted keys
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.createdTimestamp < :createdTimestamp")
+    int deleteAllCreatedBefore(LocalDateTime createdTimestamp);
+}
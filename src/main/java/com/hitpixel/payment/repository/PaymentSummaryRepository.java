@@ -0,0 +1,85 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.domain.PaymentSummary;
+import com.hitpixel.payment.domain.PaymentSummaryKey;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface PaymentSummaryRepository extends JpaRepository<PaymentSummary, PaymentSummaryKey> {
+
+    /**
+     * Find the totals of a user which count any transaction, a user has a fixed number of rows so the query
+     * does not depend on the number of its transactions
+     * @param userId user id
+     * @return totals by currency, status and payment method
+     */
+    @Query("""
+            select new com.hitpixel.payment.dto.PaymentSummaryView(s.id.currency, s.id.status, s.id.paymentMethod,
+                s.transactionCount, s.amount, s.refundedAmount)
+            from PaymentSummary s
+            where s.id.userId = :userId and s.transactionCount > 0
+            order by s.id.currency, s.id.status, s.id.paymentMethod
+            """)
+    List<PaymentSummaryView> findSummaryByUserId(@Param("userId") String userId);
+
+    /**
+     * Find all totals of a user
+     * @param userId user id
+     * @return totals of the user, empty if it has none yet
+     */
+    @Query("select s from PaymentSummary s where s.id.userId = :userId")
+    List<PaymentSummary> findAllByUserId(@Param("userId") String userId);
+
+    /**
+     * Find all totals of a user and lock their rows until the end of the transaction, in the order of their key
+     * @param userId user id
+     * @return totals of the user
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select s from PaymentSummary s
+            where s.id.userId = :userId
+            order by s.id.currency, s.id.status, s.id.paymentMethod
+            """)
+    List<PaymentSummary> findAndLockAllByUserId(@Param("userId") String userId);
+
+    /**
+     * Update the totals of a key by adding the given differences, must be called in a transaction
+     * @param id key of the totals
+     * @param count difference of the number of transactions
+     * @param amount difference of the total amount
+     * @param refundedAmount difference of the total refunded amount
+     * @return number of updated totals, 0 if the key has no totals yet
+     */
+    default int add(PaymentSummaryKey id, long count, BigDecimal amount, BigDecimal refundedAmount) {
+        return add(id.getUserId(), id.getCurrency().getCode(), id.getStatus().getCode(),
+                id.getPaymentMethod().getCode(), count, amount, refundedAmount);
+    }
+
+    /*
+        Written in SQL on the columns of the key, the statement is parsed once instead of on every update and the
+        key is looked up in the primary key index, which a comparison of the whole embedded key is not
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE payment_summaries
+            SET transactioncount = transactioncount + :count,
+                amount = amount + :amount,
+                refundedamount = refundedamount + :refundedAmount
+            WHERE user_id = CAST(:userId AS UUID) AND currency = :currency AND status = :status
+              AND paymentmethod = :paymentMethod
+            """)
+    int add(@Param("userId") String userId, @Param("currency") short currency, @Param("status") short status,
+            @Param("paymentMethod") short paymentMethod, @Param("count") long count,
+            @Param("amount") BigDecimal amount, @Param("refundedAmount") BigDecimal refundedAmount);
+}
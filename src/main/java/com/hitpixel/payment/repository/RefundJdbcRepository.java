@@ -0,0 +1,102 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.converter.CurrencyConverter;
+import com.hitpixel.payment.converter.PaymentMethodConverter;
+import com.hitpixel.payment.converter.PaymentStatusConverter;
+import com.hitpixel.payment.domain.Refund;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.enums.PaymentStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Statements of a refund written with plain JDBC. Every refund reads its transaction, adds to its refunded
+ * total and inserts the refund, through JPA each of those costs several times the statement itself. The
+ * statements join the database transaction of the caller.
+ */
+@Repository
+public class RefundJdbcRepository {
+
+    private static final PaymentMethodConverter PAYMENT_METHODS = new PaymentMethodConverter();
+    private static final CurrencyConverter CURRENCIES = new CurrencyConverter();
+    private static final PaymentStatusConverter STATUSES = new PaymentStatusConverter();
+
+    /*
+        The user is rebuilt from its id only and marked as persisted, the refund never reads the user
+     */
+    private static final RowMapper<Transaction> TRANSACTION_MAPPER = (resultSet, row) -> {
+        User user = new User();
+        user.setId(resultSet.getObject("user_id", UUID.class).toString());
+        user.markPersisted();
+        Transaction transaction = new Transaction(resultSet.getObject("id", UUID.class).toString(),
+                resultSet.getBigDecimal("amount"),
+                PAYMENT_METHODS.convertToEntityAttribute(resultSet.getShort("paymentmethod")),
+                CURRENCIES.convertToEntityAttribute(resultSet.getShort("currency")),
+                user,
+                STATUSES.convertToEntityAttribute(resultSet.getShort("status")),
+                resultSet.getTimestamp("transactiontimestamp").toLocalDateTime());
+        transaction.setRefundedAmount(resultSet.getBigDecimal("refundedamount"));
+        transaction.markPersisted();
+        return transaction;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RefundJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find a transaction to refund, detached from the persistence context and with only the id of its user
+     * @param id transaction id, a UUID
+     * @return transaction, empty if it does not exist
+     */
+    public Optional<Transaction> findTransactionById(String id) {
+        List<Transaction> transactions = jdbcTemplate.query("""
+                SELECT id, amount, paymentmethod, currency, status, user_id, transactiontimestamp, refundedamount
+                FROM transactions
+                WHERE id = ?
+                """, TRANSACTION_MAPPER, UUID.fromString(id));
+        return transactions.stream().findFirst();
+    }
+
+    /**
+     * Add a refund to the refunded total of a successful transaction if the total stays within the amount, the
+     * status becomes refunded once the total reaches the amount. A partially refunded transaction stays
+     * successful, pending, failed and refunded transactions are never updated. Only the row of the transaction
+     * is locked, of concurrent refunds only those fitting into the amount update the row.
+     * @param id transaction id, a UUID
+     * @param amount refunded amount
+     * @return number of updated transactions, 0 if it does not exist, it is not successful or the amount exceeds
+     * the refundable amount
+     */
+    public int addRefund(String id, BigDecimal amount) {
+        return jdbcTemplate.update("""
+                UPDATE transactions
+                SET refundedamount = refundedamount + ?,
+                    status = CASE WHEN refundedamount + ? = amount THEN ? ELSE status END
+                WHERE id = ? AND status = ? AND refundedamount + ? <= amount
+                """, amount, amount, PaymentStatus.REFUNDED.getCode(), UUID.fromString(id),
+                PaymentStatus.SUCCESS.getCode(), amount);
+    }
+
+    /**
+     * Insert a new refund
+     * @param refund refund with the transaction it belongs to
+     */
+    public void insert(Refund refund) {
+        jdbcTemplate.update("""
+                INSERT INTO refunds (id, transaction_id, amount, refundtimestamp)
+                VALUES (?, ?, ?, ?)
+                """, UUID.fromString(refund.getId()), UUID.fromString(refund.getTransaction().getId()),
+                refund.getAmount(), Timestamp.valueOf(refund.getRefundTimestamp()));
+    }
+}
@@ -1,18 +1,148 @@
 package com.hitpixel.payment.repository;
 
 import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.dto.TransactionView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
 
+    /**
+     * Number of rows the driver reads ahead while a history is streamed
+     */
+    String STREAM_FETCH_SIZE = "1000";
+
     /**
      * Find all transactions by user id
      * @param id user id
      * @return List of all transaction for a user.
      */
     List<Transaction> findAllByUserId(String id);
+
+    /**
+     * Find a page of the transactions of a user, newest first. Pages are continued after the timestamp and id
+     * of the last transaction of the previous page, which the index on (user_id, transactiontimestamp, id)
+     * seeks to directly. Rows are selected as views without the user. Null parameters do not filter.
+     * @param userId user id
+     * @param from earliest timestamp, inclusive
+     * @param to latest timestamp, exclusive
+     * @param status status of the transactions
+     * @param currency currency of the transactions
+     * @param paymentMethod payment method of the transactions
+     * @param cursorTimestamp timestamp of the last transaction of the previous page
+     * @param cursorId id of the last transaction of the previous page
+     * @param limit maximum number of transactions
+     * @return page of transactions
+     */
+    @Query("""
+            select new com.hitpixel.payment.dto.TransactionView(t.id, t.amount, t.paymentMethod, t.currency, t.status, t.transactionTimestamp)
+            from Transaction t
+            where t.user.id = :userId
+              and (:from is null or t.transactionTimestamp >= :from)
+              and (:to is null or t.transactionTimestamp < :to)
+              and (:status is null or t.status = :status)
+              and (:currency is null or t.currency = :currency)
+              and (:paymentMethod is null or t.paymentMethod = :paymentMethod)
+              and (:cursorTimestamp is null
+                   or t.transactionTimestamp < :cursorTimestamp
+                   or (t.transactionTimestamp = :cursorTimestamp and t.id < :cursorId))
+            order by t.transactionTimestamp desc, t.id desc
+            """)
+    List<TransactionView> findHistory(@Param("userId") String userId,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("status") PaymentStatus status,
+                                      @Param("currency") Currency currency,
+                                      @Param("paymentMethod") PaymentMethod paymentMethod,
+                                      @Param("cursorTimestamp") LocalDateTime cursorTimestamp,
+                                      @Param("cursorId") String cursorId,
+                                      Limit limit);
+
+    /**
+     * Find the status and owner of a transaction without loading the transaction or its user
+     * @param id transaction id
+     * @return status and user id of the transaction, empty if it does not exist
+     */
+    @Query("select new com.hitpixel.payment.dto.TransactionStatusView(t.user.id, t.status) from Transaction t where t.id = :id")
+    Optional<TransactionStatusView> findStatusById(@Param("id") String id);
+
+    /**
+     * Stream all transactions of a user matching the filters, newest first. Rows are read forward only in chunks
+     * of the fetch size and selected as views, so neither the user nor managed entities are loaded. Must be
+     * consumed inside a transaction and closed afterwards.
+     * @param userId user id
+     * @param from earliest timestamp, inclusive
+     * @param to latest timestamp, exclusive
+     * @param status status of the transactions
+     * @param currency currency of the transactions
+     * @param paymentMethod payment method of the transactions
+     * @return stream of transactions
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.hitpixel.payment.dto.TransactionView(t.id, t.amount, t.paymentMethod, t.currency, t.status, t.transactionTimestamp)
+            from Transaction t
+            where t.user.id = :userId
+              and (:from is null or t.transactionTimestamp >= :from)
+              and (:to is null or t.transactionTimestamp < :to)
+              and (:status is null or t.status = :status)
+              and (:currency is null or t.currency = :currency)
+              and (:paymentMethod is null or t.paymentMethod = :paymentMethod)
+            order by t.transactionTimestamp desc, t.id desc
+            """)
+    Stream<TransactionView> streamHistory(@Param("userId") String userId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("status") PaymentStatus status,
+                                          @Param("currency") Currency currency,
+                                          @Param("paymentMethod") PaymentMethod paymentMethod);
+
+    /**
+     * Find the totals of all transactions of a user by currency, status and payment method, reads every
+     * transaction of the user
+     * @param userId user id
+     * @return totals of the combinations the user has transactions of
+     */
+    @Query("""
+            select new com.hitpixel.payment.dto.PaymentSummaryView(t.currency, t.status, t.paymentMethod,
+                count(t), sum(t.amount), sum(t.refundedAmount))
+            from Transaction t
+            where t.user.id = :userId
+            group by t.currency, t.status, t.paymentMethod
+            """)
+    List<PaymentSummaryView> summarizeByUserId(@Param("userId") String userId);
+
+    /**
+     * Update the status of a transaction only if it still has the expected status
+     * @param id transaction id
+     * @param expectedStatus current status of the transaction
+     * @param status new status
+     * @return number of updated transactions
+     */
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = :status where t.id = :id and t.status = :expectedStatus")
+    int updateStatus(@Param("id") String id, @Param("expectedStatus") PaymentStatus expectedStatus, @Param("status") PaymentStatus status);
 }
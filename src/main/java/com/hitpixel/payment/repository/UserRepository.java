@@ -1,8 +1,16 @@
 package com.hitpixel.payment.repository;
 
+import com.hitpixel.payment.config.CacheConfig;
 import com.hitpixel.payment.domain.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -30,4 +38,25 @@ public interface UserRepository extends JpaRepository<User, String> {
      * @return user details
      */
     Optional<User> findByEmail(String email);
+
+    /**
+     * Find a user by id and lock its row until the end of the transaction
+     * @param id user id
+     * @return user details
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id = :id")
+    Optional<User> findAndLockById(@Param("id") String id);
+
+    /**
+     * Replace the stored password hash of a user, the cached user is evicted
+     * @param email user's email
+     * @param password new password hash
+     * @return number of updated users
+     */
+    @Transactional
+    @Modifying
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#p0")
+    @Query("update User u set u.password = :password where u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
 }
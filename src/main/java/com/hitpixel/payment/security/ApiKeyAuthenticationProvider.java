@@ -0,0 +1,39 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.dto.ApiKeyAuthenticationToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class ApiKeyAuthenticationProvider implements AuthenticationProvider {
+
+    private final ApiKeyIndex apiKeyIndex;
+
+    public ApiKeyAuthenticationProvider(ApiKeyIndex apiKeyIndex) {
+        this.apiKeyIndex = apiKeyIndex;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if(authentication.isAuthenticated()) {
+            return authentication;
+        }
+        ApiKeyIndex.ApiKeyPrincipal principal = apiKeyIndex.find((String) authentication.getCredentials());
+        if(principal == null) {
+            log.error("API key is unknown or revoked");
+            throw new BadCredentialsException("API key not valid");
+        }
+        log.info("Request authenticated with api key id={}", principal.keyId());
+        return new ApiKeyAuthenticationToken(principal.user(), principal.authorities());
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return authentication.equals(ApiKeyAuthenticationToken.class);
+    }
+}
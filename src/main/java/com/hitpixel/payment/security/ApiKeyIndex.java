@@ -0,0 +1,104 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.domain.ApiKey;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.enums.ApiKeyScope;
+import com.hitpixel.payment.repository.ApiKeyRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+ * In-memory index of the active api keys by the SHA-256 digest of the key. Everything needed to
+ * authenticate a request, the owning user and the granted scopes, is precomputed so a lookup is one
+ * digest and one map read.
+ * <p>
+ * The index is loaded on startup and reloaded periodically, so keys created or revoked on another
+ * node take effect here after at most one reload interval.
+ */
+@Slf4j
+@Component
+public class ApiKeyIndex {
+
+    private final ApiKeyRepository apiKeyRepository;
+    private volatile Map<String, ApiKeyPrincipal> principals = Map.of();
+
+    public ApiKeyIndex(ApiKeyRepository apiKeyRepository) {
+        this.apiKeyRepository = apiKeyRepository;
+    }
+
+    /**
+     * Method to find the principal of an api key
+     * @param apiKey the api key as sent by the client
+     * @return principal of the key, or null if the key is unknown or revoked
+     */
+    public ApiKeyPrincipal find(String apiKey) {
+        return principals.get(TokenDigests.sha256(apiKey));
+    }
+
+    /**
+     * Method to add a newly created api key to the index
+     * @param apiKey the stored api key
+     */
+    public synchronized void put(ApiKey apiKey) {
+        Map<String, ApiKeyPrincipal> updated = new HashMap<>(principals);
+        updated.put(apiKey.getKeyHash(), toPrincipal(apiKey));
+        principals = updated;
+    }
+
+    /**
+     * Method to remove a revoked api key from the index
+     * @param keyHash digest of the revoked key
+     */
+    public synchronized void remove(String keyHash) {
+        Map<String, ApiKeyPrincipal> updated = new HashMap<>(principals);
+        updated.remove(keyHash);
+        principals = updated;
+    }
+
+    /**
+     * Method to fetch the number of indexed api keys
+     * @return number of active api keys
+     */
+    public int size() {
+        return principals.size();
+    }
+
+    /**
+     * Method to rebuild the index from the database
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${payment.api-keys.reload-interval-millis:60000}",
+            initialDelayString = "${payment.api-keys.reload-interval-millis:60000}")
+    public synchronized void reload() {
+        List<ApiKey> apiKeys = apiKeyRepository.findAllActiveWithUser();
+        Map<String, ApiKeyPrincipal> reloaded = new HashMap<>(apiKeys.size() * 2);
+        apiKeys.forEach(apiKey -> reloaded.put(apiKey.getKeyHash(), toPrincipal(apiKey)));
+        principals = reloaded;
+        log.debug("Indexed {} api key(s)", reloaded.size());
+    }
+
+    private static ApiKeyPrincipal toPrincipal(ApiKey apiKey) {
+        User owner = apiKey.getUser();
+        User user = new User(owner.getId(), owner.getName(), owner.getEmail(), null);
+        user.markPersisted();
+        List<GrantedAuthority> authorities = ApiKeyScope
+                .parse(apiKey.getScopes())
+                .stream()
+                .map(scope -> (GrantedAuthority) new SimpleGrantedAuthority(scope.authority()))
+                .toList();
+        return new ApiKeyPrincipal(apiKey.getId(), user, authorities);
+    }
+
+    /**
+     * Precomputed principal of an api key
+     */
+    public record ApiKeyPrincipal(String keyId, User user, List<GrantedAuthority> authorities) {}
+}
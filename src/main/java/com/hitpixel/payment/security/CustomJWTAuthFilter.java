@@ -1,12 +1,11 @@
 package com.hitpixel.payment.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.hitpixel.payment.dto.ApiKeyAuthenticationToken;
 import com.hitpixel.payment.dto.AuthenticationToken;
-import com.hitpixel.payment.dto.ErrorDetails;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -17,17 +16,46 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import javax.security.sasl.AuthenticationException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
 public class CustomJWTAuthFilter extends OncePerRequestFilter {
 
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private static final RequestMatcher API_KEY_PATHS = new AntPathRequestMatcher("/api/payments/**");
+    private static final RequestMatcher PROTECTED_PATHS = new OrRequestMatcher(
+            API_KEY_PATHS,
+            new AntPathRequestMatcher("/api/users/logout"),
+            new AntPathRequestMatcher("/api/api-keys/**"));
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String TOKEN_NOT_PRESENT = "Auth Token not present";
+
+    /*
+        The 401 body is written from pre-encoded fragments of the ErrorDetails JSON, only the message and
+        timestamp change between responses. Messages come from a small set of exception messages so their
+        encoded form is cached as well.
+     */
+    private static final byte[] BODY_MESSAGE = "{\"message\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_TIMESTAMP = (",\"status\":" + HttpStatus.UNAUTHORIZED.value() + ",\"timestamp\":\"")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_ERROR = ("\",\"error\":\"" + HttpStatus.UNAUTHORIZED.name() + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL_MESSAGE = "null".getBytes(StandardCharsets.UTF_8);
+    private static final int MAX_ENCODED_MESSAGES = 64;
+    private static final Map<String, byte[]> ENCODED_MESSAGES = new ConcurrentHashMap<>();
+
     private final AuthenticationManager authenticationManager;
 
     public CustomJWTAuthFilter(AuthenticationManager authenticationManager) {
@@ -36,37 +64,69 @@ public class CustomJWTAuthFilter extends OncePerRequestFilter {
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if(authentication == null && new AntPathRequestMatcher("/api/payments/**").matches(request)) {
-            try {
+        if(SecurityContextHolder.getContext().getAuthentication() == null && PROTECTED_PATHS.matches(request)) {
             String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-            if(authorizationHeader != null) {
-                String authToken = authorizationHeader.replace("Bearer ", "").trim();
-                authentication = new AuthenticationToken(authToken);
-            } else {
+            String apiKeyHeader = authorizationHeader == null && API_KEY_PATHS.matches(request)
+                    ? request.getHeader(API_KEY_HEADER)
+                    : null;
+            if(authorizationHeader == null && apiKeyHeader == null) {
                 log.error("Auth token not present");
-                throw new AuthenticationException("Auth Token not present");
+                writeUnauthorized(response, TOKEN_NOT_PRESENT);
+                return;
             }
-                Authentication authenticated = authenticationManager.authenticate(authentication);
+            try {
+                Authentication authenticated = authenticationManager.authenticate(authorizationHeader != null
+                        ? new AuthenticationToken(extractToken(authorizationHeader))
+                        : new ApiKeyAuthenticationToken(apiKeyHeader));
                 SecurityContextHolder.getContext().setAuthentication(authenticated);
                 log.info("Request authenticated successfully");
             } catch (Exception exception) {
-                log.error("encountered exception authenticating JWT", exception);
-                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                ErrorDetails errorDetails = new ErrorDetails(
-                        exception.getMessage(),
-                        HttpStatus.UNAUTHORIZED.value(),
-                        LocalDateTime.now(),
-                        HttpStatus.UNAUTHORIZED.name());
-                ObjectMapper objectMapper = new ObjectMapper();
-                objectMapper.registerModule(new JavaTimeModule());
-                objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-                byte[] body = objectMapper.writeValueAsBytes(errorDetails);
-                response.getOutputStream().write(body);
+                log.error("encountered exception authenticating JWT: {}", exception.getMessage());
+                log.debug("JWT authentication failure", exception);
+                writeUnauthorized(response, exception.getMessage());
                 return;
             }
         }
         filterChain.doFilter(request, response);
     }
+
+    private static String extractToken(String authorizationHeader) {
+        return authorizationHeader.startsWith(BEARER_PREFIX)
+                ? authorizationHeader.substring(BEARER_PREFIX.length()).trim()
+                : authorizationHeader.trim();
+    }
+
+    private static void writeUnauthorized(HttpServletResponse response, String message) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        ServletOutputStream outputStream = response.getOutputStream();
+        outputStream.write(BODY_MESSAGE);
+        outputStream.write(encodeMessage(message));
+        outputStream.write(BODY_TIMESTAMP);
+        outputStream.write(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now()).getBytes(StandardCharsets.US_ASCII));
+        outputStream.write(BODY_ERROR);
+    }
+
+    private static byte[] encodeMessage(String message) {
+        if(message == null) {
+            return NULL_MESSAGE;
+        }
+        byte[] encoded = ENCODED_MESSAGES.get(message);
+        if(encoded == null) {
+            encoded = quote(message);
+            if(ENCODED_MESSAGES.size() < MAX_ENCODED_MESSAGES) {
+                ENCODED_MESSAGES.putIfAbsent(message, encoded);
+            }
+        }
+        return encoded;
+    }
+
+    private static byte[] quote(String message) {
+        byte[] escaped = JsonStringEncoder.getInstance().quoteAsUTF8(message);
+        byte[] quoted = new byte[escaped.length + 2];
+        quoted[0] = '"';
+        System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+        quoted[quoted.length - 1] = '"';
+        return quoted;
+    }
 }
@@ -2,9 +2,11 @@ package com.hitpixel.payment.security;
 
 import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.exception.JWTFailureException;
 import com.hitpixel.payment.service.JWTService;
 import com.hitpixel.payment.service.UserService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -18,9 +20,18 @@ public class CustomJWTAuthenticationProvider implements AuthenticationProvider {
 
     private final UserService userService;
 
-    public CustomJWTAuthenticationProvider(JWTService jwtService, UserService userService) {
+    private final RevokedTokenStore revokedTokenStore;
+
+    private final boolean acceptLegacyTokens;
+
+    public CustomJWTAuthenticationProvider(JWTService jwtService,
+                                           UserService userService,
+                                           RevokedTokenStore revokedTokenStore,
+                                           @Value("${payment.jwt.accept-legacy-tokens:true}") boolean acceptLegacyTokens) {
         this.jwtService = jwtService;
         this.userService = userService;
+        this.revokedTokenStore = revokedTokenStore;
+        this.acceptLegacyTokens = acceptLegacyTokens;
     }
 
     @Override
@@ -32,9 +43,13 @@ public class CustomJWTAuthenticationProvider implements AuthenticationProvider {
                 return authentication;
             }
             String token = (String) authentication.getCredentials();
-            String email = jwtService.getEmailClaim(token);
-            User user = userService.findUserByEmail(email);
-            if(jwtService.validateJWT(token)) {
+            VerifiedToken claims = jwtService.extractJWTClaims(token);
+            if(revokedTokenStore.isRevoked(jwtService.getTokenId(claims, token))) {
+                log.error("JWT has been revoked");
+                throw new JWTFailureException("JWT has been revoked");
+            }
+            User user = resolveUser(claims);
+            if(jwtService.validateJWT(claims)) {
                 log.info("JWT token is valid");
                 ((AuthenticationToken) authentication).setUser(user);
                 authentication.setAuthenticated(true);
@@ -46,6 +61,22 @@ public class CustomJWTAuthenticationProvider implements AuthenticationProvider {
         return null;
     }
 
+    /*
+        Builds the principal from the token claims, only tokens issued before the user id claim
+        was added fall back to a lookup by email when legacy tokens are accepted
+     */
+    private User resolveUser(VerifiedToken claims) {
+        User user = jwtService.getUserClaim(claims);
+        if(user != null) {
+            return user;
+        }
+        if(!acceptLegacyTokens) {
+            log.error("Legacy JWT without user id claim is not accepted");
+            throw new JWTFailureException("JWT not valid");
+        }
+        return userService.findUserByEmail(jwtService.getEmailClaim(claims));
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return authentication.equals(AuthenticationToken.class);
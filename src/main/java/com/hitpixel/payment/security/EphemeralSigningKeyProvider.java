@@ -0,0 +1,37 @@
+package com.hitpixel.payment.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.Key;
+import java.util.Optional;
+
+/**
+ * Random HMAC key generated at startup. Tokens do not survive a restart and are not accepted by other
+ * instances, configure a keystore to share keys between nodes.
+ */
+@Slf4j
+public class EphemeralSigningKeyProvider implements SigningKeyProvider {
+
+    static final String KEY_ID = "ephemeral";
+
+    private final SigningKey signingKey = new SigningKey(
+            KEY_ID,
+            Keys.secretKeyFor(SignatureAlgorithm.HS256),
+            SignatureAlgorithm.HS256);
+
+    public EphemeralSigningKeyProvider() {
+        log.warn("No JWT keystore configured, tokens are signed with a random per-process key");
+    }
+
+    @Override
+    public Optional<SigningKey> getSigningKey() {
+        return Optional.of(signingKey);
+    }
+
+    @Override
+    public Key getVerificationKey(String keyId) {
+        return keyId == null || KEY_ID.equals(keyId) ? signingKey.key() : null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.hitpixel.payment.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ResourceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keys loaded from a PKCS12 keystore, the alias of each entry is its key id.
+ * <ul>
+ *     <li>secret key entries are HMAC keys (HS256/HS384/HS512) which both sign and verify</li>
+ *     <li>private key entries are EC or RSA keys (ES256, RS256, ...) verified through their certificate</li>
+ *     <li>trusted certificate entries only verify, so verifier-only nodes never hold a signing secret</li>
+ * </ul>
+ * Several keys can be active at once, new tokens are signed with the configured signing key id while
+ * tokens signed with any other key in the keystore keep verifying until that key is removed.
+ */
+@Slf4j
+public class KeyStoreSigningKeyProvider implements SigningKeyProvider {
+
+    private final Map<String, Key> verificationKeys;
+    private final SigningKey signingKey;
+
+    public KeyStoreSigningKeyProvider(String location, char[] password, String signingKeyId) {
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            try (InputStream inputStream = ResourceUtils.getURL(location).openStream()) {
+                keyStore.load(inputStream, password);
+            }
+            Map<String, Key> keys = new HashMap<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                keys.put(alias, loadVerificationKey(keyStore, alias, password));
+            }
+            this.verificationKeys = Map.copyOf(keys);
+            this.signingKey = signingKeyId == null || signingKeyId.isBlank()
+                    ? null
+                    : loadSigningKey(keyStore, signingKeyId, password);
+        } catch (IOException | GeneralSecurityException exception) {
+            throw new IllegalStateException("Could not load JWT keystore from " + location, exception);
+        }
+        log.info("Loaded {} JWT verification key(s), signing key id={}", verificationKeys.size(),
+                signingKey == null ? "none (verifier only)" : signingKey.keyId());
+    }
+
+    @Override
+    public Optional<SigningKey> getSigningKey() {
+        return Optional.ofNullable(signingKey);
+    }
+
+    @Override
+    public Key getVerificationKey(String keyId) {
+        if(keyId == null) {
+            return signingKey == null ? null : verificationKeys.get(signingKey.keyId());
+        }
+        return verificationKeys.get(keyId);
+    }
+
+    private static Key loadVerificationKey(KeyStore keyStore, String alias, char[] password) throws GeneralSecurityException {
+        if(keyStore.isCertificateEntry(alias) || keyStore.entryInstanceOf(alias, KeyStore.PrivateKeyEntry.class)) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            return certificate.getPublicKey();
+        }
+        return keyStore.getKey(alias, password);
+    }
+
+    private static SigningKey loadSigningKey(KeyStore keyStore, String alias, char[] password) throws GeneralSecurityException {
+        if(keyStore.isCertificateEntry(alias)) {
+            throw new IllegalStateException("JWT signing key " + alias + " is a certificate and can only verify tokens");
+        }
+        Key key = keyStore.getKey(alias, password);
+        if(key == null) {
+            throw new IllegalStateException("JWT signing key " + alias + " does not exist in the keystore");
+        }
+        return new SigningKey(alias, key, SignatureAlgorithm.forSigningKey(key));
+    }
+}
@@ -0,0 +1,260 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.exception.JWTFailureException;
+import com.hitpixel.payment.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory store of opaque refresh tokens. Tokens are kept by their SHA-256 digest together with the
+ * user they were issued to, so a refresh needs no database lookup.
+ * <p>
+ * Every login starts a token family. Each refresh rotates the token, the previous one stays known until
+ * it expires so presenting it again is detected as reuse and revokes the whole family. Idle tokens expire
+ * after the idle timeout and no family outlives the max session. Expired tokens are dropped by a timing
+ * wheel, and the store can optionally be snapshotted to a file on shutdown and restored on startup.
+ */
+@Slf4j
+@Component
+public class RefreshTokenStore {
+
+    private static final String REFRESH_TOKEN_NOT_VALID = "Refresh token not valid";
+    private static final int TOKEN_BYTES = 32;
+    private static final int WHEEL_SIZE = 4096;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final Map<String, Entry> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private final TimingWheel<String> timingWheel;
+    private final long idleTimeoutMillis;
+    private final long maxSessionMillis;
+    private final Path storePath;
+    private final Counter reuseCounter;
+
+    public RefreshTokenStore(@Value("${payment.jwt.refresh.idle-timeout:24h}") Duration idleTimeout,
+                             @Value("${payment.jwt.refresh.max-session:7d}") Duration maxSession,
+                             @Value("${payment.jwt.refresh.tick-millis:1000}") long tickMillis,
+                             @Value("${payment.jwt.refresh.store-path:}") String storePath,
+                             MeterRegistry meterRegistry) {
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.maxSessionMillis = maxSession.toMillis();
+        this.storePath = storePath == null || storePath.isBlank() ? null : Path.of(storePath);
+        this.timingWheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, this::expire, System.currentTimeMillis());
+        this.reuseCounter = Counter.builder("jwt.refresh.reuse").register(meterRegistry);
+        Gauge.builder("jwt.refresh.tokens", tokens, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Method to issue the first refresh token of a new session
+     * @param userId id of the user
+     * @param name name of the user
+     * @param email email of the user
+     * @return the refresh token
+     */
+    public String issue(String userId, String name, String email) {
+        long now = System.currentTimeMillis();
+        String familyId = UUID.randomUUID().toString();
+        NewToken newToken = newToken(new Entry(userId, name, email, familyId, 0), now, now + maxSessionMillis);
+        families.put(familyId, new Family(newToken.digest(), now + maxSessionMillis));
+        store(newToken);
+        return newToken.token();
+    }
+
+    /**
+     * Method to exchange a refresh token for the next one of its session, the given token can not be used again
+     * @param refreshToken current refresh token
+     * @return the user of the session and its next refresh token
+     */
+    public Rotation rotate(String refreshToken) {
+        long now = System.currentTimeMillis();
+        String digest = TokenDigests.sha256(refreshToken);
+        Entry entry = tokens.get(digest);
+        if(entry == null || entry.expiresAt() <= now) {
+            log.error("Refresh token is unknown or expired");
+            throw new JWTFailureException(REFRESH_TOKEN_NOT_VALID);
+        }
+        Family family = families.get(entry.familyId());
+        if(family == null) {
+            log.error("Refresh token belongs to a revoked session");
+            throw new JWTFailureException(REFRESH_TOKEN_NOT_VALID);
+        }
+        NewToken next = newToken(entry, now, family.sessionExpiresAt());
+        if(!family.currentDigest().equals(digest)
+                || !families.replace(entry.familyId(), family, new Family(next.digest(), family.sessionExpiresAt()))) {
+            families.remove(entry.familyId());
+            reuseCounter.increment();
+            log.warn("Refresh token of user={} was used twice, revoking the session", entry.email());
+            throw new JWTFailureException(REFRESH_TOKEN_NOT_VALID);
+        }
+        store(next);
+        return new Rotation(entry.userId(), entry.name(), entry.email(), next.token());
+    }
+
+    /**
+     * Method to end the session a refresh token belongs to, unknown tokens are ignored
+     * @param refreshToken any refresh token of the session
+     */
+    public void revoke(String refreshToken) {
+        Entry entry = tokens.get(TokenDigests.sha256(refreshToken));
+        if(entry != null && families.remove(entry.familyId()) != null) {
+            log.info("Revoked session of user={}", entry.email());
+        }
+    }
+
+    /**
+     * Method to fetch the number of refresh tokens held, including used ones kept for reuse detection
+     * @return number of refresh tokens
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * Method to drop expired refresh tokens, runs every tick of the timing wheel
+     */
+    @Scheduled(fixedDelayString = "${payment.jwt.refresh.tick-millis:1000}")
+    public void expireTokens() {
+        expireTokens(System.currentTimeMillis());
+    }
+
+    int expireTokens(long nowMillis) {
+        return timingWheel.advance(nowMillis);
+    }
+
+    /*
+        Entries never change their expiry, so a digest is scheduled once and can be dropped when it fires.
+        The family goes with it when the expired token was the latest one of the session.
+     */
+    private void expire(String digest) {
+        Entry entry = tokens.remove(digest);
+        if(entry != null) {
+            families.computeIfPresent(entry.familyId(), (familyId, family) ->
+                    family.currentDigest().equals(digest) ? null : family);
+        }
+    }
+
+    private NewToken newToken(Entry entry, long now, long sessionExpiresAt) {
+        byte[] random = new byte[TOKEN_BYTES];
+        SECURE_RANDOM.nextBytes(random);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        long expiresAt = Math.min(now + idleTimeoutMillis, sessionExpiresAt);
+        return new NewToken(token, TokenDigests.sha256(token),
+                new Entry(entry.userId(), entry.name(), entry.email(), entry.familyId(), expiresAt));
+    }
+
+    private void store(NewToken newToken) {
+        tokens.put(newToken.digest(), newToken.entry());
+        timingWheel.schedule(newToken.digest(), newToken.entry().expiresAt());
+    }
+
+    /**
+     * Method to restore the refresh tokens saved by a previous run, when a store path is configured
+     */
+    @PostConstruct
+    public void load() {
+        if(storePath == null || !Files.exists(storePath)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(storePath)))) {
+            if(input.readInt() != SNAPSHOT_VERSION) {
+                log.error("Ignoring refresh token snapshot {} with an unknown version", storePath);
+                return;
+            }
+            int familyCount = input.readInt();
+            for(int index = 0; index < familyCount; index++) {
+                String familyId = input.readUTF();
+                Family family = new Family(input.readUTF(), input.readLong());
+                if(family.sessionExpiresAt() > now) {
+                    families.put(familyId, family);
+                }
+            }
+            int tokenCount = input.readInt();
+            for(int index = 0; index < tokenCount; index++) {
+                String digest = input.readUTF();
+                Entry entry = new Entry(input.readUTF(), input.readUTF(), input.readUTF(), input.readUTF(), input.readLong());
+                if(entry.expiresAt() > now) {
+                    tokens.put(digest, entry);
+                    timingWheel.schedule(digest, entry.expiresAt());
+                }
+            }
+            log.info("Restored {} refresh token(s) from {}", tokens.size(), storePath);
+        } catch (IOException exception) {
+            tokens.clear();
+            families.clear();
+            log.error("Could not restore refresh tokens from {}, users need to login again", storePath, exception);
+        }
+    }
+
+    /**
+     * Method to save the refresh tokens for the next run, when a store path is configured
+     */
+    @PreDestroy
+    public void save() {
+        if(storePath == null) {
+            return;
+        }
+        Path temporary = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        Map<String, Family> familySnapshot = Map.copyOf(families);
+        Map<String, Entry> tokenSnapshot = Map.copyOf(tokens);
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(SNAPSHOT_VERSION);
+                output.writeInt(familySnapshot.size());
+                for(Map.Entry<String, Family> family : familySnapshot.entrySet()) {
+                    output.writeUTF(family.getKey());
+                    output.writeUTF(family.getValue().currentDigest());
+                    output.writeLong(family.getValue().sessionExpiresAt());
+                }
+                output.writeInt(tokenSnapshot.size());
+                for(Map.Entry<String, Entry> token : tokenSnapshot.entrySet()) {
+                    Entry entry = token.getValue();
+                    output.writeUTF(token.getKey());
+                    output.writeUTF(entry.userId());
+                    output.writeUTF(entry.name());
+                    output.writeUTF(entry.email());
+                    output.writeUTF(entry.familyId());
+                    output.writeLong(entry.expiresAt());
+                }
+            }
+            Files.move(temporary, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} refresh token(s) to {}", tokenSnapshot.size(), storePath);
+        } catch (IOException exception) {
+            log.error("Could not save refresh tokens to {}", storePath, exception);
+        }
+    }
+
+    /**
+     * User of a refreshed session together with its next refresh token
+     */
+    public record Rotation(String userId, String name, String email, String refreshToken) {}
+
+    private record Entry(String userId, String name, String email, String familyId, long expiresAt) {}
+
+    private record Family(String currentDigest, long sessionExpiresAt) {}
+
+    private record NewToken(String token, String digest, Entry entry) {}
+}
@@ -0,0 +1,110 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.util.BloomFilter;
+import com.hitpixel.payment.util.TimingWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of revoked JWT ids. An id only needs to be kept until the token it belongs to expires, after that
+ * the token is rejected anyway, so entries are dropped by a timing wheel at the token expiry and the
+ * set never grows beyond the tokens revoked within one token lifetime.
+ * <p>
+ * When a Bloom filter is configured it is checked first so ids which were never revoked skip the exact
+ * lookup. The filter is rebuilt from the set whenever entries expire.
+ */
+@Slf4j
+@Component
+public class RevokedTokenStore {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final TimingWheel<String> timingWheel;
+    private final int bloomFilterExpectedInsertions;
+    private final double bloomFilterFalsePositiveRate;
+    private volatile BloomFilter bloomFilter;
+
+    public RevokedTokenStore(@Value("${payment.jwt.revocation.tick-millis:1000}") long tickMillis,
+                             @Value("${payment.jwt.revocation.bloom-filter.expected-insertions:0}") int bloomFilterExpectedInsertions,
+                             @Value("${payment.jwt.revocation.bloom-filter.false-positive-rate:0.01}") double bloomFilterFalsePositiveRate,
+                             MeterRegistry meterRegistry) {
+        this.timingWheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, revokedTokens::remove, System.currentTimeMillis());
+        this.bloomFilterExpectedInsertions = bloomFilterExpectedInsertions;
+        this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+        this.bloomFilter = newBloomFilter();
+        Gauge.builder("jwt.revoked.tokens", revokedTokens, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Method to revoke a token until it expires
+     * @param tokenId jti claim of the token
+     * @param expiresAtMillis expiry of the token
+     */
+    public synchronized void revoke(String tokenId, long expiresAtMillis) {
+        if(expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        revokedTokens.put(tokenId, expiresAtMillis);
+        if(bloomFilter != null) {
+            bloomFilter.add(tokenId);
+        }
+        timingWheel.schedule(tokenId, expiresAtMillis);
+        log.info("Revoked JWT until {}", expiresAtMillis);
+    }
+
+    /**
+     * Method to check if a token was revoked
+     * @param tokenId jti claim of the token
+     * @return boolean value if the token was revoked
+     */
+    public boolean isRevoked(String tokenId) {
+        if(revokedTokens.isEmpty()) {
+            return false;
+        }
+        BloomFilter filter = bloomFilter;
+        if(filter != null && !filter.mightContain(tokenId)) {
+            return false;
+        }
+        return revokedTokens.containsKey(tokenId);
+    }
+
+    /**
+     * Method to fetch the number of revoked tokens which have not expired yet
+     * @return number of revoked tokens
+     */
+    public int size() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * Method to drop revoked tokens which expired, runs every tick of the timing wheel
+     */
+    @Scheduled(fixedDelayString = "${payment.jwt.revocation.tick-millis:1000}")
+    public void expireTokens() {
+        expireTokens(System.currentTimeMillis());
+    }
+
+    synchronized int expireTokens(long nowMillis) {
+        int expired = timingWheel.advance(nowMillis);
+        if(expired > 0 && bloomFilter != null) {
+            BloomFilter rebuilt = newBloomFilter();
+            revokedTokens.keySet().forEach(rebuilt::add);
+            bloomFilter = rebuilt;
+        }
+        return expired;
+    }
+
+    private BloomFilter newBloomFilter() {
+        return bloomFilterExpectedInsertions > 0
+                ? new BloomFilter(bloomFilterExpectedInsertions, bloomFilterFalsePositiveRate)
+                : null;
+    }
+}
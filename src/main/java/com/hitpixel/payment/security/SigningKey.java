@@ -0,0 +1,17 @@
+package com.hitpixel.payment.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import java.security.Key;
+
+/**
+ * Key used to sign new JWTs
+ * @param keyId id written to the kid header of signed tokens
+ * @param key secret or private key
+ * @param algorithm signature algorithm of the key
+ */
+public record SigningKey(
+        String keyId,
+        Key key,
+        SignatureAlgorithm algorithm) {
+}
@@ -0,0 +1,24 @@
+package com.hitpixel.payment.security;
+
+import java.security.Key;
+import java.util.Optional;
+
+/**
+ * Source of the keys used to sign and verify JWTs. Implementations resolve every key up front so
+ * verification is a map lookup by the kid header of the token.
+ */
+public interface SigningKeyProvider {
+
+    /**
+     * Key used to sign new tokens
+     * @return signing key, empty on nodes which only verify tokens
+     */
+    Optional<SigningKey> getSigningKey();
+
+    /**
+     * Key used to verify tokens signed with the given key id
+     * @param keyId kid header of the token
+     * @return verification key, null if the key id is not known
+     */
+    Key getVerificationKey(String keyId);
+}
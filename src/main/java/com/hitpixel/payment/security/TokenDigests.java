@@ -0,0 +1,38 @@
+package com.hitpixel.payment.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * SHA-256 digests of bearer tokens, used wherever tokens are kept in memory or on disk so the raw
+ * token is never retained.
+ */
+public final class TokenDigests {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(TokenDigests::newDigest);
+
+    private TokenDigests() {
+    }
+
+    /**
+     * Method to compute the digest of a token
+     * @param token the token
+     * @return base64url encoded SHA-256 digest of the token
+     */
+    public static String sha256(String token) {
+        MessageDigest messageDigest = SHA_256.get();
+        messageDigest.reset();
+        byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+}
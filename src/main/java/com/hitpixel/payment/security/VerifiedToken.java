@@ -0,0 +1,19 @@
+package com.hitpixel.payment.security;
+
+import java.time.Instant;
+
+/**
+ * Claims of a JWT whose signature has been verified, immutable so it can be shared by concurrent requests
+ * @param userId uid claim, null for tokens issued before the user id claim was added
+ * @param name name claim
+ * @param email email claim
+ * @param tokenId jti claim, null for tokens issued before the jti claim was added
+ * @param expiration exp claim, null if the token does not expire
+ */
+public record VerifiedToken(
+        String userId,
+        String name,
+        String email,
+        String tokenId,
+        Instant expiration) {
+}
@@ -0,0 +1,88 @@
+package com.hitpixel.payment.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache of already verified JWTs. Entries are keyed by a SHA-256 digest of the token so raw bearer
+ * tokens are never retained, and each entry expires together with the token it was created from. Entries are
+ * immutable records of the verified claims, so requests sharing a token can not change them for each other.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final String CACHE_NAME = "jwt.verified";
+    private static final long DEFAULT_TTL_MILLIS = 1000L * 60 * 30;
+
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(@Value("${payment.jwt.cache.maximum-size:10000}") long maximumSize,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Method to fetch verified claims of a token, verifying it only on a cache miss
+     * @param token the JWT
+     * @param verifier function which parses and verifies the token, it must throw for invalid tokens
+     * @return verified claims of the token
+     */
+    public VerifiedToken get(String token, Function<String, VerifiedToken> verifier) {
+        return cache.get(TokenDigests.sha256(token), key -> verifier.apply(token));
+    }
+
+    /**
+     * Method to drop a token from the cache
+     * @param token the JWT
+     */
+    public void invalidate(String token) {
+        cache.invalidate(TokenDigests.sha256(token));
+    }
+
+    /**
+     * Method to fetch the approximate number of cached tokens
+     * @return number of cached tokens
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /*
+        Expires every entry at the expiration time of the token it was created from
+     */
+    private static final class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken verifiedToken, long currentTime) {
+            Instant expiration = verifiedToken.expiration();
+            long ttlMillis = expiration == null
+                    ? DEFAULT_TTL_MILLIS
+                    : expiration.toEpochMilli() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(ttlMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
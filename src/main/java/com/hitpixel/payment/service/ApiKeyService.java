@@ -0,0 +1,80 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.ApiKey;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.ApiKeyRequest;
+import com.hitpixel.payment.dto.ApiKeyResponse;
+import com.hitpixel.payment.enums.ApiKeyScope;
+import com.hitpixel.payment.exception.ApiKeyNotExistsException;
+import com.hitpixel.payment.repository.ApiKeyRepository;
+import com.hitpixel.payment.security.ApiKeyIndex;
+import com.hitpixel.payment.security.TokenDigests;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+@Slf4j
+@Service
+public class ApiKeyService {
+
+    private static final String KEY_PREFIX = "pk_";
+    private static final int KEY_BYTES = 32;
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final ApiKeyRepository apiKeyRepository;
+    private final ApiKeyIndex apiKeyIndex;
+    private final IdGenerator idGenerator;
+
+    public ApiKeyService(ApiKeyRepository apiKeyRepository, ApiKeyIndex apiKeyIndex, IdGenerator idGenerator) {
+        this.apiKeyRepository = apiKeyRepository;
+        this.apiKeyIndex = apiKeyIndex;
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Method to create an api key for a user, only the digest of the key is stored
+     * @param apiKeyRequest name and scopes of the key
+     * @param user owner of the key
+     * @return created api key, the only time the key itself is returned
+     */
+    public ApiKeyResponse createApiKey(ApiKeyRequest apiKeyRequest, User user) {
+        log.info("Creating api key name={} for user={}", apiKeyRequest.name(), user.getEmail());
+        byte[] random = new byte[KEY_BYTES];
+        SECURE_RANDOM.nextBytes(random);
+        String key = KEY_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+        ApiKey apiKey = new ApiKey(
+                idGenerator.nextId(),
+                apiKeyRequest.name(),
+                TokenDigests.sha256(key),
+                ApiKeyScope.join(apiKeyRequest.scopes()),
+                true,
+                user,
+                LocalDateTime.now());
+        apiKeyRepository.save(apiKey);
+        apiKeyIndex.put(apiKey);
+        log.info("Created api key id={} for user={}", apiKey.getId(), user.getEmail());
+        return new ApiKeyResponse(apiKey.getId(), apiKey.getName(), ApiKeyScope.parse(apiKey.getScopes()),
+                apiKey.getCreatedTimestamp(), key);
+    }
+
+    /**
+     * Method to revoke an api key of a user
+     * @param apiKeyId id of the api key
+     * @param user owner of the key
+     */
+    public void revokeApiKey(String apiKeyId, User user) {
+        ApiKey apiKey = apiKeyRepository
+                .findByIdAndUserId(apiKeyId, user.getId())
+                .orElseThrow(() -> {
+                    log.error("Api key id={} does not exist for user={}", apiKeyId, user.getEmail());
+                    return new ApiKeyNotExistsException("Api key does not exists in the system");
+                });
+        apiKey.setActive(false);
+        apiKeyRepository.save(apiKey);
+        apiKeyIndex.remove(apiKey.getKeyHash());
+        log.info("Revoked api key id={} of user={}", apiKeyId, user.getEmail());
+    }
+}
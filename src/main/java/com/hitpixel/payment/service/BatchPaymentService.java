@@ -0,0 +1,132 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.BatchPaymentResponse;
+import com.hitpixel.payment.dto.BatchPaymentResult;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.strategy.PaymentMethodFactory;
+import com.hitpixel.payment.strategy.PaymentMethodStrategy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Makes many payments and stores them in one database transaction. Payments are grouped by payment method so
+ * every strategy is looked up once. All payments are made before the database transaction is opened, so no
+ * connection is held while the gateway answers. Transactions are written in chunks of the JDBC batch size so
+ * Hibernate sends each chunk as one batched insert and the persistence context never holds more than one chunk.
+ */
+@Slf4j
+@Service
+public class BatchPaymentService {
+
+    private final TransactionRepository transactionRepository;
+    private final PaymentSummaryService paymentSummaryService;
+    private final PaymentMethodFactory paymentMethodFactory;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public BatchPaymentService(TransactionRepository transactionRepository,
+                               PaymentSummaryService paymentSummaryService,
+                               PaymentMethodFactory paymentMethodFactory,
+                               Validator validator,
+                               EntityManager entityManager,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.transactionRepository = transactionRepository;
+        this.paymentSummaryService = paymentSummaryService;
+        this.paymentMethodFactory = paymentMethodFactory;
+        this.validator = validator;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Method to make a batch of payments to other entities. Invalid payments and payments rejected by
+     * their strategy are reported in their result, the others are stored together.
+     * @param payments payment details objects
+     * @param user initiating user
+     * @return result of every payment in the order of the request
+     */
+    public BatchPaymentResponse makePayments(List<Payment> payments, User user) {
+        log.info("Processing batch of {} payment(s) for user={}", payments.size(), user.getEmail());
+        BatchPaymentResult[] results = new BatchPaymentResult[payments.size()];
+        Map<PaymentMethod, List<Integer>> indicesByMethod = new EnumMap<>(PaymentMethod.class);
+        for(int index = 0; index < payments.size(); index++) {
+            Payment payment = payments.get(index);
+            String violations = payment == null ? "Payment cannot be null" : validate(payment);
+            if(violations != null) {
+                results[index] = new BatchPaymentResult(index, null, null, violations);
+            } else {
+                indicesByMethod.computeIfAbsent(payment.paymentMethod(), paymentMethod -> new ArrayList<>()).add(index);
+            }
+        }
+
+        List<Transaction> transactions = new ArrayList<>(payments.size());
+        for(Map.Entry<PaymentMethod, List<Integer>> group : indicesByMethod.entrySet()) {
+            PaymentMethodStrategy paymentMethodStrategy = paymentMethodFactory.getPaymentMethodStrategy(group.getKey());
+            for(int index : group.getValue()) {
+                Transaction transaction;
+                try {
+                    transaction = paymentMethodStrategy.processPayment(payments.get(index));
+                } catch (RuntimeException exception) {
+                    log.error("Payment {} of batch for user={} failed: {}", index, user.getEmail(), exception.getMessage());
+                    results[index] = new BatchPaymentResult(index, null, null, exception.getMessage());
+                    continue;
+                }
+                transaction.setUser(user);
+                transactions.add(transaction);
+                results[index] = new BatchPaymentResult(index, transaction.getId(), transaction.getStatus(), null);
+            }
+        }
+        if(!transactions.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> write(transactions));
+        }
+        int accepted = transactions.size();
+        log.info("Processed batch for user={}, accepted={} rejected={}", user.getEmail(), accepted, payments.size() - accepted);
+        return new BatchPaymentResponse(accepted, payments.size() - accepted, Arrays.asList(results));
+    }
+
+    private String validate(Payment payment) {
+        Set<ConstraintViolation<Payment>> violations = validator.validate(payment);
+        if(violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /*
+        Flushing sends every chunk as batched inserts, clearing keeps the persistence context from growing
+        with the size of the batch. The payment summary of the user is updated once per combination of a chunk.
+     */
+    private void write(List<Transaction> transactions) {
+        for(int from = 0; from < transactions.size(); from += batchSize) {
+            List<Transaction> chunk = transactions.subList(from, Math.min(from + batchSize, transactions.size()));
+            transactionRepository.saveAll(chunk);
+            paymentSummaryService.addTransactions(chunk);
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hitpixel.payment.service;
+
+import org.springframework.stereotype.Service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates time-ordered ids as UUIDv7 (RFC 9562): a 48 bit millisecond timestamp, a 12 bit counter and
+ * 62 random bits. The ids are stored in 16 byte UUID columns, which sort by their bytes and so in creation
+ * order, new rows therefore land at the right edge of the primary key index instead of on a random page. The
+ * canonical string sorts in the same order.
+ * <p>
+ * Every thread keeps its own counter and random generator, so generating ids takes no lock shared between
+ * threads. Ids of one thread are strictly increasing, the counter starts at a random value every
+ * millisecond and borrows the next millisecond when it runs out.
+ */
+@Service
+public class IdGenerator {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC_9562 = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final int MAX_COUNTER = 0xFFF;
+    /*
+        The counter starts in the lower half so a burst within one millisecond has room to count up
+     */
+    private static final int COUNTER_SEED_BOUND = 0x800;
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public IdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    IdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Method to generate a new id
+     * @return canonical string of a new UUIDv7
+     */
+    public String nextId() {
+        return nextUuid().toString();
+    }
+
+    /**
+     * Method to generate a new UUIDv7
+     * @return new UUIDv7
+     */
+    public UUID nextUuid() {
+        State state = states.get();
+        long millis = clock.getAsLong();
+        if(millis > state.lastMillis) {
+            state.lastMillis = millis;
+            state.counter = state.random.nextInt(COUNTER_SEED_BOUND);
+        } else if(++state.counter > MAX_COUNTER) {
+            state.lastMillis++;
+            state.counter = 0;
+        }
+        long mostSignificantBits = (state.lastMillis << 16) | VERSION_7 | state.counter;
+        long leastSignificantBits = VARIANT_RFC_9562 | (state.random.nextLong() & RANDOM_MASK);
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Method to read the creation time of an id
+     * @param id UUIDv7
+     * @return milliseconds since the epoch the id was generated at
+     */
+    public static long timestampOf(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+    private static final class State {
+        private final SecureRandom random = newRandom();
+        private long lastMillis = Long.MIN_VALUE;
+        private int counter;
+    }
+
+    /*
+        The default SecureRandom on Linux reads through one lock shared by every instance, a DRBG instance
+        per thread does not.
+     */
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException exception) {
+            return new SecureRandom();
+        }
+    }
+}
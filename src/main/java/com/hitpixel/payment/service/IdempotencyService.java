@@ -0,0 +1,263 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.IdempotencyKey;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.exception.IdempotencyKeyMismatchException;
+import com.hitpixel.payment.exception.ServiceBusyException;
+import com.hitpixel.payment.repository.IdempotencyKeyRepository;
+import com.hitpixel.payment.security.TokenDigests;
+import com.hitpixel.payment.util.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Runs payments at most once per Idempotency-Key of a user.
+ * <p>
+ * Executions are tracked in memory, split over lock stripes so unrelated keys never contend. The first
+ * request of a key runs the payment, concurrent duplicates wait for its result instead of racing it, and
+ * later duplicates get the stored transaction back without running the payment or writing to the database.
+ * The key is also persisted in the transaction that stores the payment, so it survives a restart and is
+ * honoured by other nodes. The payment itself is made before that transaction, so no connection is held while
+ * the gateway answers. Completed executions stay in memory for the memory ttl, persisted keys are
+ * purged after the retention.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final String KEY_REUSED = "Idempotency-Key was already used with a different payment";
+    private static final int WHEEL_SIZE = 1024;
+
+    private final Stripe[] stripes;
+    private final TimingWheel<String> timingWheel;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long memoryTtlMillis;
+    private final Duration retention;
+    private final long waitTimeoutMillis;
+    private final Counter replayCounter;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${payment.idempotency.stripes:64}") int stripeCount,
+                              @Value("${payment.idempotency.memory-ttl:10m}") Duration memoryTtl,
+                              @Value("${payment.idempotency.retention:24h}") Duration retention,
+                              @Value("${payment.idempotency.wait-timeout:30s}") Duration waitTimeout,
+                              @Value("${payment.idempotency.tick-millis:1000}") long tickMillis,
+                              MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for(int index = 0; index < size; index++) {
+            stripes[index] = new Stripe();
+        }
+        this.timingWheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, this::expire, System.currentTimeMillis());
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.memoryTtlMillis = memoryTtl.toMillis();
+        this.retention = retention;
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.replayCounter = Counter.builder("payment.idempotency.replays").register(meterRegistry);
+    }
+
+    /**
+     * Method to run a payment once for an idempotency key
+     * @param idempotencyKey Idempotency-Key header sent by the client
+     * @param payment payment details object
+     * @param user initiating user
+     * @param execution makes the payment, runs before the database transaction which persists the key
+     * @param persistence stores the transaction of the payment, runs in the database transaction which persists the key
+     * @return transaction of the first execution for the key
+     */
+    public Transaction execute(String idempotencyKey, Payment payment, User user, Supplier<Transaction> execution,
+                               UnaryOperator<Transaction> persistence) {
+        String id = TokenDigests.sha256(user.getId() + ':' + idempotencyKey);
+        String requestHash = requestHash(payment);
+        Stripe stripe = stripes[id.hashCode() & (stripes.length - 1)];
+        Execution current;
+        boolean leader = false;
+        stripe.lock.lock();
+        try {
+            current = stripe.executions.get(id);
+            if(current == null) {
+                current = new Execution(requestHash);
+                stripe.executions.put(id, current);
+                leader = true;
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        if(!leader) {
+            return replay(current, requestHash, user);
+        }
+        try {
+            Transaction transaction = findPersisted(id, requestHash)
+                    .orElseGet(() -> executeAndPersist(id, requestHash, execution, persistence));
+            current.result.complete(transaction);
+            timingWheel.schedule(id, System.currentTimeMillis() + memoryTtlMillis);
+            return transaction;
+        } catch (RuntimeException exception) {
+            stripe.lock.lock();
+            try {
+                stripe.executions.remove(id, current);
+            } finally {
+                stripe.lock.unlock();
+            }
+            current.result.completeExceptionally(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Method to drop completed executions from memory, runs every tick of the timing wheel
+     */
+    @Scheduled(fixedDelayString = "${payment.idempotency.tick-millis:1000}")
+    public void expireExecutions() {
+        expireExecutions(System.currentTimeMillis());
+    }
+
+    int expireExecutions(long nowMillis) {
+        return timingWheel.advance(nowMillis);
+    }
+
+    /**
+     * Method to delete persisted idempotency keys older than the retention
+     */
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval-millis:3600000}")
+    public void purgeExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteAllCreatedBefore(LocalDateTime.now().minus(retention));
+        if(deleted > 0) {
+            log.info("Purged {} expired idempotency key(s)", deleted);
+        }
+    }
+
+    /**
+     * Method to fetch the number of executions held in memory
+     * @return number of executions
+     */
+    public int size() {
+        int size = 0;
+        for(Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.executions.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Transaction replay(Execution execution, String requestHash, User user) {
+        if(!execution.requestHash.equals(requestHash)) {
+            log.error("Idempotency key of user={} was reused with a different payment", user.getEmail());
+            throw new IdempotencyKeyMismatchException(KEY_REUSED);
+        }
+        try {
+            Transaction transaction = execution.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            replayCounter.increment();
+            log.info("Replaying transaction id={} for user={}", transaction.getId(), user.getEmail());
+            return transaction;
+        } catch (ExecutionException exception) {
+            throw exception.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException(exception.getCause());
+        } catch (TimeoutException exception) {
+            log.error("Timed out waiting for the first payment of an idempotency key of user={}", user.getEmail());
+            throw new ServiceBusyException("Payment with this Idempotency-Key is still in progress, please retry later");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Payment with this Idempotency-Key is still in progress, please retry later");
+        }
+    }
+
+    private Optional<Transaction> findPersisted(String id, String requestHash) {
+        return idempotencyKeyRepository.findById(id).map(idempotencyKey -> {
+            if(!idempotencyKey.getRequestHash().equals(requestHash)) {
+                log.error("Persisted idempotency key was reused with a different payment");
+                throw new IdempotencyKeyMismatchException(KEY_REUSED);
+            }
+            replayCounter.increment();
+            return idempotencyKey.getTransaction();
+        });
+    }
+
+    /*
+        The payment is made outside of the database transaction, which is only opened to store its result and
+        the key. Another node can persist the same key between the lookup and the insert, the primary key makes
+        one of them fail and that one returns the transaction of the other.
+     */
+    private Transaction executeAndPersist(String id, String requestHash, Supplier<Transaction> execution,
+                                          UnaryOperator<Transaction> persistence) {
+        Transaction transaction = execution.get();
+        try {
+            return transactionTemplate.execute(status -> {
+                Transaction persistedTransaction = persistence.apply(transaction);
+                idempotencyKeyRepository.save(new IdempotencyKey(id, requestHash, persistedTransaction, LocalDateTime.now()));
+                return persistedTransaction;
+            });
+        } catch (DataIntegrityViolationException exception) {
+            log.warn("Idempotency key was persisted concurrently, returning the stored transaction");
+            return findPersisted(id, requestHash).orElseThrow(() -> exception);
+        }
+    }
+
+    /*
+        The amount is normalised so 100 and 100.00 are the same payment.
+     */
+    static String requestHash(Payment payment) {
+        String amount = payment.paymentAmount() == null ? "" : payment.paymentAmount().stripTrailingZeros().toPlainString();
+        return TokenDigests.sha256(amount + '|' + payment.paymentMethod() + '|' + payment.currency());
+    }
+
+    /*
+        Only completed executions are scheduled and each of them exactly once, failed ones are removed
+        right away, so the execution found here is always the one the timeout was scheduled for.
+     */
+    private void expire(String id) {
+        Stripe stripe = stripes[id.hashCode() & (stripes.length - 1)];
+        stripe.lock.lock();
+        try {
+            Execution execution = stripe.executions.get(id);
+            if(execution != null && execution.result.isDone()) {
+                stripe.executions.remove(id);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Execution> executions = new HashMap<>();
+    }
+
+    private static final class Execution {
+        private final String requestHash;
+        private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        private Execution(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
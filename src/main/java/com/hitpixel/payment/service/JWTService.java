@@ -1,41 +1,75 @@
 package com.hitpixel.payment.service;
 
+import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.exception.JWTFailureException;
+import com.hitpixel.payment.security.SigningKey;
+import com.hitpixel.payment.security.SigningKeyProvider;
+import com.hitpixel.payment.security.TokenDigests;
+import com.hitpixel.payment.security.VerifiedToken;
+import com.hitpixel.payment.security.VerifiedTokenCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
+import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 
 @Slf4j
 @Service
 public class JWTService {
 
-    private static final SecretKey SECRET = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String NAME_CLAIM = "name";
+    public static final String EMAIL_CLAIM = "email";
+
+    private final JwtParser jwtParser;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final SigningKeyProvider signingKeyProvider;
+
+    public JWTService(VerifiedTokenCache verifiedTokenCache, SigningKeyProvider signingKeyProvider) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.signingKeyProvider = signingKeyProvider;
+        this.jwtParser = Jwts
+                .parserBuilder()
+                .setSigningKeyResolver(new KeyIdResolver(signingKeyProvider))
+                .build();
+    }
 
     /**
-     * Method to generate JWT token
+     * Method to generate JWT token, the token carries everything needed to rebuild the principal
+     * and a unique jti claim so it can be revoked
+     * @param id claim info
      * @param name claim info
      * @param email claim info
      * @return generated JWT token
      */
-    public String generateJWTToken(String name, String email) {
+    public String generateJWTToken(String id, String name, String email) {
         log.info("Generating JWT token");
         try {
+            SigningKey signingKey = signingKeyProvider
+                    .getSigningKey()
+                    .orElseThrow(() -> new IllegalStateException("This node does not hold a JWT signing key"));
             String jwt = Jwts
                     .builder()
+                    .setHeaderParam(JwsHeader.KEY_ID, signingKey.keyId())
                     .setClaims(Map.of(
-                            "name", name,
-                            "email", email))
+                            USER_ID_CLAIM, id,
+                            NAME_CLAIM, name,
+                            EMAIL_CLAIM, email))
+                    .setId(UUID.randomUUID().toString())
                     .setSubject("payment-login")
                     .setIssuedAt(new Date(System.currentTimeMillis()))
                     .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 30))
-                    .signWith(SECRET)
+                    .signWith(signingKey.key(), signingKey.algorithm())
                     .compact();
             log.info("Successfully generated JWT");
             return jwt;
@@ -46,19 +80,16 @@ public class JWTService {
     }
 
     /**
-     * Method to extract Claims from JWT
+     * Method to extract Claims from JWT, the signature is only verified the first time a token is seen
      * @param token the JWT
-     * @return Claims object from token
+     * @return immutable copy of the verified claims of the token
      */
-    public Claims extractJWTClaims(String token) {
+    public VerifiedToken extractJWTClaims(String token) {
         log.info("Extracting claims from JWT");
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(SECRET)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return verifiedTokenCache.get(token, verifiedToken -> toVerifiedToken(jwtParser
+                    .parseClaimsJws(verifiedToken)
+                    .getBody()));
         } catch (Exception exception) {
             log.error("Encountered JWT error", exception);
             throw new JWTFailureException("JWT not valid");
@@ -71,8 +102,46 @@ public class JWTService {
      * @return email claim
      */
     public String getEmailClaim(String token) {
+        return getEmailClaim(extractJWTClaims(token));
+    }
+
+    /**
+     * Method to extract the email claim from already verified claims
+     * @param claims verified claims of the JWT
+     * @return email claim
+     */
+    public String getEmailClaim(VerifiedToken claims) {
         log.info("Fetching email claim from JWT");
-        return (String) extractJWTClaims(token).get("email");
+        return claims.email();
+    }
+
+    /**
+     * Method to build the user principal from already verified claims
+     * @param claims verified claims of the JWT
+     * @return existing user built from the claims, or null for tokens issued before the user id claim was added
+     */
+    public User getUserClaim(VerifiedToken claims) {
+        if(claims.userId() == null) {
+            log.info("JWT does not carry the user id claim");
+            return null;
+        }
+        User user = new User();
+        user.setId(claims.userId());
+        user.setName(claims.name());
+        user.setEmail(getEmailClaim(claims));
+        user.markPersisted();
+        return user;
+    }
+
+    /**
+     * Method to fetch the id a token is revoked by
+     * @param claims verified claims of the JWT
+     * @param token the JWT
+     * @return jti claim, or a digest of the token for tokens issued before the jti claim was added
+     */
+    public String getTokenId(VerifiedToken claims, String token) {
+        String tokenId = claims.tokenId();
+        return tokenId != null ? tokenId : TokenDigests.sha256(token);
     }
 
     /**
@@ -81,7 +150,50 @@ public class JWTService {
      * @return boolean value if JWT is valid or not
      */
     public boolean validateJWT(String token) {
+        return validateJWT(extractJWTClaims(token));
+    }
+
+    /**
+     * Method to validate already verified claims of a JWT
+     * @param claims verified claims of the JWT
+     * @return boolean value if JWT is valid or not
+     */
+    public boolean validateJWT(VerifiedToken claims) {
         log.info("Validating JWT");
-        return extractJWTClaims(token).getExpiration().after(new Date());
+        return claims.expiration() != null && claims.expiration().isAfter(Instant.now());
+    }
+
+    /*
+        Copies the claims the service reads out of the mutable claims map of the parser
+     */
+    private static VerifiedToken toVerifiedToken(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(
+                (String) claims.get(USER_ID_CLAIM),
+                (String) claims.get(NAME_CLAIM),
+                (String) claims.get(EMAIL_CLAIM),
+                claims.getId(),
+                expiration == null ? null : expiration.toInstant());
+    }
+
+    /*
+        Resolves the verification key from the kid header of the token
+     */
+    private static final class KeyIdResolver extends SigningKeyResolverAdapter {
+
+        private final SigningKeyProvider signingKeyProvider;
+
+        private KeyIdResolver(SigningKeyProvider signingKeyProvider) {
+            this.signingKeyProvider = signingKeyProvider;
+        }
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            Key key = signingKeyProvider.getVerificationKey(header.getKeyId());
+            if(key == null) {
+                throw new JWTFailureException("Unknown JWT key id " + header.getKeyId());
+            }
+            return key;
+        }
     }
 }
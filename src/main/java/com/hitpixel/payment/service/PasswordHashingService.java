@@ -0,0 +1,104 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the slow password KDF on a dedicated, bounded pool so a burst of logins cannot occupy the request
+ * threads or every core. Work beyond the queue capacity is rejected with a ServiceBusyException.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private static final String METRIC_PREFIX = "password.hashing";
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${payment.password-hashing.threads:0}") int threads,
+                                  @Value("${payment.password-hashing.queue-capacity:256}") int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.passwordEncoder = passwordEncoder;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = Timer.builder(METRIC_PREFIX).tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder(METRIC_PREFIX).tag("operation", "matches").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder(METRIC_PREFIX + ".queue.wait").register(meterRegistry);
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        log.info("Password hashing pool started with {} thread(s) and queue capacity {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Method to hash a password on the hashing pool
+     * @param rawPassword password as entered by the user
+     * @return future of the encoded password
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Method to check a password against its stored hash on the hashing pool
+     * @param rawPassword password as entered by the user
+     * @param encodedPassword stored password hash
+     * @return future of boolean value if the password matches or not
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Method to check if a stored hash was produced with outdated parameters and should be rehashed
+     * @param encodedPassword stored password hash
+     * @return boolean value if the password needs to be rehashed
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return timer.record(task);
+            }, executor);
+        } catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            log.error("Password hashing queue is full, rejecting request");
+            return CompletableFuture.failedFuture(new ServiceBusyException("Too many login requests, please retry later"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
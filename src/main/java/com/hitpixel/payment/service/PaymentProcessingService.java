@@ -0,0 +1,159 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.ServiceBusyException;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.strategy.PaymentMethodFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completes accepted payments in the background on a bounded pool, so request threads only pay for
+ * inserting the PENDING transaction. The pool uses virtual threads when the runtime supports them, the
+ * pool size still bounds how many payments are processed at the same time. Payments beyond the queue
+ * capacity are rejected with a ServiceBusyException and their transaction is marked as failed. The payment
+ * summary of the user is updated in the database transaction changing the status.
+ */
+@Slf4j
+@Service
+public class PaymentProcessingService {
+
+    private static final String METRIC_PREFIX = "payment.processing";
+    private static final String THREAD_NAME_PREFIX = "payment-processing-";
+
+    private final PaymentMethodFactory paymentMethodFactory;
+    private final TransactionRepository transactionRepository;
+    private final TransactionStatusCache transactionStatusCache;
+    private final PaymentSummaryService paymentSummaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final Timer processingTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PaymentProcessingService(PaymentMethodFactory paymentMethodFactory,
+                                    TransactionRepository transactionRepository,
+                                    TransactionStatusCache transactionStatusCache,
+                                    PaymentSummaryService paymentSummaryService,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${payment.processing.threads:64}") int threads,
+                                    @Value("${payment.processing.queue-capacity:1000}") int queueCapacity,
+                                    @Value("${payment.processing.virtual-threads:true}") boolean virtualThreads,
+                                    MeterRegistry meterRegistry) {
+        this.paymentMethodFactory = paymentMethodFactory;
+        this.transactionRepository = transactionRepository;
+        this.transactionStatusCache = transactionStatusCache;
+        this.paymentSummaryService = paymentSummaryService;
+        this.transactionTemplate = transactionTemplate;
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.processingTimer = Timer.builder(METRIC_PREFIX).register(meterRegistry);
+        this.queueWaitTimer = Timer.builder(METRIC_PREFIX + ".queue.wait").register(meterRegistry);
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queue.depth", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        log.info("Payment processing pool started with {} thread(s) and queue capacity {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Method to complete a PENDING transaction in the background
+     * @param transactionId id of the PENDING transaction
+     * @param payment payment details object
+     */
+    public void submit(String transactionId, Payment payment) {
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                processingTimer.record(() -> process(transactionId, payment));
+            });
+        } catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            log.error("Payment processing queue is full, failing transaction id={}", transactionId);
+            if(complete(transactionId, PaymentStatus.FAIL)) {
+                transactionStatusCache.updateStatus(transactionId, PaymentStatus.FAIL);
+            }
+            throw new ServiceBusyException("Too many payments in progress, please retry later");
+        }
+    }
+
+    /*
+        The strategy builds a transaction with the id of the PENDING one, so the gateway gets it as reference,
+        only its status is taken over. The update only applies to a transaction which is still PENDING so it can
+        never overwrite a later change.
+     */
+    void process(String transactionId, Payment payment) {
+        PaymentStatus status;
+        try {
+            Transaction processed = paymentMethodFactory.getPaymentMethodStrategy(payment.paymentMethod()).processPayment(transactionId, payment);
+            status = processed.getStatus();
+        } catch (RuntimeException exception) {
+            log.error("Processing of transaction id={} failed", transactionId, exception);
+            status = PaymentStatus.FAIL;
+        }
+        if(!complete(transactionId, status)) {
+            log.warn("Transaction id={} was no longer pending, dropping status {}", transactionId, status);
+        } else {
+            transactionStatusCache.updateStatus(transactionId, status);
+            log.info("Completed transaction id={} with status {}", transactionId, status);
+        }
+    }
+
+    /*
+        Changes the status of a transaction which is still PENDING and moves it to the payment summary totals of
+        its new status in the same database transaction
+     */
+    private boolean complete(String transactionId, PaymentStatus status) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(transaction -> {
+            if(transactionRepository.updateStatus(transactionId, PaymentStatus.PENDING, status) == 0) {
+                return false;
+            }
+            transactionRepository.findById(transactionId)
+                    .ifPresent(completed -> paymentSummaryService.changeStatus(completed, PaymentStatus.PENDING));
+            return true;
+        }));
+    }
+
+    /*
+        The build targets Java 17, so virtual threads are looked up reflectively and only used on Java 21+.
+     */
+    private static ThreadFactory threadFactory(boolean virtualThreads) {
+        if(virtualThreads) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX, 1L);
+                ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+                log.info("Processing payments on virtual threads");
+                return threadFactory;
+            } catch (ReflectiveOperationException exception) {
+                log.info("Virtual threads are not supported by this runtime, processing payments on platform threads");
+            }
+        }
+        return new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,109 +1,349 @@
 package com.hitpixel.payment.service;
 
+import com.hitpixel.payment.converter.UuidStringJavaType;
+import com.hitpixel.payment.domain.Refund;
 import com.hitpixel.payment.domain.Transaction;
 import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.TransactionCursor;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.dto.TransactionPage;
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.dto.TransactionView;
 import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.InvalidRequestParameterException;
+import com.hitpixel.payment.exception.RefundAmountExceededException;
+import com.hitpixel.payment.exception.ServiceBusyException;
 import com.hitpixel.payment.exception.TransactionNotExistsException;
+import com.hitpixel.payment.exception.TransactionNotRefundableException;
+import com.hitpixel.payment.repository.RefundJdbcRepository;
 import com.hitpixel.payment.repository.TransactionRepository;
 import com.hitpixel.payment.strategy.PaymentMethodFactory;
 import com.hitpixel.payment.strategy.PaymentMethodStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
 public class PaymentService {
+    public static final int MAX_HISTORY_LIMIT = 1000;
     private static final String TRANSACTION_DOES_NOT_EXISTS = "Transaction does not exists in the system";
+    private static final int MAX_REFUND_ATTEMPTS = 3;
+    private static final long REFUND_BACKOFF_MILLIS = 5;
     private final TransactionRepository transactionRepository;
+    private final RefundJdbcRepository refundJdbcRepository;
     private final PaymentMethodFactory paymentMethodFactory;
+    private final IdempotencyService idempotencyService;
+    private final PaymentProcessingService paymentProcessingService;
+    private final TransactionWriter transactionWriter;
+    private final IdGenerator idGenerator;
+    private final TransactionStatusCache transactionStatusCache;
+    private final PaymentSummaryService paymentSummaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter refundRetryCounter;
 
     public PaymentService(TransactionRepository transactionRepository,
-                          PaymentMethodFactory paymentMethodFactory) {
+                          RefundJdbcRepository refundJdbcRepository,
+                          PaymentMethodFactory paymentMethodFactory,
+                          IdempotencyService idempotencyService,
+                          PaymentProcessingService paymentProcessingService,
+                          TransactionWriter transactionWriter,
+                          IdGenerator idGenerator,
+                          TransactionStatusCache transactionStatusCache,
+                          PaymentSummaryService paymentSummaryService,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
         this.transactionRepository = transactionRepository;
+        this.refundJdbcRepository = refundJdbcRepository;
         this.paymentMethodFactory = paymentMethodFactory;
+        this.idempotencyService = idempotencyService;
+        this.paymentProcessingService = paymentProcessingService;
+        this.transactionWriter = transactionWriter;
+        this.idGenerator = idGenerator;
+        this.transactionStatusCache = transactionStatusCache;
+        this.paymentSummaryService = paymentSummaryService;
+        this.transactionTemplate = transactionTemplate;
+        this.refundRetryCounter = Counter.builder("payment.refund.retries").register(meterRegistry);
     }
 
     /**
-     * Method to make payments to other entity.
+     * Method to make payments to other entity. The transaction is committed together with the payments
+     * of concurrent requests, the method returns once it is committed.
      * @param payment payment details object
      * @param user initiating user
      * @return executed transaction object
      */
-    @Transactional
     public Transaction makePayment(Payment payment, User user) {
+        Transaction persistedTransaction = transactionWriter.write(processPayment(payment, user));
+        cacheStatus(persistedTransaction);
+        log.info("Transaction processed successfully");
+        return persistedTransaction;
+    }
+
+    /**
+     * Method to make payments to other entity at most once per idempotency key, retries of a payment
+     * return the transaction of the first attempt.
+     * @param payment payment details object
+     * @param user initiating user
+     * @param idempotencyKey Idempotency-Key header sent by the client
+     * @return executed transaction object
+     */
+    public Transaction makePayment(Payment payment, User user, String idempotencyKey) {
+        Transaction transaction = idempotencyService.execute(idempotencyKey, payment, user,
+                () -> processPayment(payment, user), this::insert);
+        cacheStatus(transaction);
+        return transaction;
+    }
+
+    /**
+     * Method to accept a payment and complete it in the background, the request only stores the transaction
+     * as PENDING and its status endpoint reports when it completed.
+     * @param payment payment details object
+     * @param user initiating user
+     * @return PENDING transaction object
+     */
+    public Transaction acceptPayment(Payment payment, User user) {
+        log.info("Accepting payment for user={}", user.getEmail());
+        Transaction pendingTransaction = transactionWriter.write(pendingTransaction(payment, user));
+        cacheStatus(pendingTransaction);
+        paymentProcessingService.submit(pendingTransaction.getId(), payment);
+        log.info("Accepted transaction id={}", pendingTransaction.getId());
+        return pendingTransaction;
+    }
+
+    /**
+     * Method to accept a payment at most once per idempotency key, retries return the transaction accepted
+     * first without processing it again.
+     * @param payment payment details object
+     * @param user initiating user
+     * @param idempotencyKey Idempotency-Key header sent by the client
+     * @return PENDING or completed transaction object
+     */
+    public Transaction acceptPayment(Payment payment, User user, String idempotencyKey) {
+        AtomicBoolean accepted = new AtomicBoolean();
+        Transaction transaction = idempotencyService.execute(idempotencyKey, payment, user, () -> {
+            accepted.set(true);
+            return pendingTransaction(payment, user);
+        }, this::insert);
+        if(accepted.get()) {
+            cacheStatus(transaction);
+            paymentProcessingService.submit(transaction.getId(), payment);
+            log.info("Accepted transaction id={}", transaction.getId());
+        }
+        return transaction;
+    }
+
+    private Transaction processPayment(Payment payment, User user) {
         log.info("Processing payment for user={}", user.getEmail());
         PaymentMethodStrategy paymentMethodStrategy = paymentMethodFactory.getPaymentMethodStrategy(payment.paymentMethod());
         Transaction transaction = paymentMethodStrategy.processPayment(payment);
         transaction.setUser(user);
+        return transaction;
+    }
+
+    /*
+        Saves a transaction outside of the group commit, the payment summary is updated in the same database transaction.
+        Idempotent payments go through here since they are stored in the transaction which persists their key.
+     */
+    private Transaction insert(Transaction transaction) {
         Transaction persistedTransaction = transactionRepository.save(transaction);
-        log.info("Transaction processed successfully");
+        paymentSummaryService.addTransactions(List.of(persistedTransaction));
         return persistedTransaction;
     }
 
+    /*
+        New transactions are cached right away, clients usually poll the status of a payment they just made
+     */
+    private void cacheStatus(Transaction transaction) {
+        if(transaction.getUser() != null) {
+            transactionStatusCache.put(transaction.getId(), transaction.getUser().getId(), transaction.getStatus());
+        }
+    }
+
+    private Transaction pendingTransaction(Payment payment, User user) {
+        return new Transaction(idGenerator.nextId(), payment.paymentAmount(), payment.paymentMethod(),
+                payment.currency(), user, PaymentStatus.PENDING, LocalDateTime.now());
+    }
+
 
     /**
-     * Method to fetch all transactions for a user
+     * Method to fetch a page of the transactions of a user, newest first
      * @param user user for whom we are fetching the transactions
-     * @return list of all transactions
+     * @param filter filters of the transactions
+     * @param cursor cursor returned with the previous page, null for the first page
+     * @param limit maximum number of transactions of the page
+     * @return page of transactions with the cursor of the next page
      */
     @Transactional(readOnly = true)
-    public List<Transaction> fetchTransactions(User user) {
+    public TransactionPage fetchTransactions(User user, TransactionHistoryFilter filter, String cursor, int limit) {
         log.info("Fetching transactions for user={}", user.getEmail());
-        List<Transaction> transactions = transactionRepository.findAllByUserId(user.getId());
-        if(transactions.isEmpty()) {
-            log.warn("No transactions found for user={}", user.getEmail());
-        } else {
-            log.info("successfully retrieved {} transaction(s) for user={}", transactions.size(), user.getEmail());
+        if(limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            throw new InvalidRequestParameterException("Limit must be between 1 and " + MAX_HISTORY_LIMIT);
+        }
+        TransactionCursor after = cursor == null ? null : TransactionCursor.decode(cursor);
+        List<TransactionView> transactions = transactionRepository.findHistory(user.getId(), filter.from(), filter.to(),
+                filter.status(), filter.currency(), filter.paymentMethod(),
+                after == null ? null : after.transactionTimestamp(),
+                after == null ? null : after.transactionId(),
+                Limit.of(limit + 1));
+        // one transaction more than the limit is read to know if there is a next page
+        String nextCursor = null;
+        if(transactions.size() > limit) {
+            transactions = transactions.subList(0, limit);
+            nextCursor = TransactionCursor.after(transactions.get(limit - 1)).encode();
         }
-        return transactions;
+        log.info("successfully retrieved {} transaction(s) for user={}", transactions.size(), user.getEmail());
+        return new TransactionPage(transactions, nextCursor);
     }
 
     /**
-     * Method to fetch status of a particular transaction
+     * Method to fetch status of a particular transaction, served from the transaction status cache once
+     * loaded, concurrent misses of the same transaction share one query. Transactions of other users are
+     * reported as not existing.
      * @param transactionId transactionId for which we have to retrieve the status
      * @param user currently logged in user
      * @return Payment status of the transaction
      */
-    @Transactional(readOnly = true)
     public PaymentStatus fetchTransactionStatus(String transactionId, User user) {
         log.info("Fetching transaction status for transactionId={}" , transactionId);
-        Transaction transaction = transactionRepository
-                .findById(transactionId)
-                .orElseThrow(() -> {
-                    log.error(TRANSACTION_DOES_NOT_EXISTS);
-                    throw new TransactionNotExistsException(TRANSACTION_DOES_NOT_EXISTS);
-                });
-        log.info("Successfully fetched transaction from the system");
-        return transaction.getStatus();
+        TransactionStatusView transactionStatus = UuidStringJavaType.isUuid(transactionId)
+                ? transactionStatusCache.get(transactionId, id -> transactionRepository.findStatusById(id).orElse(null))
+                : null;
+        if(transactionStatus == null || !transactionStatus.userId().equals(user.getId())) {
+            log.error(TRANSACTION_DOES_NOT_EXISTS);
+            throw new TransactionNotExistsException(TRANSACTION_DOES_NOT_EXISTS);
+        }
+        log.info("Successfully fetched transaction status from the system");
+        return transactionStatus.status();
     }
 
     /**
-     * Method to refund the transaction
+     * Method to refund the remaining refundable amount of the transaction
      * @param transactionId transactionId for the transaction to be refunded
      * @param user currently logged in user
      * @return refunded transaction
      */
-    @Transactional(isolation = Isolation.SERIALIZABLE)
     public Transaction refundTransaction(String transactionId, User user) {
-        log.info("Initiating refund for transaction id={}", transactionId);
-        Transaction transaction = transactionRepository
-                .findById(transactionId)
-                .orElseThrow(() -> {
-                    log.error(TRANSACTION_DOES_NOT_EXISTS);
-                    throw new TransactionNotExistsException(TRANSACTION_DOES_NOT_EXISTS);
-                });
-        if(transaction.getStatus().equals(PaymentStatus.REFUNDED)) {
+        return refundTransaction(transactionId, null, user);
+    }
+
+    /**
+     * Method to refund a part or all of a successful transaction. Every refund is appended to the refunds of the
+     * transaction and added to its refunded total with a conditional update, which only succeeds while the total
+     * stays within the amount, so refunds of different transactions never wait for each other and concurrent
+     * refunds of the same transaction can not refund more than its amount. Refunds which conflict with a
+     * concurrent change are retried a few times after a random backoff. Transactions of other users are
+     * reported as not existing.
+     * @param transactionId transactionId for the transaction to be refunded
+     * @param amount amount to refund, null to refund the remaining refundable amount
+     * @param user currently logged in user
+     * @return refunded transaction, its status is REFUNDED once its whole amount is refunded
+     */
+    public Transaction refundTransaction(String transactionId, BigDecimal amount, User user) {
+        log.info("Initiating refund of {} for transaction id={}", amount == null ? "the remaining amount" : amount, transactionId);
+        for(int attempt = 1; ; attempt++) {
+            try {
+                Transaction refundedTransaction = transactionTemplate.execute(status -> refund(transactionId, amount, user));
+                log.info("Transaction with transaction id={} is successfully refunded", transactionId);
+                return refundedTransaction;
+            } catch (ConcurrencyFailureException exception) {
+                if(attempt == MAX_REFUND_ATTEMPTS) {
+                    log.error("Refund of transaction id={} conflicted {} times, giving up", transactionId, attempt);
+                    throw new ServiceBusyException("Transaction is being changed concurrently, please retry later");
+                }
+                refundRetryCounter.increment();
+                log.warn("Refund of transaction id={} conflicted, retrying", transactionId);
+                backOff(attempt);
+            }
+        }
+    }
+
+    /*
+        The transaction is read first, the update only applies while it is still successful and the refunded total
+        stays within the amount. A refund made in between makes the update fail and the refund is retried with the
+        transaction read again. A refund of the whole remaining amount only fits if nothing was refunded in
+        between, the transaction then is fully refunded without reading it again. The statements are run with
+        plain JDBC, through JPA a refund costs several times the read and save of a transaction.
+     */
+    private Transaction refund(String transactionId, BigDecimal requestedAmount, User user) {
+        Transaction transaction = findRefundableTransaction(transactionId);
+        if(!transaction.getUser().getId().equals(user.getId())) {
+            log.error("Transaction with transaction id={} does not belong to user={}", transactionId, user.getId());
+            throw new TransactionNotExistsException(TRANSACTION_DOES_NOT_EXISTS);
+        }
+        transaction.setUser(user);
+        BigDecimal remainingAmount = remainingAmount(transaction);
+        if(transaction.getStatus() == PaymentStatus.REFUNDED || remainingAmount.signum() == 0) {
             log.error("Transaction with transaction id ={} is already refunded", transactionId);
             throw new TransactionNotExistsException("Transaction with id "+ transactionId + " is already refunded");
         }
-        transaction.setStatus(PaymentStatus.REFUNDED);
-        Transaction refundedTransaction = transactionRepository.save(transaction);
-        log.info("Transaction with transaction id={} is successfully refunded", transactionId);
+        if(transaction.getStatus() != PaymentStatus.SUCCESS) {
+            log.error("Transaction with transaction id={} can not be refunded in status {}", transactionId, transaction.getStatus());
+            throw new TransactionNotRefundableException("Transaction with id " + transactionId + " can not be refunded in status " + transaction.getStatus());
+        }
+        BigDecimal amount = requestedAmount == null ? remainingAmount : requestedAmount;
+        if(amount.compareTo(remainingAmount) > 0) {
+            log.error("Refund of {} exceeds the refundable amount {} of transaction id={}", amount, remainingAmount, transactionId);
+            throw new RefundAmountExceededException("Refund amount exceeds the refundable amount of " + remainingAmount.toPlainString());
+        }
+        if(refundJdbcRepository.addRefund(transactionId, amount) == 0) {
+            throw new OptimisticLockingFailureException("Transaction with id " + transactionId + " was changed concurrently");
+        }
+        Transaction refundedTransaction;
+        if(amount.compareTo(remainingAmount) == 0) {
+            transaction.setRefundedAmount(transaction.getAmount());
+            transaction.setStatus(PaymentStatus.REFUNDED);
+            refundedTransaction = transaction;
+        } else {
+            refundedTransaction = findRefundableTransaction(transactionId);
+            refundedTransaction.setUser(user);
+        }
+        refundJdbcRepository.insert(new Refund(idGenerator.nextId(), refundedTransaction, amount, LocalDateTime.now()));
+        paymentSummaryService.addRefund(refundedTransaction, PaymentStatus.SUCCESS, amount);
+        transactionStatusCache.put(transactionId, refundedTransaction.getUser().getId(), refundedTransaction.getStatus());
         return refundedTransaction;
     }
+
+    /*
+        Ids are stored as UUIDs, an id which is not a UUID can not exist and is not sent to the database
+     */
+    private Transaction findRefundableTransaction(String transactionId) {
+        Optional<Transaction> transaction = UuidStringJavaType.isUuid(transactionId)
+                ? refundJdbcRepository.findTransactionById(transactionId)
+                : Optional.empty();
+        return transaction.orElseThrow(() -> {
+            log.error(TRANSACTION_DOES_NOT_EXISTS);
+            return new TransactionNotExistsException(TRANSACTION_DOES_NOT_EXISTS);
+        });
+    }
+
+    private static BigDecimal remainingAmount(Transaction transaction) {
+        return transaction.getAmount().subtract(transaction.getRefundedAmount());
+    }
+
+    /*
+        Full jitter, the sleep is uniformly distributed up to an exponentially growing bound
+     */
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(REFUND_BACKOFF_MILLIS << attempt));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Refund was interrupted, please retry later");
+        }
+    }
 }
@@ -0,0 +1,367 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.PaymentSummary;
+import com.hitpixel.payment.domain.PaymentSummaryKey;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.UserNotFoundException;
+import com.hitpixel.payment.repository.PaymentSummaryRepository;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the totals of the transactions of every user by currency, status and payment method, so the payment
+ * summary reads a fixed number of rows instead of every transaction. The totals can be rebuilt from the
+ * transactions.
+ * <p>
+ * Changes of the totals are not written by the database transactions changing the transactions, those would all
+ * wait for the lock of the same few rows of their user until they commit. Once a transaction commits its
+ * changes are merged in memory and a writer thread adds everything merged meanwhile in one database transaction
+ * every flush interval. The summary is read and rebuilt after the merged changes are written. Changes merged
+ * but not yet written when the application stops abruptly are lost, the summaries then need to be rebuilt.
+ * <p>
+ * Totals are always updated in the order of their key so writes changing several totals of a user never wait
+ * for each other in a cycle. A user gets the totals of every combination the first time one is changed, with
+ * the row of the user locked so two writes can not create them both.
+ */
+@Slf4j
+@Service
+public class PaymentSummaryService {
+
+    private static final Comparator<PaymentSummaryKey> KEY_ORDER = Comparator.comparing(PaymentSummaryKey::getUserId)
+            .thenComparing(PaymentSummaryKey::getCurrency)
+            .thenComparing(PaymentSummaryKey::getStatus)
+            .thenComparing(PaymentSummaryKey::getPaymentMethod);
+
+    private final PaymentSummaryRepository paymentSummaryRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMillis;
+    private final Map<PaymentSummaryKey, Delta> pending = new ConcurrentHashMap<>();
+    /*
+        Committing transactions hold the read lock from before their commit until their changes are merged, so
+        a rebuild holding the write lock never reads a committed transaction whose changes are still to be merged.
+        The write lock is only taken in a database transaction which already holds its connection, committing
+        transactions waiting for the read lock hold theirs.
+     */
+    private final ReadWriteLock mergeLock = new ReentrantReadWriteLock();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public PaymentSummaryService(PaymentSummaryRepository paymentSummaryRepository,
+                                 TransactionRepository transactionRepository,
+                                 UserRepository userRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${payment.summary.flush-interval:100ms}") Duration flushInterval) {
+        this.paymentSummaryRepository = paymentSummaryRepository;
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMillis = Math.max(1, flushInterval.toMillis());
+        this.writerThread = new CustomizableThreadFactory("payment-summary-writer-").newThread(this::run);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Method to fetch the totals of the transactions of a user, the combinations without transactions are left out
+     * @param user user for whom we are fetching the summary
+     * @return totals by currency, status and payment method
+     */
+    public List<PaymentSummaryView> fetchSummary(User user) {
+        log.info("Fetching payment summary for user={}", user.getEmail());
+        flush();
+        return paymentSummaryRepository.findSummaryByUserId(user.getId());
+    }
+
+    /**
+     * Method to count new transactions, called in the database transaction inserting them they are counted
+     * once it commits
+     * @param transactions new transactions
+     */
+    public void addTransactions(Collection<Transaction> transactions) {
+        Map<PaymentSummaryKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for(Transaction transaction : transactions) {
+            deltas.merge(key(transaction, transaction.getStatus()), Delta.of(transaction), Delta::plus);
+        }
+        merge(deltas);
+    }
+
+    /**
+     * Method to move a transaction to the totals of its new status, called in the database transaction changing
+     * the status it is moved once it commits
+     * @param transaction transaction with its new status
+     * @param previousStatus status the transaction had before
+     */
+    public void changeStatus(Transaction transaction, PaymentStatus previousStatus) {
+        Map<PaymentSummaryKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        move(deltas, transaction, previousStatus);
+        merge(deltas);
+    }
+
+    /**
+     * Method to count a refund of a transaction, called in the database transaction adding the refund it is
+     * counted once it commits
+     * @param transaction transaction with the refund added
+     * @param previousStatus status the transaction had before the refund
+     * @param amount refunded amount
+     */
+    public void addRefund(Transaction transaction, PaymentStatus previousStatus, BigDecimal amount) {
+        Map<PaymentSummaryKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        deltas.put(key(transaction, previousStatus), new Delta(0, BigDecimal.ZERO, amount));
+        if(transaction.getStatus() != previousStatus) {
+            move(deltas, transaction, previousStatus);
+        }
+        merge(deltas);
+    }
+
+    /**
+     * Method to write the changes merged so far to the totals in one database transaction. Changes which
+     * could not be written are kept and written with the next flush.
+     */
+    public void flush() {
+        if(pending.isEmpty()) {
+            return;
+        }
+        Map<PaymentSummaryKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                mergeLock.writeLock().lock();
+                try {
+                    deltas.putAll(pending);
+                    pending.clear();
+                    apply(deltas);
+                } finally {
+                    mergeLock.writeLock().unlock();
+                }
+            });
+        } catch (RuntimeException exception) {
+            log.error("Writing {} payment summary change(s) failed, retrying with the next flush", deltas.size(), exception);
+            mergeAll(deltas);
+        }
+    }
+
+    /**
+     * Method to stop the writer once the merged changes are written
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    /**
+     * Method to recompute the totals of a user from its transactions. No changes are merged or written until
+     * the rebuild commits, so transactions committed before are counted by the rebuild, their changes merged but
+     * not yet written are dropped, and transactions committing meanwhile are added afterwards.
+     * @param user user for whom we are rebuilding the summary
+     * @return rebuilt totals by currency, status and payment method
+     */
+    public List<PaymentSummaryView> rebuildSummary(User user) {
+        log.info("Rebuilding payment summary for user={}", user.getEmail());
+        List<PaymentSummaryView> rebuilt = transactionTemplate.execute(status -> {
+            mergeLock.writeLock().lock();
+            try {
+                pending.keySet().removeIf(key -> key.getUserId().equals(user.getId()));
+                return rebuild(user);
+            } finally {
+                mergeLock.writeLock().unlock();
+            }
+        });
+        log.info("Rebuilt payment summary for user={}", user.getEmail());
+        return rebuilt;
+    }
+
+    private List<PaymentSummaryView> rebuild(User user) {
+        createSummaries(user.getId());
+        Map<PaymentSummaryKey, PaymentSummary> summaries = new TreeMap<>(KEY_ORDER);
+        for(PaymentSummary summary : paymentSummaryRepository.findAndLockAllByUserId(user.getId())) {
+            summary.setTransactionCount(0);
+            summary.setAmount(BigDecimal.ZERO);
+            summary.setRefundedAmount(BigDecimal.ZERO);
+            summaries.put(summary.getId(), summary);
+        }
+        for(PaymentSummaryView totals : transactionRepository.summarizeByUserId(user.getId())) {
+            PaymentSummary summary = summaries.get(new PaymentSummaryKey(user.getId(), totals.currency(), totals.status(),
+                    totals.paymentMethod()));
+            summary.setTransactionCount(totals.count());
+            summary.setAmount(totals.amount());
+            summary.setRefundedAmount(totals.refundedAmount());
+        }
+        List<PaymentSummaryView> rebuilt = new ArrayList<>();
+        for(PaymentSummary summary : summaries.values()) {
+            if(summary.getTransactionCount() > 0) {
+                rebuilt.add(new PaymentSummaryView(summary.getId().getCurrency(), summary.getId().getStatus(),
+                        summary.getId().getPaymentMethod(), summary.getTransactionCount(), summary.getAmount(),
+                        summary.getRefundedAmount()));
+            }
+        }
+        return rebuilt;
+    }
+
+    /*
+        Changes made in a database transaction are collected until it commits and dropped when it rolls back.
+        Outside of a transaction they are merged at once.
+     */
+    private void merge(Map<PaymentSummaryKey, Delta> deltas) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            mergeAll(deltas);
+            return;
+        }
+        MergeOnCommit uncommitted = (MergeOnCommit) TransactionSynchronizationManager.getResource(this);
+        if(uncommitted == null) {
+            uncommitted = new MergeOnCommit();
+            TransactionSynchronizationManager.bindResource(this, uncommitted);
+            TransactionSynchronizationManager.registerSynchronization(uncommitted);
+        }
+        for(Map.Entry<PaymentSummaryKey, Delta> entry : deltas.entrySet()) {
+            uncommitted.deltas.merge(entry.getKey(), entry.getValue(), Delta::plus);
+        }
+    }
+
+    private void mergeAll(Map<PaymentSummaryKey, Delta> deltas) {
+        mergeLock.readLock().lock();
+        try {
+            deltas.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+        } finally {
+            mergeLock.readLock().unlock();
+        }
+    }
+
+    private void run() {
+        while(running) {
+            try {
+                Thread.sleep(flushIntervalMillis);
+                flush();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException exception) {
+                log.error("Payment summary writer failed", exception);
+            }
+        }
+        log.info("Payment summary writer stopped");
+    }
+
+    /*
+        A missing row means the user has no totals yet, they are created and the difference is added again
+     */
+    private void apply(Map<PaymentSummaryKey, Delta> deltas) {
+        for(Map.Entry<PaymentSummaryKey, Delta> entry : deltas.entrySet()) {
+            PaymentSummaryKey key = entry.getKey();
+            Delta delta = entry.getValue();
+            if(paymentSummaryRepository.add(key, delta.count(), delta.amount(), delta.refundedAmount()) == 0) {
+                createSummaries(key.getUserId());
+                if(paymentSummaryRepository.add(key, delta.count(), delta.amount(), delta.refundedAmount()) == 0) {
+                    throw new IllegalStateException("Payment summary of user " + key.getUserId() + " could not be created");
+                }
+            }
+        }
+    }
+
+    /*
+        Waits for a transaction creating the totals of the same user to commit, then creates those still missing
+     */
+    private void createSummaries(String userId) {
+        userRepository.findAndLockById(userId)
+                .orElseThrow(() -> new UserNotFoundException("User does not exists in the system"));
+        Set<PaymentSummaryKey> existing = new HashSet<>();
+        for(PaymentSummary summary : paymentSummaryRepository.findAllByUserId(userId)) {
+            existing.add(summary.getId());
+        }
+        List<PaymentSummary> missing = new ArrayList<>();
+        for(Currency currency : Currency.values()) {
+            for(PaymentStatus status : PaymentStatus.values()) {
+                for(PaymentMethod paymentMethod : PaymentMethod.values()) {
+                    PaymentSummaryKey key = new PaymentSummaryKey(userId, currency, status, paymentMethod);
+                    if(!existing.contains(key)) {
+                        missing.add(new PaymentSummary(key, 0, BigDecimal.ZERO, BigDecimal.ZERO));
+                    }
+                }
+            }
+        }
+        if(!missing.isEmpty()) {
+            paymentSummaryRepository.saveAll(missing);
+            paymentSummaryRepository.flush();
+            log.info("Created {} payment summary total(s) for user id={}", missing.size(), userId);
+        }
+    }
+
+    private static void move(Map<PaymentSummaryKey, Delta> deltas, Transaction transaction, PaymentStatus previousStatus) {
+        Delta delta = Delta.of(transaction);
+        deltas.merge(key(transaction, previousStatus), delta.negate(), Delta::plus);
+        deltas.merge(key(transaction, transaction.getStatus()), delta, Delta::plus);
+    }
+
+    private static PaymentSummaryKey key(Transaction transaction, PaymentStatus status) {
+        return new PaymentSummaryKey(transaction.getUser().getId(), transaction.getCurrency(), status,
+                transaction.getPaymentMethod());
+    }
+
+    private final class MergeOnCommit implements TransactionSynchronization {
+        private final Map<PaymentSummaryKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        private boolean locked;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            mergeLock.readLock().lock();
+            locked = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PaymentSummaryService.this);
+            if(status == STATUS_COMMITTED) {
+                deltas.forEach((key, delta) -> pending.merge(key, delta, Delta::plus));
+            }
+            if(locked) {
+                mergeLock.readLock().unlock();
+            }
+        }
+    }
+
+    private record Delta(long count, BigDecimal amount, BigDecimal refundedAmount) {
+
+        static Delta of(Transaction transaction) {
+            return new Delta(1, transaction.getAmount(), transaction.getRefundedAmount());
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount.add(other.amount), refundedAmount.add(other.refundedAmount));
+        }
+
+        Delta negate() {
+            return new Delta(-count, amount.negate(), refundedAmount.negate());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.hitpixel.payment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.dto.TransactionView;
+import com.hitpixel.payment.enums.ExportFormat;
+import com.hitpixel.payment.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exports the full transaction history of a user. Rows are streamed from the database and written to the
+ * output as they are read, and the output is flushed every fetch size rows, so the memory used does not
+ * depend on the number of transactions.
+ */
+@Slf4j
+@Service
+public class TransactionExportService {
+
+    static final String CSV_HEADER = "id,amount,paymentMethod,currency,status,transactionTimestamp";
+    private static final int FLUSH_ROWS = Integer.parseInt(TransactionRepository.STREAM_FETCH_SIZE);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectWriter objectWriter;
+
+    public TransactionExportService(TransactionRepository transactionRepository, ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.objectWriter = objectMapper.writerFor(TransactionView.class);
+    }
+
+    /**
+     * Method to write all transactions of a user matching the filters to the output, newest first
+     * @param user user for whom we are exporting the transactions
+     * @param filter filters of the transactions
+     * @param format NDJSON writes one JSON object per line, CSV one header line and one line per transaction
+     * @param outputStream output the transactions are written to, it is flushed but not closed
+     * @return number of exported transactions
+     * @throws IOException when the output can not be written
+     */
+    @Transactional(readOnly = true)
+    public long export(User user, TransactionHistoryFilter filter, ExportFormat format, OutputStream outputStream) throws IOException {
+        log.info("Exporting transactions as {} for user={}", format, user.getEmail());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if(format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long rows = 0;
+        try(Stream<TransactionView> transactions = transactionRepository.streamHistory(user.getId(), filter.from(), filter.to(),
+                filter.status(), filter.currency(), filter.paymentMethod())) {
+            Iterator<TransactionView> iterator = transactions.iterator();
+            while(iterator.hasNext()) {
+                TransactionView transaction = iterator.next();
+                if(format == ExportFormat.CSV) {
+                    writeCsv(writer, transaction);
+                } else {
+                    writer.write(objectWriter.writeValueAsString(transaction));
+                }
+                writer.write('\n');
+                if(++rows % FLUSH_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        log.info("Exported {} transaction(s) for user={}", rows, user.getEmail());
+        return rows;
+    }
+
+    /*
+        None of the columns can contain a comma, quote or line break, so no value needs quoting
+     */
+    private void writeCsv(Writer writer, TransactionView transaction) throws IOException {
+        writer.write(transaction.id());
+        writer.write(',');
+        writer.write(transaction.amount().toPlainString());
+        writer.write(',');
+        writer.write(transaction.paymentMethod().name());
+        writer.write(',');
+        writer.write(transaction.currency().name());
+        writer.write(',');
+        writer.write(transaction.status().name());
+        writer.write(',');
+        writer.write(transaction.transactionTimestamp().toString());
+    }
+}
@@ -0,0 +1,111 @@
+package com.hitpixel.payment.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hitpixel.payment.converter.UuidStringJavaType;
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.enums.PaymentStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of transaction statuses and their owners, so polling the status of a transaction is
+ * answered from memory including the ownership check. Status changes made by this node are written through,
+ * changes made elsewhere are picked up once an entry expires. Ids are cached in their canonical lowercase form,
+ * so every spelling of the same UUID shares one entry.
+ */
+@Component
+public class TransactionStatusCache {
+
+    private static final String CACHE_NAME = "transactions.status";
+
+    private final Cache<String, TransactionStatusView> cache;
+
+    public TransactionStatusCache(@Value("${payment.transaction-cache.maximum-size:100000}") long maximumSize,
+                                  @Value("${payment.transaction-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                                  MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", cache, cached -> cached.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Method to fetch the status of a transaction, loading it on a cache miss. Concurrent misses of the same
+     * transaction wait for a single load. Transactions which do not exist are not cached.
+     * @param transactionId transaction id
+     * @param loader function reading the status from the database, returning null if it does not exist
+     * @return status and owner of the transaction, null if it does not exist
+     */
+    public TransactionStatusView get(String transactionId, Function<String, TransactionStatusView> loader) {
+        return cache.get(key(transactionId), loader);
+    }
+
+    /**
+     * Method to write the status of a transaction through to the cache once the current database transaction
+     * commits, or right away outside of one
+     * @param transactionId transaction id
+     * @param userId id of the user owning the transaction
+     * @param status committed status
+     */
+    public void put(String transactionId, String userId, PaymentStatus status) {
+        String key = key(transactionId);
+        afterCommit(() -> cache.asMap().compute(key, (id, cached) -> new TransactionStatusView(userId, status)));
+    }
+
+    /**
+     * Method to update the status of a cached transaction once the current database transaction commits, or
+     * right away outside of one. Transactions which are not cached stay uncached.
+     * @param transactionId transaction id
+     * @param status committed status
+     */
+    public void updateStatus(String transactionId, PaymentStatus status) {
+        String key = key(transactionId);
+        afterCommit(() -> cache.asMap().computeIfPresent(key, (id, cached) -> new TransactionStatusView(cached.userId(), status)));
+    }
+
+    /**
+     * Method to fetch the approximate number of cached transactions
+     * @return number of cached transactions
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /*
+        The database stores ids as UUIDs, which match regardless of case, so uppercase ids are cached lowercase
+     */
+    private static String key(String transactionId) {
+        return UuidStringJavaType.isUuid(transactionId) ? UUID.fromString(transactionId).toString() : transactionId;
+    }
+
+    /*
+        Updates go through compute so they wait for a load of the same id in flight and replace what it read
+     */
+    private static void afterCommit(Runnable update) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
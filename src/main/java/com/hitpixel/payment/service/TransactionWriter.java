@@ -0,0 +1,208 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.exception.ServiceBusyException;
+import com.hitpixel.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for new transactions. Request threads hand their transaction to a single writer thread
+ * and wait for it to be committed, the writer inserts everything which queued up in one database
+ * transaction, so concurrent payments share the cost of a commit instead of paying one each.
+ * <p>
+ * A group is written once it holds the max batch size or once the max wait passed since its first
+ * transaction. When a group fails it is retried one transaction at a time, so a bad transaction only
+ * fails its own caller. The payment summaries of the users are updated in the same database transaction.
+ */
+@Slf4j
+@Service
+public class TransactionWriter {
+
+    private static final String METRIC_PREFIX = "payment.group-commit";
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final PaymentSummaryService paymentSummaryService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final long writeTimeoutMillis;
+    private final Thread writerThread;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer waitTimer;
+    private final Timer commitTimer;
+    private volatile boolean running = true;
+
+    public TransactionWriter(TransactionRepository transactionRepository,
+                             PaymentSummaryService paymentSummaryService,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${payment.group-commit.max-batch-size:64}") int maxBatchSize,
+                             @Value("${payment.group-commit.max-wait:500us}") Duration maxWait,
+                             @Value("${payment.group-commit.queue-capacity:10000}") int queueCapacity,
+                             @Value("${payment.group-commit.write-timeout:10s}") Duration writeTimeout,
+                             MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.paymentSummaryService = paymentSummaryService;
+        this.transactionTemplate = transactionTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.writeTimeoutMillis = writeTimeout.toMillis();
+        this.batchSizeSummary = DistributionSummary.builder(METRIC_PREFIX + ".batch.size").register(meterRegistry);
+        this.waitTimer = Timer.builder(METRIC_PREFIX + ".wait").register(meterRegistry);
+        this.commitTimer = Timer.builder(METRIC_PREFIX + ".commit").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.writerThread = new CustomizableThreadFactory("transaction-writer-").newThread(this::run);
+        writerThread.start();
+        log.info("Transaction writer started with max batch size {} and max wait {}", this.maxBatchSize, maxWait);
+    }
+
+    /**
+     * Method to insert a new transaction, returns once the group holding it is committed
+     * @param transaction new transaction
+     * @return persisted transaction
+     */
+    public Transaction write(Transaction transaction) {
+        PendingWrite pendingWrite = new PendingWrite(transaction);
+        if(!running || !queue.offer(pendingWrite)) {
+            log.error("Transaction writer queue is full, rejecting transaction id={}", transaction.getId());
+            throw new ServiceBusyException("Too many payments in progress, please retry later");
+        }
+        try {
+            return pendingWrite.result.get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException exception) {
+            throw exception.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException
+                    : new IllegalStateException(exception.getCause());
+        } catch (TimeoutException exception) {
+            log.error("Timed out waiting for transaction id={} to be committed", transaction.getId());
+            throw new ServiceBusyException("Payment is still being stored, please check its status later");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Payment is still being stored, please check its status later");
+        }
+    }
+
+    /**
+     * Method to stop the writer once the queued transactions are written
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while(running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                flush(batch);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException exception) {
+                log.error("Transaction writer failed", exception);
+                batch.forEach(pendingWrite -> pendingWrite.result.completeExceptionally(exception));
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("Transaction writer stopped");
+    }
+
+    /*
+        Takes what is already queued first, then waits for more only until the deadline of the first write
+     */
+    private void fill(List<PendingWrite> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = batch.get(0).enqueuedAt + maxWaitNanos;
+        while(batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if(remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if(next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        batchSizeSummary.record(batch.size());
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        for(PendingWrite pendingWrite : batch) {
+            transactions.add(pendingWrite.transaction);
+        }
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                transactionRepository.saveAll(transactions);
+                paymentSummaryService.addTransactions(transactions);
+            });
+        } catch (RuntimeException exception) {
+            log.warn("Group of {} transaction(s) failed, writing them one by one: {}", batch.size(), exception.getMessage());
+            batch.forEach(this::flushOne);
+            return;
+        }
+        long committedAt = System.nanoTime();
+        commitTimer.record(committedAt - start, TimeUnit.NANOSECONDS);
+        for(PendingWrite pendingWrite : batch) {
+            waitTimer.record(committedAt - pendingWrite.enqueuedAt, TimeUnit.NANOSECONDS);
+            pendingWrite.result.complete(pendingWrite.transaction);
+        }
+    }
+
+    private void flushOne(PendingWrite pendingWrite) {
+        try {
+            Transaction transaction = transactionTemplate.execute(status -> {
+                Transaction persisted = transactionRepository.save(pendingWrite.transaction);
+                paymentSummaryService.addTransactions(List.of(persisted));
+                return persisted;
+            });
+            waitTimer.record(System.nanoTime() - pendingWrite.enqueuedAt, TimeUnit.NANOSECONDS);
+            pendingWrite.result.complete(transaction);
+        } catch (RuntimeException exception) {
+            log.error("Writing transaction id={} failed", pendingWrite.transaction.getId(), exception);
+            pendingWrite.result.completeExceptionally(exception);
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Transaction transaction;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        private PendingWrite(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
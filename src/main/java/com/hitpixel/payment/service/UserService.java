@@ -1,16 +1,31 @@
 package com.hitpixel.payment.service;
 
+import com.hitpixel.payment.config.CacheConfig;
 import com.hitpixel.payment.dto.JWTAuthToken;
 import com.hitpixel.payment.dto.LoginRequest;
+import com.hitpixel.payment.dto.LogoutRequest;
+import com.hitpixel.payment.dto.RefreshTokenRequest;
 import com.hitpixel.payment.dto.User;
 import com.hitpixel.payment.exception.UserAlreadyExistsException;
 import com.hitpixel.payment.exception.UserNotFoundException;
 import com.hitpixel.payment.repository.UserRepository;
+import com.hitpixel.payment.security.RefreshTokenStore;
+import com.hitpixel.payment.security.RevokedTokenStore;
+import com.hitpixel.payment.security.VerifiedToken;
+import com.hitpixel.payment.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @Slf4j
 @Service
@@ -18,16 +33,33 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final JWTService jwtService;
+    private final PasswordHashingService passwordHashingService;
+    private final RefreshTokenStore refreshTokenStore;
+    private final RevokedTokenStore revokedTokenStore;
+    private final IdGenerator idGenerator;
+    private final Executor taskExecutor;
+    private final SingleFlight<String, com.hitpixel.payment.domain.User> userLookups = new SingleFlight<>("users.email");
 
-    public UserService(UserRepository userRepository, JWTService jwtService) {
+    public UserService(UserRepository userRepository, JWTService jwtService, PasswordHashingService passwordHashingService,
+                       RefreshTokenStore refreshTokenStore, RevokedTokenStore revokedTokenStore, IdGenerator idGenerator,
+                       @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor taskExecutor,
+                       MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.jwtService = jwtService;
+        this.passwordHashingService = passwordHashingService;
+        this.refreshTokenStore = refreshTokenStore;
+        this.revokedTokenStore = revokedTokenStore;
+        this.idGenerator = idGenerator;
+        this.taskExecutor = taskExecutor;
+        userLookups.bindTo(meterRegistry);
     }
 
     /**
-     * Method to register users into the system
+     * Method to register users into the system, the password is hashed on the password hashing pool and the user
+     * is saved on the calling thread, so a hashing slot is never held during database I/O
      * @param user user to be registered
      */
+    @CacheEvict(cacheNames = CacheConfig.USERS_CACHE, key = "#user.email()")
     public void registerUsers(User user) {
         log.info("Initiated registration of user={}", user.email());
 
@@ -35,29 +67,105 @@ public class UserService {
             log.error("User with email={} already exists in the system", user.email());
             throw new UserAlreadyExistsException("User already registered.");
         }
+        String encodedPassword = awaitHash(passwordHashingService.encode(user.password()));
         com.hitpixel.payment.domain.User domainUser = new com.hitpixel.payment.domain.User();
-        domainUser.setId(UUID.randomUUID().toString());
+        domainUser.setId(idGenerator.nextId());
         domainUser.setName(user.name());
         domainUser.setEmail(user.email());
-        domainUser.setPassword(user.password());
-        userRepository.save(domainUser);
+        domainUser.setPassword(encodedPassword);
+        try {
+            userRepository.saveAndFlush(domainUser);
+        } catch (DataIntegrityViolationException exception) {
+            if(!userRepository.existsByEmail(user.email())) {
+                throw exception;
+            }
+            log.error("User with email={} was registered concurrently", user.email());
+            throw new UserAlreadyExistsException("User already registered.");
+        }
         log.info("Registration completed for user={}", user.email());
     }
 
     /**
-     * Method to authenticate the user
+     * Method to authenticate the user, the password is checked on the password hashing pool and the tokens are
+     * issued on the application task executor, so a hashing slot is only held while hashing
      * @param loginRequest email and password of the user
-     * @return generated JWT token
+     * @return future of the generated JWT token and the refresh token of the new session
      */
-    public JWTAuthToken loginUser(LoginRequest loginRequest) {
+    public CompletableFuture<JWTAuthToken> loginUser(LoginRequest loginRequest) {
         log.info("Initiating login process for user={}", loginRequest.email());
         com.hitpixel.payment.domain.User user = findUserByEmail(loginRequest.email());
-        if(loginRequest.password().equals(user.getPassword())) {
-            log.info("User with email={} logged in successfully", loginRequest.email());
-            return new JWTAuthToken(jwtService.generateJWTToken(user.getName(), user.getEmail()));
+        return passwordHashingService
+                .matches(loginRequest.password(), user.getPassword())
+                .thenApplyAsync(matches -> {
+                    if(Boolean.FALSE.equals(matches)) {
+                        log.error("email or password does not match");
+                        throw new BadCredentialsException("Login details are incorrect");
+                    }
+                    if(passwordHashingService.upgradeEncoding(user.getPassword())) {
+                        rehashPassword(user.getEmail(), loginRequest.password());
+                    }
+                    log.info("User with email={} logged in successfully", loginRequest.email());
+                    return new JWTAuthToken(
+                            jwtService.generateJWTToken(user.getId(), user.getName(), user.getEmail()),
+                            refreshTokenStore.issue(user.getId(), user.getName(), user.getEmail()));
+                }, taskExecutor);
+    }
+
+    /**
+     * Method to issue a new JWT token for a refresh token, without looking up the user or checking the password again
+     * @param refreshTokenRequest refresh token of the session
+     * @return generated JWT token and the next refresh token of the session
+     */
+    public JWTAuthToken refreshToken(RefreshTokenRequest refreshTokenRequest) {
+        RefreshTokenStore.Rotation rotation = refreshTokenStore.rotate(refreshTokenRequest.refreshToken());
+        log.info("Refreshed session of user={}", rotation.email());
+        return new JWTAuthToken(
+                jwtService.generateJWTToken(rotation.userId(), rotation.name(), rotation.email()),
+                rotation.refreshToken());
+    }
+
+    /**
+     * Method to logout a user, the JWT is rejected from now on and the session of the refresh token, if given, ends
+     * @param token the JWT the request was authenticated with
+     * @param logoutRequest optional refresh token of the session
+     */
+    public void logoutUser(String token, LogoutRequest logoutRequest) {
+        VerifiedToken claims = jwtService.extractJWTClaims(token);
+        revokedTokenStore.revoke(jwtService.getTokenId(claims, token), claims.expiration().toEpochMilli());
+        if(logoutRequest != null && logoutRequest.refreshToken() != null) {
+            refreshTokenStore.revoke(logoutRequest.refreshToken());
         }
-        log.error("email or password does not match");
-        throw new BadCredentialsException("Login details are incorrect");
+        log.info("User={} logged out", jwtService.getEmailClaim(claims));
+    }
+
+    /*
+        Waits for a hash computed on the hashing pool, failures of the pool such as a full queue are rethrown as is
+     */
+    private static String awaitHash(CompletableFuture<String> hash) {
+        try {
+            return hash.join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+
+    /*
+        Replaces a hash produced with outdated parameters, or a legacy plain text password, in the background.
+        The hash is written on the application task executor, not on the hashing pool. A failed rehash is retried
+        on the next login.
+     */
+    private void rehashPassword(String email, String rawPassword) {
+        log.info("Rehashing password of user={}", email);
+        passwordHashingService
+                .encode(rawPassword)
+                .thenAcceptAsync(encodedPassword -> userRepository.updatePassword(email, encodedPassword), taskExecutor)
+                .exceptionally(exception -> {
+                    log.error("Could not rehash password of user={}", email, exception);
+                    return null;
+                });
     }
 
     /**
@@ -70,17 +178,19 @@ public class UserService {
     }
 
     /**
-     * Method to find User from the system by email id
+     * Method to find User from the system by email id, users are served from the users cache once loaded and
+     * concurrent lookups of the same email share one query
      * @param email email id of the user
      * @return fetched user object
      */
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, key = "#email")
     public com.hitpixel.payment.domain.User findUserByEmail(String email) {
         log.info("Fetching user for email={}", email);
-        return userRepository
+        return userLookups.execute(email, () -> userRepository
                 .findByEmail(email)
                 .orElseThrow(() -> {
                     log.error("Could not find user={} in db", email);
                     throw new UserNotFoundException("User does not exists in the system");
-                });
+                }));
     }
 }
@@ -3,33 +3,47 @@ package com.hitpixel.payment.strategy;
 import com.hitpixel.payment.domain.Transaction;
 import com.hitpixel.payment.dto.Payment;
 import com.hitpixel.payment.enums.PaymentMethod;
-import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.gateway.GatewayClients;
+import com.hitpixel.payment.service.IdGenerator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Component
 @Slf4j
 public class PayPalPaymentStrategy implements PaymentMethodStrategy {
+
+    private final GatewayClients gatewayClients;
+    private final IdGenerator idGenerator;
+
+    public PayPalPaymentStrategy(GatewayClients gatewayClients, IdGenerator idGenerator) {
+        this.gatewayClients = gatewayClients;
+        this.idGenerator = idGenerator;
+    }
+
     @Override
     public PaymentMethod getPaymentMethod() {
         return PaymentMethod.PAY_PAL;
     }
 
+    @Override
+    public Transaction processPayment(Payment payment) {
+        return processPayment(idGenerator.nextId(), payment);
+    }
+
     /*
-        This method simulates paypal payment
+        This method authorizes the paypal payment with its gateway, or simulates it when no gateway is configured
      */
     @Override
-    public Transaction processPayment(Payment payment) {
+    public Transaction processPayment(String transactionId, Payment payment) {
         log.info("Processing PayPal payment");
         Transaction transaction = new Transaction();
-        transaction.setId(UUID.randomUUID().toString());
+        transaction.setId(transactionId);
         transaction.setAmount(payment.paymentAmount());
         transaction.setPaymentMethod(payment.paymentMethod());
         transaction.setCurrency(payment.currency());
-        transaction.setStatus(PaymentStatus.SUCCESS);
+        transaction.setStatus(gatewayClients.authorize(getPaymentMethod(), transaction));
         transaction.setTransactionTimestamp(LocalDateTime.now());
         log.info("Completed processing of PayPal payment");
         return transaction;
@@ -19,4 +19,12 @@ public interface PaymentMethodStrategy {
      */
     Transaction processPayment(Payment payment);
 
+    /**
+     * Method to process payment of an existing transaction, the gateway gets the id of that transaction as reference
+     * @param transactionId id of the transaction being paid
+     * @param payment payment to be processed
+     * @return transaction object with the given id
+     */
+    Transaction processPayment(String transactionId, Payment payment);
+
 }
\ No newline at end of file
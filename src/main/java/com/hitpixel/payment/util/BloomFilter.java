@@ -0,0 +1,81 @@
+package com.hitpixel.payment.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter of strings. A negative answer is exact, a positive one needs to be confirmed
+ * against the exact set. Neither adding nor checking allocates.
+ */
+public class BloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions number of values the filter is sized for
+     * @param falsePositiveRate wanted false positive rate at the expected number of values
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if(expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveRate between 0 and 1");
+        }
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * Long.SIZE;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Method to add a value to the filter
+     * @param value value to add
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for(int index = 0; index < hashCount; index++) {
+            long bit = Integer.toUnsignedLong(first + index * second) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * Method to check if a value may have been added to the filter
+     * @param value value to check
+     * @return false if the value was never added, true if it may have been added
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for(int index = 0; index < hashCount; index++) {
+            long bit = Integer.toUnsignedLong(first + index * second) % bitCount;
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+        64 bit FNV-1a, split into the two halves used for double hashing
+     */
+    private static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for(int index = 0; index < value.length(); index++) {
+            hash ^= value.charAt(index);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,80 @@
+package com.hitpixel.payment.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker. After the failure threshold is reached the circuit opens and calls
+ * are refused without being attempted. Once the open duration passed a single trial call is let through,
+ * its success closes the circuit again and its failure keeps it open for another open duration.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+    private final LongSupplier clock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    /**
+     * @param failureThreshold consecutive failures which open the circuit
+     * @param openDurationMillis time the circuit stays open before a trial call
+     * @param clock current time in milliseconds
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMillis, LongSupplier clock) {
+        if(failureThreshold <= 0 || openDurationMillis <= 0) {
+            throw new IllegalArgumentException("failureThreshold and openDurationMillis must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Method to ask for permission to make a call, every permitted call must report its outcome
+     * @return boolean value if the call may be made
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch(state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if(clock.getAsLong() - openedAt >= openDurationMillis) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Method to report a successful call
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Method to report a failed call
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if(state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,116 @@
+package com.hitpixel.payment.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key. The first caller of a key runs the call, callers arriving
+ * while it is in flight wait for it and share its result or its exception. Nothing is kept once the call
+ * completed, the next caller of the key runs the call again, so results are never older than the call
+ * the caller waited for. Bound to a meter registry the executed and coalesced calls are counted as
+ * singleflight.calls tagged with the name of the single flight.
+ * @param <K> type of the key
+ * @param <V> type of the result, null results are shared as well
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param name name the calls are tagged with in the metrics
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Method to run the call for the key, or to wait for the call of the key already in flight
+     * @param key key of the call
+     * @param call call to run when no call of the key is in flight
+     * @return result of the call
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if(leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+        executed.increment();
+        V result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error exception) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(exception);
+            throw exception;
+        }
+        inFlight.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    /**
+     * Method to fetch the number of calls which were run
+     * @return number of calls run
+     */
+    public long executedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Method to fetch the number of calls which shared the result of a call in flight
+     * @return number of coalesced calls
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Method to fetch the number of keys with a call in flight
+     * @return number of calls in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("singleflight.calls", this, SingleFlight::executedCount)
+                .tag("name", name)
+                .tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("singleflight.calls", this, SingleFlight::coalescedCount)
+                .tag("name", name)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+    }
+
+    /*
+        Rethrows the exception of the leader as it was thrown, instead of wrapped into a CompletionException
+     */
+    private static <V> V await(CompletableFuture<V> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if(exception.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw exception;
+        }
+    }
+}
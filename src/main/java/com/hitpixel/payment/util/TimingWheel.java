@@ -0,0 +1,95 @@
+package com.hitpixel.payment.util;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for expiring large numbers of keys. Scheduling is O(1) and lock free, expiring
+ * only visits the buckets of the ticks that passed instead of every scheduled key.
+ * <p>
+ * The wheel does not own a thread, the owner calls {@link #advance(long)} periodically. A key can fire
+ * up to one tick late, or one rotation late if it was scheduled while its bucket was being expired, so
+ * owners must still check the expiry of an entry when they read it.
+ *
+ * @param <K> type of the scheduled keys
+ */
+public class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Queue<Timeout<K>>[] buckets;
+    private final Consumer<K> onExpire;
+    private volatile long currentTick;
+
+    /**
+     * @param tickMillis resolution of the wheel in milliseconds
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param onExpire called with every key whose deadline passed
+     * @param nowMillis current time, the wheel starts at this tick
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, Consumer<K> onExpire, long nowMillis) {
+        if(tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for(int index = 0; index < size; index++) {
+            buckets[index] = new ConcurrentLinkedQueue<>();
+        }
+        this.onExpire = onExpire;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Method to schedule expiry of a key, a key scheduled twice fires twice
+     * @param key key to expire
+     * @param deadlineMillis epoch millis after which the key expires
+     */
+    public void schedule(K key, long deadlineMillis) {
+        long tick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        buckets[(int) (tick & mask)].add(new Timeout<>(key, tick));
+    }
+
+    /**
+     * Method to expire every key whose deadline is not after the given time
+     * @param nowMillis current time
+     * @return number of expired keys
+     */
+    public synchronized int advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        long ticks = Math.min(targetTick - currentTick, buckets.length);
+        int expired = 0;
+        for(long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+            expired += expireBucket(buckets[(int) (tick & mask)], targetTick);
+        }
+        if(targetTick > currentTick) {
+            currentTick = targetTick;
+        }
+        return expired;
+    }
+
+    private int expireBucket(Queue<Timeout<K>> bucket, long targetTick) {
+        int expired = 0;
+        Iterator<Timeout<K>> iterator = bucket.iterator();
+        while(iterator.hasNext()) {
+            Timeout<K> timeout = iterator.next();
+            if(timeout.tick() <= targetTick) {
+                iterator.remove();
+                onExpire.accept(timeout.key());
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    private record Timeout<K>(K key, long tick) {}
+}
@@ -0,0 +1,10 @@
+CREATE TABLE api_keys (
+  id VARCHAR(255) PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  keyhash VARCHAR(64) NOT NULL UNIQUE,
+  scopes VARCHAR(255) NOT NULL,
+  active BOOLEAN NOT NULL,
+  user_id VARCHAR(255) NOT NULL,
+  createdtimestamp TIMESTAMP NOT NULL,
+  FOREIGN KEY (user_id) references users(id)
+);
@@ -0,0 +1,9 @@
+CREATE TABLE idempotency_keys (
+  id VARCHAR(64) PRIMARY KEY,
+  requesthash VARCHAR(64) NOT NULL,
+  transaction_id VARCHAR(255) NOT NULL,
+  createdtimestamp TIMESTAMP NOT NULL,
+  FOREIGN KEY (transaction_id) references transactions(id)
+);
+
+CREATE INDEX idempotency_keys_createdtimestamp ON idempotency_keys (createdtimestamp);
@@ -0,0 +1,70 @@
+-- Ids become 16 byte UUIDs, enums become SMALLINT codes (see CodedEnum) and amounts get a fixed scale.
+-- users, api_keys and idempotency_keys are rebuilt as well because their keys reference the new id types.
+
+CREATE TABLE users_compact (
+  id UUID PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  email VARCHAR(255) NOT NULL UNIQUE,
+  password VARCHAR(255) NOT NULL
+);
+
+INSERT INTO users_compact (id, name, email, password)
+SELECT CAST(id AS UUID), name, email, password FROM users;
+
+CREATE TABLE transactions_compact (
+  id UUID PRIMARY KEY,
+  amount DECIMAL(19,4) NOT NULL,
+  paymentmethod SMALLINT NOT NULL,
+  currency SMALLINT NOT NULL,
+  status SMALLINT NOT NULL,
+  user_id UUID NOT NULL,
+  transactiontimestamp TIMESTAMP NOT NULL,
+  FOREIGN KEY (user_id) REFERENCES users_compact(id)
+);
+
+INSERT INTO transactions_compact (id, amount, paymentmethod, currency, status, user_id, transactiontimestamp)
+SELECT CAST(id AS UUID),
+       CAST(amount AS DECIMAL(19,4)),
+       CASE paymentmethod WHEN 'CREDIT_CARD' THEN 1 WHEN 'PAY_PAL' THEN 2 END,
+       CASE currency WHEN 'USD' THEN 1 WHEN 'EUR' THEN 2 WHEN 'INR' THEN 3 END,
+       CASE status WHEN 'PENDING' THEN 1 WHEN 'SUCCESS' THEN 2 WHEN 'REFUNDED' THEN 3 WHEN 'FAIL' THEN 4 END,
+       CAST(user_id AS UUID),
+       transactiontimestamp
+FROM transactions;
+
+CREATE TABLE api_keys_compact (
+  id VARCHAR(255) PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  keyhash VARCHAR(64) NOT NULL UNIQUE,
+  scopes VARCHAR(255) NOT NULL,
+  active BOOLEAN NOT NULL,
+  user_id UUID NOT NULL,
+  createdtimestamp TIMESTAMP NOT NULL,
+  FOREIGN KEY (user_id) REFERENCES users_compact(id)
+);
+
+INSERT INTO api_keys_compact (id, name, keyhash, scopes, active, user_id, createdtimestamp)
+SELECT id, name, keyhash, scopes, active, CAST(user_id AS UUID), createdtimestamp FROM api_keys;
+
+CREATE TABLE idempotency_keys_compact (
+  id VARCHAR(64) PRIMARY KEY,
+  requesthash VARCHAR(64) NOT NULL,
+  transaction_id UUID NOT NULL,
+  createdtimestamp TIMESTAMP NOT NULL,
+  FOREIGN KEY (transaction_id) REFERENCES transactions_compact(id)
+);
+
+INSERT INTO idempotency_keys_compact (id, requesthash, transaction_id, createdtimestamp)
+SELECT id, requesthash, CAST(transaction_id AS UUID), createdtimestamp FROM idempotency_keys;
+
+DROP TABLE idempotency_keys;
+DROP TABLE api_keys;
+DROP TABLE transactions;
+DROP TABLE users;
+
+ALTER TABLE users_compact RENAME TO users;
+ALTER TABLE transactions_compact RENAME TO transactions;
+ALTER TABLE api_keys_compact RENAME TO api_keys;
+ALTER TABLE idempotency_keys_compact RENAME TO idempotency_keys;
+
+CREATE INDEX idempotency_keys_createdtimestamp ON idempotency_keys (createdtimestamp);
@@ -0,0 +1,2 @@
+-- Serves the keyset paginated transaction history, newest first, without sorting or scanning other users' rows
+CREATE INDEX transactions_user_id_timestamp_id ON transactions (user_id, transactiontimestamp DESC, id DESC);
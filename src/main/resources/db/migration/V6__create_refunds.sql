@@ -0,0 +1,15 @@
+-- Refunds are appended to their own table, a transaction can be refunded in several parts. The refunded total
+-- is kept on the transaction so the refundable amount is checked without summing its refunds.
+ALTER TABLE transactions ADD COLUMN refundedamount DECIMAL(19,4) DEFAULT 0 NOT NULL;
+
+UPDATE transactions SET refundedamount = amount WHERE status = 3;
+
+CREATE TABLE refunds (
+  id UUID PRIMARY KEY,
+  transaction_id UUID NOT NULL,
+  amount DECIMAL(19,4) NOT NULL,
+  refundtimestamp TIMESTAMP NOT NULL,
+  FOREIGN KEY (transaction_id) REFERENCES transactions(id)
+);
+
+CREATE INDEX refunds_transaction_id ON refunds (transaction_id);
@@ -0,0 +1,25 @@
+-- Totals of the transactions of every user by currency, status and payment method, so the payment summary reads
+-- a fixed number of rows whatever the number of transactions. A user gets a row for every combination at once,
+-- new enum codes need a migration adding their rows for the users which already have rows.
+CREATE TABLE payment_summaries (
+  user_id UUID NOT NULL,
+  currency SMALLINT NOT NULL,
+  status SMALLINT NOT NULL,
+  paymentmethod SMALLINT NOT NULL,
+  transactioncount BIGINT NOT NULL,
+  amount DECIMAL(19,4) NOT NULL,
+  refundedamount DECIMAL(19,4) NOT NULL,
+  PRIMARY KEY (user_id, currency, status, paymentmethod),
+  FOREIGN KEY (user_id) REFERENCES users(id)
+);
+
+INSERT INTO payment_summaries (user_id, currency, status, paymentmethod, transactioncount, amount, refundedamount)
+SELECT u.id, c.code, s.code, m.code, COUNT(t.id), COALESCE(SUM(t.amount), 0), COALESCE(SUM(t.refundedamount), 0)
+FROM users u
+CROSS JOIN (VALUES (1), (2), (3)) c(code)
+CROSS JOIN (VALUES (1), (2), (3), (4)) s(code)
+CROSS JOIN (VALUES (1), (2)) m(code)
+LEFT JOIN transactions t
+  ON t.user_id = u.id AND t.currency = c.code AND t.status = s.code AND t.paymentmethod = m.code
+WHERE EXISTS (SELECT 1 FROM transactions e WHERE e.user_id = u.id)
+GROUP BY u.id, c.code, s.code, m.code;
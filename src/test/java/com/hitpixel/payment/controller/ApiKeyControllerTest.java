@@ -0,0 +1,98 @@
+package com.hitpixel.payment.controller;
+
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.ApiKeyRequest;
+import com.hitpixel.payment.dto.ApiKeyResponse;
+import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.enums.ApiKeyScope;
+import com.hitpixel.payment.service.ApiKeyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest
+@ContextConfiguration(classes = ApiKeyController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class ApiKeyControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ApiKeyService apiKeyService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        testUser = new User("1", "Test User", "testuser@example.com", null);
+        AuthenticationToken authenticationToken = new AuthenticationToken("jwt-token");
+        authenticationToken.setUser(testUser);
+        authenticationToken.setAuthenticated(true);
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testCreateApiKey_Success() throws Exception {
+        ApiKeyRequest apiKeyRequest = new ApiKeyRequest("billing", Set.of(ApiKeyScope.PAYMENTS_WRITE));
+        when(apiKeyService.createApiKey(apiKeyRequest, testUser))
+                .thenReturn(new ApiKeyResponse("key-1", "billing", Set.of(ApiKeyScope.PAYMENTS_WRITE), LocalDateTime.now(), "pk_secret"));
+
+        mockMvc.perform(post("/api/api-keys")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "name": "billing",
+                                    "scopes": ["PAYMENTS_WRITE"]
+                                }
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value("key-1"))
+                .andExpect(jsonPath("$.apiKey").value("pk_secret"))
+                .andExpect(jsonPath("$.scopes[0]").value("PAYMENTS_WRITE"));
+    }
+
+    @Test
+    void testCreateApiKey_Failure_NoScopes() throws Exception {
+        mockMvc.perform(post("/api/api-keys")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "name": "billing",
+                                    "scopes": []
+                                }
+                                """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(apiKeyService);
+    }
+
+    @Test
+    void testRevokeApiKey_Success() throws Exception {
+        mockMvc.perform(delete("/api/api-keys/key-1"))
+                .andExpect(status().isNoContent());
+
+        verify(apiKeyService, times(1)).revokeApiKey("key-1", testUser);
+    }
+}
@@ -3,31 +3,49 @@ package com.hitpixel.payment.controller;
 import com.hitpixel.payment.domain.Transaction;
 import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.dto.BatchPaymentResponse;
+import com.hitpixel.payment.dto.BatchPaymentResult;
 import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.dto.TransactionPage;
+import com.hitpixel.payment.dto.TransactionView;
 import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.ExportFormat;
 import com.hitpixel.payment.enums.PaymentMethod;
 import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.service.BatchPaymentService;
 import com.hitpixel.payment.service.PaymentService;
+import com.hitpixel.payment.service.PaymentSummaryService;
+import com.hitpixel.payment.service.TransactionExportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -43,8 +61,18 @@ class PaymentControllerTest {
     @MockitoBean
     private PaymentService paymentService;
 
+    @MockitoBean
+    private BatchPaymentService batchPaymentService;
+
+    @MockitoBean
+    private TransactionExportService transactionExportService;
+
+    @MockitoBean
+    private PaymentSummaryService paymentSummaryService;
+
     private Payment testPayment;
     private Transaction testTransaction;
+    private TransactionView testTransactionView;
     private User testUser;
 
     @BeforeEach
@@ -52,6 +80,7 @@ class PaymentControllerTest {
         testUser = new com.hitpixel.payment.domain.User("1", "Test User", "testuser@example.com", "password123");
         testPayment = new Payment(BigDecimal.valueOf(100.0), PaymentMethod.CREDIT_CARD, Currency.USD);
         testTransaction = new Transaction("txn123", BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD, testUser, PaymentStatus.SUCCESS, LocalDateTime.now());
+        testTransactionView = new TransactionView("txn123", BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, LocalDateTime.now());
 
         AuthenticationToken authenticationToken = Mockito.mock(AuthenticationToken.class);
         when(authenticationToken.getUser()).thenReturn(testUser);
@@ -81,18 +110,216 @@ class PaymentControllerTest {
         verify(paymentService, times(1)).makePayment(testPayment, testUser);
     }
 
+    @Test
+    void testMakePayments_AmountWithMoreThanFourDecimals() throws Exception {
+        mockMvc.perform(post("/api/payments")
+                .contentType("application/json")
+                .content("""
+                        {
+                            "paymentAmount": 100.00001,
+                            "paymentMethod": "CREDIT_CARD",
+                            "currency": "USD"
+                        }
+                        """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void testMakePayments_WithIdempotencyKey() throws Exception {
+        when(paymentService.makePayment(testPayment, testUser, "key-1")).thenReturn(testTransaction);
+
+        mockMvc.perform(post("/api/payments")
+                .header(PaymentController.IDEMPOTENCY_KEY_HEADER, "key-1")
+                .contentType("application/json")
+                .content("""
+                        {
+                            "paymentAmount": 100.0,
+                            "paymentMethod": "CREDIT_CARD",
+                            "currency": "USD"
+                        }
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("txn123"));
+
+        verify(paymentService, times(1)).makePayment(testPayment, testUser, "key-1");
+        verify(paymentService, never()).makePayment(testPayment, testUser);
+    }
+
+    @Test
+    void testMakePayments_RespondAsync() throws Exception {
+        testTransaction.setStatus(PaymentStatus.PENDING);
+        when(paymentService.acceptPayment(testPayment, testUser)).thenReturn(testTransaction);
+
+        mockMvc.perform(post("/api/payments")
+                .header(PaymentController.PREFER_HEADER, PaymentController.RESPOND_ASYNC)
+                .contentType("application/json")
+                .content("""
+                        {
+                            "paymentAmount": 100.0,
+                            "paymentMethod": "CREDIT_CARD",
+                            "currency": "USD"
+                        }
+                        """))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/payments/txn123/status"))
+                .andExpect(jsonPath("$.id").value("txn123"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verify(paymentService, times(1)).acceptPayment(testPayment, testUser);
+        verify(paymentService, never()).makePayment(testPayment, testUser);
+    }
+
+    @Test
+    void testMakeBatchPayments_Success() throws Exception {
+        when(batchPaymentService.makePayments(List.of(testPayment), testUser)).thenReturn(new BatchPaymentResponse(1, 0,
+                List.of(new BatchPaymentResult(0, "txn123", PaymentStatus.SUCCESS, null))));
+
+        mockMvc.perform(post("/api/payments/batch")
+                .contentType("application/json")
+                .content("""
+                        {
+                            "payments": [
+                                {
+                                    "paymentAmount": 100.0,
+                                    "paymentMethod": "CREDIT_CARD",
+                                    "currency": "USD"
+                                }
+                            ]
+                        }
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.results[0].transactionId").value("txn123"))
+                .andExpect(jsonPath("$.results[0].error").doesNotExist());
+
+        verify(batchPaymentService, times(1)).makePayments(List.of(testPayment), testUser);
+    }
+
+    @Test
+    void testMakeBatchPayments_EmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/payments/batch")
+                .contentType("application/json")
+                .content("""
+                        {
+                            "payments": []
+                        }
+                        """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(batchPaymentService);
+    }
+
     @Test
     void testFetchTransactions_Success() throws Exception {
-        List<Transaction> transactions = Arrays.asList(testTransaction);
-        when(paymentService.fetchTransactions(testUser)).thenReturn(transactions);
+        List<TransactionView> transactions = Arrays.asList(testTransactionView);
+        when(paymentService.fetchTransactions(testUser, TransactionHistoryFilter.NONE, null, 100))
+                .thenReturn(new TransactionPage(transactions, null));
 
         mockMvc.perform(get("/api/payments/history"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PaymentController.NEXT_CURSOR_HEADER))
                 .andExpect(jsonPath("$[0].id").value("txn123"))
                 .andExpect(jsonPath("$[0].amount").value(100))
-                .andExpect(jsonPath("$[0].status").value("SUCCESS"));
+                .andExpect(jsonPath("$[0].status").value("SUCCESS"))
+                .andExpect(jsonPath("$[0].user").doesNotExist());
 
-        verify(paymentService, times(1)).fetchTransactions(testUser);
+        verify(paymentService, times(1)).fetchTransactions(testUser, TransactionHistoryFilter.NONE, null, 100);
+    }
+
+    @Test
+    void testFetchTransactions_WithFiltersAndNextPage() throws Exception {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(LocalDateTime.of(2026, 1, 1, 0, 0),
+                LocalDateTime.of(2026, 2, 1, 0, 0), PaymentStatus.SUCCESS, Currency.EUR, PaymentMethod.PAY_PAL);
+        when(paymentService.fetchTransactions(testUser, filter, "cursor-1", 10))
+                .thenReturn(new TransactionPage(List.of(testTransactionView), "cursor-2"));
+
+        mockMvc.perform(get("/api/payments/history?from={from}&to={to}&status=SUCCESS&currency=EUR&paymentMethod=PAY_PAL&cursor=cursor-1&limit=10",
+                        "2026-01-01T00:00:00", "2026-02-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PaymentController.NEXT_CURSOR_HEADER, "cursor-2"))
+                .andExpect(header().string("Link", allOf(
+                        containsString("cursor=cursor-2"),
+                        containsString("status=SUCCESS"),
+                        endsWith("; rel=\"next\""))))
+                .andExpect(jsonPath("$[0].id").value("txn123"));
+    }
+
+    @Test
+    void testFetchTransactions_InvalidFilter() throws Exception {
+        mockMvc.perform(get("/api/payments/history").param("status", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void testExportTransactions_Ndjson() throws Exception {
+        when(transactionExportService.export(eq(testUser), eq(TransactionHistoryFilter.NONE), eq(ExportFormat.NDJSON), any(OutputStream.class)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(3, OutputStream.class).write("{\"id\":\"txn123\"}\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        mockMvc.perform(get("/api/payments/history/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", containsString("application/x-ndjson")))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"transactions.ndjson\""))
+                .andExpect(content().string("{\"id\":\"txn123\"}\n"));
+    }
+
+    @Test
+    void testExportTransactions_CsvWithFilters() throws Exception {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(null, null, PaymentStatus.REFUNDED, null, null);
+
+        mockMvc.perform(get("/api/payments/history/export").param("format", "CSV").param("status", "REFUNDED"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", containsString("text/csv")))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"transactions.csv\""));
+
+        verify(transactionExportService, times(1)).export(eq(testUser), eq(filter), eq(ExportFormat.CSV), any(OutputStream.class));
+    }
+
+    @Test
+    void testExportTransactions_InvalidFormat() throws Exception {
+        mockMvc.perform(get("/api/payments/history/export").param("format", "XML"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(transactionExportService);
+    }
+
+    @Test
+    void testFetchSummary_Success() throws Exception {
+        when(paymentSummaryService.fetchSummary(testUser)).thenReturn(List.of(
+                new PaymentSummaryView(Currency.USD, PaymentStatus.SUCCESS, PaymentMethod.CREDIT_CARD, 3, new BigDecimal("300.00"), new BigDecimal("25.00")),
+                new PaymentSummaryView(Currency.EUR, PaymentStatus.FAIL, PaymentMethod.PAY_PAL, 1, new BigDecimal("10.00"), BigDecimal.ZERO)));
+
+        mockMvc.perform(get("/api/payments/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].currency").value("USD"))
+                .andExpect(jsonPath("$[0].status").value("SUCCESS"))
+                .andExpect(jsonPath("$[0].paymentMethod").value("CREDIT_CARD"))
+                .andExpect(jsonPath("$[0].count").value(3))
+                .andExpect(jsonPath("$[0].amount").value(300.00))
+                .andExpect(jsonPath("$[0].refundedAmount").value(25.00))
+                .andExpect(jsonPath("$[1].status").value("FAIL"));
+
+        verify(paymentSummaryService, times(1)).fetchSummary(testUser);
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    void testRebuildSummary_Success() throws Exception {
+        when(paymentSummaryService.rebuildSummary(testUser)).thenReturn(List.of(
+                new PaymentSummaryView(Currency.USD, PaymentStatus.SUCCESS, PaymentMethod.CREDIT_CARD, 3, new BigDecimal("300.00"), BigDecimal.ZERO)));
+
+        mockMvc.perform(post("/api/payments/summary/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].count").value(3));
+
+        verify(paymentSummaryService, times(1)).rebuildSummary(testUser);
     }
 
     @Test
@@ -107,13 +334,39 @@ class PaymentControllerTest {
     @Test
     void testRefundPayment_Success() throws Exception {
         testTransaction.setStatus(PaymentStatus.REFUNDED);
-        when(paymentService.refundTransaction("txn123", testUser)).thenReturn(testTransaction);
+        when(paymentService.refundTransaction("txn123", null, testUser)).thenReturn(testTransaction);
 
         mockMvc.perform(post("/api/payments/{transactionId}/refund", "txn123"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value("txn123"))
-                .andExpect(jsonPath("$.status").value("REFUNDED"));
+                .andExpect(jsonPath("$.status").value("REFUNDED"))
+                .andExpect(jsonPath("$.user").doesNotExist());
+
+        verify(paymentService, times(1)).refundTransaction("txn123", null, testUser);
+    }
+
+    @Test
+    void testRefundPayment_PartialAmount() throws Exception {
+        testTransaction.setRefundedAmount(new BigDecimal("40.00"));
+        when(paymentService.refundTransaction("txn123", new BigDecimal("40.00"), testUser)).thenReturn(testTransaction);
+
+        mockMvc.perform(post("/api/payments/{transactionId}/refund", "txn123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 40.00}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCCESS"))
+                .andExpect(jsonPath("$.refundedAmount").value(40.0));
+
+        verify(paymentService, times(1)).refundTransaction("txn123", new BigDecimal("40.00"), testUser);
+    }
+
+    @Test
+    void testRefundPayment_InvalidAmount() throws Exception {
+        mockMvc.perform(post("/api/payments/{transactionId}/refund", "txn123")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\": 0}"))
+                .andExpect(status().isBadRequest());
 
-        verify(paymentService, times(1)).refundTransaction("txn123", testUser);
+        verifyNoInteractions(paymentService);
     }
 }
\ No newline at end of file
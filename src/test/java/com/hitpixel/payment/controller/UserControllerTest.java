@@ -1,21 +1,31 @@
 package com.hitpixel.payment.controller;
 
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.AuthenticationToken;
 import com.hitpixel.payment.dto.JWTAuthToken;
 import com.hitpixel.payment.dto.LoginRequest;
-import com.hitpixel.payment.dto.User;
+import com.hitpixel.payment.dto.LogoutRequest;
+import com.hitpixel.payment.dto.RefreshTokenRequest;
 import com.hitpixel.payment.service.UserService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest
@@ -29,21 +39,24 @@ class UserControllerTest {
     @MockitoBean
     private UserService userService;
 
-    private User testUser;
+    private com.hitpixel.payment.dto.User testUser;
     private LoginRequest testLoginRequest;
     private JWTAuthToken testAuthToken;
 
     @BeforeEach
     void setUp() {
-        testUser = new User("johneer", "abcrr@abcwe.com", "1234567822");
+        testUser = new com.hitpixel.payment.dto.User("johneer", "abcrr@abcwe.com", "1234567822");
         testLoginRequest = new LoginRequest("abcrr@abcwe.com", "1234567822");
         testAuthToken = new JWTAuthToken("sample-token");
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     void testRegisterUsers_Success() throws Exception {
-        doNothing().when(userService).registerUsers(testUser);
-
         mockMvc.perform(post("/api/users/register")
                         .contentType("application/json")
                         .content("""
@@ -60,9 +73,9 @@ class UserControllerTest {
 
     @Test
     void testLogin_Success() throws Exception {
-        when(userService.loginUser(testLoginRequest)).thenReturn(testAuthToken);
+        when(userService.loginUser(testLoginRequest)).thenReturn(CompletableFuture.completedFuture(testAuthToken));
 
-        mockMvc.perform(post("/api/users/login")
+        MvcResult mvcResult = mockMvc.perform(post("/api/users/login")
                         .contentType("application/json")
                         .content("""
                                         {
@@ -70,13 +83,66 @@ class UserControllerTest {
                                             "password": "1234567822"
                                         }"""
                                 ))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token").value("sample-token"))
+                .andExpect(request().asyncStarted())
                 .andReturn();
 
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("sample-token"));
+
         verify(userService, times(1)).loginUser(testLoginRequest);
     }
 
+    @Test
+    void testRefreshToken_Success() throws Exception {
+        when(userService.refreshToken(new RefreshTokenRequest("refresh-token")))
+                .thenReturn(new JWTAuthToken("sample-token", "next-refresh-token"));
+
+        mockMvc.perform(post("/api/users/token/refresh")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "refreshToken": "refresh-token"
+                                }
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("sample-token"))
+                .andExpect(jsonPath("$.refreshToken").value("next-refresh-token"));
+    }
+
+    @Test
+    void testRefreshToken_Failure_TokenBlank() throws Exception {
+        mockMvc.perform(post("/api/users/token/refresh")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "refreshToken": ""
+                                }
+                                """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void testLogout_Success() throws Exception {
+        AuthenticationToken authenticationToken = new AuthenticationToken("jwt-token");
+        authenticationToken.setUser(new User("1", "johneer", "abcrr@abcwe.com", null));
+        authenticationToken.setAuthenticated(true);
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+
+        mockMvc.perform(post("/api/users/logout")
+                        .contentType("application/json")
+                        .content("""
+                                {
+                                    "refreshToken": "refresh-token"
+                                }
+                                """))
+                .andExpect(status().isNoContent());
+
+        verify(userService, times(1)).logoutUser("jwt-token", new LogoutRequest("refresh-token"));
+    }
+
     @Test
     void testRegisterUsers_Failure_NameNotPresent() throws Exception {
         mockMvc.perform(post("/api/users/register")
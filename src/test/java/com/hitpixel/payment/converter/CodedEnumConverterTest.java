@@ -0,0 +1,47 @@
+package com.hitpixel.payment.converter;
+
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodedEnumConverterTest {
+
+    @Test
+    void testEveryConstantRoundTrips() {
+        PaymentStatusConverter paymentStatusConverter = new PaymentStatusConverter();
+        for(PaymentStatus status : PaymentStatus.values()) {
+            assertEquals(status, paymentStatusConverter.convertToEntityAttribute(paymentStatusConverter.convertToDatabaseColumn(status)));
+        }
+        PaymentMethodConverter paymentMethodConverter = new PaymentMethodConverter();
+        for(PaymentMethod paymentMethod : PaymentMethod.values()) {
+            assertEquals(paymentMethod, paymentMethodConverter.convertToEntityAttribute(paymentMethodConverter.convertToDatabaseColumn(paymentMethod)));
+        }
+        CurrencyConverter currencyConverter = new CurrencyConverter();
+        for(Currency currency : Currency.values()) {
+            assertEquals(currency, currencyConverter.convertToEntityAttribute(currencyConverter.convertToDatabaseColumn(currency)));
+        }
+    }
+
+    @Test
+    void testCodesMatchMigration() {
+        PaymentStatusConverter paymentStatusConverter = new PaymentStatusConverter();
+
+        assertEquals((short) 1, paymentStatusConverter.convertToDatabaseColumn(PaymentStatus.PENDING));
+        assertEquals((short) 2, paymentStatusConverter.convertToDatabaseColumn(PaymentStatus.SUCCESS));
+        assertEquals((short) 3, paymentStatusConverter.convertToDatabaseColumn(PaymentStatus.REFUNDED));
+        assertEquals((short) 4, paymentStatusConverter.convertToDatabaseColumn(PaymentStatus.FAIL));
+    }
+
+    @Test
+    void testNullAndUnknownCodes() {
+        CurrencyConverter currencyConverter = new CurrencyConverter();
+
+        assertNull(currencyConverter.convertToDatabaseColumn(null));
+        assertNull(currencyConverter.convertToEntityAttribute(null));
+        assertThrows(IllegalArgumentException.class, () -> currencyConverter.convertToEntityAttribute((short) 0));
+        assertThrows(IllegalArgumentException.class, () -> currencyConverter.convertToEntityAttribute((short) 99));
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -16,6 +17,7 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.List;
 
@@ -64,6 +66,16 @@ class GlobalExceptionHandlerTest {
         assertEquals(HttpStatus.NOT_FOUND.name(), response.getBody().error());
     }
 
+    @Test
+    void testUserAlreadyExistsExceptionHandler() {
+        UserAlreadyExistsException userAlreadyExistsException = new UserAlreadyExistsException("User already registered.");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.userAlreadyExistsExceptionHandler(userAlreadyExistsException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("User already registered.", response.getBody().message());
+        assertEquals(HttpStatus.CONFLICT.name(), response.getBody().error());
+    }
+
     @Test
     void testJWTFailureExceptionHandler() {
         ResponseEntity<ErrorDetails> response = globalExceptionHandler.jwtFailureExceptionHandler(jwtFailureException, webRequest);
@@ -91,6 +103,78 @@ class GlobalExceptionHandlerTest {
         assertEquals(HttpStatus.NOT_FOUND.name(), response.getBody().error());
     }
 
+    @Test
+    void testApiKeyNotExistsExceptionHandler() {
+        ApiKeyNotExistsException apiKeyNotExistsException = new ApiKeyNotExistsException("Api key does not exists in the system");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.apiKeyNotExistsExceptionHandler(apiKeyNotExistsException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals("Api key does not exists in the system", response.getBody().message());
+        assertEquals(HttpStatus.NOT_FOUND.name(), response.getBody().error());
+    }
+
+    @Test
+    void testIdempotencyKeyMismatchExceptionHandler() {
+        IdempotencyKeyMismatchException idempotencyKeyMismatchException = new IdempotencyKeyMismatchException("Idempotency-Key was already used with a different payment");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.idempotencyKeyMismatchExceptionHandler(idempotencyKeyMismatchException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals("Idempotency-Key was already used with a different payment", response.getBody().message());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.name(), response.getBody().error());
+    }
+
+    @Test
+    void testRefundAmountExceededExceptionHandler() {
+        RefundAmountExceededException refundAmountExceededException = new RefundAmountExceededException("Refund amount exceeds the refundable amount of 30.0000");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.refundAmountExceededExceptionHandler(refundAmountExceededException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals("Refund amount exceeds the refundable amount of 30.0000", response.getBody().message());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.name(), response.getBody().error());
+    }
+
+    @Test
+    void testTransactionNotRefundableExceptionHandler() {
+        TransactionNotRefundableException transactionNotRefundableException = new TransactionNotRefundableException("Transaction with id 123 can not be refunded in status PENDING");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.transactionNotRefundableExceptionHandler(transactionNotRefundableException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+        assertEquals("Transaction with id 123 can not be refunded in status PENDING", response.getBody().message());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.name(), response.getBody().error());
+    }
+
+    @Test
+    void testServiceBusyExceptionHandler() {
+        ServiceBusyException serviceBusyException = new ServiceBusyException("Too many login requests, please retry later");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.serviceBusyExceptionHandler(serviceBusyException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Too many login requests, please retry later", response.getBody().message());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.name(), response.getBody().error());
+    }
+
+    @Test
+    void testInvalidRequestParameterExceptionHandler() {
+        InvalidRequestParameterException invalidRequestParameterException = new InvalidRequestParameterException("Cursor is not valid");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.invalidRequestParameterExceptionHandler(invalidRequestParameterException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Cursor is not valid", response.getBody().message());
+        assertEquals(HttpStatus.BAD_REQUEST.name(), response.getBody().error());
+    }
+
+    @Test
+    void testMethodArgumentTypeMismatchExceptionHandler() {
+        MethodArgumentTypeMismatchException methodArgumentTypeMismatchException = Mockito.mock(MethodArgumentTypeMismatchException.class);
+        Mockito.when(methodArgumentTypeMismatchException.getName()).thenReturn("status");
+        ResponseEntity<ErrorDetails> response = globalExceptionHandler.methodArgumentTypeMismatchExceptionHandler(methodArgumentTypeMismatchException, webRequest);
+        assertNotNull(response);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Invalid value for parameter status", response.getBody().message());
+        assertEquals(HttpStatus.BAD_REQUEST.name(), response.getBody().error());
+    }
+
     @Test
     void testDefaultExceptionHandler() {
         Exception exception = new Exception("Encountered error while processing the request");
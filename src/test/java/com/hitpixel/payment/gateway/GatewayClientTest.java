@@ -0,0 +1,125 @@
+package com.hitpixel.payment.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitpixel.payment.config.GatewayProperties;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.exception.GatewayUnavailableException;
+import com.hitpixel.payment.util.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleMeterRegistry meterRegistry;
+    private GatewayProperties.Gateway gateway;
+    private GatewayProperties.StubBehaviour behaviour;
+    private StubGatewayServer stubGatewayServer;
+    private GatewayClient gatewayClient;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        gateway = new GatewayProperties.Gateway();
+        behaviour = new GatewayProperties.StubBehaviour();
+        behaviour.setLatency(Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if(gatewayClient != null) {
+            gatewayClient.close();
+        }
+        if(stubGatewayServer != null) {
+            stubGatewayServer.stop();
+        }
+    }
+
+    @Test
+    void testApprovedPayment() throws Exception {
+        start();
+
+        AuthorizationResponse response = gatewayClient.authorize(request("ref-1"));
+
+        assertTrue(response.approved());
+        assertEquals("ref-1", response.reference());
+        assertEquals(1, meterRegistry.get("payment.gateway.calls").tag("outcome", "approved").timer().count());
+    }
+
+    @Test
+    void testDeclinedPaymentKeepsCircuitClosed() throws Exception {
+        behaviour.setDeclineRate(1.0);
+        gateway.setCircuitBreakerFailureThreshold(1);
+        start();
+
+        AuthorizationResponse response = gatewayClient.authorize(request("ref-1"));
+
+        assertFalse(response.approved());
+        assertEquals(CircuitBreaker.State.CLOSED, gatewayClient.getCircuitState());
+    }
+
+    @Test
+    void testServerErrorsOpenCircuitAndFailFast() throws Exception {
+        behaviour.setErrorRate(1.0);
+        gateway.setCircuitBreakerFailureThreshold(2);
+        start();
+
+        assertThrows(GatewayUnavailableException.class, () -> gatewayClient.authorize(request("ref-1")));
+        assertThrows(GatewayUnavailableException.class, () -> gatewayClient.authorize(request("ref-2")));
+        assertEquals(CircuitBreaker.State.OPEN, gatewayClient.getCircuitState());
+
+        assertThrows(GatewayUnavailableException.class, () -> gatewayClient.authorize(request("ref-3")));
+
+        assertEquals(2, stubGatewayServer.requests());
+        assertEquals(1, meterRegistry.get("payment.gateway.rejected").tag("reason", "circuit_open").counter().count());
+    }
+
+    @Test
+    void testSlowGatewayTimesOut() throws Exception {
+        behaviour.setLatency(Duration.ofMillis(500));
+        gateway.setRequestTimeout(Duration.ofMillis(100));
+        start();
+
+        long start = System.nanoTime();
+        assertThrows(GatewayUnavailableException.class, () -> gatewayClient.authorize(request("ref-1")));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 500);
+        assertEquals(1, meterRegistry.get("payment.gateway.calls").tag("outcome", "failed").timer().count());
+    }
+
+    @Test
+    void testBulkheadRejectsCallsBeyondLimit() throws Exception {
+        behaviour.setLatency(Duration.ofMillis(300));
+        gateway.setMaxConcurrentCalls(1);
+        start();
+
+        CompletableFuture<AuthorizationResponse> first = gatewayClient.authorizeAsync(request("ref-1"));
+        CompletableFuture<AuthorizationResponse> second = gatewayClient.authorizeAsync(request("ref-2"));
+
+        assertTrue(second.isCompletedExceptionally());
+        assertTrue(first.join().approved());
+        assertEquals(1, meterRegistry.get("payment.gateway.rejected").tag("reason", "bulkhead").counter().count());
+        assertTrue(gatewayClient.authorize(request("ref-3")).approved());
+    }
+
+    private void start() throws Exception {
+        stubGatewayServer = new StubGatewayServer(0, Map.of(PaymentMethod.CREDIT_CARD, behaviour), objectMapper);
+        gatewayClient = new GatewayClient(PaymentMethod.CREDIT_CARD, stubGatewayServer.url(PaymentMethod.CREDIT_CARD),
+                gateway, objectMapper, meterRegistry);
+    }
+
+    private static AuthorizationRequest request(String reference) {
+        return new AuthorizationRequest(reference, BigDecimal.TEN, Currency.USD);
+    }
+}
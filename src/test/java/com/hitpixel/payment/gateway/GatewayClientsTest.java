@@ -0,0 +1,92 @@
+package com.hitpixel.payment.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitpixel.payment.config.GatewayProperties;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.GatewayUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayClientsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StubGatewayServer stubGatewayServer;
+    private GatewayClients gatewayClients;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        GatewayProperties.StubBehaviour fast = new GatewayProperties.StubBehaviour();
+        fast.setLatency(Duration.ofMillis(5));
+        GatewayProperties.StubBehaviour slow = new GatewayProperties.StubBehaviour();
+        slow.setLatency(Duration.ofMillis(1_000));
+        stubGatewayServer = new StubGatewayServer(0, Map.of(PaymentMethod.CREDIT_CARD, fast, PaymentMethod.PAY_PAL, slow), objectMapper);
+
+        GatewayProperties.Gateway gateway = new GatewayProperties.Gateway();
+        gateway.setMaxConcurrentCalls(4);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        gatewayClients = new GatewayClients(Map.of(
+                PaymentMethod.CREDIT_CARD, new GatewayClient(PaymentMethod.CREDIT_CARD,
+                        stubGatewayServer.url(PaymentMethod.CREDIT_CARD), gateway, objectMapper, meterRegistry),
+                PaymentMethod.PAY_PAL, new GatewayClient(PaymentMethod.PAY_PAL,
+                        stubGatewayServer.url(PaymentMethod.PAY_PAL), gateway, objectMapper, meterRegistry)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        gatewayClients.close();
+        stubGatewayServer.stop();
+    }
+
+    @Test
+    void testAuthorizeMapsGatewayAnswerToStatus() {
+        assertEquals(PaymentStatus.SUCCESS, gatewayClients.authorize(PaymentMethod.CREDIT_CARD, transaction()));
+    }
+
+    @Test
+    void testPaymentMethodWithoutGatewayIsSimulated() {
+        GatewayClients withoutGateways = new GatewayClients(Map.of());
+
+        assertTrue(withoutGateways.find(PaymentMethod.CREDIT_CARD).isEmpty());
+        assertEquals(PaymentStatus.SUCCESS, withoutGateways.authorize(PaymentMethod.CREDIT_CARD, transaction()));
+    }
+
+    @Test
+    void testSaturatedGatewayDoesNotSlowDownOthers() {
+        GatewayClient payPal = gatewayClients.find(PaymentMethod.PAY_PAL).orElseThrow();
+        List<CompletableFuture<AuthorizationResponse>> inflight = new ArrayList<>();
+        for(int call = 0; call < 4; call++) {
+            inflight.add(payPal.authorizeAsync(new AuthorizationRequest("pay-pal-" + call, BigDecimal.TEN, Currency.USD)));
+        }
+
+        assertThrows(GatewayUnavailableException.class, () -> gatewayClients.authorize(PaymentMethod.PAY_PAL, transaction()));
+        long start = System.nanoTime();
+        for(int call = 0; call < 10; call++) {
+            assertEquals(PaymentStatus.SUCCESS, gatewayClients.authorize(PaymentMethod.CREDIT_CARD, transaction()));
+        }
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_000);
+        assertFalse(inflight.stream().anyMatch(CompletableFuture::isDone));
+    }
+
+    private static Transaction transaction() {
+        Transaction transaction = new Transaction();
+        transaction.setId("transaction-id");
+        transaction.setAmount(BigDecimal.TEN);
+        transaction.setCurrency(Currency.USD);
+        return transaction;
+    }
+}
@@ -0,0 +1,140 @@
+package com.hitpixel.payment.integeration;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.JWTAuthToken;
+import com.hitpixel.payment.dto.LoginRequest;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.User;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Latency of payments while a burst of logins hashes passwords. Payments are made one after another, first
+    on an idle service and then while many clients log in at once. Logins run the KDF on the bounded hashing
+    pool, so payments keep being served by the request threads. Latencies depend on the machine and are only
+    reported. Runs with mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.hitpixel.payment=WARN")
+@DirtiesContext
+class LoginBurstPaymentLatencyTest {
+
+    private static final int PAYMENTS = 200;
+    private static final int LOGIN_CLIENTS = 64;
+
+    private final TestRestTemplate restTemplate = new TestRestTemplate();
+
+    @LocalServerPort
+    private int port;
+
+    private String userUrl;
+    private String url;
+    private HttpHeaders headers;
+    private LoginRequest loginRequest;
+
+    @BeforeEach
+    void setUp() {
+        userUrl = "http://localhost:" + port + "/api/users/";
+        loginRequest = new LoginRequest("bran.stark@gmail.com", "1234567890");
+        restTemplate.postForEntity(userUrl + "register", new User("Bran Stark", "bran.stark@gmail.com", "1234567890"), Void.class);
+        String authToken = restTemplate.postForEntity(userUrl + "login", loginRequest, JWTAuthToken.class).getBody().token();
+        headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        url = "http://localhost:" + port + "/api/payments";
+    }
+
+    @Test
+    void testPaymentLatencyDuringLoginBurst() throws Exception {
+        payments();
+        long[] idle = payments();
+
+        AtomicBoolean bursting = new AtomicBoolean(true);
+        ExecutorService clients = Executors.newFixedThreadPool(LOGIN_CLIENTS);
+        List<Future<int[]>> logins = new ArrayList<>();
+        for(int client = 0; client < LOGIN_CLIENTS; client++) {
+            logins.add(clients.submit(() -> login(bursting)));
+        }
+        long[] burst;
+        try {
+            burst = payments();
+        } finally {
+            bursting.set(false);
+            clients.shutdown();
+        }
+        int loggedIn = 0;
+        int rejected = 0;
+        for(Future<int[]> login : logins) {
+            loggedIn += login.get()[0];
+            rejected += login.get()[1];
+        }
+
+        log.warn("{} payments: idle p50 {} us and p99 {} us, during login burst p50 {} us and p99 {} us "
+                        + "({} logins completed, {} rejected as busy)",
+                PAYMENTS, percentile(idle, 50), percentile(idle, 99), percentile(burst, 50), percentile(burst, 99),
+                loggedIn, rejected);
+        assertThat(loggedIn).isPositive();
+    }
+
+    /*
+        Makes the payments one after another and returns their latencies in microseconds
+     */
+    private long[] payments() {
+        long[] latencies = new long[PAYMENTS];
+        for(int index = 0; index < PAYMENTS; index++) {
+            Payment payment = new Payment(BigDecimal.valueOf(index + 1), PaymentMethod.CREDIT_CARD, Currency.USD);
+            long start = System.nanoTime();
+            ResponseEntity<Transaction> response = restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class);
+            latencies[index] = (System.nanoTime() - start) / 1000;
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        return latencies;
+    }
+
+    /*
+        Logs in until the burst ends, returns the number of completed and rejected logins
+     */
+    private int[] login(AtomicBoolean bursting) {
+        int[] counts = new int[2];
+        while(bursting.get()) {
+            ResponseEntity<String> response = restTemplate.postForEntity(userUrl + "login", loginRequest, String.class);
+            if(response.getStatusCode() == HttpStatus.OK) {
+                counts[0]++;
+            } else {
+                assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                counts[1]++;
+            }
+        }
+        return counts;
+    }
+
+    private static long percentile(long[] latencies, int percentile) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,106 @@
+package com.hitpixel.payment.integeration;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.BatchPaymentRequest;
+import com.hitpixel.payment.dto.BatchPaymentResponse;
+import com.hitpixel.payment.dto.JWTAuthToken;
+import com.hitpixel.payment.dto.LoginRequest;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.User;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Throughput benchmark of the batch endpoint against the single payment endpoint, both called over HTTP
+    the way a client submitting end of day payouts would. Both are warmed up first and the best of a few
+    rounds is compared so a slow round on a busy machine does not decide the result. The ratio depends on the
+    machine, so it is reported rather than asserted. Runs with mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.hitpixel.payment=WARN")
+@DirtiesContext
+class PaymentBatchThroughputTest {
+
+    private static final int PAYMENTS = 1000;
+    private static final int ROUNDS = 3;
+
+    private final TestRestTemplate restTemplate = new TestRestTemplate();
+
+    @LocalServerPort
+    private int port;
+
+    private String url;
+    private HttpHeaders headers;
+    private List<Payment> payments;
+
+    @BeforeEach
+    void setUp() {
+        String userUrl = "http://localhost:" + port + "/api/users/";
+        restTemplate.postForEntity(userUrl + "register", new User("Sansa Stark", "sansa.stark@gmail.com", "1234567890"), Void.class);
+        String authToken = restTemplate.postForEntity(userUrl + "login",
+                new LoginRequest("sansa.stark@gmail.com", "1234567890"), JWTAuthToken.class).getBody().token();
+        headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        url = "http://localhost:" + port + "/api/payments";
+        payments = new ArrayList<>(PAYMENTS);
+        for(int index = 0; index < PAYMENTS; index++) {
+            payments.add(new Payment(BigDecimal.valueOf(index + 1), index % 2 == 0 ? PaymentMethod.CREDIT_CARD : PaymentMethod.PAY_PAL, Currency.USD));
+        }
+    }
+
+    @Test
+    void testBatchThroughputAgainstSinglePayments() {
+        singlePayments();
+        batchPayment();
+
+        long singleNanos = Long.MAX_VALUE;
+        long batchNanos = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; round++) {
+            singleNanos = Math.min(singleNanos, singlePayments());
+            batchNanos = Math.min(batchNanos, batchPayment());
+        }
+
+        double speedUp = (double) singleNanos / batchNanos;
+        log.warn("{} payments: single endpoint {} us/payment, batch endpoint {} us/payment, speed up {}x",
+                PAYMENTS, singleNanos / PAYMENTS / 1000, batchNanos / PAYMENTS / 1000, String.format("%.1f", speedUp));
+    }
+
+    private long singlePayments() {
+        long start = System.nanoTime();
+        for(Payment payment : payments) {
+            ResponseEntity<Transaction> response = restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long batchPayment() {
+        long start = System.nanoTime();
+        ResponseEntity<BatchPaymentResponse> response = restTemplate.postForEntity(url + "/batch",
+                new HttpEntity<>(new BatchPaymentRequest(payments), headers), BatchPaymentResponse.class);
+        long elapsed = System.nanoTime() - start;
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().accepted()).isEqualTo(PAYMENTS);
+        return elapsed;
+    }
+}
@@ -2,10 +2,18 @@ package com.hitpixel.payment.integeration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.ApiKeyRequest;
+import com.hitpixel.payment.dto.ApiKeyResponse;
+import com.hitpixel.payment.dto.BatchPaymentRequest;
+import com.hitpixel.payment.dto.BatchPaymentResponse;
 import com.hitpixel.payment.dto.JWTAuthToken;
 import com.hitpixel.payment.dto.LoginRequest;
 import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.dto.RefundRequest;
+import com.hitpixel.payment.dto.RefundedTransactionView;
 import com.hitpixel.payment.dto.User;
+import com.hitpixel.payment.enums.ApiKeyScope;
 import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentMethod;
 import com.hitpixel.payment.enums.PaymentStatus;
@@ -20,6 +28,7 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -122,12 +131,191 @@ class PaymentControllerIntegrationTest {
                 url, entity, Transaction.class);
         String transactionId = transactionResponse.getBody().getId();
 
-        ResponseEntity<Transaction> response = restTemplate.exchange(
-                url + "/{transactionId}/refund", HttpMethod.POST, entity, Transaction.class, transactionId);
+        ResponseEntity<RefundedTransactionView> response = restTemplate.exchange(
+                url + "/{transactionId}/refund", HttpMethod.POST, entity, RefundedTransactionView.class, transactionId);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
-        assertThat(response.getBody().getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(response.getBody().status()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(response.getBody().refundedAmount()).isEqualByComparingTo(response.getBody().amount());
+    }
+
+    @Test
+    void testRefundPayment_OfOtherUserIsNotFound() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        String transactionId = restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class).getBody().getId();
+
+        restTemplate.postForEntity(userUrl + "register", new User("Sansa Stark", "sansa.stark@gmail.com", "1234567890"), Void.class);
+        String otherAuthToken = restTemplate.postForEntity(userUrl + "login",
+                new LoginRequest("sansa.stark@gmail.com", "1234567890"), JWTAuthToken.class).getBody().token();
+        HttpHeaders otherHeaders = new HttpHeaders();
+        otherHeaders.set("Authorization", "Bearer " + otherAuthToken);
+
+        ResponseEntity<String> response = restTemplate.exchange(url + "/{transactionId}/refund", HttpMethod.POST,
+                new HttpEntity<>(otherHeaders), String.class, transactionId);
+        ResponseEntity<PaymentStatus> status = restTemplate.exchange(url + "/{transactionId}/status", HttpMethod.GET,
+                new HttpEntity<>(headers), PaymentStatus.class, transactionId);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(response.getBody()).contains("Transaction does not exists");
+        assertThat(status.getBody()).isEqualTo(PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void testRefundPayment_PartialRefunds() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        String transactionId = restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class).getBody().getId();
+        String refundUrl = url + "/{transactionId}/refund";
+
+        ResponseEntity<RefundedTransactionView> partial = restTemplate.exchange(refundUrl, HttpMethod.POST,
+                new HttpEntity<>(new RefundRequest(new BigDecimal("30.00")), headers), RefundedTransactionView.class, transactionId);
+        ResponseEntity<String> exceeding = restTemplate.exchange(refundUrl, HttpMethod.POST,
+                new HttpEntity<>(new RefundRequest(new BigDecimal("70.01")), headers), String.class, transactionId);
+        ResponseEntity<RefundedTransactionView> remaining = restTemplate.exchange(refundUrl, HttpMethod.POST,
+                new HttpEntity<>(headers), RefundedTransactionView.class, transactionId);
+        ResponseEntity<String> again = restTemplate.exchange(refundUrl, HttpMethod.POST,
+                new HttpEntity<>(new RefundRequest(new BigDecimal("0.01")), headers), String.class, transactionId);
+
+        assertThat(partial.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(partial.getBody().status()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(partial.getBody().refundedAmount()).isEqualByComparingTo("30.00");
+        assertThat(exceeding.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(exceeding.getBody()).contains("refundable amount of 70.0000");
+        assertThat(remaining.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(remaining.getBody().status()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(remaining.getBody().refundedAmount()).isEqualByComparingTo("100.00");
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(again.getBody()).contains("is already refunded");
+    }
+
+    @Test
+    void testFetchSummary_MatchesRebuiltSummary() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        String transactionId = restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class).getBody().getId();
+        restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class);
+        restTemplate.postForEntity(url, new HttpEntity<>(
+                new Payment(BigDecimal.valueOf(20.00), PaymentMethod.PAY_PAL, Currency.EUR), headers), Transaction.class);
+        restTemplate.exchange(url + "/{transactionId}/refund", HttpMethod.POST,
+                new HttpEntity<>(new RefundRequest(new BigDecimal("30.00")), headers), RefundedTransactionView.class, transactionId);
+
+        ResponseEntity<PaymentSummaryView[]> summary = restTemplate.exchange(
+                url + "/summary", HttpMethod.GET, new HttpEntity<>(headers), PaymentSummaryView[].class);
+        ResponseEntity<PaymentSummaryView[]> rebuilt = restTemplate.exchange(
+                url + "/summary/rebuild", HttpMethod.POST, new HttpEntity<>(headers), PaymentSummaryView[].class);
+
+        assertThat(summary.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(summary.getBody()).hasSize(2);
+        assertThat(summary.getBody()[0].currency()).isEqualTo(Currency.USD);
+        assertThat(summary.getBody()[0].status()).isEqualTo(PaymentStatus.SUCCESS);
+        assertThat(summary.getBody()[0].count()).isEqualTo(2);
+        assertThat(summary.getBody()[0].amount()).isEqualByComparingTo("200.00");
+        assertThat(summary.getBody()[0].refundedAmount()).isEqualByComparingTo("30.00");
+        assertThat(summary.getBody()[1].currency()).isEqualTo(Currency.EUR);
+        assertThat(summary.getBody()[1].paymentMethod()).isEqualTo(PaymentMethod.PAY_PAL);
+        assertThat(summary.getBody()[1].count()).isEqualTo(1);
+        assertThat(rebuilt.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rebuilt.getBody()).usingRecursiveFieldByFieldElementComparator()
+                .usingComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                .containsExactly(summary.getBody());
+    }
+
+    @Test
+    void testMakePayment_RetryWithIdempotencyKeyIsReplayed() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        headers.set("Idempotency-Key", "order-42");
+
+        HttpEntity<Payment> entity = new HttpEntity<>(payment, headers);
+
+        ResponseEntity<Transaction> first = restTemplate.postForEntity(url, entity, Transaction.class);
+        ResponseEntity<Transaction> retry = restTemplate.postForEntity(url, entity, Transaction.class);
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(retry.getBody().getId()).isEqualTo(first.getBody().getId());
+
+        ResponseEntity<List> history = restTemplate.exchange(url + "/history", HttpMethod.GET, entity, List.class);
+        assertThat(history.getBody()).hasSize(1);
+
+        HttpEntity<Payment> otherPayment = new HttpEntity<>(
+                new Payment(BigDecimal.valueOf(5.00), PaymentMethod.CREDIT_CARD, Currency.USD), headers);
+        ResponseEntity<String> mismatch = restTemplate.postForEntity(url, otherPayment, String.class);
+        assertThat(mismatch.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void testMakePayment_RespondAsyncCompletesInBackground() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        headers.set("Prefer", "respond-async");
+
+        ResponseEntity<Transaction> response = restTemplate.postForEntity(url, new HttpEntity<>(payment, headers), Transaction.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getBody().getStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(response.getHeaders().getLocation()).hasToString("/api/payments/" + response.getBody().getId() + "/status");
+
+        PaymentStatus status = PaymentStatus.PENDING;
+        long deadline = System.currentTimeMillis() + 5000;
+        while(status == PaymentStatus.PENDING && System.currentTimeMillis() < deadline) {
+            status = restTemplate.exchange(url + "/{transactionId}/status", HttpMethod.GET,
+                    new HttpEntity<>(headers), PaymentStatus.class, response.getBody().getId()).getBody();
+        }
+        assertThat(status).isEqualTo(PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void testMakeBatchPayments_Success() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + authToken);
+        BatchPaymentRequest batchPaymentRequest = new BatchPaymentRequest(List.of(
+                payment,
+                new Payment(BigDecimal.valueOf(-1), PaymentMethod.PAY_PAL, Currency.USD),
+                new Payment(BigDecimal.valueOf(20.00), PaymentMethod.PAY_PAL, Currency.EUR)));
+
+        ResponseEntity<BatchPaymentResponse> response = restTemplate.postForEntity(
+                url + "/batch", new HttpEntity<>(batchPaymentRequest, headers), BatchPaymentResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().accepted()).isEqualTo(2);
+        assertThat(response.getBody().rejected()).isEqualTo(1);
+        assertThat(response.getBody().results().get(1).error()).isEqualTo("Payment amount should be greater than 0.0");
+
+        ResponseEntity<List> history = restTemplate.exchange(
+                url + "/history", HttpMethod.GET, new HttpEntity<>(headers), List.class);
+        assertThat(history.getBody()).hasSize(2);
+    }
+
+    @Test
+    void testApiKey_GrantsOnlyItsScopes() {
+        HttpHeaders jwtHeaders = new HttpHeaders();
+        jwtHeaders.set("Authorization", "Bearer " + authToken);
+        ResponseEntity<ApiKeyResponse> apiKeyResponse = restTemplate.postForEntity(
+                "http://localhost:" + port + "/api/api-keys",
+                new HttpEntity<>(new ApiKeyRequest("billing", Set.of(ApiKeyScope.PAYMENTS_WRITE)), jwtHeaders),
+                ApiKeyResponse.class);
+        assertThat(apiKeyResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        HttpHeaders apiKeyHeaders = new HttpHeaders();
+        apiKeyHeaders.set("X-API-Key", apiKeyResponse.getBody().apiKey());
+        HttpEntity<Payment> entity = new HttpEntity<>(payment, apiKeyHeaders);
+
+        ResponseEntity<Transaction> paymentResponse = restTemplate.postForEntity(url, entity, Transaction.class);
+        assertThat(paymentResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(paymentResponse.getBody().getUser().getEmail()).isEqualTo("arya.stark@gmail.com");
+
+        ResponseEntity<String> historyResponse = restTemplate.exchange(url + "/history", HttpMethod.GET, entity, String.class);
+        assertThat(historyResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        restTemplate.exchange("http://localhost:" + port + "/api/api-keys/{apiKeyId}", HttpMethod.DELETE,
+                new HttpEntity<>(jwtHeaders), Void.class, apiKeyResponse.getBody().id());
+
+        ResponseEntity<String> revokedResponse = restTemplate.postForEntity(url, entity, String.class);
+        assertThat(revokedResponse.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(revokedResponse.getBody()).contains("API key not valid");
     }
 
     @Test
@@ -0,0 +1,254 @@
+package com.hitpixel.payment.integeration;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.TransactionNotExistsException;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.service.IdGenerator;
+import com.hitpixel.payment.service.PaymentService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Concurrency test of refunds through the service. Many threads refunding the same transaction at once must
+    refund it exactly once and answer every other attempt as already refunded, and concurrent partial refunds
+    must add up to exactly the amount. The benchmark compares the refunds per second of distinct transactions
+    refunded from many threads against the way the service used to refund, a read followed by a save in a
+    SERIALIZABLE transaction, it runs with mvn test -Pbenchmark.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:refund-benchmark",
+        "logging.level.com.hitpixel.payment=WARN"
+})
+@DirtiesContext
+class RefundConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int REFUNDS = 2_000;
+    private static final int CONTENDED_TRANSACTIONS = 10;
+    private static final int BENCHMARK_CONTENDED_TRANSACTIONS = 50;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final IdGenerator idGenerator = new IdGenerator();
+    private ExecutorService executor;
+    private User user;
+    private Consumer<String> serializableRefund;
+    private Consumer<String> conditionalRefund;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        user = new User(idGenerator.nextId(), "Tyrion Lannister", "tyrion" + System.nanoTime() + "@gmail.com", "password");
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, ?, ?, ?)",
+                UUID.fromString(user.getId()), user.getName(), user.getEmail(), user.getPassword());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @BeforeEach
+    void setUpRefunds() {
+        TransactionTemplate serializable = new TransactionTemplate(transactionManager);
+        serializable.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+        serializableRefund = transactionId -> serializable.executeWithoutResult(status -> {
+            Transaction transaction = transactionRepository.findById(transactionId).orElseThrow();
+            if(transaction.getStatus() == PaymentStatus.REFUNDED) {
+                throw new TransactionNotExistsException("Transaction with id " + transactionId + " is already refunded");
+            }
+            transaction.setStatus(PaymentStatus.REFUNDED);
+            transactionRepository.save(transaction);
+        });
+        conditionalRefund = transactionId -> paymentService.refundTransaction(transactionId, user);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testConditionalRefundsAreNotSlowerThanSerializable() throws Exception {
+        refundDistinct(insertTransactions(REFUNDS / 4), serializableRefund);
+        refundDistinct(insertTransactions(REFUNDS / 4), conditionalRefund);
+
+        Outcome serializable = refundDistinct(insertTransactions(REFUNDS), serializableRefund);
+        Outcome conditional = refundDistinct(insertTransactions(REFUNDS), conditionalRefund);
+
+        log.warn("{} distinct refunds on {} threads: SERIALIZABLE read and save {} refunds/s with {} failed, conditional update {} refunds/s with {} failed",
+                REFUNDS, THREADS, serializable.perSecond(), serializable.failed(), conditional.perSecond(), conditional.failed());
+        assertThat(conditional.refunded()).isEqualTo(REFUNDS);
+        assertThat(conditional.failed()).isZero();
+        assertThat(conditional.perSecond()).isGreaterThanOrEqualTo(serializable.perSecond());
+
+        Outcome serializableContended = refundContended(insertTransactions(BENCHMARK_CONTENDED_TRANSACTIONS), serializableRefund);
+        Outcome conditionalContended = refundContended(insertTransactions(BENCHMARK_CONTENDED_TRANSACTIONS), conditionalRefund);
+
+        log.warn("{} transactions refunded by {} threads each: SERIALIZABLE read and save {} refunded, {} already refunded, {} failed, "
+                        + "conditional update {} refunded, {} already refunded, {} failed",
+                BENCHMARK_CONTENDED_TRANSACTIONS, THREADS, serializableContended.refunded(), serializableContended.alreadyRefunded(),
+                serializableContended.failed(), conditionalContended.refunded(), conditionalContended.alreadyRefunded(),
+                conditionalContended.failed());
+        assertThat(serializableContended.refunded()).isLessThanOrEqualTo(BENCHMARK_CONTENDED_TRANSACTIONS);
+        assertThat(conditionalContended.refunded()).isEqualTo(BENCHMARK_CONTENDED_TRANSACTIONS);
+    }
+
+    @Test
+    void testConcurrentRefundsOfSameTransactionRefundOnce() throws Exception {
+        Outcome conditional = refundContended(insertTransactions(CONTENDED_TRANSACTIONS), conditionalRefund);
+
+        assertThat(conditional.refunded()).isEqualTo(CONTENDED_TRANSACTIONS);
+        assertThat(conditional.alreadyRefunded()).isEqualTo(CONTENDED_TRANSACTIONS * (THREADS - 1));
+        assertThat(conditional.failed()).isZero();
+    }
+
+    @Test
+    void testConcurrentPartialRefundsNeverExceedAmount() throws Exception {
+        BigDecimal part = new BigDecimal("0.25");
+        int parts = new BigDecimal(CONTENDED_TRANSACTIONS).divide(part).intValueExact();
+        String transactionId = insertTransactions(CONTENDED_TRANSACTIONS).get(CONTENDED_TRANSACTIONS - 1);
+        Outcome outcome = new Outcome();
+        List<Callable<Void>> refunds = new ArrayList<>();
+        for(int refund = 0; refund < parts + THREADS; refund++) {
+            refunds.add(() -> {
+                outcome.refund(id -> paymentService.refundTransaction(id, part, user), transactionId);
+                return null;
+            });
+        }
+        for(Future<Void> future : executor.invokeAll(refunds)) {
+            future.get();
+        }
+
+        assertThat(outcome.refunded()).isEqualTo(parts);
+        assertThat(outcome.alreadyRefunded()).isEqualTo(THREADS);
+        Transaction refunded = transactionRepository.findById(transactionId).orElseThrow();
+        assertThat(refunded.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(refunded.getRefundedAmount()).isEqualByComparingTo(refunded.getAmount());
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refunds WHERE transaction_id = ?", Integer.class,
+                UUID.fromString(transactionId))).isEqualTo(parts);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(amount) FROM refunds WHERE transaction_id = ?", BigDecimal.class,
+                UUID.fromString(transactionId))).isEqualByComparingTo(refunded.getAmount());
+    }
+
+    private Outcome refundDistinct(List<String> transactionIds, Consumer<String> refund) throws Exception {
+        Outcome outcome = new Outcome();
+        List<Callable<Void>> refunds = new ArrayList<>(transactionIds.size());
+        for(String transactionId : transactionIds) {
+            refunds.add(() -> {
+                outcome.refund(refund, transactionId);
+                return null;
+            });
+        }
+        long start = System.nanoTime();
+        for(Future<Void> future : executor.invokeAll(refunds)) {
+            future.get();
+        }
+        outcome.nanos = System.nanoTime() - start;
+        return outcome;
+    }
+
+    private Outcome refundContended(List<String> transactionIds, Consumer<String> refund) throws Exception {
+        Outcome outcome = new Outcome();
+        for(String transactionId : transactionIds) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> refunds = new ArrayList<>(THREADS);
+            for(int thread = 0; thread < THREADS; thread++) {
+                refunds.add(executor.submit(() -> {
+                    start.await();
+                    outcome.refund(refund, transactionId);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for(Future<?> future : refunds) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+        return outcome;
+    }
+
+    private List<String> insertTransactions(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> transactionIds = new ArrayList<>(count);
+        List<Object[]> rows = new ArrayList<>(count);
+        for(int row = 0; row < count; row++) {
+            UUID transactionId = idGenerator.nextUuid();
+            transactionIds.add(transactionId.toString());
+            rows.add(new Object[]{transactionId, row + 1, UUID.fromString(user.getId()), Timestamp.valueOf(now.minusSeconds(row))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, amount, paymentmethod, currency, status, user_id, "
+                + "transactiontimestamp) VALUES (?, ?, 1, 1, 2, ?, ?)", rows);
+        return transactionIds;
+    }
+
+    private static class Outcome {
+        private final AtomicInteger refunded = new AtomicInteger();
+        private final AtomicInteger alreadyRefunded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private long nanos;
+
+        void refund(Consumer<String> refund, String transactionId) {
+            try {
+                refund.accept(transactionId);
+                refunded.incrementAndGet();
+            } catch (TransactionNotExistsException exception) {
+                alreadyRefunded.incrementAndGet();
+            } catch (RuntimeException exception) {
+                failed.incrementAndGet();
+            }
+        }
+
+        int refunded() {
+            return refunded.get();
+        }
+
+        int alreadyRefunded() {
+            return alreadyRefunded.get();
+        }
+
+        int failed() {
+            return failed.get();
+        }
+
+        long perSecond() {
+            return (refunded() + alreadyRefunded() + failed()) * TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.hitpixel.payment.integeration;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.enums.ExportFormat;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.service.IdGenerator;
+import com.hitpixel.payment.service.TransactionExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Export of a history spanning several fetches, written newest first and flushed every fetch size rows.
+    The heap benchmark compares the export against loading the history as entities the way the history endpoint
+    used to. The heap still in use after a garbage collection is sampled while the export is written and while
+    the entities are held. The embedded database buffers the sorted rows of both in the same heap, so the
+    difference is what the application itself keeps per row. The benchmark runs with mvn test -Pbenchmark, add
+    -Dbenchmark.rows=1000000 for a larger comparison.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-benchmark",
+        "logging.level.com.hitpixel.payment=WARN"
+})
+@DirtiesContext
+class TransactionExportMemoryTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int FETCH_SIZE = Integer.parseInt(TransactionRepository.STREAM_FETCH_SIZE);
+    private static final int STREAMED_ROWS = FETCH_SIZE * 2 + FETCH_SIZE / 2;
+    private static final int CHUNK = 1_000;
+    private static final int SAMPLES = 5;
+    private static final int MIN_RATIO = 4;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testExportStreamsHistoryNewestFirstInFetches() throws Exception {
+        User user = insertHistory("sansa.stark@gmail.com", STREAMED_ROWS);
+        List<Long> linesAtFlush = new ArrayList<>();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                linesAtFlush.add(toString(StandardCharsets.UTF_8).chars().filter(character -> character == '\n').count());
+            }
+        };
+
+        long exported = transactionExportService.export(user, TransactionHistoryFilter.NONE, ExportFormat.NDJSON, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(exported).isEqualTo(STREAMED_ROWS);
+        assertThat(linesAtFlush).containsExactly((long) FETCH_SIZE, FETCH_SIZE * 2L, (long) STREAMED_ROWS);
+        assertThat(lines).hasSize(STREAMED_ROWS);
+        assertThat(lines[0]).contains("\"amount\":" + STREAMED_ROWS + ".");
+        assertThat(lines[STREAMED_ROWS - 1]).contains("\"amount\":1.");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testExportKeepsFarLessHeapThanLoadingEntities() throws Exception {
+        User user = insertHistory("arya.stark@gmail.com", ROWS);
+
+        HeapSamplingOutputStream outputStream = new HeapSamplingOutputStream(ROWS / CHUNK / SAMPLES);
+        long beforeExport = usedAfterGc();
+        long exported = transactionExportService.export(user, TransactionHistoryFilter.NONE, ExportFormat.NDJSON, outputStream);
+        long exportGrowth = outputStream.maxUsed - beforeExport;
+
+        long beforeLoading = usedAfterGc();
+        long loadedGrowth = transactionTemplate.execute(status -> {
+            List<Transaction> transactions = transactionRepository.findAllByUserId(user.getId());
+            long used = usedAfterGc() - beforeLoading;
+            assertThat(transactions).hasSize(ROWS);
+            return used;
+        });
+
+        log.warn("{} rows: export of {} KiB kept at most {} KiB of heap, loading entities kept {} KiB",
+                exported, outputStream.bytes / 1024, exportGrowth / 1024, loadedGrowth / 1024);
+        assertThat(exported).isEqualTo(ROWS);
+        assertThat(exportGrowth * MIN_RATIO).isLessThan(loadedGrowth);
+    }
+
+    private User insertHistory(String email, int rows) {
+        IdGenerator idGenerator = new IdGenerator();
+        User user = new User(idGenerator.nextId(), "Arya Stark", email, "password");
+        UUID userId = UUID.fromString(user.getId());
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, ?, ?, ?)",
+                userId, user.getName(), user.getEmail(), user.getPassword());
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        List<Object[]> chunk = new ArrayList<>(CHUNK);
+        for(int row = 1; row <= rows; row++) {
+            chunk.add(new Object[]{idGenerator.nextUuid(), row, userId, Timestamp.valueOf(start.plusSeconds(row))});
+            if(chunk.size() == CHUNK || row == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO transactions (id, amount, paymentmethod, currency, status, user_id, "
+                        + "transactiontimestamp) VALUES (?, ?, 1, 1, 2, ?, ?)", chunk);
+                chunk.clear();
+            }
+        }
+        return user;
+    }
+
+    private static long usedAfterGc() {
+        System.gc();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /*
+        Discards the export and samples the used heap on every interval flushes
+     */
+    private static class HeapSamplingOutputStream extends OutputStream {
+        private final int interval;
+        private long bytes;
+        private long flushes;
+        private long maxUsed;
+
+        HeapSamplingOutputStream(int interval) {
+            this.interval = Math.max(1, interval);
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void flush() {
+            if(flushes++ % interval == 0) {
+                maxUsed = Math.max(maxUsed, usedAfterGc());
+            }
+        }
+    }
+}
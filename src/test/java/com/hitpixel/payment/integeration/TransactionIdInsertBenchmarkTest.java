@@ -0,0 +1,84 @@
+package com.hitpixel.payment.integeration;
+
+import com.hitpixel.payment.service.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Insert benchmark of random (v4) against time-ordered (v7) transaction ids, written to a file based H2
+    database shaped like the transactions table. Inserts are committed in chunks the way concurrent
+    payments are group committed, and the size of the database file shows how full the primary key pages
+    are kept. Insert rates depend on the machine and are only reported, the file size is asserted. Runs with
+    mvn test -Pbenchmark, add -Dbenchmark.rows=10000000 for the full size comparison.
+ */
+@Slf4j
+@Tag("benchmark")
+class TransactionIdInsertBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int CHUNK = 1_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testTimeOrderedIdsInsertIntoSmallerIndex() throws Exception {
+        IdGenerator idGenerator = new IdGenerator();
+        Result random = insert("random", () -> UUID.randomUUID().toString());
+        Result timeOrdered = insert("time-ordered", idGenerator::nextId);
+
+        log.warn("{} rows: random ids {} rows/s and {} KiB, time-ordered ids {} rows/s and {} KiB",
+                ROWS, random.rowsPerSecond(), random.bytes() / 1024, timeOrdered.rowsPerSecond(), timeOrdered.bytes() / 1024);
+        assertThat(timeOrdered.bytes()).isLessThan(random.bytes());
+    }
+
+    private Result insert(String name, Supplier<String> ids) throws SQLException, IOException {
+        Path database = directory.resolve(name);
+        long start = System.nanoTime();
+        try(Connection connection = DriverManager.getConnection("jdbc:h2:file:" + database, "sa", "")) {
+            try(Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE transactions (id VARCHAR(255) PRIMARY KEY, amount DECIMAL(19,2) NOT NULL, "
+                        + "status VARCHAR(255) NOT NULL, transactiontimestamp TIMESTAMP NOT NULL)");
+            }
+            connection.setAutoCommit(false);
+            try(PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO transactions (id, amount, status, transactiontimestamp) VALUES (?, ?, ?, ?)")) {
+                for(int row = 1; row <= ROWS; row++) {
+                    insert.setString(1, ids.get());
+                    insert.setBigDecimal(2, BigDecimal.TEN);
+                    insert.setString(3, "SUCCESS");
+                    insert.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                    insert.addBatch();
+                    if(row % CHUNK == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(ROWS * 1_000_000_000L / elapsed, Files.size(directory.resolve(name + ".mv.db")));
+    }
+
+    private record Result(long rowsPerSecond, long bytes) {
+    }
+}
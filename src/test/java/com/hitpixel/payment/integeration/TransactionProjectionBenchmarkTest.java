@@ -0,0 +1,119 @@
+package com.hitpixel.payment.integeration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.TransactionView;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.service.IdGenerator;
+import com.hitpixel.payment.service.PaymentService;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Benchmark of a full history page read as entities, the way the history endpoint used to, against the
+    view projection. Both read the same page in a read only transaction and are serialized with the
+    application's ObjectMapper. Reported are the best query time of a few rounds, the bytes allocated per
+    row while reading and the size of the JSON response. Runs with mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:projection-benchmark",
+        "logging.level.com.hitpixel.payment=WARN"
+})
+@DirtiesContext
+class TransactionProjectionBenchmarkTest {
+
+    private static final int ROWS = PaymentService.MAX_HISTORY_LIMIT;
+    private static final int ROUNDS = 20;
+    private static final String ENTITY_PAGE = "select t from Transaction t where t.user.id = :userId "
+            + "order by t.transactionTimestamp desc, t.id desc";
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testViewsAllocateLessAndSerializeSmallerThanEntities() throws Exception {
+        String userId = insertHistory();
+        transactionTemplate.setReadOnly(true);
+        Supplier<List<?>> entities = () -> entityManager.createQuery(ENTITY_PAGE, Transaction.class)
+                .setParameter("userId", userId)
+                .setMaxResults(ROWS)
+                .getResultList();
+        Supplier<List<?>> views = () -> transactionRepository.findHistory(userId, null, null, null, null, null,
+                null, null, Limit.of(ROWS));
+
+        Result entity = measure(entities);
+        Result view = measure(views);
+
+        log.warn("{} rows: entities {} us/page, {} bytes/row allocated, {} KiB response; views {} us/page, {} bytes/row allocated, {} KiB response",
+                ROWS, entity.micros(), entity.allocatedPerRow(), entity.responseBytes() / 1024,
+                view.micros(), view.allocatedPerRow(), view.responseBytes() / 1024);
+        assertThat(view.allocatedPerRow()).isLessThan(entity.allocatedPerRow());
+        assertThat(view.responseBytes()).isLessThan(entity.responseBytes());
+    }
+
+    private Result measure(Supplier<List<?>> query) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long micros = Long.MAX_VALUE;
+        long allocated = Long.MAX_VALUE;
+        List<?> page = null;
+        for(int round = 0; round < ROUNDS; round++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            page = transactionTemplate.execute(status -> query.get());
+            micros = Math.min(micros, (System.nanoTime() - start) / 1_000);
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        }
+        assertThat(page).hasSize(ROWS);
+        return new Result(micros, allocated / ROWS, objectMapper.writeValueAsBytes(page).length);
+    }
+
+    private String insertHistory() {
+        IdGenerator idGenerator = new IdGenerator();
+        UUID userId = idGenerator.nextUuid();
+        jdbcTemplate.update("INSERT INTO users (id, name, email, password) VALUES (?, ?, ?, ?)",
+                userId, "Bran Stark", "bran.stark@gmail.com", "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3QJ0pX1sP1m7QXj2eQZ3Y9e");
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for(int row = 1; row <= ROWS; row++) {
+            rows.add(new Object[]{idGenerator.nextUuid(), row, userId, Timestamp.valueOf(start.plusSeconds(row))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (id, amount, paymentmethod, currency, status, user_id, "
+                + "transactiontimestamp) VALUES (?, ?, 1, 1, 2, ?, ?)", rows);
+        return userId.toString();
+    }
+
+    private record Result(long micros, long allocatedPerRow, long responseBytes) {
+    }
+}
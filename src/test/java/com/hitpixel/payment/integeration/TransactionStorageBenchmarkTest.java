@@ -0,0 +1,131 @@
+package com.hitpixel.payment.integeration;
+
+import com.hitpixel.payment.converter.PaymentMethodConverter;
+import com.hitpixel.payment.converter.PaymentStatusConverter;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.service.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+    Size and scan benchmark of the transactions table before (V1: VARCHAR ids and enums, unscaled DECIMAL)
+    and after the compact schema of V4, written to file based H2 databases with the same rows. The scan
+    sums the amounts of one status the way a report would. Scan times depend on the machine and are only
+    reported, the file size is asserted. Runs with mvn test -Pbenchmark, add -Dbenchmark.rows=10000000 for
+    the full size comparison.
+ */
+@Slf4j
+@Tag("benchmark")
+class TransactionStorageBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int CHUNK = 1_000;
+    private static final int SCANS = 5;
+
+    private static final String WIDE_TABLE = "CREATE TABLE transactions (id VARCHAR(255) PRIMARY KEY, amount DECIMAL NOT NULL, "
+            + "paymentmethod VARCHAR(255) NOT NULL, currency VARCHAR(255) NOT NULL, status VARCHAR(255) NOT NULL, "
+            + "user_id VARCHAR(255) NOT NULL, transactiontimestamp TIMESTAMP NOT NULL)";
+    private static final String COMPACT_TABLE = "CREATE TABLE transactions (id UUID PRIMARY KEY, amount DECIMAL(19,4) NOT NULL, "
+            + "paymentmethod SMALLINT NOT NULL, currency SMALLINT NOT NULL, status SMALLINT NOT NULL, "
+            + "user_id UUID NOT NULL, transactiontimestamp TIMESTAMP NOT NULL)";
+    private static final String INSERT = "INSERT INTO transactions (id, amount, paymentmethod, currency, status, user_id, "
+            + "transactiontimestamp) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SCAN = "SELECT SUM(amount) FROM transactions WHERE status = ?";
+
+    private final PaymentMethodConverter paymentMethodConverter = new PaymentMethodConverter();
+    private final PaymentStatusConverter paymentStatusConverter = new PaymentStatusConverter();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCompactSchemaIsSmaller() throws Exception {
+        Result wide = run("wide", false);
+        Result compact = run("compact", true);
+
+        log.warn("{} rows: wide schema {} KiB and {} us/scan, compact schema {} KiB and {} us/scan",
+                ROWS, wide.bytes() / 1024, wide.scanMicros(), compact.bytes() / 1024, compact.scanMicros());
+        assertThat(compact.bytes()).isLessThan(wide.bytes());
+    }
+
+    private Result run(String name, boolean compact) throws SQLException, IOException {
+        IdGenerator idGenerator = new IdGenerator();
+        UUID userId = idGenerator.nextUuid();
+        long scanMicros = Long.MAX_VALUE;
+        // H2 would otherwise answer repeated scans of an unchanged table from the previous result
+        String url = "jdbc:h2:file:" + directory.resolve(name) + ";OPTIMIZE_REUSE_RESULTS=FALSE";
+        try(Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try(Statement statement = connection.createStatement()) {
+                statement.execute(compact ? COMPACT_TABLE : WIDE_TABLE);
+            }
+            connection.setAutoCommit(false);
+            try(PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                for(int row = 1; row <= ROWS; row++) {
+                    PaymentMethod paymentMethod = PaymentMethod.values()[row % PaymentMethod.values().length];
+                    PaymentStatus status = PaymentStatus.values()[row % PaymentStatus.values().length];
+                    UUID id = idGenerator.nextUuid();
+                    if(compact) {
+                        insert.setObject(1, id);
+                        insert.setShort(3, paymentMethodConverter.convertToDatabaseColumn(paymentMethod));
+                        insert.setShort(4, Currency.USD.getCode());
+                        insert.setShort(5, paymentStatusConverter.convertToDatabaseColumn(status));
+                        insert.setObject(6, userId);
+                    } else {
+                        insert.setString(1, id.toString());
+                        insert.setString(3, paymentMethod.name());
+                        insert.setString(4, Currency.USD.name());
+                        insert.setString(5, status.name());
+                        insert.setString(6, userId.toString());
+                    }
+                    insert.setBigDecimal(2, BigDecimal.valueOf(row, 2));
+                    insert.setTimestamp(7, new Timestamp(System.currentTimeMillis()));
+                    insert.addBatch();
+                    if(row % CHUNK == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            try(PreparedStatement scan = connection.prepareStatement(SCAN)) {
+                for(int round = 0; round < SCANS; round++) {
+                    if(compact) {
+                        scan.setShort(1, paymentStatusConverter.convertToDatabaseColumn(PaymentStatus.SUCCESS));
+                    } else {
+                        scan.setString(1, PaymentStatus.SUCCESS.name());
+                    }
+                    long start = System.nanoTime();
+                    try(ResultSet resultSet = scan.executeQuery()) {
+                        assertThat(resultSet.next()).isTrue();
+                        assertThat(resultSet.getBigDecimal(1)).isPositive();
+                    }
+                    scanMicros = Math.min(scanMicros, (System.nanoTime() - start) / 1_000);
+                }
+            }
+        }
+        return new Result(Files.size(directory.resolve(name + ".mv.db")), scanMicros);
+    }
+
+    private record Result(long bytes, long scanMicros) {
+    }
+}
@@ -3,6 +3,8 @@ package com.hitpixel.payment.integeration;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hitpixel.payment.dto.JWTAuthToken;
 import com.hitpixel.payment.dto.LoginRequest;
+import com.hitpixel.payment.dto.LogoutRequest;
+import com.hitpixel.payment.dto.RefreshTokenRequest;
 import com.hitpixel.payment.dto.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,10 +12,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -48,6 +58,30 @@ class UserControllerIntegrationTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
     }
 
+    @Test
+    void testRegisterUser_AlreadyRegistered() {
+        restTemplate.postForEntity(url + "register", user, Void.class);
+
+        ResponseEntity<String> response = restTemplate.postForEntity(url + "register", user, String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).contains("User already registered.");
+    }
+
+    @Test
+    void testRegisterUser_ConcurrentlyWithSameEmail() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<ResponseEntity<String>> first = clients.submit(() -> restTemplate.postForEntity(url + "register", user, String.class));
+            Future<ResponseEntity<String>> second = clients.submit(() -> restTemplate.postForEntity(url + "register", user, String.class));
+
+            assertThat(List.of(first.get().getStatusCode(), second.get().getStatusCode()))
+                    .containsExactlyInAnyOrder(HttpStatus.CREATED, HttpStatus.CONFLICT);
+        } finally {
+            clients.shutdown();
+        }
+    }
+
     @Test
     void testLoginUser_Success() {
 
@@ -60,6 +94,64 @@ class UserControllerIntegrationTest {
         assertThat(response.getBody()).isNotNull();
     }
 
+    @Test
+    void testRefreshToken_RotatesAndDetectsReuse() {
+        restTemplate.postForEntity(url + "register", user, Void.class);
+        JWTAuthToken login = restTemplate.postForEntity(url + "login", loginRequest, JWTAuthToken.class).getBody();
+        assertThat(login).isNotNull();
+        assertThat(login.refreshToken()).isNotBlank();
+
+        ResponseEntity<JWTAuthToken> refreshed = restTemplate.postForEntity(
+                url + "token/refresh", new RefreshTokenRequest(login.refreshToken()), JWTAuthToken.class);
+
+        assertThat(refreshed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(refreshed.getBody().token()).isNotBlank();
+        assertThat(refreshed.getBody().refreshToken()).isNotEqualTo(login.refreshToken());
+
+        ResponseEntity<String> reused = restTemplate.postForEntity(
+                url + "token/refresh", new RefreshTokenRequest(login.refreshToken()), String.class);
+
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(reused.getBody()).contains("Refresh token not valid");
+
+        ResponseEntity<String> revoked = restTemplate.postForEntity(
+                url + "token/refresh", new RefreshTokenRequest(refreshed.getBody().refreshToken()), String.class);
+
+        assertThat(revoked.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void testLogout_RevokesTokenAndSession() {
+        restTemplate.postForEntity(url + "register", user, Void.class);
+        JWTAuthToken login = restTemplate.postForEntity(url + "login", loginRequest, JWTAuthToken.class).getBody();
+        assertThat(login).isNotNull();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + login.token());
+
+        ResponseEntity<Void> logout = restTemplate.postForEntity(
+                url + "logout", new HttpEntity<>(new LogoutRequest(login.refreshToken()), headers), Void.class);
+
+        assertThat(logout.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        ResponseEntity<String> history = restTemplate.exchange(
+                "http://localhost:" + port + "/api/payments/history", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(history.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(history.getBody()).contains("JWT has been revoked");
+
+        ResponseEntity<String> refreshed = restTemplate.postForEntity(
+                url + "token/refresh", new RefreshTokenRequest(login.refreshToken()), String.class);
+
+        assertThat(refreshed.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void testLogout_WithoutToken() {
+        ResponseEntity<String> logout = restTemplate.postForEntity(url + "logout", null, String.class);
+
+        assertThat(logout.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
     @Test
     void testLoginUser_Failure_InvalidCredentials(){
         LoginRequest invalidLoginRequest = new LoginRequest("sam@gmail.com", "samspassword");
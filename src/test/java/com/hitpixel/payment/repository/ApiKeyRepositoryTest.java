@@ -0,0 +1,51 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.domain.ApiKey;
+import com.hitpixel.payment.domain.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class ApiKeyRepositoryTest {
+
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+    private static final String OTHER_USER_ID = "01890a5d-ac96-7b3c-8000-000000000002";
+
+    @Autowired
+    private ApiKeyRepository apiKeyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User(USER_ID, "Johnnie", "johnnie@gmail.com", "12345678");
+        userRepository.save(user);
+        apiKeyRepository.save(new ApiKey("key-1", "billing", "hash-1", "PAYMENTS_READ", true, user, LocalDateTime.now()));
+        apiKeyRepository.save(new ApiKey("key-2", "old", "hash-2", "PAYMENTS_READ", false, user, LocalDateTime.now()));
+    }
+
+    @Test
+    void testFindAllActiveWithUser() {
+        List<ApiKey> apiKeys = apiKeyRepository.findAllActiveWithUser();
+
+        assertEquals(1, apiKeys.size());
+        assertEquals("key-1", apiKeys.get(0).getId());
+        assertEquals("johnnie@gmail.com", apiKeys.get(0).getUser().getEmail());
+    }
+
+    @Test
+    void testFindByIdAndUserId() {
+        assertTrue(apiKeyRepository.findByIdAndUserId("key-1", USER_ID).isPresent());
+        assertTrue(apiKeyRepository.findByIdAndUserId("key-1", OTHER_USER_ID).isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.domain.IdempotencyKey;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class IdempotencyKeyRepositoryTest {
+
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+    private static final String TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000001";
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User(USER_ID, "Harry", "harry@gmail.com", "password123");
+        userRepository.save(user);
+        Transaction transaction = new Transaction(TRANSACTION_ID, new BigDecimal("100.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+        transactionRepository.save(transaction);
+        idempotencyKeyRepository.save(new IdempotencyKey("recent", "hash", transaction, LocalDateTime.now()));
+        idempotencyKeyRepository.save(new IdempotencyKey("old", "hash", transaction, LocalDateTime.now().minusDays(2)));
+    }
+
+    @Test
+    void testFindByIdReturnsTransaction() {
+        Optional<IdempotencyKey> idempotencyKey = idempotencyKeyRepository.findById("recent");
+
+        assertTrue(idempotencyKey.isPresent());
+        assertEquals(TRANSACTION_ID, idempotencyKey.get().getTransaction().getId());
+        assertEquals("harry@gmail.com", idempotencyKey.get().getTransaction().getUser().getEmail());
+    }
+
+    @Test
+    void testDeleteAllCreatedBefore() {
+        int deleted = idempotencyKeyRepository.deleteAllCreatedBefore(LocalDateTime.now().minusDays(1));
+
+        assertEquals(1, deleted);
+        assertTrue(idempotencyKeyRepository.findById("old").isEmpty());
+        assertTrue(idempotencyKeyRepository.findById("recent").isPresent());
+    }
+}
@@ -0,0 +1,101 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.domain.PaymentSummary;
+import com.hitpixel.payment.domain.PaymentSummaryKey;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class PaymentSummaryRepositoryTest {
+
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+    private static final String OTHER_USER_ID = "01890a5d-ac96-7b3c-8000-000000000002";
+
+    @Autowired
+    private PaymentSummaryRepository paymentSummaryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private PaymentSummaryKey usdSuccess;
+    private PaymentSummaryKey eurFail;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.save(new User(USER_ID, "Harry", "harry@gmail.com", "password123"));
+        userRepository.save(new User(OTHER_USER_ID, "Gandalf", "gandalf@gmail.com", "password456"));
+        usdSuccess = new PaymentSummaryKey(USER_ID, Currency.USD, PaymentStatus.SUCCESS, PaymentMethod.CREDIT_CARD);
+        eurFail = new PaymentSummaryKey(USER_ID, Currency.EUR, PaymentStatus.FAIL, PaymentMethod.PAY_PAL);
+        paymentSummaryRepository.saveAll(List.of(
+                new PaymentSummary(eurFail, 0, BigDecimal.ZERO, BigDecimal.ZERO),
+                new PaymentSummary(usdSuccess, 0, BigDecimal.ZERO, BigDecimal.ZERO),
+                new PaymentSummary(new PaymentSummaryKey(OTHER_USER_ID, Currency.USD, PaymentStatus.SUCCESS, PaymentMethod.CREDIT_CARD),
+                        1, BigDecimal.TEN, BigDecimal.ZERO)));
+        paymentSummaryRepository.flush();
+    }
+
+    @Test
+    void testAddUpdatesTotalsOfKey() {
+        assertEquals(1, paymentSummaryRepository.add(usdSuccess, 2, new BigDecimal("300.00"), BigDecimal.ZERO));
+        assertEquals(1, paymentSummaryRepository.add(usdSuccess, 0, BigDecimal.ZERO, new BigDecimal("25.00")));
+        assertEquals(1, paymentSummaryRepository.add(usdSuccess, -1, new BigDecimal("-100.00"), BigDecimal.ZERO));
+
+        entityManager.clear();
+        PaymentSummary summary = paymentSummaryRepository.findById(usdSuccess).orElseThrow();
+        assertEquals(1, summary.getTransactionCount());
+        assertEquals(0, new BigDecimal("200.00").compareTo(summary.getAmount()));
+        assertEquals(0, new BigDecimal("25.00").compareTo(summary.getRefundedAmount()));
+    }
+
+    @Test
+    void testAddOfMissingKeyUpdatesNothing() {
+        PaymentSummaryKey missing = new PaymentSummaryKey(USER_ID, Currency.INR, PaymentStatus.PENDING, PaymentMethod.PAY_PAL);
+
+        assertEquals(0, paymentSummaryRepository.add(missing, 1, BigDecimal.ONE, BigDecimal.ZERO));
+    }
+
+    @Test
+    void testFindSummaryByUserIdLeavesOutEmptyTotals() {
+        paymentSummaryRepository.add(eurFail, 1, new BigDecimal("50.00"), BigDecimal.ZERO);
+        paymentSummaryRepository.add(usdSuccess, 2, new BigDecimal("300.00"), new BigDecimal("20.00"));
+
+        List<PaymentSummaryView> summary = paymentSummaryRepository.findSummaryByUserId(USER_ID);
+
+        assertEquals(2, summary.size());
+        assertEquals(Currency.USD, summary.get(0).currency());
+        assertEquals(PaymentStatus.SUCCESS, summary.get(0).status());
+        assertEquals(PaymentMethod.CREDIT_CARD, summary.get(0).paymentMethod());
+        assertEquals(2, summary.get(0).count());
+        assertEquals(0, new BigDecimal("300.00").compareTo(summary.get(0).amount()));
+        assertEquals(0, new BigDecimal("20.00").compareTo(summary.get(0).refundedAmount()));
+        assertEquals(Currency.EUR, summary.get(1).currency());
+        assertEquals(PaymentStatus.FAIL, summary.get(1).status());
+        paymentSummaryRepository.add(eurFail, -1, new BigDecimal("-50.00"), BigDecimal.ZERO);
+        assertEquals(1, paymentSummaryRepository.findSummaryByUserId(USER_ID).size());
+    }
+
+    @Test
+    void testFindAndLockAllByUserIdReadsTotalsInKeyOrder() {
+        List<PaymentSummary> summaries = paymentSummaryRepository.findAndLockAllByUserId(USER_ID);
+
+        assertEquals(List.of(usdSuccess, eurFail), summaries.stream().map(PaymentSummary::getId).toList());
+        assertEquals(2, paymentSummaryRepository.findAllByUserId(USER_ID).size());
+        assertFalse(summaries.get(0).isNew());
+    }
+}
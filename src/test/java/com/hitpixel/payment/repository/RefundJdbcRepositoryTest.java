@@ -0,0 +1,124 @@
+package com.hitpixel.payment.repository;
+
+import com.hitpixel.payment.config.PersistenceConfig;
+import com.hitpixel.payment.domain.Refund;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({PersistenceConfig.class, RefundJdbcRepository.class})
+class RefundJdbcRepositoryTest {
+
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+    private static final String TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000001";
+    private static final String PENDING_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000002";
+    private static final String FAILED_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000003";
+    private static final String UNKNOWN_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-0000000000ff";
+    private static final String REFUND_ID = "01890a5d-ac98-7b3c-8000-000000000001";
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private RefundJdbcRepository refundJdbcRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User(USER_ID, "Harry", "harry@gmail.com", "password123"));
+        transactionRepository.save(new Transaction(TRANSACTION_ID, new BigDecimal("100.00"), PaymentMethod.CREDIT_CARD, Currency.USD,
+                user, PaymentStatus.SUCCESS, TIMESTAMP));
+        transactionRepository.save(new Transaction(PENDING_TRANSACTION_ID, new BigDecimal("50.00"), PaymentMethod.CREDIT_CARD, Currency.USD,
+                user, PaymentStatus.PENDING, TIMESTAMP));
+        transactionRepository.save(new Transaction(FAILED_TRANSACTION_ID, new BigDecimal("50.00"), PaymentMethod.CREDIT_CARD, Currency.USD,
+                user, PaymentStatus.FAIL, TIMESTAMP));
+        transactionRepository.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testFindTransactionByIdReadsRow() {
+        Transaction transaction = refundJdbcRepository.findTransactionById(TRANSACTION_ID).orElseThrow();
+
+        assertEquals(TRANSACTION_ID, transaction.getId());
+        assertEquals(0, new BigDecimal("100.00").compareTo(transaction.getAmount()));
+        assertEquals(PaymentMethod.CREDIT_CARD, transaction.getPaymentMethod());
+        assertEquals(Currency.USD, transaction.getCurrency());
+        assertEquals(PaymentStatus.SUCCESS, transaction.getStatus());
+        assertEquals(TIMESTAMP, transaction.getTransactionTimestamp());
+        assertEquals(0, BigDecimal.ZERO.compareTo(transaction.getRefundedAmount()));
+        assertEquals(USER_ID, transaction.getUser().getId());
+        assertFalse(transaction.isNew());
+        assertTrue(refundJdbcRepository.findTransactionById(UNKNOWN_TRANSACTION_ID).isEmpty());
+    }
+
+    @Test
+    void testAddRefundKeepsRefundedTotalWithinAmount() {
+        assertEquals(1, refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("30.00")));
+        assertEquals(0, refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("70.01")));
+        assertEquals(0, refundJdbcRepository.addRefund(UNKNOWN_TRANSACTION_ID, new BigDecimal("1.00")));
+
+        Transaction partiallyRefunded = refundJdbcRepository.findTransactionById(TRANSACTION_ID).orElseThrow();
+        assertEquals(PaymentStatus.SUCCESS, partiallyRefunded.getStatus());
+        assertEquals(0, new BigDecimal("30.00").compareTo(partiallyRefunded.getRefundedAmount()));
+
+        assertEquals(1, refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("70.00")));
+        assertEquals(0, refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("0.01")));
+
+        Transaction refunded = refundJdbcRepository.findTransactionById(TRANSACTION_ID).orElseThrow();
+        assertEquals(PaymentStatus.REFUNDED, refunded.getStatus());
+        assertEquals(0, new BigDecimal("100.00").compareTo(refunded.getRefundedAmount()));
+    }
+
+    @Test
+    void testAddRefundOnlyAppliesToSuccessfulTransactions() {
+        assertEquals(0, refundJdbcRepository.addRefund(PENDING_TRANSACTION_ID, new BigDecimal("30.00")));
+        assertEquals(0, refundJdbcRepository.addRefund(FAILED_TRANSACTION_ID, new BigDecimal("50.00")));
+
+        Transaction pending = refundJdbcRepository.findTransactionById(PENDING_TRANSACTION_ID).orElseThrow();
+        assertEquals(PaymentStatus.PENDING, pending.getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(pending.getRefundedAmount()));
+        Transaction failed = refundJdbcRepository.findTransactionById(FAILED_TRANSACTION_ID).orElseThrow();
+        assertEquals(PaymentStatus.FAIL, failed.getStatus());
+        assertEquals(0, BigDecimal.ZERO.compareTo(failed.getRefundedAmount()));
+    }
+
+    @Test
+    void testInsertWritesRefundOfTransaction() {
+        Transaction transaction = refundJdbcRepository.findTransactionById(TRANSACTION_ID).orElseThrow();
+
+        refundJdbcRepository.insert(new Refund(REFUND_ID, transaction, new BigDecimal("25.00"), TIMESTAMP));
+
+        Refund refund = entityManager.find(Refund.class, REFUND_ID);
+        assertEquals(TRANSACTION_ID, refund.getTransaction().getId());
+        assertEquals(0, new BigDecimal("25.00").compareTo(refund.getAmount()));
+        assertEquals(TIMESTAMP, refund.getRefundTimestamp());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refunds WHERE transaction_id = ?",
+                Integer.class, UUID.fromString(TRANSACTION_ID)));
+    }
+}
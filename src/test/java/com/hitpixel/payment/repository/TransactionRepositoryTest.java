@@ -1,27 +1,55 @@
 package com.hitpixel.payment.repository;
 
+import com.hitpixel.payment.config.PersistenceConfig;
 import com.hitpixel.payment.domain.Transaction;
 import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.dto.TransactionView;
 import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentStatus;
 import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.security.EphemeralSigningKeyProvider;
+import com.hitpixel.payment.security.VerifiedToken;
+import com.hitpixel.payment.security.VerifiedTokenCache;
+import com.hitpixel.payment.service.JWTService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(PersistenceConfig.class)
 class TransactionRepositoryTest {
 
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+    private static final String OTHER_USER_ID = "01890a5d-ac96-7b3c-8000-000000000002";
+    private static final String TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000001";
+    private static final String SECOND_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000002";
+    private static final String THIRD_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000003";
+    private static final String FOURTH_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000004";
+    private static final String FIFTH_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000005";
+    private static final String UNKNOWN_USER_ID = "01890a5d-ac96-7b3c-8000-0000000000ff";
+
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -29,11 +57,11 @@ class TransactionRepositoryTest {
 
     @BeforeEach
     void setUp() {
-        user = new User("1", "Harry", "harry@gmail.com", "password123");
+        user = new User(USER_ID, "Harry", "harry@gmail.com", "password123");
         userRepository.save(user);
 
-        Transaction transaction1 = new Transaction("T1", new BigDecimal("100.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
-        Transaction transaction2 = new Transaction("T2", new BigDecimal("200.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+        Transaction transaction1 = new Transaction(TRANSACTION_ID, new BigDecimal("100.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+        Transaction transaction2 = new Transaction(SECOND_TRANSACTION_ID, new BigDecimal("200.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
         transactionRepository.save(transaction1);
         transactionRepository.save(transaction2);
     }
@@ -44,13 +72,13 @@ class TransactionRepositoryTest {
 
         assertNotNull(transactions);
         assertEquals(2, transactions.size()); // Two transactions should be found for this user
-        assertTrue(transactions.stream().anyMatch(transaction -> transaction.getId().equals("T1")));
-        assertTrue(transactions.stream().anyMatch(transaction -> transaction.getId().equals("T2")));
+        assertTrue(transactions.stream().anyMatch(transaction -> transaction.getId().equals(TRANSACTION_ID)));
+        assertTrue(transactions.stream().anyMatch(transaction -> transaction.getId().equals(SECOND_TRANSACTION_ID)));
     }
 
     @Test
     void testFindAllByUserIdNoTransactions() {
-        User newUser = new User("2", "Gandalf", "gandalf@gmail.com", "password456");
+        User newUser = new User(OTHER_USER_ID, "Gandalf", "gandalf@gmail.com", "password456");
         userRepository.save(newUser);
 
         List<Transaction> transactions = transactionRepository.findAllByUserId(newUser.getId());
@@ -61,7 +89,7 @@ class TransactionRepositoryTest {
 
     @Test
     void testFindAllByUserIdWithNonExistentUser() {
-        List<Transaction> transactions = transactionRepository.findAllByUserId("abc");
+        List<Transaction> transactions = transactionRepository.findAllByUserId(UNKNOWN_USER_ID);
 
         assertNotNull(transactions);
         assertTrue(transactions.isEmpty());
@@ -69,13 +97,165 @@ class TransactionRepositoryTest {
 
     @Test
     void testSaveAndRetrieveTransaction() {
-        Transaction newTransaction = new Transaction("T3", new BigDecimal("50.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+        Transaction newTransaction = new Transaction(THIRD_TRANSACTION_ID, new BigDecimal("50.00"), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
         transactionRepository.save(newTransaction);
 
         List<Transaction> transactions = transactionRepository.findAllByUserId(user.getId());
 
         assertNotNull(transactions);
         assertEquals(3, transactions.size());
-        assertTrue(transactions.stream().anyMatch(transaction -> transaction.getId().equals("T3")));
+        assertTrue(transactions.stream().anyMatch(transaction -> transaction.getId().equals(THIRD_TRANSACTION_ID)));
+    }
+
+    @Test
+    void testSaveNewTransactionIsSingleInsert() {
+        entityManager.flush();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transactionRepository.save(new Transaction(FOURTH_TRANSACTION_ID, new BigDecimal("75.00"), PaymentMethod.PAY_PAL, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now()));
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testSaveTransactionOfUserFromJWTIsSingleInsert() {
+        entityManager.flush();
+        entityManager.clear();
+        JWTService jwtService = new JWTService(new VerifiedTokenCache(100, new SimpleMeterRegistry()), new EphemeralSigningKeyProvider());
+        User claimsUser = jwtService.getUserClaim(new VerifiedToken(USER_ID, "Harry", "harry@gmail.com", null, null));
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        transactionRepository.save(new Transaction(FOURTH_TRANSACTION_ID, new BigDecimal("75.00"), PaymentMethod.PAY_PAL, Currency.USD, claimsUser, PaymentStatus.SUCCESS, LocalDateTime.now()));
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testLoadedTransactionIsNotNew() {
+        entityManager.flush();
+        entityManager.clear();
+
+        Transaction transaction = transactionRepository.findById(TRANSACTION_ID).orElseThrow();
+
+        assertFalse(transaction.isNew());
+    }
+
+    @Test
+    void testUpdateStatusOnlyUpdatesExpectedStatus() {
+        assertEquals(0, transactionRepository.updateStatus(TRANSACTION_ID, PaymentStatus.PENDING, PaymentStatus.FAIL));
+        assertEquals(1, transactionRepository.updateStatus(TRANSACTION_ID, PaymentStatus.SUCCESS, PaymentStatus.REFUNDED));
+
+        entityManager.clear();
+        assertEquals(PaymentStatus.REFUNDED, transactionRepository.findById(TRANSACTION_ID).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testSummarizeByUserIdTotalsByCurrencyStatusAndMethod() {
+        transactionRepository.save(new Transaction(THIRD_TRANSACTION_ID, new BigDecimal("50.00"), PaymentMethod.PAY_PAL, Currency.EUR,
+                user, PaymentStatus.FAIL, LocalDateTime.now()));
+        Transaction partiallyRefunded = transactionRepository.findById(SECOND_TRANSACTION_ID).orElseThrow();
+        partiallyRefunded.setRefundedAmount(new BigDecimal("20.00"));
+        transactionRepository.saveAndFlush(partiallyRefunded);
+
+        List<PaymentSummaryView> summary = transactionRepository.summarizeByUserId(USER_ID);
+
+        assertEquals(2, summary.size());
+        PaymentSummaryView success = summary.stream().filter(totals -> totals.status() == PaymentStatus.SUCCESS).findFirst().orElseThrow();
+        assertEquals(Currency.USD, success.currency());
+        assertEquals(PaymentMethod.CREDIT_CARD, success.paymentMethod());
+        assertEquals(2, success.count());
+        assertEquals(0, new BigDecimal("300.00").compareTo(success.amount()));
+        assertEquals(0, new BigDecimal("20.00").compareTo(success.refundedAmount()));
+        PaymentSummaryView fail = summary.stream().filter(totals -> totals.status() == PaymentStatus.FAIL).findFirst().orElseThrow();
+        assertEquals(Currency.EUR, fail.currency());
+        assertEquals(PaymentMethod.PAY_PAL, fail.paymentMethod());
+        assertEquals(1, fail.count());
+        assertTrue(transactionRepository.summarizeByUserId(OTHER_USER_ID).isEmpty());
+    }
+
+    @Test
+    void testFindHistoryPagesNewestFirstAcrossEqualTimestamps() {
+        LocalDateTime now = LocalDateTime.of(2026, 1, 1, 12, 0);
+        User other = userRepository.save(new User(OTHER_USER_ID, "Gandalf", "gandalf@gmail.com", "password456"));
+        saveTransaction(THIRD_TRANSACTION_ID, other, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, now.minusMinutes(1));
+        saveTransaction(FOURTH_TRANSACTION_ID, other, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, now);
+        saveTransaction(FIFTH_TRANSACTION_ID, other, PaymentMethod.PAY_PAL, Currency.EUR, PaymentStatus.FAIL, now);
+
+        List<TransactionView> first = transactionRepository.findHistory(OTHER_USER_ID, null, null, null, null, null, null, null, Limit.of(2));
+        TransactionView last = first.get(first.size() - 1);
+        List<TransactionView> second = transactionRepository.findHistory(OTHER_USER_ID, null, null, null, null, null,
+                last.transactionTimestamp(), last.id(), Limit.of(2));
+
+        assertEquals(List.of(FIFTH_TRANSACTION_ID, FOURTH_TRANSACTION_ID), ids(first));
+        assertEquals(List.of(THIRD_TRANSACTION_ID), ids(second));
+    }
+
+    @Test
+    void testFindHistoryFilters() {
+        LocalDateTime day = LocalDateTime.of(2026, 1, 1, 12, 0);
+        LocalDateTime to = day.plusDays(1);
+        saveTransaction(THIRD_TRANSACTION_ID, user, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, day.minusDays(1));
+        saveTransaction(FOURTH_TRANSACTION_ID, user, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, day);
+        saveTransaction(FIFTH_TRANSACTION_ID, user, PaymentMethod.PAY_PAL, Currency.EUR, PaymentStatus.FAIL, day);
+
+        assertEquals(List.of(FOURTH_TRANSACTION_ID),
+                ids(transactionRepository.findHistory(USER_ID, day, to, PaymentStatus.SUCCESS, Currency.USD, null, null, null, Limit.of(10))));
+        assertEquals(List.of(FIFTH_TRANSACTION_ID),
+                ids(transactionRepository.findHistory(USER_ID, null, null, null, Currency.EUR, PaymentMethod.PAY_PAL, null, null, Limit.of(10))));
+        assertEquals(List.of(THIRD_TRANSACTION_ID),
+                ids(transactionRepository.findHistory(USER_ID, day.minusDays(2), day, null, null, null, null, null, Limit.of(10))));
+    }
+
+    @Test
+    void testStreamHistoryReadsViewsWithoutLoadingEntities() {
+        LocalDateTime day = LocalDateTime.of(2026, 1, 1, 12, 0);
+        saveTransaction(THIRD_TRANSACTION_ID, user, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, day.minusDays(1));
+        saveTransaction(FOURTH_TRANSACTION_ID, user, PaymentMethod.PAY_PAL, Currency.EUR, PaymentStatus.FAIL, day);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<TransactionView> transactions;
+        try(Stream<TransactionView> stream = transactionRepository.streamHistory(USER_ID, day.minusDays(2), day.plusDays(1), null, null, null)) {
+            transactions = stream.toList();
+        }
+
+        assertEquals(List.of(FOURTH_TRANSACTION_ID, THIRD_TRANSACTION_ID), ids(transactions));
+        assertEquals(new TransactionView(FOURTH_TRANSACTION_ID, new BigDecimal("1.0000"), PaymentMethod.PAY_PAL, Currency.EUR, PaymentStatus.FAIL, day),
+                transactions.get(0));
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testFindHistoryAndStatusDoNotLoadEntities() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<TransactionView> transactions = transactionRepository.findHistory(USER_ID, null, null, null, null, null, null, null, Limit.of(10));
+
+        assertEquals(2, transactions.size());
+        assertEquals(new TransactionStatusView(USER_ID, PaymentStatus.SUCCESS), transactionRepository.findStatusById(TRANSACTION_ID).orElseThrow());
+        assertTrue(transactionRepository.findStatusById(UNKNOWN_USER_ID).isEmpty());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    private void saveTransaction(String id, User owner, PaymentMethod paymentMethod, Currency currency, PaymentStatus status, LocalDateTime timestamp) {
+        transactionRepository.save(new Transaction(id, BigDecimal.ONE, paymentMethod, currency, owner, status, timestamp));
+    }
+
+    private List<String> ids(List<TransactionView> transactions) {
+        return transactions.stream().map(TransactionView::id).toList();
     }
 }
@@ -1,6 +1,9 @@
 package com.hitpixel.payment.repository;
 
 import com.hitpixel.payment.domain.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,17 +13,23 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class UserRepositoryTest {
 
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+    private static final String OTHER_USER_ID = "01890a5d-ac96-7b3c-8000-000000000002";
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private User user;
 
     @BeforeEach
     void setUp() {
-        user = new User("1", "Johnnie", "johnnie@gmail.com", "12345678");
+        user = new User(USER_ID, "Johnnie", "johnnie@gmail.com", "12345678");
         userRepository.save(user);
     }
 
@@ -64,11 +73,25 @@ class UserRepositoryTest {
 
     @Test
     void testSaveAndRetrieveUser() {
-        User newUser = new User("2", "Jane", "jane@gmail.com", "password123");
+        User newUser = new User(OTHER_USER_ID, "Jane", "jane@gmail.com", "password123");
         userRepository.save(newUser);
 
         Optional<User> retrievedUser = userRepository.findByEmail("jane@gmail.com");
         assertTrue(retrievedUser.isPresent());
         assertEquals("Jane", retrievedUser.get().getName());
     }
+
+    @Test
+    void testSaveNewUserIsSingleInsert() {
+        entityManager.flush();
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        userRepository.save(new User(OTHER_USER_ID, "Arya", "arya@gmail.com", "12345678"));
+        entityManager.flush();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
 }
@@ -0,0 +1,62 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.ApiKeyAuthenticationToken;
+import com.hitpixel.payment.dto.AuthenticationToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ApiKeyAuthenticationProviderTest {
+
+    @Mock
+    private ApiKeyIndex apiKeyIndex;
+
+    @InjectMocks
+    private ApiKeyAuthenticationProvider apiKeyAuthenticationProvider;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testAuthenticateWithKnownKey() {
+        User user = new User("1", "Tyrion Lannister", "tyrion@gmail.com", null);
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("SCOPE_PAYMENTS_READ"));
+        when(apiKeyIndex.find("pk_secret")).thenReturn(new ApiKeyIndex.ApiKeyPrincipal("key-1", user, authorities));
+
+        Authentication result = apiKeyAuthenticationProvider.authenticate(new ApiKeyAuthenticationToken("pk_secret"));
+
+        assertTrue(result.isAuthenticated());
+        assertEquals(user, ((ApiKeyAuthenticationToken) result).getUser());
+        assertEquals(authorities, List.copyOf(result.getAuthorities()));
+        assertNull(result.getCredentials());
+    }
+
+    @Test
+    void testAuthenticateWithUnknownKey() {
+        ApiKeyAuthenticationToken apiKeyAuthenticationToken = new ApiKeyAuthenticationToken("pk_unknown");
+
+        BadCredentialsException exception = assertThrows(BadCredentialsException.class,
+                () -> apiKeyAuthenticationProvider.authenticate(apiKeyAuthenticationToken));
+        assertEquals("API key not valid", exception.getMessage());
+    }
+
+    @Test
+    void testSupports() {
+        assertTrue(apiKeyAuthenticationProvider.supports(ApiKeyAuthenticationToken.class));
+        assertFalse(apiKeyAuthenticationProvider.supports(AuthenticationToken.class));
+    }
+}
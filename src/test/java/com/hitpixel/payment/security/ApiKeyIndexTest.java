@@ -0,0 +1,73 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.domain.ApiKey;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.repository.ApiKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ApiKeyIndexTest {
+
+    @Mock
+    private ApiKeyRepository apiKeyRepository;
+
+    @InjectMocks
+    private ApiKeyIndex apiKeyIndex;
+
+    private User user;
+    private ApiKey apiKey;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        user = new User("1", "Tyrion Lannister", "tyrion@gmail.com", "{bcrypt}hash");
+        apiKey = new ApiKey("key-1", "billing", TokenDigests.sha256("pk_secret"), "PAYMENTS_READ,PAYMENTS_WRITE",
+                true, user, LocalDateTime.now());
+    }
+
+    @Test
+    void testReloadIndexesActiveKeys() {
+        when(apiKeyRepository.findAllActiveWithUser()).thenReturn(List.of(apiKey));
+
+        apiKeyIndex.reload();
+        ApiKeyIndex.ApiKeyPrincipal principal = apiKeyIndex.find("pk_secret");
+
+        assertNotNull(principal);
+        assertEquals("key-1", principal.keyId());
+        assertEquals("1", principal.user().getId());
+        assertEquals("tyrion@gmail.com", principal.user().getEmail());
+        assertNull(principal.user().getPassword());
+        assertEquals(List.of("SCOPE_PAYMENTS_READ", "SCOPE_PAYMENTS_WRITE"),
+                principal.authorities().stream().map(authority -> authority.getAuthority()).toList());
+        assertNull(apiKeyIndex.find("pk_other"));
+    }
+
+    @Test
+    void testPutAndRemove() {
+        apiKeyIndex.put(apiKey);
+        assertNotNull(apiKeyIndex.find("pk_secret"));
+
+        apiKeyIndex.remove(apiKey.getKeyHash());
+        assertNull(apiKeyIndex.find("pk_secret"));
+        assertEquals(0, apiKeyIndex.size());
+    }
+
+    @Test
+    void testReloadDropsRevokedKeys() {
+        apiKeyIndex.put(apiKey);
+        when(apiKeyRepository.findAllActiveWithUser()).thenReturn(List.of());
+
+        apiKeyIndex.reload();
+
+        assertNull(apiKeyIndex.find("pk_secret"));
+    }
+}
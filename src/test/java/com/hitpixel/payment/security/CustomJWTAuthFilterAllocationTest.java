@@ -0,0 +1,113 @@
+package com.hitpixel.payment.security;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.hitpixel.payment.exception.JWTFailureException;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+    Allocation benchmark for the filter fast path. It measures the bytes allocated by the current thread per
+    request once the JIT has warmed up, logging of the filter is switched off so only the filter itself is measured. The bytes depend on the JVM, so it
+    runs with mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+class CustomJWTAuthFilterAllocationTest {
+
+    private static final int WARM_UP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+    private static final long MAX_BYTES_PER_AUTHENTICATED_REQUEST = 1024;
+    private static final long MAX_BYTES_PER_REJECTED_REQUEST = 4096;
+
+    private static final JWTFailureException INVALID_JWT = new JWTFailureException("JWT not valid");
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final Logger filterLogger = (Logger) LoggerFactory.getLogger(CustomJWTAuthFilter.class);
+
+    private Level filterLogLevel;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        filterLogLevel = filterLogger.getLevel();
+        filterLogger.setLevel(Level.OFF);
+        request = new MockHttpServletRequest();
+        request.setServletPath("/api/payments/history");
+        response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void tearDown() {
+        filterLogger.setLevel(filterLogLevel);
+        SecurityContextHolder.clearContext();
+    }
+
+    private long bytesPerRequest(CustomJWTAuthFilter filter) throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            runOnce(filter);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            runOnce(filter);
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+    }
+
+    private void runOnce(CustomJWTAuthFilter filter) throws Exception {
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+        response.reset();
+    }
+
+    @Test
+    void testAuthenticatedRequestAllocatesBoundedBytes() throws Exception {
+        request.addHeader("Authorization", "Bearer valid-jwt-token");
+        AuthenticationManager authenticationManager = authentication -> {
+            authentication.setAuthenticated(true);
+            return authentication;
+        };
+
+        long bytes = bytesPerRequest(new CustomJWTAuthFilter(authenticationManager));
+
+        assertTrue(bytes < MAX_BYTES_PER_AUTHENTICATED_REQUEST, "authenticated request allocated " + bytes + " bytes");
+    }
+
+    @Test
+    void testRejectedRequestAllocatesBoundedBytes() throws Exception {
+        request.addHeader("Authorization", "Bearer invalid-jwt-token");
+        AuthenticationManager authenticationManager = authentication -> {
+            throw INVALID_JWT;
+        };
+
+        long bytes = bytesPerRequest(new CustomJWTAuthFilter(authenticationManager));
+
+        assertTrue(bytes < MAX_BYTES_PER_REJECTED_REQUEST, "rejected request allocated " + bytes + " bytes");
+    }
+
+    @Test
+    void testMissingTokenAllocatesBoundedBytes() throws Exception {
+        AuthenticationManager authenticationManager = authentication -> {
+            throw new IllegalStateException("authentication must not be attempted without a token");
+        };
+
+        long bytes = bytesPerRequest(new CustomJWTAuthFilter(authenticationManager));
+
+        assertTrue(bytes < MAX_BYTES_PER_REJECTED_REQUEST, "request without token allocated " + bytes + " bytes");
+    }
+}
@@ -1,6 +1,10 @@
 package com.hitpixel.payment.security;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hitpixel.payment.dto.ApiKeyAuthenticationToken;
 import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.dto.ErrorDetails;
 import com.hitpixel.payment.exception.JWTFailureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -16,6 +20,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -36,6 +41,7 @@ class CustomJWTAuthFilterTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        SecurityContextHolder.clearContext();
         request = new MockHttpServletRequest();
         request.setServletPath("/api/payments");
         response = new MockHttpServletResponse();
@@ -90,4 +96,59 @@ class CustomJWTAuthFilterTest {
         verify(authenticationManager, times(1)).authenticate(authenticationToken);
         verify(filterChain, times(0)).doFilter(request, response);
     }
+
+    @Test
+    void testDoFilterInternalWritesErrorDetailsOnUnauthorized() throws ServletException, IOException {
+        String token = "invalid-jwt-token";
+        request.addHeader("Authorization", "Bearer " + token);
+        when(authenticationManager.authenticate(new AuthenticationToken(token))).thenThrow(new JWTFailureException("JWT \"not\" valid"));
+
+        customJWTAuthFilter.doFilterInternal(request, response, filterChain);
+
+        ErrorDetails errorDetails = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .readValue(response.getContentAsByteArray(), ErrorDetails.class);
+        assertEquals(401, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        assertEquals("JWT \"not\" valid", errorDetails.message());
+        assertEquals(401, errorDetails.status());
+        assertEquals("UNAUTHORIZED", errorDetails.error());
+        assertNotNull(errorDetails.timestamp());
+    }
+
+    @Test
+    void testDoFilterInternalWithApiKey() throws ServletException, IOException {
+        request.addHeader("X-API-Key", "pk_secret");
+        Authentication authenticated = new ApiKeyAuthenticationToken(null, List.of());
+        when(authenticationManager.authenticate(isA(ApiKeyAuthenticationToken.class))).thenReturn(authenticated);
+
+        customJWTAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertSame(authenticated, SecurityContextHolder.getContext().getAuthentication());
+        verify(authenticationManager, times(1)).authenticate(argThat(authentication ->
+                authentication instanceof ApiKeyAuthenticationToken && "pk_secret".equals(authentication.getCredentials())));
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void testDoFilterInternalIgnoresApiKeyOutsidePaymentApis() throws ServletException, IOException {
+        request.setServletPath("/api/api-keys");
+        request.addHeader("X-API-Key", "pk_secret");
+
+        customJWTAuthFilter.doFilterInternal(request, response, filterChain);
+
+        assertEquals(401, response.getStatus());
+        verifyNoInteractions(authenticationManager);
+        verify(filterChain, times(0)).doFilter(request, response);
+    }
+
+    @Test
+    void testDoFilterInternalSkipsUnprotectedPaths() throws ServletException, IOException {
+        request.setServletPath("/api/users/login");
+
+        customJWTAuthFilter.doFilterInternal(request, response, filterChain);
+
+        verifyNoInteractions(authenticationManager);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
 }
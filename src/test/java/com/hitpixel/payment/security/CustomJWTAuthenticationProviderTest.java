@@ -2,11 +2,12 @@ package com.hitpixel.payment.security;
 
 import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.dto.AuthenticationToken;
+import com.hitpixel.payment.exception.JWTFailureException;
 import com.hitpixel.payment.service.JWTService;
 import com.hitpixel.payment.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -23,47 +24,91 @@ class CustomJWTAuthenticationProviderTest {
     @Mock
     private UserService userService;
 
-    @InjectMocks
+    private RevokedTokenStore revokedTokenStore;
+
     private CustomJWTAuthenticationProvider customJWTAuthenticationProvider;
 
     private AuthenticationToken authenticationToken;
     private String token;
     private User user;
+    private VerifiedToken claims;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        revokedTokenStore = new RevokedTokenStore(1000, 0, 0.01, new SimpleMeterRegistry());
+        customJWTAuthenticationProvider = new CustomJWTAuthenticationProvider(jwtService, userService, revokedTokenStore, true);
 
         token = "random-jwt-token-ewhfiuwhuiwhifuhauifhuwhfur4r8438u83u5983u9t34t93utaofjoifjsfjwjf8983u93u98u893uf89u89u89uw";
         user = new User("1", "Geoffrey", "geoffrey@gmail.com", "password123");
         authenticationToken = new AuthenticationToken(token);
+        claims = new VerifiedToken(null, null, "geoffrey@gmail.com", null, null);
+    }
+
+    @Test
+    void testAuthenticateWithStatelessToken() {
+        User principal = new User("1", "Geoffrey", "geoffrey@gmail.com", null);
+        when(jwtService.extractJWTClaims(token)).thenReturn(claims);
+        when(jwtService.getUserClaim(claims)).thenReturn(principal);
+        when(jwtService.validateJWT(claims)).thenReturn(true);
+
+        AuthenticationToken result = (AuthenticationToken) customJWTAuthenticationProvider.authenticate(authenticationToken);
+
+        assertNotNull(result);
+        assertTrue(result.isAuthenticated());
+        assertEquals(principal, result.getUser());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void testAuthenticateWithRevokedToken() {
+        revokedTokenStore.revoke("token-id", System.currentTimeMillis() + 60_000);
+        when(jwtService.extractJWTClaims(token)).thenReturn(claims);
+        when(jwtService.getTokenId(claims, token)).thenReturn("token-id");
+
+        JWTFailureException exception = assertThrows(JWTFailureException.class,
+                () -> customJWTAuthenticationProvider.authenticate(authenticationToken));
+        assertEquals("JWT has been revoked", exception.getMessage());
+        assertFalse(authenticationToken.isAuthenticated());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void testAuthenticateWithLegacyTokenWhenLegacyTokensAreNotAccepted() {
+        customJWTAuthenticationProvider = new CustomJWTAuthenticationProvider(jwtService, userService, revokedTokenStore, false);
+        when(jwtService.extractJWTClaims(token)).thenReturn(claims);
+
+        assertThrows(JWTFailureException.class, () -> customJWTAuthenticationProvider.authenticate(authenticationToken));
+        verifyNoInteractions(userService);
     }
 
     @Test
     void testAuthenticateWithValidToken() {
-        when(jwtService.getEmailClaim(token)).thenReturn("geoffrey@gmail.com");
+        when(jwtService.extractJWTClaims(token)).thenReturn(claims);
+        when(jwtService.getEmailClaim(claims)).thenReturn("geoffrey@gmail.com");
         when(userService.findUserByEmail("geoffrey@gmail.com")).thenReturn(user);
-        when(jwtService.validateJWT(token)).thenReturn(true);
+        when(jwtService.validateJWT(claims)).thenReturn(true);
 
         AuthenticationToken result = (AuthenticationToken) customJWTAuthenticationProvider.authenticate(authenticationToken);
 
         assertNotNull(result);
         assertTrue(result.isAuthenticated());
         assertEquals(user, result.getUser());
-        verify(jwtService, times(1)).getEmailClaim(token);
+        verify(jwtService, times(1)).extractJWTClaims(token);
         verify(userService, times(1)).findUserByEmail("geoffrey@gmail.com");
     }
 
     @Test
     void testAuthenticateWithInvalidToken() {
-        when(jwtService.getEmailClaim(token)).thenReturn("geoffrey@gmail.com");
+        when(jwtService.extractJWTClaims(token)).thenReturn(claims);
+        when(jwtService.getEmailClaim(claims)).thenReturn("geoffrey@gmail.com");
         when(userService.findUserByEmail("geoffrey@gmail.com")).thenReturn(user);
-        when(jwtService.validateJWT(token)).thenReturn(false);
+        when(jwtService.validateJWT(claims)).thenReturn(false);
 
         AuthenticationToken result = (AuthenticationToken) customJWTAuthenticationProvider.authenticate(authenticationToken);
 
         assertNull(result); // Should return null since token validation failed
-        verify(jwtService, times(1)).getEmailClaim(token);
+        verify(jwtService, times(1)).extractJWTClaims(token);
         verify(userService, times(1)).findUserByEmail("geoffrey@gmail.com");
     }
 
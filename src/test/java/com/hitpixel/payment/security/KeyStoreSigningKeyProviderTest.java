@@ -0,0 +1,73 @@
+package com.hitpixel.payment.security;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.security.PublicKey;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyStoreSigningKeyProviderTest {
+
+    private static final String KEY_STORE = "classpath:keys/jwt-keys.p12";
+    private static final String VERIFIER_KEY_STORE = "classpath:keys/jwt-verifier.p12";
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    @Test
+    void testHmacSigningKey() {
+        KeyStoreSigningKeyProvider provider = new KeyStoreSigningKeyProvider(KEY_STORE, PASSWORD, "hmac-2026-01");
+
+        SigningKey signingKey = provider.getSigningKey().orElseThrow();
+
+        assertEquals("hmac-2026-01", signingKey.keyId());
+        assertEquals(SignatureAlgorithm.HS256, signingKey.algorithm());
+        assertEquals(signingKey.key(), provider.getVerificationKey("hmac-2026-01"));
+    }
+
+    @Test
+    void testAllKeysInKeyStoreVerify() {
+        KeyStoreSigningKeyProvider provider = new KeyStoreSigningKeyProvider(KEY_STORE, PASSWORD, "hmac-2026-02");
+
+        assertNotNull(provider.getVerificationKey("hmac-2026-01"));
+        assertNotNull(provider.getVerificationKey("hmac-2026-02"));
+        assertInstanceOf(PublicKey.class, provider.getVerificationKey("ec-2026"));
+        assertNull(provider.getVerificationKey("unknown"));
+    }
+
+    @Test
+    void testMissingKeyIdVerifiesWithSigningKey() {
+        KeyStoreSigningKeyProvider provider = new KeyStoreSigningKeyProvider(KEY_STORE, PASSWORD, "hmac-2026-01");
+
+        assertEquals(provider.getVerificationKey("hmac-2026-01"), provider.getVerificationKey(null));
+    }
+
+    @Test
+    void testAsymmetricSigningKey() {
+        KeyStoreSigningKeyProvider provider = new KeyStoreSigningKeyProvider(KEY_STORE, PASSWORD, "ec-2026");
+
+        assertEquals(SignatureAlgorithm.ES256, provider.getSigningKey().orElseThrow().algorithm());
+    }
+
+    @Test
+    void testVerifierOnlyKeyStore() {
+        KeyStoreSigningKeyProvider provider = new KeyStoreSigningKeyProvider(VERIFIER_KEY_STORE, PASSWORD, "");
+
+        assertTrue(provider.getSigningKey().isEmpty());
+        assertInstanceOf(PublicKey.class, provider.getVerificationKey("ec-2026"));
+    }
+
+    @Test
+    void testCertificateCannotBeSigningKey() {
+        assertThrows(IllegalStateException.class, () -> new KeyStoreSigningKeyProvider(VERIFIER_KEY_STORE, PASSWORD, "ec-2026"));
+    }
+
+    @Test
+    void testUnknownSigningKey() {
+        assertThrows(IllegalStateException.class, () -> new KeyStoreSigningKeyProvider(KEY_STORE, PASSWORD, "unknown"));
+    }
+
+    @Test
+    void testMissingKeyStore() {
+        assertThrows(IllegalStateException.class, () -> new KeyStoreSigningKeyProvider("classpath:keys/missing.p12", PASSWORD, null));
+    }
+}
@@ -0,0 +1,114 @@
+package com.hitpixel.payment.security;
+
+import com.hitpixel.payment.exception.JWTFailureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshTokenStoreTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RefreshTokenStore refreshTokenStore;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenStore = newStore(Duration.ofHours(1), "");
+    }
+
+    private RefreshTokenStore newStore(Duration idleTimeout, String storePath) {
+        return new RefreshTokenStore(idleTimeout, Duration.ofDays(1), 1000, storePath, meterRegistry);
+    }
+
+    @Test
+    void testRotateReturnsUserAndNewToken() {
+        String refreshToken = refreshTokenStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+
+        RefreshTokenStore.Rotation rotation = refreshTokenStore.rotate(refreshToken);
+
+        assertEquals("1", rotation.userId());
+        assertEquals("Jon Snow", rotation.name());
+        assertEquals("jon.snow@gmail.com", rotation.email());
+        assertNotEquals(refreshToken, rotation.refreshToken());
+        assertNotNull(refreshTokenStore.rotate(rotation.refreshToken()));
+    }
+
+    @Test
+    void testReuseRevokesWholeSession() {
+        String refreshToken = refreshTokenStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+        String rotated = refreshTokenStore.rotate(refreshToken).refreshToken();
+
+        assertThrows(JWTFailureException.class, () -> refreshTokenStore.rotate(refreshToken));
+        assertThrows(JWTFailureException.class, () -> refreshTokenStore.rotate(rotated));
+        assertEquals(1.0, meterRegistry.get("jwt.refresh.reuse").counter().count());
+    }
+
+    @Test
+    void testReuseDoesNotAffectOtherSessions() {
+        String refreshToken = refreshTokenStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+        String otherSession = refreshTokenStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+        refreshTokenStore.rotate(refreshToken);
+
+        assertThrows(JWTFailureException.class, () -> refreshTokenStore.rotate(refreshToken));
+        assertNotNull(refreshTokenStore.rotate(otherSession));
+    }
+
+    @Test
+    void testRevokeEndsSession() {
+        String refreshToken = refreshTokenStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+
+        refreshTokenStore.revoke(refreshToken);
+        refreshTokenStore.revoke("unknown");
+
+        assertThrows(JWTFailureException.class, () -> refreshTokenStore.rotate(refreshToken));
+    }
+
+    @Test
+    void testUnknownTokenRejected() {
+        JWTFailureException exception = assertThrows(JWTFailureException.class, () -> refreshTokenStore.rotate("unknown"));
+        assertEquals("Refresh token not valid", exception.getMessage());
+    }
+
+    @Test
+    void testExpiredTokenRejectedAndDropped() {
+        RefreshTokenStore shortLivedStore = newStore(Duration.ofMillis(-1), "");
+        String refreshToken = shortLivedStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+
+        assertThrows(JWTFailureException.class, () -> shortLivedStore.rotate(refreshToken));
+        assertEquals(1, shortLivedStore.expireTokens(System.currentTimeMillis() + 2_000));
+        assertEquals(0, shortLivedStore.size());
+    }
+
+    @Test
+    void testUsedTokensAreDroppedOnExpiry() {
+        String refreshToken = refreshTokenStore.issue("1", "Jon Snow", "jon.snow@gmail.com");
+        refreshTokenStore.rotate(refreshToken);
+        assertEquals(2, refreshTokenStore.size());
+
+        refreshTokenStore.expireTokens(System.currentTimeMillis() + Duration.ofHours(2).toMillis());
+
+        assertEquals(0, refreshTokenStore.size());
+    }
+
+    @Test
+    void testSnapshotSurvivesRestart(@TempDir Path directory) {
+        String storePath = directory.resolve("refresh-tokens.bin").toString();
+        RefreshTokenStore firstRun = newStore(Duration.ofHours(1), storePath);
+        String refreshToken = firstRun.issue("1", "Jon Snow", "jon.snow@gmail.com");
+        String used = firstRun.issue("2", "Arya Stark", "arya.stark@gmail.com");
+        firstRun.rotate(used);
+        firstRun.save();
+
+        RefreshTokenStore secondRun = newStore(Duration.ofHours(1), storePath);
+        secondRun.load();
+
+        assertEquals("jon.snow@gmail.com", secondRun.rotate(refreshToken).email());
+        assertThrows(JWTFailureException.class, () -> secondRun.rotate(used));
+    }
+}
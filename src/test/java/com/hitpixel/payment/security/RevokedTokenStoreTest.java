@@ -0,0 +1,53 @@
+package com.hitpixel.payment.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevokedTokenStoreTest {
+
+    private RevokedTokenStore newStore(int bloomFilterExpectedInsertions) {
+        return new RevokedTokenStore(1000, bloomFilterExpectedInsertions, 0.01, new SimpleMeterRegistry());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1000})
+    void testRevokedTokenIsRejectedUntilItExpires(int bloomFilterExpectedInsertions) {
+        RevokedTokenStore revokedTokenStore = newStore(bloomFilterExpectedInsertions);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        revokedTokenStore.revoke("revoked", expiresAt);
+
+        assertTrue(revokedTokenStore.isRevoked("revoked"));
+        assertFalse(revokedTokenStore.isRevoked("other"));
+
+        assertEquals(1, revokedTokenStore.expireTokens(expiresAt + 1_000));
+        assertFalse(revokedTokenStore.isRevoked("revoked"));
+        assertEquals(0, revokedTokenStore.size());
+    }
+
+    @Test
+    void testBloomFilterIsRebuiltWithoutExpiredTokens() {
+        RevokedTokenStore revokedTokenStore = newStore(1000);
+        long now = System.currentTimeMillis();
+
+        revokedTokenStore.revoke("short-lived", now + 10_000);
+        revokedTokenStore.revoke("long-lived", now + 60_000);
+        revokedTokenStore.expireTokens(now + 20_000);
+
+        assertFalse(revokedTokenStore.isRevoked("short-lived"));
+        assertTrue(revokedTokenStore.isRevoked("long-lived"));
+    }
+
+    @Test
+    void testExpiredTokenIsNotStored() {
+        RevokedTokenStore revokedTokenStore = newStore(0);
+
+        revokedTokenStore.revoke("expired", System.currentTimeMillis() - 1);
+
+        assertEquals(0, revokedTokenStore.size());
+    }
+}
@@ -0,0 +1,67 @@
+package com.hitpixel.payment.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private VerifiedTokenCache verifiedTokenCache;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger verifications;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        verifiedTokenCache = new VerifiedTokenCache(100, meterRegistry);
+        verifications = new AtomicInteger();
+    }
+
+    private VerifiedToken verify(long expiresInMillis) {
+        verifications.incrementAndGet();
+        return new VerifiedToken("1", "Sansa Stark", "sansa.stark@gmail.com", "token-id",
+                Instant.now().plusMillis(expiresInMillis));
+    }
+
+    @Test
+    void testGetVerifiesTokenOnlyOnce() {
+        VerifiedToken first = verifiedTokenCache.get("token", token -> verify(60_000));
+        VerifiedToken second = verifiedTokenCache.get("token", token -> verify(60_000));
+
+        assertSame(first, second);
+        assertEquals(1, verifications.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testGetDoesNotReturnExpiredToken() {
+        verifiedTokenCache.get("token", token -> verify(-1_000));
+        verifiedTokenCache.get("token", token -> verify(-1_000));
+
+        assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void testGetDoesNotCacheFailedVerification() {
+        assertThrows(IllegalArgumentException.class, () -> verifiedTokenCache.get("token", token -> {
+            throw new IllegalArgumentException("invalid");
+        }));
+
+        assertEquals(0, verifiedTokenCache.size());
+    }
+
+    @Test
+    void testInvalidate() {
+        verifiedTokenCache.get("token", token -> verify(60_000));
+        verifiedTokenCache.invalidate("token");
+        verifiedTokenCache.get("token", token -> verify(60_000));
+
+        assertEquals(2, verifications.get());
+    }
+}
@@ -0,0 +1,89 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.ApiKey;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.ApiKeyRequest;
+import com.hitpixel.payment.dto.ApiKeyResponse;
+import com.hitpixel.payment.enums.ApiKeyScope;
+import com.hitpixel.payment.exception.ApiKeyNotExistsException;
+import com.hitpixel.payment.repository.ApiKeyRepository;
+import com.hitpixel.payment.security.ApiKeyIndex;
+import com.hitpixel.payment.security.TokenDigests;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ApiKeyServiceTest {
+
+    @Mock
+    private ApiKeyRepository apiKeyRepository;
+
+    @Mock
+    private ApiKeyIndex apiKeyIndex;
+
+    @Spy
+    private IdGenerator idGenerator = new IdGenerator();
+
+    @InjectMocks
+    private ApiKeyService apiKeyService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        user = new User("1", "Tyrion Lannister", "tyrion@gmail.com", null);
+    }
+
+    @Test
+    void testCreateApiKeyStoresOnlyTheDigest() {
+        ApiKeyRequest apiKeyRequest = new ApiKeyRequest("billing", Set.of(ApiKeyScope.PAYMENTS_WRITE, ApiKeyScope.PAYMENTS_READ));
+
+        ApiKeyResponse apiKeyResponse = apiKeyService.createApiKey(apiKeyRequest, user);
+
+        ArgumentCaptor<ApiKey> saved = ArgumentCaptor.forClass(ApiKey.class);
+        verify(apiKeyRepository, times(1)).save(saved.capture());
+        verify(apiKeyIndex, times(1)).put(saved.getValue());
+        assertTrue(apiKeyResponse.apiKey().startsWith("pk_"));
+        assertEquals(7, UUID.fromString(saved.getValue().getId()).version());
+        assertEquals(saved.getValue().getId(), apiKeyResponse.id());
+        assertEquals(TokenDigests.sha256(apiKeyResponse.apiKey()), saved.getValue().getKeyHash());
+        assertNotEquals(apiKeyResponse.apiKey(), saved.getValue().getKeyHash());
+        assertEquals("PAYMENTS_READ,PAYMENTS_WRITE", saved.getValue().getScopes());
+        assertTrue(saved.getValue().isActive());
+        assertEquals(user, saved.getValue().getUser());
+        assertEquals(apiKeyRequest.scopes(), apiKeyResponse.scopes());
+    }
+
+    @Test
+    void testRevokeApiKey() {
+        ApiKey apiKey = new ApiKey("key-1", "billing", "hash", "PAYMENTS_READ", true, user, LocalDateTime.now());
+        when(apiKeyRepository.findByIdAndUserId("key-1", "1")).thenReturn(Optional.of(apiKey));
+
+        apiKeyService.revokeApiKey("key-1", user);
+
+        assertFalse(apiKey.isActive());
+        verify(apiKeyRepository, times(1)).save(apiKey);
+        verify(apiKeyIndex, times(1)).remove("hash");
+    }
+
+    @Test
+    void testRevokeApiKeyOfOtherUser() {
+        when(apiKeyRepository.findByIdAndUserId("key-1", "1")).thenReturn(Optional.empty());
+
+        assertThrows(ApiKeyNotExistsException.class, () -> apiKeyService.revokeApiKey("key-1", user));
+        verifyNoInteractions(apiKeyIndex);
+    }
+}
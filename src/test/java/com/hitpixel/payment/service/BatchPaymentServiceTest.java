@@ -0,0 +1,158 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.BatchPaymentResponse;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.strategy.PaymentMethodFactory;
+import com.hitpixel.payment.strategy.PaymentMethodStrategy;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatchPaymentServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PaymentSummaryService paymentSummaryService;
+
+    @Mock
+    private PaymentMethodFactory paymentMethodFactory;
+
+    @Mock
+    private PaymentMethodStrategy creditCardStrategy;
+
+    @Mock
+    private PaymentMethodStrategy payPalStrategy;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AutoCloseable mocks;
+    private BatchPaymentService batchPaymentService;
+    private User user;
+    private List<List<String>> savedChunks;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        batchPaymentService = new BatchPaymentService(transactionRepository, paymentSummaryService, paymentMethodFactory, validator, entityManager,
+                new TransactionTemplate(transactionManager), 2);
+        user = new User("1", "Jon Snow", "jon.snow@gmail.com", "password123");
+        when(paymentMethodFactory.getPaymentMethodStrategy(PaymentMethod.CREDIT_CARD)).thenReturn(creditCardStrategy);
+        when(paymentMethodFactory.getPaymentMethodStrategy(PaymentMethod.PAY_PAL)).thenReturn(payPalStrategy);
+        when(creditCardStrategy.processPayment(any())).thenAnswer(invocation -> transaction(invocation.getArgument(0)));
+        when(payPalStrategy.processPayment(any())).thenAnswer(invocation -> transaction(invocation.getArgument(0)));
+        savedChunks = new ArrayList<>();
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> chunk = invocation.getArgument(0);
+            savedChunks.add(chunk.stream().map(Transaction::getId).toList());
+            return chunk;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mocks.close();
+    }
+
+    @Test
+    void testPaymentsAreGroupedByMethodAndWrittenInChunks() {
+        List<Payment> payments = List.of(
+                new Payment(BigDecimal.valueOf(10), PaymentMethod.PAY_PAL, Currency.USD),
+                new Payment(BigDecimal.valueOf(20), PaymentMethod.CREDIT_CARD, Currency.USD),
+                new Payment(BigDecimal.valueOf(30), PaymentMethod.PAY_PAL, Currency.EUR),
+                new Payment(BigDecimal.valueOf(40), PaymentMethod.CREDIT_CARD, Currency.EUR),
+                new Payment(BigDecimal.valueOf(50), PaymentMethod.CREDIT_CARD, Currency.EUR));
+
+        BatchPaymentResponse response = batchPaymentService.makePayments(payments, user);
+
+        assertEquals(5, response.accepted());
+        assertEquals(0, response.rejected());
+        assertEquals(5, response.results().size());
+        for(int index = 0; index < payments.size(); index++) {
+            assertEquals(index, response.results().get(index).index());
+            assertEquals(PaymentStatus.SUCCESS, response.results().get(index).status());
+        }
+        verify(paymentMethodFactory, times(1)).getPaymentMethodStrategy(PaymentMethod.CREDIT_CARD);
+        verify(paymentMethodFactory, times(1)).getPaymentMethodStrategy(PaymentMethod.PAY_PAL);
+        assertEquals(List.of(2, 2, 1), savedChunks.stream().map(List::size).toList());
+        verify(paymentSummaryService, times(3)).addTransactions(anyCollection());
+        verify(entityManager, times(3)).flush();
+        verify(entityManager, times(3)).clear();
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void testPaymentsAreMadeBeforeTransactionIsOpened() {
+        doAnswer(invocation -> {
+            verifyNoInteractions(transactionManager);
+            return transaction(invocation.getArgument(0));
+        }).when(creditCardStrategy).processPayment(any());
+
+        BatchPaymentResponse response = batchPaymentService.makePayments(List.of(
+                new Payment(BigDecimal.valueOf(10), PaymentMethod.CREDIT_CARD, Currency.USD),
+                new Payment(BigDecimal.valueOf(20), PaymentMethod.CREDIT_CARD, Currency.USD)), user);
+
+        assertEquals(2, response.accepted());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testInvalidAndFailedPaymentsAreReportedPerItem() {
+        doThrow(new IllegalStateException("PayPal is unavailable")).when(payPalStrategy).processPayment(any());
+        List<Payment> payments = new ArrayList<>();
+        payments.add(new Payment(BigDecimal.valueOf(10), PaymentMethod.CREDIT_CARD, Currency.USD));
+        payments.add(new Payment(BigDecimal.ZERO, PaymentMethod.CREDIT_CARD, null));
+        payments.add(new Payment(BigDecimal.valueOf(30), PaymentMethod.PAY_PAL, Currency.USD));
+        payments.add(null);
+        payments.add(new Payment(new BigDecimal("10.00001"), PaymentMethod.CREDIT_CARD, Currency.USD));
+
+        BatchPaymentResponse response = batchPaymentService.makePayments(payments, user);
+
+        assertEquals(1, response.accepted());
+        assertEquals(4, response.rejected());
+        assertNotNull(response.results().get(0).transactionId());
+        assertEquals("Currency is mandatory, Payment amount should be greater than 0.0", response.results().get(1).error());
+        assertEquals("PayPal is unavailable", response.results().get(2).error());
+        assertEquals("Payment cannot be null", response.results().get(3).error());
+        assertEquals("Payment amount can have at most 4 decimals", response.results().get(4).error());
+        assertNull(response.results().get(2).transactionId());
+        assertEquals(List.of(List.of(response.results().get(0).transactionId())), savedChunks);
+        verify(transactionRepository, times(1)).saveAll(anyList());
+        verify(paymentSummaryService, times(1)).addTransactions(anyCollection());
+    }
+
+    private Transaction transaction(Payment payment) {
+        return new Transaction(UUID.randomUUID().toString(), payment.paymentAmount(), payment.paymentMethod(),
+                payment.currency(), null, PaymentStatus.SUCCESS, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,83 @@
+package com.hitpixel.payment.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void testIdIsVersion7WithTimestamp() {
+        IdGenerator idGenerator = new IdGenerator(() -> 1_700_000_000_123L);
+
+        UUID id = idGenerator.nextUuid();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(1_700_000_000_123L, IdGenerator.timestampOf(id));
+        assertEquals(id, UUID.fromString(id.toString()));
+    }
+
+    @Test
+    void testIdsSortInCreationOrder() {
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        IdGenerator idGenerator = new IdGenerator(now::get);
+        List<String> ids = new ArrayList<>();
+
+        for(int index = 0; index < 10_000; index++) {
+            if(index % 1_000 == 0) {
+                now.addAndGet(1);
+            }
+            ids.add(idGenerator.nextId());
+        }
+
+        for(int index = 1; index < ids.size(); index++) {
+            assertTrue(ids.get(index - 1).compareTo(ids.get(index)) < 0, "ids are not increasing at " + index);
+        }
+    }
+
+    @Test
+    void testBurstWithinOneMillisecondBorrowsNextMillisecond() {
+        IdGenerator idGenerator = new IdGenerator(() -> 1_000L);
+        UUID previous = idGenerator.nextUuid();
+
+        for(int index = 0; index < 5_000; index++) {
+            UUID next = idGenerator.nextUuid();
+            assertTrue(previous.toString().compareTo(next.toString()) < 0);
+            previous = next;
+        }
+
+        assertTrue(IdGenerator.timestampOf(previous) > 1_000L);
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreads() throws Exception {
+        IdGenerator idGenerator = new IdGenerator();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for(int index = 0; index < 10_000; index++) {
+                    ids.add(idGenerator.nextId());
+                }
+            }));
+        }
+        for(Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(80_000, ids.size());
+    }
+}
@@ -0,0 +1,194 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.IdempotencyKey;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.IdempotencyKeyMismatchException;
+import com.hitpixel.payment.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+    private User user;
+    private Payment payment;
+    private Transaction transaction;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(idempotencyKeyRepository, transactionTemplate, 4,
+                Duration.ofMinutes(10), Duration.ofHours(24), Duration.ofSeconds(5), 1000, meterRegistry);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Transaction>) invocation.getArgument(0)).doInTransaction(null));
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.empty());
+        user = new User("1", "Jon Snow", "jon.snow@gmail.com", "password123");
+        payment = new Payment(BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD);
+        transaction = new Transaction("txn123", BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+    }
+
+    @Test
+    void testDuplicateIsReplayedFromMemory() {
+        AtomicInteger executions = new AtomicInteger();
+
+        Transaction first = idempotencyService.execute("key-1", payment, user, () -> {
+            executions.incrementAndGet();
+            return transaction;
+        }, UnaryOperator.identity());
+        Payment samePayment = new Payment(new BigDecimal("100.00"), PaymentMethod.CREDIT_CARD, Currency.USD);
+        Transaction replayed = idempotencyService.execute("key-1", samePayment, user, () -> {
+            executions.incrementAndGet();
+            return transaction;
+        }, UnaryOperator.identity());
+
+        assertSame(first, replayed);
+        assertEquals(1, executions.get());
+        verify(idempotencyKeyRepository, times(1)).save(any(IdempotencyKey.class));
+        verify(idempotencyKeyRepository, times(1)).findById(any());
+        assertEquals(1.0, meterRegistry.get("payment.idempotency.replays").counter().count());
+    }
+
+    @Test
+    void testPaymentIsMadeBeforeTransactionWhichPersistsKey() {
+        Transaction persisted = new Transaction("txn123", BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+
+        Transaction result = idempotencyService.execute("key-1", payment, user, () -> {
+            verify(transactionTemplate, never()).execute(any());
+            return transaction;
+        }, made -> {
+            assertSame(transaction, made);
+            verify(transactionTemplate, times(1)).execute(any());
+            return persisted;
+        });
+
+        assertSame(persisted, result);
+        verify(idempotencyKeyRepository, times(1)).save(argThat(idempotencyKey -> idempotencyKey.getTransaction() == persisted));
+    }
+
+    @Test
+    void testSameKeyOfAnotherUserIsExecutedAgain() {
+        User otherUser = new User("2", "Arya Stark", "arya.stark@gmail.com", "password123");
+
+        idempotencyService.execute("key-1", payment, user, () -> transaction, UnaryOperator.identity());
+        idempotencyService.execute("key-1", payment, otherUser, () -> transaction, UnaryOperator.identity());
+
+        verify(idempotencyKeyRepository, times(2)).save(any(IdempotencyKey.class));
+    }
+
+    @Test
+    void testKeyReusedWithDifferentPaymentIsRejected() {
+        idempotencyService.execute("key-1", payment, user, () -> transaction, UnaryOperator.identity());
+        Payment otherPayment = new Payment(BigDecimal.valueOf(200), PaymentMethod.CREDIT_CARD, Currency.USD);
+
+        assertThrows(IdempotencyKeyMismatchException.class,
+                () -> idempotencyService.execute("key-1", otherPayment, user, () -> transaction, UnaryOperator.identity()));
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForFirstExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        CompletableFuture<Transaction> first = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute("key-1", payment, user, () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return transaction;
+                }, UnaryOperator.identity()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Transaction> duplicate = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute("key-1", payment, user, () -> {
+                    executions.incrementAndGet();
+                    return transaction;
+                }, UnaryOperator.identity()));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone());
+
+        release.countDown();
+
+        assertSame(transaction, first.get(5, TimeUnit.SECONDS));
+        assertSame(transaction, duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testFailedExecutionCanBeRetried() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("key-1", payment, user, () -> {
+            throw new IllegalStateException("gateway down");
+        }, UnaryOperator.identity()));
+
+        assertSame(transaction, idempotencyService.execute("key-1", payment, user, () -> transaction, UnaryOperator.identity()));
+        assertEquals(1, idempotencyService.size());
+    }
+
+    @Test
+    void testPersistedKeyIsReplayedWithoutExecution() {
+        IdempotencyKey persisted = new IdempotencyKey("id", IdempotencyService.requestHash(payment), transaction, LocalDateTime.now());
+        when(idempotencyKeyRepository.findById(any())).thenReturn(Optional.of(persisted));
+
+        Transaction replayed = idempotencyService.execute("key-1", payment, user, () -> fail("payment must not run again"), UnaryOperator.identity());
+
+        assertSame(transaction, replayed);
+        verify(transactionTemplate, never()).execute(any());
+        verify(idempotencyKeyRepository, never()).save(any());
+    }
+
+    @Test
+    void testKeyPersistedConcurrentlyByAnotherNodeReturnsItsTransaction() {
+        Transaction otherTransaction = new Transaction("txn456", BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD, user, PaymentStatus.SUCCESS, LocalDateTime.now());
+        when(idempotencyKeyRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyKeyRepository.findById(any()))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> Optional.of(new IdempotencyKey("id", IdempotencyService.requestHash(payment), otherTransaction, LocalDateTime.now())));
+
+        assertSame(otherTransaction, idempotencyService.execute("key-1", payment, user, () -> transaction, UnaryOperator.identity()));
+    }
+
+    @Test
+    void testCompletedExecutionsExpireFromMemory() {
+        idempotencyService.execute("key-1", payment, user, () -> transaction, UnaryOperator.identity());
+
+        assertEquals(1, idempotencyService.expireExecutions(System.currentTimeMillis() + Duration.ofMinutes(11).toMillis()));
+        assertEquals(0, idempotencyService.size());
+    }
+}
@@ -1,14 +1,15 @@
 package com.hitpixel.payment.service;
 
+import com.hitpixel.payment.domain.User;
 import com.hitpixel.payment.exception.JWTFailureException;
-import io.jsonwebtoken.Claims;
+import com.hitpixel.payment.security.EphemeralSigningKeyProvider;
+import com.hitpixel.payment.security.KeyStoreSigningKeyProvider;
+import com.hitpixel.payment.security.SigningKeyProvider;
+import com.hitpixel.payment.security.VerifiedToken;
+import com.hitpixel.payment.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
-
-import javax.crypto.SecretKey;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.doThrow;
@@ -16,22 +17,21 @@ import static org.mockito.Mockito.spy;
 
 class JWTServiceTest {
 
-    @InjectMocks
     private JWTService jwtService;
 
-    @Mock
-    private SecretKey secretKey;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @BeforeEach
     void setUp() {
-        MockitoAnnotations.openMocks(this);
+        verifiedTokenCache = new VerifiedTokenCache(100, new SimpleMeterRegistry());
+        jwtService = new JWTService(verifiedTokenCache, new EphemeralSigningKeyProvider());
     }
 
     @Test
     void testGenerateJWTToken() {
         String name = "Sansa Stark";
         String email = "sansa.stark@gmail.com";
-        String token = jwtService.generateJWTToken(name, email);
+        String token = jwtService.generateJWTToken("1", name, email);
 
         assertNotNull(token);
     }
@@ -40,37 +40,132 @@ class JWTServiceTest {
     void testExtractJWTClaims() {
         String name = "Sansa Stark";
         String email = "sansa.stark@gmail.com";
-        String token = jwtService.generateJWTToken(name, email);
+        String token = jwtService.generateJWTToken("1", name, email);
 
-        Claims claims = jwtService.extractJWTClaims(token);
+        VerifiedToken claims = jwtService.extractJWTClaims(token);
 
         assertNotNull(claims);
-        assertEquals(name, claims.get("name"));
-        assertEquals(email, claims.get("email"));
+        assertEquals("1", claims.userId());
+        assertEquals(name, claims.name());
+        assertEquals(email, claims.email());
+        assertNotNull(claims.expiration());
     }
 
     @Test
     void testGetEmailClaim() {
         String name = "Sansa Stark";
         String email = "sansa.stark@gmail.com";
-        String token = jwtService.generateJWTToken(name, email);
+        String token = jwtService.generateJWTToken("1", name, email);
 
         String extractedEmail = jwtService.getEmailClaim(token);
 
         assertEquals(email, extractedEmail);
     }
 
+    private JWTService keyStoreJWTService(String keyStore, String signingKeyId) {
+        SigningKeyProvider signingKeyProvider = new KeyStoreSigningKeyProvider(keyStore, "changeit".toCharArray(), signingKeyId);
+        return new JWTService(new VerifiedTokenCache(100, new SimpleMeterRegistry()), signingKeyProvider);
+    }
+
+    @Test
+    void testTokenIsAcceptedByAnotherNodeSharingTheKeyStore() {
+        JWTService issuingNode = keyStoreJWTService("classpath:keys/jwt-keys.p12", "hmac-2026-01");
+        JWTService otherNode = keyStoreJWTService("classpath:keys/jwt-keys.p12", "hmac-2026-02");
+
+        String token = issuingNode.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+
+        assertEquals("sansa.stark@gmail.com", otherNode.getEmailClaim(token));
+    }
+
+    @Test
+    void testAsymmetricTokenIsAcceptedByVerifierOnlyNode() {
+        JWTService issuingNode = keyStoreJWTService("classpath:keys/jwt-keys.p12", "ec-2026");
+        JWTService verifierNode = keyStoreJWTService("classpath:keys/jwt-verifier.p12", null);
+
+        String token = issuingNode.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+
+        assertTrue(verifierNode.validateJWT(token));
+        assertThrows(JWTFailureException.class, () -> verifierNode.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com"));
+    }
+
+    @Test
+    void testTokenSignedWithUnknownKeyIsRejected() {
+        String token = jwtService.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+        JWTService otherNode = keyStoreJWTService("classpath:keys/jwt-keys.p12", "hmac-2026-01");
+
+        assertThrows(JWTFailureException.class, () -> otherNode.extractJWTClaims(token));
+    }
+
+    @Test
+    void testGetUserClaim() {
+        String token = jwtService.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+
+        User user = jwtService.getUserClaim(jwtService.extractJWTClaims(token));
+
+        assertNotNull(user);
+        assertEquals("1", user.getId());
+        assertEquals("Sansa Stark", user.getName());
+        assertEquals("sansa.stark@gmail.com", user.getEmail());
+        assertNull(user.getPassword());
+        assertFalse(user.isNew());
+    }
+
+    @Test
+    void testGenerateJWTTokenSetsUniqueTokenId() {
+        String first = jwtService.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+        String second = jwtService.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+
+        VerifiedToken firstClaims = jwtService.extractJWTClaims(first);
+        VerifiedToken secondClaims = jwtService.extractJWTClaims(second);
+
+        assertNotNull(firstClaims.tokenId());
+        assertNotEquals(firstClaims.tokenId(), secondClaims.tokenId());
+        assertEquals(firstClaims.tokenId(), jwtService.getTokenId(firstClaims, first));
+    }
+
+    @Test
+    void testGetTokenIdOfLegacyTokenIsStable() {
+        VerifiedToken claims = new VerifiedToken("1", "Sansa Stark", "sansa.stark@gmail.com", null, null);
+
+        assertEquals(jwtService.getTokenId(claims, "legacy-token"), jwtService.getTokenId(claims, "legacy-token"));
+        assertNotEquals(jwtService.getTokenId(claims, "legacy-token"), jwtService.getTokenId(claims, "other-token"));
+    }
+
+    @Test
+    void testGetUserClaimWithLegacyClaims() {
+        VerifiedToken claims = new VerifiedToken(null, "Sansa Stark", "sansa.stark@gmail.com", null, null);
+
+        assertNull(jwtService.getUserClaim(claims));
+    }
+
     @Test
     void testValidateJWTWithValidToken() {
         String name = "Sansa Stark";
         String email = "sansa.stark@gmail.com";
-        String token = jwtService.generateJWTToken(name, email);
+        String token = jwtService.generateJWTToken("1", name, email);
 
         boolean isValid = jwtService.validateJWT(token);
 
         assertTrue(isValid);
     }
 
+    @Test
+    void testExtractJWTClaimsReturnsCachedClaimsForRepeatedToken() {
+        String token = jwtService.generateJWTToken("1", "Sansa Stark", "sansa.stark@gmail.com");
+
+        VerifiedToken first = jwtService.extractJWTClaims(token);
+        VerifiedToken second = jwtService.extractJWTClaims(token);
+
+        assertSame(first, second);
+        assertEquals(1, verifiedTokenCache.size());
+    }
+
+    @Test
+    void testExtractJWTClaimsDoesNotCacheInvalidToken() {
+        assertThrows(JWTFailureException.class, () -> jwtService.extractJWTClaims("invalid-token"));
+        assertEquals(0, verifiedTokenCache.size());
+    }
+
     @Test
     void testExtractJWTClaimsThrowsExceptionWhenTokenIsInvalid() {
         String invalidToken = "invalid-token";
@@ -84,11 +179,11 @@ class JWTServiceTest {
         String name = null;
         String email = null;
 
-        JWTService jwtServiceMock = spy(new JWTService());
-        doThrow(new JWTFailureException("Error encountered while generating JWT")).when(jwtServiceMock).generateJWTToken(name, email);
+        JWTService jwtServiceMock = spy(new JWTService(verifiedTokenCache, new EphemeralSigningKeyProvider()));
+        doThrow(new JWTFailureException("Error encountered while generating JWT")).when(jwtServiceMock).generateJWTToken(null, name, email);
 
         JWTFailureException exception = assertThrows(JWTFailureException.class, () -> {
-            jwtServiceMock.generateJWTToken(name, email);
+            jwtServiceMock.generateJWTToken(null, name, email);
         });
 
         assertEquals("Error encountered while generating JWT", exception.getMessage());
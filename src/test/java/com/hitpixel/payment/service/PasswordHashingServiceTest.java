@@ -0,0 +1,94 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingService passwordHashingService;
+
+    @BeforeEach
+    @SuppressWarnings("deprecation")
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", new BCryptPasswordEncoder(4)));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(NoOpPasswordEncoder.getInstance());
+        passwordHashingService = new PasswordHashingService(passwordEncoder, 2, 16, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void testEncodeAndMatches() {
+        String encoded = passwordHashingService.encode("password123").join();
+
+        assertTrue(encoded.startsWith("{bcrypt}"));
+        assertTrue(passwordHashingService.matches("password123", encoded).join());
+        assertFalse(passwordHashingService.matches("wrongpassword", encoded).join());
+        assertFalse(passwordHashingService.upgradeEncoding(encoded));
+        assertEquals(1, meterRegistry.get("password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hashing").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void testLegacyPlainTextPasswordMatchesAndNeedsUpgrade() {
+        assertTrue(passwordHashingService.matches("password123", "password123").join());
+        assertTrue(passwordHashingService.upgradeEncoding("password123"));
+    }
+
+    @Test
+    void testSubmissionRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blockingEncoder = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        SimpleMeterRegistry busyMeterRegistry = new SimpleMeterRegistry();
+        PasswordHashingService busyService = new PasswordHashingService(blockingEncoder, 1, 1, busyMeterRegistry);
+        try {
+            CompletableFuture<String> running = busyService.encode("first");
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = busyService.encode("second");
+
+            CompletionException exception = assertThrows(CompletionException.class, () -> busyService.encode("third").join());
+            assertInstanceOf(ServiceBusyException.class, exception.getCause());
+            assertEquals(1.0, busyMeterRegistry.get("password.hashing.rejected").counter().count());
+            assertEquals(1.0, busyMeterRegistry.get("password.hashing.queue.depth").gauge().value());
+
+            release.countDown();
+            assertNotNull(running.get(5, TimeUnit.SECONDS));
+            assertNotNull(queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            busyService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.ServiceBusyException;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.strategy.PaymentMethodFactory;
+import com.hitpixel.payment.strategy.PaymentMethodStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PaymentProcessingServiceTest {
+
+    @Mock
+    private PaymentMethodFactory paymentMethodFactory;
+
+    @Mock
+    private PaymentMethodStrategy paymentMethodStrategy;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PaymentSummaryService paymentSummaryService;
+
+    private AutoCloseable mocks;
+    private TransactionStatusCache transactionStatusCache;
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionTemplate transactionTemplate;
+    private PaymentProcessingService paymentProcessingService;
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        transactionStatusCache = new TransactionStatusCache(100, Duration.ofMinutes(10), meterRegistry);
+        transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        paymentProcessingService = new PaymentProcessingService(paymentMethodFactory, transactionRepository, transactionStatusCache,
+                paymentSummaryService, transactionTemplate, 2, 16, true, meterRegistry);
+        payment = new Payment(BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD);
+        when(paymentMethodFactory.getPaymentMethodStrategy(PaymentMethod.CREDIT_CARD)).thenReturn(paymentMethodStrategy);
+        when(transactionRepository.updateStatus(anyString(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        paymentProcessingService.shutdown();
+        mocks.close();
+    }
+
+    @Test
+    void testSubmittedPaymentCompletesPendingTransaction() {
+        Transaction processed = new Transaction();
+        processed.setStatus(PaymentStatus.SUCCESS);
+        when(paymentMethodStrategy.processPayment("txn123", payment)).thenReturn(processed);
+
+        paymentProcessingService.submit("txn123", payment);
+
+        verify(transactionRepository, timeout(5000)).updateStatus("txn123", PaymentStatus.PENDING, PaymentStatus.SUCCESS);
+    }
+
+    @Test
+    void testFailingStrategyFailsTransaction() {
+        when(paymentMethodStrategy.processPayment("txn123", payment)).thenThrow(new IllegalStateException("gateway down"));
+
+        paymentProcessingService.process("txn123", payment);
+
+        verify(transactionRepository).updateStatus("txn123", PaymentStatus.PENDING, PaymentStatus.FAIL);
+    }
+
+    @Test
+    void testCompletedTransactionIsMovedInPaymentSummary() {
+        Transaction processed = new Transaction();
+        processed.setStatus(PaymentStatus.SUCCESS);
+        Transaction completed = new Transaction();
+        completed.setStatus(PaymentStatus.SUCCESS);
+        when(paymentMethodStrategy.processPayment("txn123", payment)).thenReturn(processed);
+        when(transactionRepository.findById("txn123")).thenReturn(Optional.of(completed));
+
+        paymentProcessingService.process("txn123", payment);
+
+        verify(paymentSummaryService).changeStatus(completed, PaymentStatus.PENDING);
+    }
+
+    @Test
+    void testCompletedStatusIsWrittenThroughToCache() {
+        Transaction processed = new Transaction();
+        processed.setStatus(PaymentStatus.SUCCESS);
+        when(paymentMethodStrategy.processPayment("txn123", payment)).thenReturn(processed);
+        transactionStatusCache.put("txn123", "user123", PaymentStatus.PENDING);
+
+        paymentProcessingService.process("txn123", payment);
+
+        assertEquals(new TransactionStatusView("user123", PaymentStatus.SUCCESS), transactionStatusCache.get("txn123", id -> null));
+    }
+
+    @Test
+    void testStatusIsNotCachedWhenTransactionWasNoLongerPending() {
+        Transaction processed = new Transaction();
+        processed.setStatus(PaymentStatus.SUCCESS);
+        when(paymentMethodStrategy.processPayment("txn123", payment)).thenReturn(processed);
+        when(transactionRepository.updateStatus("txn123", PaymentStatus.PENDING, PaymentStatus.SUCCESS)).thenReturn(0);
+        transactionStatusCache.put("txn123", "user123", PaymentStatus.REFUNDED);
+
+        paymentProcessingService.process("txn123", payment);
+
+        assertEquals(PaymentStatus.REFUNDED, transactionStatusCache.get("txn123", id -> null).status());
+        verifyNoInteractions(paymentSummaryService);
+    }
+
+    @Test
+    void testSubmissionRejectedWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Transaction processed = new Transaction();
+        processed.setStatus(PaymentStatus.SUCCESS);
+        when(paymentMethodStrategy.processPayment(anyString(), eq(payment))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return processed;
+        });
+        SimpleMeterRegistry busyMeterRegistry = new SimpleMeterRegistry();
+        PaymentProcessingService busyService = new PaymentProcessingService(paymentMethodFactory, transactionRepository, transactionStatusCache,
+                paymentSummaryService, transactionTemplate, 1, 1, false, busyMeterRegistry);
+        try {
+            busyService.submit("first", payment);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            busyService.submit("second", payment);
+
+            assertThrows(ServiceBusyException.class, () -> busyService.submit("third", payment));
+            verify(transactionRepository).updateStatus("third", PaymentStatus.PENDING, PaymentStatus.FAIL);
+            assertEquals(1.0, busyMeterRegistry.get("payment.processing.rejected").counter().count());
+
+            release.countDown();
+            verify(transactionRepository, timeout(5000)).updateStatus("second", PaymentStatus.PENDING, PaymentStatus.SUCCESS);
+        } finally {
+            release.countDown();
+            busyService.shutdown();
+        }
+    }
+}
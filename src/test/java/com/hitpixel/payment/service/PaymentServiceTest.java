@@ -2,40 +2,92 @@ package com.hitpixel.payment.service;
 
 import com.hitpixel.payment.domain.*;
 import com.hitpixel.payment.dto.Payment;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.dto.TransactionPage;
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.dto.TransactionView;
+import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentMethod;
 import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.InvalidRequestParameterException;
+import com.hitpixel.payment.exception.RefundAmountExceededException;
+import com.hitpixel.payment.exception.ServiceBusyException;
 import com.hitpixel.payment.exception.TransactionNotExistsException;
+import com.hitpixel.payment.exception.TransactionNotRefundableException;
+import com.hitpixel.payment.repository.RefundJdbcRepository;
 import com.hitpixel.payment.repository.TransactionRepository;
 import com.hitpixel.payment.strategy.PaymentMethodFactory;
 import com.hitpixel.payment.strategy.PaymentMethodStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.*;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class PaymentServiceTest {
 
+    private static final String TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000001";
+    private static final String OTHER_TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-000000000000";
+
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private RefundJdbcRepository refundJdbcRepository;
+
     @Mock
     private PaymentMethodFactory paymentMethodFactory;
 
     @Mock
     private PaymentMethodStrategy paymentMethodStrategy;
 
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private PaymentProcessingService paymentProcessingService;
+
+    @Mock
+    private TransactionWriter transactionWriter;
+
+    @Mock
+    private PaymentSummaryService paymentSummaryService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionStatusCache transactionStatusCache;
     private PaymentService paymentService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        paymentService = new PaymentService(transactionRepository, paymentMethodFactory);
+        meterRegistry = new SimpleMeterRegistry();
+        transactionStatusCache = new TransactionStatusCache(100, Duration.ofMinutes(10), meterRegistry);
+        paymentService = new PaymentService(transactionRepository, refundJdbcRepository, paymentMethodFactory, idempotencyService, paymentProcessingService,
+                transactionWriter, new IdGenerator(), transactionStatusCache, paymentSummaryService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
     }
 
     @Test
@@ -49,109 +101,417 @@ class PaymentServiceTest {
         when(payment.paymentMethod()).thenReturn(PaymentMethod.CREDIT_CARD);
         when(paymentMethodFactory.getPaymentMethodStrategy(PaymentMethod.CREDIT_CARD)).thenReturn(paymentMethodStrategy);
         when(paymentMethodStrategy.processPayment(payment)).thenReturn(transaction);
-        when(transactionRepository.save(transaction)).thenReturn(transaction);
+        when(transactionWriter.write(transaction)).thenReturn(transaction);
 
         Transaction result = paymentService.makePayment(payment, user);
 
         assertNotNull(result);
         assertEquals("1234", result.getId());
         assertEquals(PaymentStatus.SUCCESS, result.getStatus());
-        verify(transactionRepository, times(1)).save(transaction);
+        verify(transactionWriter, times(1)).write(transaction);
+        verify(transactionRepository, never()).save(any());
     }
 
     @Test
-    void testFetchTransactions() {
+    @SuppressWarnings("unchecked")
+    void testMakePaymentWithIdempotencyKey() {
+        Payment payment = mock(Payment.class);
         User user = mock(User.class);
         Transaction transaction = new Transaction();
         transaction.setId("1234");
-        transaction.setStatus(PaymentStatus.SUCCESS);
+
+        when(payment.paymentMethod()).thenReturn(PaymentMethod.CREDIT_CARD);
+        when(paymentMethodFactory.getPaymentMethodStrategy(PaymentMethod.CREDIT_CARD)).thenReturn(paymentMethodStrategy);
+        when(paymentMethodStrategy.processPayment(payment)).thenReturn(transaction);
+        when(transactionRepository.save(transaction)).thenReturn(transaction);
+        when(idempotencyService.execute(eq("key-1"), eq(payment), eq(user), any(), any()))
+                .thenAnswer(invocation -> ((UnaryOperator<Transaction>) invocation.getArgument(4))
+                        .apply(((Supplier<Transaction>) invocation.getArgument(3)).get()));
+
+        Transaction result = paymentService.makePayment(payment, user, "key-1");
+
+        assertEquals("1234", result.getId());
+        verify(idempotencyService, times(1)).execute(eq("key-1"), eq(payment), eq(user), any(), any());
+        verify(transactionRepository, times(1)).save(transaction);
+        verify(paymentSummaryService, times(1)).addTransactions(List.of(transaction));
+        verifyNoInteractions(transactionWriter);
+    }
+
+    @Test
+    void testAcceptPaymentStoresPendingTransactionAndSubmitsIt() {
+        Payment payment = new Payment(BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD);
+        User user = mock(User.class);
+        when(transactionWriter.write(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction result = paymentService.acceptPayment(payment, user);
+
+        assertEquals(PaymentStatus.PENDING, result.getStatus());
+        assertEquals(user, result.getUser());
+        verify(transactionWriter, times(1)).write(result);
+        verify(paymentProcessingService, times(1)).submit(result.getId(), payment);
+        verifyNoInteractions(paymentMethodFactory);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAcceptPaymentWithIdempotencyKeySubmitsOnlyFirstAttempt() {
+        Payment payment = new Payment(BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD);
+        User user = mock(User.class);
+        Transaction accepted = new Transaction();
+        accepted.setId("1234");
+        accepted.setStatus(PaymentStatus.PENDING);
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(accepted);
+        when(idempotencyService.execute(eq("key-1"), eq(payment), eq(user), any(), any()))
+                .thenAnswer(invocation -> ((UnaryOperator<Transaction>) invocation.getArgument(4))
+                        .apply(((Supplier<Transaction>) invocation.getArgument(3)).get()))
+                .thenReturn(accepted);
+
+        assertEquals("1234", paymentService.acceptPayment(payment, user, "key-1").getId());
+        assertEquals("1234", paymentService.acceptPayment(payment, user, "key-1").getId());
+
+        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(paymentSummaryService, times(1)).addTransactions(List.of(accepted));
+        verify(paymentProcessingService, times(1)).submit("1234", payment);
+    }
+
+    @Test
+    void testFetchTransactions() {
+        User user = mock(User.class);
+        TransactionView transaction = new TransactionView(TRANSACTION_ID, BigDecimal.ONE, PaymentMethod.CREDIT_CARD, Currency.USD,
+                PaymentStatus.SUCCESS, LocalDateTime.now());
         when(user.getId()).thenReturn("user123");
-        when(transactionRepository.findAllByUserId("user123")).thenReturn(Collections.singletonList(transaction));
+        when(transactionRepository.findHistory("user123", null, null, null, null, null, null, null, Limit.of(11)))
+                .thenReturn(Collections.singletonList(transaction));
 
-        List<Transaction> transactions = paymentService.fetchTransactions(user);
+        TransactionPage page = paymentService.fetchTransactions(user, TransactionHistoryFilter.NONE, null, 10);
 
-        assertNotNull(transactions);
-        assertEquals(1, transactions.size());
-        assertEquals("1234", transactions.get(0).getId());
-        verify(transactionRepository, times(1)).findAllByUserId("user123");
+        assertEquals(1, page.transactions().size());
+        assertEquals(TRANSACTION_ID, page.transactions().get(0).id());
+        assertNull(page.nextCursor());
     }
 
     @Test
     void testFetchTransactions_withNoTransactions() {
         User user = mock(User.class);
         when(user.getId()).thenReturn("user123");
-        when(transactionRepository.findAllByUserId("user123")).thenReturn(List.of());
+        when(transactionRepository.findHistory(eq("user123"), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(List.of());
+
+        TransactionPage page = paymentService.fetchTransactions(user, TransactionHistoryFilter.NONE, null, 10);
+
+        assertEquals(0, page.transactions().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void testFetchTransactions_returnsCursorOfNextPage() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        LocalDateTime now = LocalDateTime.of(2026, 1, 1, 12, 0);
+        TransactionView newest = new TransactionView(TRANSACTION_ID, BigDecimal.ONE, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, now);
+        TransactionView older = new TransactionView(OTHER_TRANSACTION_ID, BigDecimal.ONE, PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.SUCCESS, now.minusMinutes(1));
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(null, null, PaymentStatus.SUCCESS, null, null);
+        when(transactionRepository.findHistory("user123", null, null, PaymentStatus.SUCCESS, null, null, null, null, Limit.of(2)))
+                .thenReturn(List.of(newest, older));
+        when(transactionRepository.findHistory("user123", null, null, PaymentStatus.SUCCESS, null, null, now, TRANSACTION_ID, Limit.of(2)))
+                .thenReturn(List.of(older));
+
+        TransactionPage first = paymentService.fetchTransactions(user, filter, null, 1);
+        TransactionPage second = paymentService.fetchTransactions(user, filter, first.nextCursor(), 1);
 
-        List<Transaction> transactions = paymentService.fetchTransactions(user);
+        assertEquals(List.of(newest), first.transactions());
+        assertNotNull(first.nextCursor());
+        assertEquals(List.of(older), second.transactions());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void testFetchTransactions_rejectsInvalidParameters() {
+        User user = mock(User.class);
+        LocalDateTime now = LocalDateTime.now();
 
-        assertNotNull(transactions);
-        assertEquals(0, transactions.size());
-        verify(transactionRepository, times(1)).findAllByUserId("user123");
+        assertThrows(InvalidRequestParameterException.class, () -> paymentService.fetchTransactions(user, TransactionHistoryFilter.NONE, null, 0));
+        assertThrows(InvalidRequestParameterException.class,
+                () -> paymentService.fetchTransactions(user, TransactionHistoryFilter.NONE, null, PaymentService.MAX_HISTORY_LIMIT + 1));
+        assertThrows(InvalidRequestParameterException.class,
+                () -> paymentService.fetchTransactions(user, new TransactionHistoryFilter(now, now, null, null, null), null, 10));
+        assertThrows(InvalidRequestParameterException.class, () -> paymentService.fetchTransactions(user, TransactionHistoryFilter.NONE, "not a cursor", 10));
+        verifyNoInteractions(transactionRepository);
     }
 
     @Test
     void testFetchTransactionStatus() {
-        String transactionId = "1234";
+        String transactionId = TRANSACTION_ID;
         User user = mock(User.class);
-        Transaction transaction = new Transaction();
-        transaction.setId(transactionId);
-        transaction.setStatus(PaymentStatus.SUCCESS);
-        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(user.getId()).thenReturn("user123");
+        when(transactionRepository.findStatusById(transactionId)).thenReturn(Optional.of(new TransactionStatusView("user123", PaymentStatus.SUCCESS)));
 
         PaymentStatus status = paymentService.fetchTransactionStatus(transactionId, user);
+        PaymentStatus cachedStatus = paymentService.fetchTransactionStatus(transactionId, user);
 
         assertEquals(PaymentStatus.SUCCESS, status);
-        verify(transactionRepository, times(1)).findById(transactionId);
+        assertEquals(PaymentStatus.SUCCESS, cachedStatus);
+        verify(transactionRepository, times(1)).findStatusById(transactionId);
+        verify(transactionRepository, never()).findById(any());
+    }
+
+    @Test
+    void testFetchTransactionStatusOfUppercaseIdSharesCachedStatus() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        when(transactionRepository.findStatusById(TRANSACTION_ID)).thenReturn(Optional.of(new TransactionStatusView("user123", PaymentStatus.SUCCESS)));
+
+        assertEquals(PaymentStatus.SUCCESS, paymentService.fetchTransactionStatus(TRANSACTION_ID.toUpperCase(), user));
+        assertEquals(PaymentStatus.SUCCESS, paymentService.fetchTransactionStatus(TRANSACTION_ID, user));
+
+        verify(transactionRepository, times(1)).findStatusById(TRANSACTION_ID);
+        assertEquals(1, transactionStatusCache.size());
+    }
+
+    @Test
+    void testConcurrentStatusLookupsShareOneQuery() throws Exception {
+        int callers = 8;
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionRepository.findStatusById(TRANSACTION_ID)).thenAnswer(invocation -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return Optional.of(new TransactionStatusView("user123", PaymentStatus.SUCCESS));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<PaymentStatus>> statuses = new ArrayList<>();
+            for(int caller = 0; caller < callers; caller++) {
+                statuses.add(executor.submit(() -> paymentService.fetchTransactionStatus(TRANSACTION_ID, user)));
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for(Future<PaymentStatus> status : statuses) {
+                assertEquals(PaymentStatus.SUCCESS, status.get(5, TimeUnit.SECONDS));
+            }
+            verify(transactionRepository, times(1)).findStatusById(TRANSACTION_ID);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFetchTransactionStatusOfOtherUserIsNotFound() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        when(transactionRepository.findStatusById(TRANSACTION_ID)).thenReturn(Optional.of(new TransactionStatusView("someone-else", PaymentStatus.SUCCESS)));
+
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.fetchTransactionStatus(TRANSACTION_ID, user));
+    }
+
+    @Test
+    void testNewTransactionStatusIsServedFromCache() {
+        Payment payment = new Payment(BigDecimal.valueOf(100), PaymentMethod.CREDIT_CARD, Currency.USD);
+        User user = new User("user123", "Harry", "harry@gmail.com", "password123");
+        when(transactionWriter.write(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Transaction accepted = paymentService.acceptPayment(payment, user);
+
+        assertEquals(PaymentStatus.PENDING, paymentService.fetchTransactionStatus(accepted.getId(), user));
+        verify(transactionRepository, never()).findStatusById(any());
     }
 
     @Test
     void testFetchTransactionStatusThrowsException() {
-        String transactionId = "1234";
+        String transactionId = TRANSACTION_ID;
         User user = mock(User.class);
-        when(transactionRepository.findById(transactionId)).thenReturn(Optional.empty());
+        when(user.getId()).thenReturn("user123");
+        when(transactionRepository.findStatusById(transactionId)).thenReturn(Optional.empty());
 
         assertThrows(TransactionNotExistsException.class, () -> paymentService.fetchTransactionStatus(transactionId, user));
-        verify(transactionRepository, times(1)).findById(transactionId);
+        verify(transactionRepository, times(1)).findStatusById(transactionId);
+    }
+
+    @Test
+    void testFetchTransactionStatusOfMalformedIdIsNotFound() {
+        User user = mock(User.class);
+
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.fetchTransactionStatus("1234", user));
+        verifyNoInteractions(transactionRepository);
     }
 
     @Test
     void testRefundTransaction() {
-        String transactionId = "1234";
         User user = mock(User.class);
-        Transaction transaction = new Transaction();
-        transaction.setId(transactionId);
-        transaction.setStatus(PaymentStatus.SUCCESS);
-        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
-        when(transactionRepository.save(transaction)).thenReturn(transaction);
+        when(user.getId()).thenReturn("user123");
+        Transaction transaction = refundableTransaction(user, "0.00");
+        when(transactionRepository.findStatusById(TRANSACTION_ID)).thenReturn(Optional.of(new TransactionStatusView("user123", PaymentStatus.SUCCESS)));
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(transaction));
+        when(refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("100.00"))).thenReturn(1);
 
-        Transaction refundedTransaction = paymentService.refundTransaction(transactionId, user);
+        assertEquals(PaymentStatus.SUCCESS, paymentService.fetchTransactionStatus(TRANSACTION_ID, user));
+        Transaction refundedTransaction = paymentService.refundTransaction(TRANSACTION_ID, user);
 
         assertNotNull(refundedTransaction);
         assertEquals(PaymentStatus.REFUNDED, refundedTransaction.getStatus());
-        verify(transactionRepository, times(1)).findById(transactionId);
-        verify(transactionRepository, times(1)).save(transaction);
+        assertEquals(0, new BigDecimal("100.00").compareTo(refundedTransaction.getRefundedAmount()));
+        assertEquals(PaymentStatus.REFUNDED, paymentService.fetchTransactionStatus(TRANSACTION_ID, user));
+        verify(transactionRepository, times(1)).findStatusById(TRANSACTION_ID);
+        verify(refundJdbcRepository, times(1)).findTransactionById(TRANSACTION_ID);
+        verify(refundJdbcRepository, times(1)).insert(argThat(refund -> new BigDecimal("100.00").equals(refund.getAmount())));
+        verify(paymentSummaryService, times(1)).addRefund(refundedTransaction, PaymentStatus.SUCCESS, new BigDecimal("100.00"));
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testPartialRefundAppendsRefundAndUpdatesSummary() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        Transaction partiallyRefunded = refundableTransaction(user, "40.00");
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(refundableTransaction(user, "0.00")),
+                Optional.of(partiallyRefunded));
+        when(refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("40.00"))).thenReturn(1);
+
+        Transaction refundedTransaction = paymentService.refundTransaction(TRANSACTION_ID, new BigDecimal("40.00"), user);
+
+        assertEquals(PaymentStatus.SUCCESS, refundedTransaction.getStatus());
+        assertEquals(new BigDecimal("40.00"), refundedTransaction.getRefundedAmount());
+        verify(refundJdbcRepository, times(1)).insert(argThat(refund -> new BigDecimal("40.00").equals(refund.getAmount())
+                && refund.getRefundTimestamp() != null && refund.getId() != null));
+        verify(paymentSummaryService, times(1)).addRefund(partiallyRefunded, PaymentStatus.SUCCESS, new BigDecimal("40.00"));
+    }
+
+    @Test
+    void testPartialRefundExceedingRefundableAmountIsRejected() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(refundableTransaction(user, "40.00")));
+
+        RefundAmountExceededException exception = assertThrows(RefundAmountExceededException.class,
+                () -> paymentService.refundTransaction(TRANSACTION_ID, new BigDecimal("70.00"), user));
+        assertEquals("Refund amount exceeds the refundable amount of 60.00", exception.getMessage());
+        verify(refundJdbcRepository, never()).addRefund(any(), any());
+        verify(refundJdbcRepository, never()).insert(any());
+        verifyNoInteractions(paymentSummaryService);
     }
 
     @Test
     void testRefundTransactionAlreadyRefunded() {
-        String transactionId = "1234";
         User user = mock(User.class);
-        Transaction transaction = new Transaction();
-        transaction.setId(transactionId);
+        when(user.getId()).thenReturn("user123");
+        Transaction transaction = refundableTransaction(user, "100.00");
         transaction.setStatus(PaymentStatus.REFUNDED);
-        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(transaction));
+
+        TransactionNotExistsException exception = assertThrows(TransactionNotExistsException.class,
+                () -> paymentService.refundTransaction(TRANSACTION_ID, new BigDecimal("1.00"), user));
+        assertEquals("Transaction with id " + TRANSACTION_ID + " is already refunded", exception.getMessage());
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction(TRANSACTION_ID, user));
+        verify(refundJdbcRepository, never()).addRefund(any(), any());
+        verify(refundJdbcRepository, never()).insert(any());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = PaymentStatus.class, names = {"PENDING", "FAIL"})
+    void testRefundTransactionWhichIsNotSuccessfulIsRejected(PaymentStatus status) {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        Transaction transaction = refundableTransaction(user, "0.00");
+        transaction.setStatus(status);
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(transaction));
+
+        TransactionNotRefundableException exception = assertThrows(TransactionNotRefundableException.class,
+                () -> paymentService.refundTransaction(TRANSACTION_ID, new BigDecimal("40.00"), user));
+        assertEquals("Transaction with id " + TRANSACTION_ID + " can not be refunded in status " + status, exception.getMessage());
+        assertThrows(TransactionNotRefundableException.class, () -> paymentService.refundTransaction(TRANSACTION_ID, user));
+        verify(refundJdbcRepository, never()).addRefund(any(), any());
+        verify(refundJdbcRepository, never()).insert(any());
+        verifyNoInteractions(paymentSummaryService);
+    }
+
+    @Test
+    void testRefundIsRetriedAfterConcurrentChange() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(
+                Optional.of(refundableTransaction(user, "0.00")),
+                Optional.of(refundableTransaction(user, "30.00")));
+        when(refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("100.00"))).thenReturn(0);
+        when(refundJdbcRepository.addRefund(TRANSACTION_ID, new BigDecimal("70.00"))).thenReturn(1);
+
+        Transaction refunded = paymentService.refundTransaction(TRANSACTION_ID, user);
+
+        assertEquals(PaymentStatus.REFUNDED, refunded.getStatus());
+        assertEquals(0, new BigDecimal("100.00").compareTo(refunded.getRefundedAmount()));
+        verify(refundJdbcRepository, times(1)).insert(argThat(refund -> new BigDecimal("70.00").equals(refund.getAmount())));
+        verify(paymentSummaryService, times(1)).addRefund(refunded, PaymentStatus.SUCCESS, new BigDecimal("70.00"));
+        assertEquals(1.0, meterRegistry.get("payment.refund.retries").counter().count());
+    }
+
+    @Test
+    void testRefundTransactionRetriesLockConflicts() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        when(refundJdbcRepository.addRefund(TRANSACTION_ID, BigDecimal.TEN))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenReturn(1);
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(refundableTransaction(user, "10")));
+
+        assertEquals(BigDecimal.TEN, paymentService.refundTransaction(TRANSACTION_ID, BigDecimal.TEN, user).getRefundedAmount());
+        verify(refundJdbcRepository, times(2)).addRefund(TRANSACTION_ID, BigDecimal.TEN);
+        assertEquals(1.0, meterRegistry.get("payment.refund.retries").counter().count());
+    }
+
+    @Test
+    void testRefundTransactionGivesUpAfterRepeatedLockConflicts() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(refundableTransaction(user, "0.00")));
+        when(refundJdbcRepository.addRefund(TRANSACTION_ID, BigDecimal.TEN))
+                .thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertThrows(ServiceBusyException.class, () -> paymentService.refundTransaction(TRANSACTION_ID, BigDecimal.TEN, user));
+        verify(refundJdbcRepository, times(3)).addRefund(TRANSACTION_ID, BigDecimal.TEN);
+        verify(refundJdbcRepository, never()).insert(any());
+        verifyNoInteractions(paymentSummaryService);
+    }
+
+    @Test
+    void testRefundTransactionOfOtherUserIsNotFound() {
+        User user = mock(User.class);
+        when(user.getId()).thenReturn("user123");
+        User otherUser = mock(User.class);
+        when(otherUser.getId()).thenReturn("someone-else");
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.of(refundableTransaction(otherUser, "0.00")));
 
-        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction(transactionId, user));
-        verify(transactionRepository, times(1)).findById(transactionId);
+        TransactionNotExistsException exception = assertThrows(TransactionNotExistsException.class,
+                () -> paymentService.refundTransaction(TRANSACTION_ID, BigDecimal.TEN, user));
+        assertEquals("Transaction does not exists in the system", exception.getMessage());
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction(TRANSACTION_ID, user));
+        verify(refundJdbcRepository, never()).addRefund(any(), any());
+        verify(refundJdbcRepository, never()).insert(any());
+        verifyNoInteractions(paymentSummaryService);
+    }
+
+    @Test
+    void testRefundTransactionWithInvalidIdIsNotFound() {
+        User user = mock(User.class);
+
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction("not-a-uuid", BigDecimal.TEN, user));
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction("not-a-uuid", user));
+        verify(refundJdbcRepository, never()).addRefund(any(), any());
     }
 
     @Test
     void testRefundTransactionThrowsExceptionWhenNotFound() {
-        String transactionId = "1234";
         User user = mock(User.class);
-        when(transactionRepository.findById(transactionId)).thenReturn(Optional.empty());
+        when(refundJdbcRepository.findTransactionById(TRANSACTION_ID)).thenReturn(Optional.empty());
+
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction(TRANSACTION_ID, user));
+        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction(TRANSACTION_ID, BigDecimal.TEN, user));
+        verify(refundJdbcRepository, never()).insert(any());
+    }
 
-        assertThrows(TransactionNotExistsException.class, () -> paymentService.refundTransaction(transactionId, user));
-        verify(transactionRepository, times(1)).findById(transactionId);
+    private Transaction refundableTransaction(User user, String refundedAmount) {
+        Transaction transaction = new Transaction(TRANSACTION_ID, new BigDecimal("100.00"), PaymentMethod.CREDIT_CARD, Currency.USD,
+                user, PaymentStatus.SUCCESS, LocalDateTime.now());
+        transaction.setRefundedAmount(new BigDecimal(refundedAmount));
+        return transaction;
     }
 }
@@ -0,0 +1,255 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.PaymentSummary;
+import com.hitpixel.payment.domain.PaymentSummaryKey;
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.PaymentSummaryView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.exception.UserNotFoundException;
+import com.hitpixel.payment.repository.PaymentSummaryRepository;
+import com.hitpixel.payment.repository.TransactionRepository;
+import com.hitpixel.payment.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class PaymentSummaryServiceTest {
+
+    private static final String USER_ID = "01890a5d-ac96-7b3c-8000-000000000001";
+
+    @Mock
+    private PaymentSummaryRepository paymentSummaryRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private AutoCloseable mocks;
+    private PaymentSummaryService paymentSummaryService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        mocks = MockitoAnnotations.openMocks(this);
+        paymentSummaryService = new PaymentSummaryService(paymentSummaryRepository, transactionRepository, userRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), Duration.ofHours(1));
+        user = new User(USER_ID, "Jon Snow", "jon.snow@gmail.com", "password123");
+        when(paymentSummaryRepository.add(any(), anyLong(), any(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        paymentSummaryService.shutdown();
+        mocks.close();
+    }
+
+    @Test
+    void testFetchSummaryReadsTotalsOfUser() {
+        List<PaymentSummaryView> summary = List.of(new PaymentSummaryView(Currency.USD, PaymentStatus.SUCCESS,
+                PaymentMethod.CREDIT_CARD, 2, new BigDecimal("30.00"), BigDecimal.ZERO));
+        when(paymentSummaryRepository.findSummaryByUserId(USER_ID)).thenReturn(summary);
+
+        assertEquals(summary, paymentSummaryService.fetchSummary(user));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void testAddTransactionsUpdatesEveryCombinationOnceInKeyOrder() {
+        paymentSummaryService.addTransactions(List.of(
+                transaction("10.00", Currency.EUR, PaymentStatus.SUCCESS),
+                transaction("20.00", Currency.USD, PaymentStatus.FAIL),
+                transaction("30.00", Currency.USD, PaymentStatus.SUCCESS),
+                transaction("40.00", Currency.USD, PaymentStatus.SUCCESS)));
+        paymentSummaryService.flush();
+
+        InOrder inOrder = inOrder(paymentSummaryRepository);
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.SUCCESS), 2, new BigDecimal("70.00"), BigDecimal.ZERO);
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.FAIL), 1, new BigDecimal("20.00"), BigDecimal.ZERO);
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.EUR, PaymentStatus.SUCCESS), 1, new BigDecimal("10.00"), BigDecimal.ZERO);
+        verify(paymentSummaryRepository, times(3)).add(any(), anyLong(), any(), any());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testChangeStatusMovesTransactionToTotalsOfNewStatus() {
+        Transaction transaction = transaction("25.00", Currency.USD, PaymentStatus.SUCCESS);
+        transaction.setRefundedAmount(new BigDecimal("5.00"));
+
+        paymentSummaryService.changeStatus(transaction, PaymentStatus.PENDING);
+        paymentSummaryService.flush();
+
+        InOrder inOrder = inOrder(paymentSummaryRepository);
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.PENDING), -1, new BigDecimal("-25.00"), new BigDecimal("-5.00"));
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.SUCCESS), 1, new BigDecimal("25.00"), new BigDecimal("5.00"));
+    }
+
+    @Test
+    void testPartialRefundOnlyAddsRefundedAmount() {
+        Transaction transaction = transaction("100.00", Currency.USD, PaymentStatus.SUCCESS);
+        transaction.setRefundedAmount(new BigDecimal("40.00"));
+
+        paymentSummaryService.addRefund(transaction, PaymentStatus.SUCCESS, new BigDecimal("15.00"));
+        paymentSummaryService.flush();
+
+        verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.SUCCESS), 0, BigDecimal.ZERO, new BigDecimal("15.00"));
+        verify(paymentSummaryRepository, times(1)).add(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testFinalRefundMovesTransactionToRefundedTotals() {
+        Transaction transaction = transaction("100.00", Currency.USD, PaymentStatus.REFUNDED);
+        transaction.setRefundedAmount(new BigDecimal("100.00"));
+
+        paymentSummaryService.addRefund(transaction, PaymentStatus.SUCCESS, new BigDecimal("60.00"));
+        paymentSummaryService.flush();
+
+        InOrder inOrder = inOrder(paymentSummaryRepository);
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.SUCCESS), -1, new BigDecimal("-100.00"), new BigDecimal("-40.00"));
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.REFUNDED), 1, new BigDecimal("100.00"), new BigDecimal("100.00"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMissingTotalsAreCreatedForEveryCombinationWithUserLocked() {
+        PaymentSummaryKey usdSuccess = key(Currency.USD, PaymentStatus.SUCCESS);
+        when(paymentSummaryRepository.add(any(), anyLong(), any(), any())).thenReturn(0, 1);
+        when(userRepository.findAndLockById(USER_ID)).thenReturn(Optional.of(user));
+        when(paymentSummaryRepository.findAllByUserId(USER_ID)).thenReturn(List.of(
+                new PaymentSummary(usdSuccess, 0, BigDecimal.ZERO, BigDecimal.ZERO)));
+
+        paymentSummaryService.addTransactions(List.of(transaction("10.00", Currency.USD, PaymentStatus.SUCCESS)));
+        paymentSummaryService.flush();
+
+        ArgumentCaptor<List<PaymentSummary>> created = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(userRepository, paymentSummaryRepository);
+        inOrder.verify(paymentSummaryRepository).add(usdSuccess, 1, new BigDecimal("10.00"), BigDecimal.ZERO);
+        inOrder.verify(userRepository).findAndLockById(USER_ID);
+        inOrder.verify(paymentSummaryRepository).saveAll(created.capture());
+        inOrder.verify(paymentSummaryRepository).add(usdSuccess, 1, new BigDecimal("10.00"), BigDecimal.ZERO);
+        int combinations = Currency.values().length * PaymentStatus.values().length * PaymentMethod.values().length;
+        assertEquals(combinations - 1, created.getValue().size());
+        assertTrue(created.getValue().stream().noneMatch(summary -> summary.getId().equals(usdSuccess)));
+        assertTrue(created.getValue().stream().allMatch(summary -> summary.getTransactionCount() == 0));
+    }
+
+    @Test
+    void testTotalsOfUnknownUserAreNotCreatedAndKeptForNextFlush() {
+        when(paymentSummaryRepository.add(any(), anyLong(), any(), any())).thenReturn(0);
+        when(userRepository.findAndLockById(USER_ID)).thenReturn(Optional.empty());
+
+        paymentSummaryService.addTransactions(List.of(transaction("10.00", Currency.USD, PaymentStatus.SUCCESS)));
+        paymentSummaryService.flush();
+        paymentSummaryService.flush();
+
+        verify(paymentSummaryRepository, never()).saveAll(any());
+        verify(paymentSummaryRepository, times(2)).add(key(Currency.USD, PaymentStatus.SUCCESS), 1, new BigDecimal("10.00"), BigDecimal.ZERO);
+    }
+
+    @Test
+    void testChangesOfTransactionAreMergedOnceItCommits() {
+        Transaction transaction = transaction("100.00", Currency.USD, PaymentStatus.SUCCESS);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            paymentSummaryService.addTransactions(List.of(transaction));
+            paymentSummaryService.addRefund(transaction, PaymentStatus.SUCCESS, new BigDecimal("15.00"));
+            paymentSummaryService.flush();
+            verify(paymentSummaryRepository, never()).add(any(), anyLong(), any(), any());
+
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        paymentSummaryService.flush();
+
+        verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.SUCCESS), 1, new BigDecimal("100.00"), new BigDecimal("15.00"));
+        verify(paymentSummaryRepository, times(1)).add(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testChangesOfRolledBackTransactionAreDropped() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            paymentSummaryService.addTransactions(List.of(transaction("10.00", Currency.USD, PaymentStatus.SUCCESS)));
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        paymentSummaryService.flush();
+
+        verify(paymentSummaryRepository, never()).add(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testFetchSummaryWritesMergedChangesFirst() {
+        paymentSummaryService.addTransactions(List.of(transaction("10.00", Currency.USD, PaymentStatus.SUCCESS)));
+
+        paymentSummaryService.fetchSummary(user);
+
+        InOrder inOrder = inOrder(paymentSummaryRepository);
+        inOrder.verify(paymentSummaryRepository).add(key(Currency.USD, PaymentStatus.SUCCESS), 1, new BigDecimal("10.00"), BigDecimal.ZERO);
+        inOrder.verify(paymentSummaryRepository).findSummaryByUserId(USER_ID);
+    }
+
+    @Test
+    void testRebuildSummaryReplacesTotalsWithThoseOfTransactions() {
+        PaymentSummary usdSuccess = new PaymentSummary(key(Currency.USD, PaymentStatus.SUCCESS), 7, new BigDecimal("70.00"), BigDecimal.ZERO);
+        PaymentSummary usdFail = new PaymentSummary(key(Currency.USD, PaymentStatus.FAIL), 3, new BigDecimal("30.00"), BigDecimal.ZERO);
+        List<PaymentSummary> summaries = new ArrayList<>(List.of(usdSuccess, usdFail));
+        when(userRepository.findAndLockById(USER_ID)).thenReturn(Optional.of(user));
+        when(paymentSummaryRepository.findAllByUserId(USER_ID)).thenReturn(summaries);
+        when(paymentSummaryRepository.findAndLockAllByUserId(USER_ID)).thenReturn(summaries);
+        when(transactionRepository.summarizeByUserId(USER_ID)).thenReturn(List.of(new PaymentSummaryView(Currency.USD,
+                PaymentStatus.SUCCESS, PaymentMethod.CREDIT_CARD, 2, new BigDecimal("20.00"), new BigDecimal("5.00"))));
+        paymentSummaryService.addTransactions(List.of(transaction("10.00", Currency.USD, PaymentStatus.SUCCESS)));
+
+        List<PaymentSummaryView> rebuilt = paymentSummaryService.rebuildSummary(user);
+        paymentSummaryService.flush();
+
+        assertEquals(List.of(new PaymentSummaryView(Currency.USD, PaymentStatus.SUCCESS, PaymentMethod.CREDIT_CARD, 2,
+                new BigDecimal("20.00"), new BigDecimal("5.00"))), rebuilt);
+        assertEquals(2, usdSuccess.getTransactionCount());
+        assertEquals(0, usdFail.getTransactionCount());
+        assertEquals(BigDecimal.ZERO, usdFail.getAmount());
+        InOrder inOrder = inOrder(userRepository, paymentSummaryRepository, transactionRepository);
+        inOrder.verify(userRepository).findAndLockById(USER_ID);
+        inOrder.verify(paymentSummaryRepository).findAndLockAllByUserId(USER_ID);
+        inOrder.verify(transactionRepository).summarizeByUserId(USER_ID);
+        verify(paymentSummaryRepository, never()).add(any(), anyLong(), any(), any());
+    }
+
+    private Transaction transaction(String amount, Currency currency, PaymentStatus status) {
+        return new Transaction(new IdGenerator().nextId(), new BigDecimal(amount), PaymentMethod.CREDIT_CARD, currency,
+                user, status, LocalDateTime.now());
+    }
+
+    private static PaymentSummaryKey key(Currency currency, PaymentStatus status) {
+        return new PaymentSummaryKey(USER_ID, currency, status, PaymentMethod.CREDIT_CARD);
+    }
+}
@@ -0,0 +1,104 @@
+package com.hitpixel.payment.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hitpixel.payment.domain.User;
+import com.hitpixel.payment.dto.TransactionHistoryFilter;
+import com.hitpixel.payment.dto.TransactionView;
+import com.hitpixel.payment.enums.Currency;
+import com.hitpixel.payment.enums.ExportFormat;
+import com.hitpixel.payment.enums.PaymentMethod;
+import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionExportServiceTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final TransactionView FIRST = new TransactionView("01890a5d-ac97-7b3c-8000-000000000002",
+            new BigDecimal("10.5000"), PaymentMethod.PAY_PAL, Currency.EUR, PaymentStatus.SUCCESS, TIMESTAMP);
+    private static final TransactionView SECOND = new TransactionView("01890a5d-ac97-7b3c-8000-000000000001",
+            new BigDecimal("7.0000"), PaymentMethod.CREDIT_CARD, Currency.USD, PaymentStatus.REFUNDED, TIMESTAMP.minusDays(1));
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private TransactionExportService transactionExportService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionExportService = new TransactionExportService(transactionRepository, objectMapper);
+        user = new User("user123", "Harry", "harry@gmail.com", "password123");
+    }
+
+    @Test
+    void testExportNdjsonWritesOneObjectPerLineAndClosesStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(transactionRepository.streamHistory("user123", null, null, null, null, null))
+                .thenReturn(Stream.of(FIRST, SECOND).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long exported = transactionExportService.export(user, TransactionHistoryFilter.NONE, ExportFormat.NDJSON, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, exported);
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":\"01890a5d-ac97-7b3c-8000-000000000002\",\"amount\":10.5000,\"paymentMethod\":\"PAY_PAL\","
+                + "\"currency\":\"EUR\",\"status\":\"SUCCESS\",\"transactionTimestamp\":\"2026-01-01T12:00:00\"}", lines[0]);
+        assertTrue(lines[1].contains("\"status\":\"REFUNDED\""));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testExportCsvWritesHeaderAndFilters() throws Exception {
+        TransactionHistoryFilter filter = new TransactionHistoryFilter(TIMESTAMP.minusDays(7), TIMESTAMP.plusDays(1), null, Currency.EUR, null);
+        when(transactionRepository.streamHistory("user123", filter.from(), filter.to(), null, Currency.EUR, null))
+                .thenReturn(Stream.of(FIRST));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        long exported = transactionExportService.export(user, filter, ExportFormat.CSV, outputStream);
+
+        assertEquals(1, exported);
+        assertEquals(TransactionExportService.CSV_HEADER + "\n"
+                + "01890a5d-ac97-7b3c-8000-000000000002,10.5000,PAY_PAL,EUR,SUCCESS,2026-01-01T12:00\n",
+                outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExportFlushesInChunks() throws Exception {
+        int rows = Integer.parseInt(TransactionRepository.STREAM_FETCH_SIZE) * 3 + 1;
+        when(transactionRepository.streamHistory("user123", null, null, null, null, null))
+                .thenReturn(IntStream.range(0, rows).mapToObj(row -> FIRST));
+        AtomicInteger flushes = new AtomicInteger();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+
+        long exported = transactionExportService.export(user, TransactionHistoryFilter.NONE, ExportFormat.NDJSON, outputStream);
+
+        assertEquals(rows, exported);
+        assertEquals(4, flushes.get());
+    }
+}
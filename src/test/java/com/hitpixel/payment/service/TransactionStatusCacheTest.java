@@ -0,0 +1,118 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.dto.TransactionStatusView;
+import com.hitpixel.payment.enums.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStatusCacheTest {
+
+    private static final String TRANSACTION_ID = "01890a5d-ac97-7b3c-8000-00000000000a";
+    private static final TransactionStatusView SUCCESS = new TransactionStatusView("user123", PaymentStatus.SUCCESS);
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionStatusCache transactionStatusCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionStatusCache = new TransactionStatusCache(2, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if(TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testGetLoadsOnceAndCountsHits() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for(int poll = 0; poll < 4; poll++) {
+            assertEquals(SUCCESS, transactionStatusCache.get("txn1", id -> {
+                loads.incrementAndGet();
+                return SUCCESS;
+            }));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(3.0, meterRegistry.get("cache.gets").tag("cache", "transactions.status").tag("result", "hit").functionCounter().count());
+        assertEquals(0.75, meterRegistry.get("cache.hit.ratio").tag("cache", "transactions.status").gauge().value());
+    }
+
+    @Test
+    void testMissingTransactionIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(transactionStatusCache.get("txn1", id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(transactionStatusCache.get("txn1", id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, transactionStatusCache.size());
+    }
+
+    @Test
+    void testUppercaseIdSharesEntryOfCanonicalId() {
+        AtomicInteger loads = new AtomicInteger();
+        transactionStatusCache.put(TRANSACTION_ID.toUpperCase(), "user123", PaymentStatus.PENDING);
+
+        transactionStatusCache.updateStatus(TRANSACTION_ID.toUpperCase(), PaymentStatus.SUCCESS);
+
+        assertEquals(SUCCESS, transactionStatusCache.get(TRANSACTION_ID, id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(SUCCESS, transactionStatusCache.get(TRANSACTION_ID.toUpperCase(), id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(0, loads.get());
+        assertEquals(1, transactionStatusCache.size());
+    }
+
+    @Test
+    void testUpdateStatusOnlyChangesCachedTransactions() {
+        transactionStatusCache.put("txn1", "user123", PaymentStatus.PENDING);
+
+        transactionStatusCache.updateStatus("txn1", PaymentStatus.SUCCESS);
+        transactionStatusCache.updateStatus("txn2", PaymentStatus.FAIL);
+
+        assertEquals(SUCCESS, transactionStatusCache.get("txn1", id -> null));
+        assertNull(transactionStatusCache.get("txn2", id -> null));
+    }
+
+    @Test
+    void testWritesInsideTransactionApplyAfterCommit() {
+        transactionStatusCache.put("txn1", "user123", PaymentStatus.SUCCESS);
+        TransactionSynchronizationManager.initSynchronization();
+
+        transactionStatusCache.put("txn1", "user123", PaymentStatus.REFUNDED);
+        assertEquals(PaymentStatus.SUCCESS, transactionStatusCache.get("txn1", id -> null).status());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(PaymentStatus.REFUNDED, transactionStatusCache.get("txn1", id -> null).status());
+    }
+
+    @Test
+    void testEvictionMetricIsRegistered() {
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "transactions.status").functionCounter());
+        assertNotNull(meterRegistry.find("cache.size").tag("cache", "transactions.status").gauge());
+    }
+}
@@ -0,0 +1,136 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.domain.Transaction;
+import com.hitpixel.payment.exception.ServiceBusyException;
+import com.hitpixel.payment.repository.TransactionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TransactionWriterTest {
+
+    private TransactionRepository transactionRepository;
+    private PaymentSummaryService paymentSummaryService;
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionWriter transactionWriter;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        paymentSummaryService = mock(PaymentSummaryService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        transactionWriter = new TransactionWriter(transactionRepository, paymentSummaryService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                64, Duration.ZERO, 100, Duration.ofSeconds(5), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transactionWriter.shutdown();
+    }
+
+    @Test
+    void testWriteReturnsCommittedTransaction() {
+        Transaction transaction = transaction("1");
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertSame(transaction, transactionWriter.write(transaction));
+        verify(transactionRepository, times(1)).saveAll(List.of(transaction));
+        verify(paymentSummaryService, times(1)).addTransactions(List.of(transaction));
+    }
+
+    @Test
+    void testConcurrentWritesShareOneCommit() throws Exception {
+        CountDownLatch firstCommitStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        List<Integer> batchSizes = new ArrayList<>();
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            batchSizes.add(transactions.size());
+            firstCommitStarted.countDown();
+            releaseFirstCommit.await(5, TimeUnit.SECONDS);
+            return transactions;
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(11);
+        CompletableFuture<Transaction> first = CompletableFuture.supplyAsync(() -> transactionWriter.write(transaction("first")), callers);
+        assertTrue(firstCommitStarted.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<Transaction>> queued = new ArrayList<>();
+        for(int index = 0; index < 10; index++) {
+            Transaction transaction = transaction("queued-" + index);
+            queued.add(CompletableFuture.supplyAsync(() -> transactionWriter.write(transaction), callers));
+        }
+        awaitQueueDepth(10);
+        releaseFirstCommit.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS).getId());
+        for(CompletableFuture<Transaction> future : queued) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+        assertEquals(List.of(1, 10), batchSizes);
+        DistributionSummary batchSize = meterRegistry.get("payment.group-commit.batch.size").summary();
+        assertEquals(2, batchSize.count());
+        assertEquals(10, batchSize.max());
+    }
+
+    @Test
+    void testFailedGroupIsRetriedOneByOne() {
+        Transaction good = transaction("good");
+        Transaction bad = transaction("bad");
+        when(transactionRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            if(transaction == bad) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            return transaction;
+        });
+
+        assertSame(good, transactionWriter.write(good));
+        assertThrows(DataIntegrityViolationException.class, () -> transactionWriter.write(bad));
+        verify(paymentSummaryService, times(1)).addTransactions(List.of(good));
+        verify(paymentSummaryService, never()).addTransactions(List.of(bad));
+    }
+
+    @Test
+    void testWriteAfterShutdownIsRejected() throws InterruptedException {
+        transactionWriter.shutdown();
+
+        assertThrows(ServiceBusyException.class, () -> transactionWriter.write(transaction("1")));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(meterRegistry.get("payment.group-commit.queue.depth").gauge().value() < depth) {
+            assertTrue(System.nanoTime() < deadline, "writes were not queued");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Transaction transaction(String id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hitpixel.payment.service;
+
+import com.hitpixel.payment.config.CacheConfig;
+import com.hitpixel.payment.dto.User;
+import com.hitpixel.payment.exception.UserNotFoundException;
+import com.hitpixel.payment.repository.UserRepository;
+import com.hitpixel.payment.security.RefreshTokenStore;
+import com.hitpixel.payment.security.RevokedTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = {CacheConfig.class, UserService.class, IdGenerator.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration({CacheAutoConfiguration.class, TaskExecutionAutoConfiguration.class})
+class UserServiceCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private JWTService jwtService;
+
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockitoBean
+    private RefreshTokenStore refreshTokenStore;
+
+    @MockitoBean
+    private RevokedTokenStore revokedTokenStore;
+
+    private com.hitpixel.payment.domain.User domainUser;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CacheConfig.USERS_CACHE).clear();
+        domainUser = new com.hitpixel.payment.domain.User("1", "Jon Snow", "jon.snow@gmail.com", "password123");
+    }
+
+    @Test
+    void testFindUserByEmailIsServedFromCache() {
+        when(userRepository.findByEmail(domainUser.getEmail())).thenReturn(Optional.of(domainUser));
+
+        com.hitpixel.payment.domain.User first = userService.findUserByEmail(domainUser.getEmail());
+        com.hitpixel.payment.domain.User second = userService.findUserByEmail(domainUser.getEmail());
+
+        assertEquals(domainUser, first);
+        assertEquals(domainUser, second);
+        verify(userRepository, times(1)).findByEmail(domainUser.getEmail());
+    }
+
+    @Test
+    void testFindUserByEmailDoesNotCacheMissingUser() {
+        when(userRepository.findByEmail(domainUser.getEmail())).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.findUserByEmail(domainUser.getEmail()));
+        assertThrows(UserNotFoundException.class, () -> userService.findUserByEmail(domainUser.getEmail()));
+
+        verify(userRepository, times(2)).findByEmail(domainUser.getEmail());
+    }
+
+    @Test
+    void testRegisterUsersEvictsCachedUser() {
+        cacheManager.getCache(CacheConfig.USERS_CACHE).put(domainUser.getEmail(), domainUser);
+
+        when(passwordHashingService.encode("password123")).thenReturn(CompletableFuture.completedFuture("{bcrypt}hash"));
+
+        userService.registerUsers(new User("Jon Snow", "jon.snow@gmail.com", "password123"));
+
+        assertNull(cacheManager.getCache(CacheConfig.USERS_CACHE).get(domainUser.getEmail()));
+    }
+}
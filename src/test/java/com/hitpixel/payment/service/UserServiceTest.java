@@ -2,18 +2,41 @@ package com.hitpixel.payment.service;
 
 import com.hitpixel.payment.dto.JWTAuthToken;
 import com.hitpixel.payment.dto.LoginRequest;
+import com.hitpixel.payment.dto.LogoutRequest;
+import com.hitpixel.payment.dto.RefreshTokenRequest;
 import com.hitpixel.payment.dto.User;
 import com.hitpixel.payment.exception.UserAlreadyExistsException;
 import com.hitpixel.payment.exception.UserNotFoundException;
+import com.hitpixel.payment.exception.JWTFailureException;
+import com.hitpixel.payment.exception.ServiceBusyException;
 import com.hitpixel.payment.repository.UserRepository;
+import com.hitpixel.payment.security.RefreshTokenStore;
+import com.hitpixel.payment.security.RevokedTokenStore;
+import com.hitpixel.payment.security.VerifiedToken;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +52,24 @@ class UserServiceTest {
     @Mock
     private JWTService jwtService;
 
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private RevokedTokenStore revokedTokenStore;
+
+    @Mock
+    private Executor taskExecutor;
+
+    @Spy
+    private IdGenerator idGenerator = new IdGenerator();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private User user;
     private LoginRequest loginRequest;
 
@@ -37,6 +78,10 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(taskExecutor).execute(any());
 
         user = new User("Ned Stark", "ned.stark@gmail.com", "password123");
         loginRequest = new LoginRequest("ned.stark@gmail.com", "password123");
@@ -44,12 +89,58 @@ class UserServiceTest {
 
     @Test
     void testRegisterUsers() {
-        domainUser = new com.hitpixel.payment.domain.User("1", "Ned Stark", "ned.stark@gmail.com", "password123");
-        when(userRepository.save(domainUser)).thenReturn(domainUser);
+        when(passwordHashingService.encode(user.password())).thenReturn(CompletableFuture.completedFuture("{bcrypt}hash"));
 
         userService.registerUsers(user);
 
-        verify(userRepository, times(1)).save(any());
+        verify(userRepository, times(1)).saveAndFlush(argThat(saved -> "{bcrypt}hash".equals(saved.getPassword())));
+    }
+
+    @Test
+    void testRegisterUsersSavesOnCallingThread() {
+        ExecutorService hashingPool = Executors.newSingleThreadExecutor();
+        try {
+            when(passwordHashingService.encode(user.password()))
+                    .thenReturn(CompletableFuture.supplyAsync(() -> "{bcrypt}hash", hashingPool));
+            List<Thread> savingThreads = new ArrayList<>();
+            when(userRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+                savingThreads.add(Thread.currentThread());
+                return invocation.getArgument(0);
+            });
+
+            userService.registerUsers(user);
+
+            assertEquals(List.of(Thread.currentThread()), savingThreads);
+        } finally {
+            hashingPool.shutdown();
+        }
+    }
+
+    @Test
+    void testRegisterUsersRegisteredConcurrently() {
+        when(passwordHashingService.encode(user.password())).thenReturn(CompletableFuture.completedFuture("{bcrypt}hash"));
+        when(userRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("unique constraint on email"));
+        when(userRepository.existsByEmail(user.email())).thenReturn(true);
+
+        assertThrows(UserAlreadyExistsException.class, () -> userService.registerUsers(user));
+    }
+
+    @Test
+    void testRegisterUsersRethrowsOtherIntegrityViolations() {
+        when(passwordHashingService.encode(user.password())).thenReturn(CompletableFuture.completedFuture("{bcrypt}hash"));
+        when(userRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("value too long"));
+        when(userRepository.existsByEmail(user.email())).thenReturn(false);
+
+        assertThrows(DataIntegrityViolationException.class, () -> userService.registerUsers(user));
+    }
+
+    @Test
+    void testRegisterUsersWhenHashingPoolIsBusy() {
+        when(passwordHashingService.encode(user.password()))
+                .thenReturn(CompletableFuture.failedFuture(new ServiceBusyException("Too many login requests, please retry later")));
+
+        assertThrows(ServiceBusyException.class, () -> userService.registerUsers(user));
+        verify(userRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -59,31 +150,101 @@ class UserServiceTest {
 
         assertThrows(UserAlreadyExistsException.class, () -> userService.registerUsers(user));
 
-        verify(userRepository, times(0)).save(any());
+        verify(userRepository, times(0)).saveAndFlush(any());
+        verifyNoInteractions(passwordHashingService);
     }
 
     @Test
     void testLoginUserSuccess() {
-        com.hitpixel.payment.domain.User savedUser = new com.hitpixel.payment.domain.User("1", user.name(), user.email(), user.password());
+        com.hitpixel.payment.domain.User savedUser = new com.hitpixel.payment.domain.User("1", user.name(), user.email(), "{bcrypt}hash");
         when(userRepository.findByEmail(user.email())).thenReturn(Optional.of(savedUser));
-        when(jwtService.generateJWTToken(savedUser.getName(), savedUser.getEmail())).thenReturn("generated_jwt_token");
+        when(passwordHashingService.matches(user.password(), "{bcrypt}hash")).thenReturn(CompletableFuture.completedFuture(true));
+        when(jwtService.generateJWTToken(savedUser.getId(), savedUser.getName(), savedUser.getEmail())).thenReturn("generated_jwt_token");
+        when(refreshTokenStore.issue(savedUser.getId(), savedUser.getName(), savedUser.getEmail())).thenReturn("refresh_token");
 
-        JWTAuthToken jwtAuthToken = userService.loginUser(loginRequest);
+        JWTAuthToken jwtAuthToken = userService.loginUser(loginRequest).join();
 
         assertNotNull(jwtAuthToken);
         assertEquals("generated_jwt_token", jwtAuthToken.token());
+        assertEquals("refresh_token", jwtAuthToken.refreshToken());
         verify(userRepository, times(1)).findByEmail(user.email());
-        verify(jwtService, times(1)).generateJWTToken(savedUser.getName(), savedUser.getEmail());
+        verify(jwtService, times(1)).generateJWTToken(savedUser.getId(), savedUser.getName(), savedUser.getEmail());
+        verify(passwordHashingService, never()).encode(any());
+        verify(taskExecutor, times(1)).execute(any());
     }
 
     @Test
     void testLoginUserFailureIncorrectPassword() {
-        com.hitpixel.payment.domain.User savedUser = new com.hitpixel.payment.domain.User("1", user.name(), user.email(), "wrongpassword");
+        com.hitpixel.payment.domain.User savedUser = new com.hitpixel.payment.domain.User("1", user.name(), user.email(), "{bcrypt}hash");
         when(userRepository.findByEmail(user.email())).thenReturn(Optional.of(savedUser));
+        when(passwordHashingService.matches(user.password(), "{bcrypt}hash")).thenReturn(CompletableFuture.completedFuture(false));
 
-        BadCredentialsException exception = assertThrows(BadCredentialsException.class, () -> userService.loginUser(loginRequest));
-        assertEquals("Login details are incorrect", exception.getMessage());
+        CompletionException exception = assertThrows(CompletionException.class, () -> userService.loginUser(loginRequest).join());
+        assertInstanceOf(BadCredentialsException.class, exception.getCause());
+        assertEquals("Login details are incorrect", exception.getCause().getMessage());
         verify(userRepository, times(1)).findByEmail(user.email());
+        verify(jwtService, never()).generateJWTToken(any(), any(), any());
+    }
+
+    @Test
+    void testLoginUserRehashesLegacyPassword() {
+        com.hitpixel.payment.domain.User savedUser = new com.hitpixel.payment.domain.User("1", user.name(), user.email(), user.password());
+        when(userRepository.findByEmail(user.email())).thenReturn(Optional.of(savedUser));
+        when(passwordHashingService.matches(user.password(), user.password())).thenReturn(CompletableFuture.completedFuture(true));
+        when(passwordHashingService.upgradeEncoding(user.password())).thenReturn(true);
+        when(passwordHashingService.encode(user.password())).thenReturn(CompletableFuture.completedFuture("{bcrypt}hash"));
+        when(jwtService.generateJWTToken(savedUser.getId(), savedUser.getName(), savedUser.getEmail())).thenReturn("generated_jwt_token");
+
+        userService.loginUser(loginRequest).join();
+
+        verify(userRepository, times(1)).updatePassword(user.email(), "{bcrypt}hash");
+        verify(taskExecutor, times(2)).execute(any());
+    }
+
+    @Test
+    void testRefreshTokenSuccess() {
+        when(refreshTokenStore.rotate("refresh_token"))
+                .thenReturn(new RefreshTokenStore.Rotation("1", user.name(), user.email(), "next_refresh_token"));
+        when(jwtService.generateJWTToken("1", user.name(), user.email())).thenReturn("generated_jwt_token");
+
+        JWTAuthToken jwtAuthToken = userService.refreshToken(new RefreshTokenRequest("refresh_token"));
+
+        assertEquals("generated_jwt_token", jwtAuthToken.token());
+        assertEquals("next_refresh_token", jwtAuthToken.refreshToken());
+        verifyNoInteractions(userRepository, passwordHashingService);
+    }
+
+    @Test
+    void testRefreshTokenFailure() {
+        when(refreshTokenStore.rotate("refresh_token")).thenThrow(new JWTFailureException("Refresh token not valid"));
+
+        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest("refresh_token");
+        assertThrows(JWTFailureException.class, () -> userService.refreshToken(refreshTokenRequest));
+        verifyNoInteractions(jwtService);
+    }
+
+    @Test
+    void testLogoutUserRevokesTokenAndSession() {
+        VerifiedToken claims = new VerifiedToken("1", "Jon Snow", "jon.snow@gmail.com", null, Instant.ofEpochMilli(1_000_000));
+        when(jwtService.extractJWTClaims("jwt_token")).thenReturn(claims);
+        when(jwtService.getTokenId(claims, "jwt_token")).thenReturn("token-id");
+
+        userService.logoutUser("jwt_token", new LogoutRequest("refresh_token"));
+
+        verify(revokedTokenStore, times(1)).revoke("token-id", 1_000_000);
+        verify(refreshTokenStore, times(1)).revoke("refresh_token");
+    }
+
+    @Test
+    void testLogoutUserWithoutRefreshToken() {
+        VerifiedToken claims = new VerifiedToken("1", "Jon Snow", "jon.snow@gmail.com", null, Instant.ofEpochMilli(1_000_000));
+        when(jwtService.extractJWTClaims("jwt_token")).thenReturn(claims);
+        when(jwtService.getTokenId(claims, "jwt_token")).thenReturn("token-id");
+
+        userService.logoutUser("jwt_token", null);
+
+        verify(revokedTokenStore, times(1)).revoke("token-id", 1_000_000);
+        verifyNoInteractions(refreshTokenStore);
     }
 
     @Test
@@ -126,4 +287,37 @@ class UserServiceTest {
         assertEquals("User does not exists in the system", exception.getMessage());
         verify(userRepository, times(1)).findByEmail(user.email());
     }
+
+    @Test
+    void testConcurrentLookupsOfSameEmailShareOneQuery() throws Exception {
+        int callers = 4;
+        com.hitpixel.payment.domain.User savedUser = new com.hitpixel.payment.domain.User("1", user.name(), user.email(), user.password());
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findByEmail(user.email())).thenAnswer(invocation -> {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return Optional.of(savedUser);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<com.hitpixel.payment.domain.User>> foundUsers = new ArrayList<>();
+            for(int caller = 0; caller < callers; caller++) {
+                foundUsers.add(executor.submit(() -> userService.findUserByEmail(user.email())));
+            }
+            FunctionCounter coalesced = meterRegistry.get("singleflight.calls").tag("name", "users.email")
+                    .tag("result", "coalesced").functionCounter();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(coalesced.count() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for(Future<com.hitpixel.payment.domain.User> foundUser : foundUsers) {
+                assertSame(savedUser, foundUser.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(callers - 1, coalesced.count());
+            verify(userRepository, times(1)).findByEmail(user.email());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -5,22 +5,32 @@ import com.hitpixel.payment.dto.Payment;
 import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentMethod;
 import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.gateway.GatewayClients;
+import com.hitpixel.payment.service.IdGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CreditCardPaymentStrategyTest {
 
     private CreditCardPaymentStrategy creditCardPaymentStrategy;
 
+    private GatewayClients gatewayClients;
+
     @BeforeEach
     void setUp() {
-        creditCardPaymentStrategy = new CreditCardPaymentStrategy();
+        gatewayClients = mock(GatewayClients.class);
+        when(gatewayClients.authorize(any(), any())).thenReturn(PaymentStatus.SUCCESS);
+        creditCardPaymentStrategy = new CreditCardPaymentStrategy(gatewayClients, new IdGenerator());
     }
 
     @Test
@@ -61,9 +71,31 @@ class CreditCardPaymentStrategyTest {
         assertNotEquals(transaction1.getId(), transaction2.getId());
     }
 
+    @Test
+    void testProcessPaymentOfExistingTransactionKeepsItsId() {
+        Payment payment = new Payment(BigDecimal.valueOf(100.00), PaymentMethod.CREDIT_CARD, Currency.USD);
+        String transactionId = new IdGenerator().nextId();
+
+        Transaction transaction = creditCardPaymentStrategy.processPayment(transactionId, payment);
+
+        assertEquals(transactionId, transaction.getId());
+        verify(gatewayClients).authorize(eq(PaymentMethod.CREDIT_CARD), argThat(authorized -> transactionId.equals(authorized.getId())));
+    }
+
     @Test
     void testProcessPaymentWithNullPayment() {
         assertThrows(NullPointerException.class, () -> creditCardPaymentStrategy.processPayment(null),
                 "Should throw NullPointerException when payment is null");
     }
+
+    @Test
+    void testProcessPaymentDeclinedByGateway() {
+        Payment payment = new Payment(BigDecimal.valueOf(100.00), PaymentMethod.CREDIT_CARD, Currency.USD);
+        when(gatewayClients.authorize(any(), any())).thenReturn(PaymentStatus.FAIL);
+
+        Transaction transaction = creditCardPaymentStrategy.processPayment(payment);
+
+        assertEquals(PaymentStatus.FAIL, transaction.getStatus());
+        verify(gatewayClients).authorize(PaymentMethod.CREDIT_CARD, transaction);
+    }
 }
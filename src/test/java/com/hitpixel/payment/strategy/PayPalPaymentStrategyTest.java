@@ -5,6 +5,8 @@ import com.hitpixel.payment.dto.Payment;
 import com.hitpixel.payment.enums.Currency;
 import com.hitpixel.payment.enums.PaymentMethod;
 import com.hitpixel.payment.enums.PaymentStatus;
+import com.hitpixel.payment.gateway.GatewayClients;
+import com.hitpixel.payment.service.IdGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -12,15 +14,23 @@ import java.math.BigDecimal;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class PayPalPaymentStrategyTest {
     private PayPalPaymentStrategy payPalPaymentStrategy;
 
+    private GatewayClients gatewayClients;
+
     @BeforeEach
     void setUp() {
-        payPalPaymentStrategy = new PayPalPaymentStrategy();
+        gatewayClients = mock(GatewayClients.class);
+        when(gatewayClients.authorize(any(), any())).thenReturn(PaymentStatus.SUCCESS);
+        payPalPaymentStrategy = new PayPalPaymentStrategy(gatewayClients, new IdGenerator());
     }
 
     @Test
@@ -61,9 +71,31 @@ class PayPalPaymentStrategyTest {
         assertNotEquals(transaction1.getId(), transaction2.getId());
     }
 
+    @Test
+    void testProcessPaymentOfExistingTransactionKeepsItsId() {
+        Payment payment = new Payment(BigDecimal.valueOf(100.00), PaymentMethod.PAY_PAL, Currency.USD);
+        String transactionId = new IdGenerator().nextId();
+
+        Transaction transaction = payPalPaymentStrategy.processPayment(transactionId, payment);
+
+        assertEquals(transactionId, transaction.getId());
+        verify(gatewayClients).authorize(eq(PaymentMethod.PAY_PAL), argThat(authorized -> transactionId.equals(authorized.getId())));
+    }
+
     @Test
     void testProcessPaymentWithNullPayment() {
         assertThrows(NullPointerException.class, () -> payPalPaymentStrategy.processPayment(null),
                 "Should throw NullPointerException when payment is null");
     }
+
+    @Test
+    void testProcessPaymentDeclinedByGateway() {
+        Payment payment = new Payment(BigDecimal.valueOf(100.00), PaymentMethod.PAY_PAL, Currency.USD);
+        when(gatewayClients.authorize(any(), any())).thenReturn(PaymentStatus.FAIL);
+
+        Transaction transaction = payPalPaymentStrategy.processPayment(payment);
+
+        assertEquals(PaymentStatus.FAIL, transaction.getStatus());
+        verify(gatewayClients).authorize(PaymentMethod.PAY_PAL, transaction);
+    }
 }
@@ -0,0 +1,47 @@
+package com.hitpixel.payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testAddedValuesAreAlwaysFound() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+        String[] values = new String[1000];
+        for(int index = 0; index < values.length; index++) {
+            values[index] = UUID.randomUUID().toString();
+            bloomFilter.add(values[index]);
+        }
+
+        for(String value : values) {
+            assertTrue(bloomFilter.mightContain(value));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearConfiguredRate() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 0.01);
+        for(int index = 0; index < 1000; index++) {
+            bloomFilter.add(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for(int index = 0; index < 10_000; index++) {
+            if(bloomFilter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,93 @@
+package com.hitpixel.payment.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private AtomicLong now;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        circuitBreaker = new CircuitBreaker(3, 1_000, now::get);
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void testHalfOpenAllowsSingleTrialCall() {
+        open();
+        now.set(1_000);
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testSuccessfulTrialCallClosesCircuit() {
+        open();
+        now.set(1_000);
+        circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testFailedTrialCallReopensCircuit() {
+        open();
+        now.set(1_000);
+        circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        now.set(1_999);
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        now.set(2_000);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testInvalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 1_000, now::get));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(1, 0, now::get));
+    }
+
+    private void open() {
+        for(int failure = 0; failure < 3; failure++) {
+            circuitBreaker.onFailure();
+        }
+    }
+}
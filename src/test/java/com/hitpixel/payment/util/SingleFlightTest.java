@@ -0,0 +1,138 @@
+package com.hitpixel.payment.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private SingleFlight<String, String> singleFlight;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight<>("test");
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<Future<String>> results = new ArrayList<>();
+
+        for(int caller = 0; caller < CALLERS; caller++) {
+            results.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                calls.incrementAndGet();
+                await(release);
+                return "value";
+            })));
+        }
+        waitForCoalesced(CALLERS - 1);
+        release.countDown();
+
+        for(Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, singleFlight.executedCount());
+        assertEquals(CALLERS - 1, singleFlight.coalescedCount());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void testWaitingCallersGetTheExceptionOfTheCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("failed");
+        }));
+        waitForInFlight();
+        Future<String> follower = executor.submit(() -> singleFlight.execute("key", () -> "not called"));
+        waitForCoalesced(1);
+        release.countDown();
+
+        for(Future<String> result : List.of(leader, follower)) {
+            Exception exception = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+            assertEquals("failed", exception.getCause().getMessage());
+        }
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void testCompletedCallsAreNotReused() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        assertEquals("2", singleFlight.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+
+        assertEquals(2, singleFlight.executedCount());
+        assertEquals(0, singleFlight.coalescedCount());
+    }
+
+    @Test
+    void testDifferentKeysAreNotCoalesced() {
+        assertEquals("a", singleFlight.execute("a", () -> singleFlight.execute("b", () -> "b").replace("b", "a")));
+
+        assertEquals(2, singleFlight.executedCount());
+    }
+
+    @Test
+    void testCallsAreCounted() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        singleFlight.bindTo(meterRegistry);
+
+        singleFlight.execute("key", () -> "value");
+
+        assertEquals(1.0, meterRegistry.get("singleflight.calls").tag("name", "test").tag("result", "executed").functionCounter().count());
+        assertEquals(0.0, meterRegistry.get("singleflight.calls").tag("name", "test").tag("result", "coalesced").functionCounter().count());
+    }
+
+    private void waitForCoalesced(int callers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(singleFlight.coalescedCount() < callers && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(callers, singleFlight.coalescedCount());
+    }
+
+    private void waitForInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(singleFlight.inFlightCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, singleFlight.inFlightCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+}
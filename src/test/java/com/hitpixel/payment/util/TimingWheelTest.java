@@ -0,0 +1,65 @@
+package com.hitpixel.payment.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private List<String> expired;
+    private TimingWheel<String> timingWheel;
+
+    @BeforeEach
+    void setUp() {
+        expired = new ArrayList<>();
+        timingWheel = new TimingWheel<>(100, 8, expired::add, 0);
+    }
+
+    @Test
+    void testKeyExpiresOnlyAfterItsDeadline() {
+        timingWheel.schedule("key", 250);
+
+        assertEquals(0, timingWheel.advance(200));
+        assertEquals(1, timingWheel.advance(300));
+        assertEquals(List.of("key"), expired);
+    }
+
+    @Test
+    void testKeyBeyondOneRotationWaitsForItsRound() {
+        timingWheel.schedule("later", 1_500);
+        timingWheel.schedule("sooner", 700);
+
+        timingWheel.advance(800);
+        assertEquals(List.of("sooner"), expired);
+
+        timingWheel.advance(1_500);
+        assertEquals(List.of("sooner", "later"), expired);
+    }
+
+    @Test
+    void testAdvanceCatchesUpAfterLongPause() {
+        timingWheel.schedule("first", 300);
+        timingWheel.schedule("second", 5_000);
+
+        assertEquals(2, timingWheel.advance(100_000));
+        assertEquals(2, expired.size());
+    }
+
+    @Test
+    void testPastDeadlineExpiresOnNextTick() {
+        timingWheel.advance(1_000);
+        timingWheel.schedule("key", 10);
+
+        assertEquals(0, timingWheel.advance(1_000));
+        assertEquals(1, timingWheel.advance(1_100));
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 8, key -> {}, 0));
+    }
+}